@@ -1109,6 +1109,7 @@ public Frame fetch( final StatementHandle h, final long offset, final int fetchM
                 final Iterable<Object> iterable = createIterable( statementHandle.getStatement().getDataContext(), signature );
                 iterator = iterable.iterator();
                 statementHandle.setOpenResultSet( iterator );
+                signature.getExecutionTimeMonitor().setExecutionStarted();
                 statementHandle.getExecutionStopWatch().start();
             } else {
                 iterator = statementHandle.getOpenResultSet();
@@ -1116,12 +1117,13 @@ public Frame fetch( final StatementHandle h, final long offset, final int fetchM
             }
             final List rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, fetchMaxRowCount ), new ArrayList<>() );
             statementHandle.getExecutionStopWatch().suspend();
+            statementHandle.addFetchedRows( rows.size() );
             boolean done = fetchMaxRowCount == 0 || rows.size() < fetchMaxRowCount;
             @SuppressWarnings("unchecked")
             List<Object> rows1 = (List<Object>) rows;
             if ( done ) {
                 statementHandle.getExecutionStopWatch().stop();
-                signature.getExecutionTimeMonitor().setExecutionTime( statementHandle.getExecutionStopWatch().getNanoTime() );
+                signature.getExecutionTimeMonitor().setExecutionTime( statementHandle.getExecutionStopWatch().getNanoTime(), statementHandle.getFetchedRowCount() );
                 try {
                     if ( iterator instanceof AutoCloseable ) {
                         ((AutoCloseable) iterator).close();
@@ -44,6 +44,9 @@ public class PolyphenyDbStatementHandle {
     @Getter
     private final StopWatch executionStopWatch = new StopWatch();
 
+    // Number of rows fetched from the open result set so far
+    private volatile transient long fetchedRowCount;
+
 
     public PolyphenyDbStatementHandle( final PolyphenyDbConnectionHandle connection, final int statementId ) {
         this.connection = connection;
@@ -56,12 +59,19 @@ public synchronized void setOpenResultSet( Iterator<Object> result ) {
             //  this.openResultSet.close();
         }
         this.openResultSet = result;
+        this.fetchedRowCount = 0;
+    }
+
+
+    public synchronized void addFetchedRows( int rowCount ) {
+        this.fetchedRowCount += rowCount;
     }
 
 
     public synchronized void setSignature( PolyphenyDbSignature signature ) {
         this.signature = signature;
         this.openResultSet = null;
+        this.fetchedRowCount = 0;
         executionStopWatch.reset();
     }
 
@@ -1955,6 +1955,42 @@ public void updatePartitionPlacementPhysicalNames( int adapterId, long partition
     }
 
 
+    /**
+     * Change the role of a partition placement.
+     *
+     * @param adapterId The id of the adapter
+     * @param partitionId The id of the partition
+     * @param role The new role of the placement
+     */
+    @Override
+    public void updatePartitionPlacementRole( int adapterId, long partitionId, DataPlacementRole role ) {
+        try {
+            CatalogPartitionPlacement old = Objects.requireNonNull( partitionPlacements.get( new Object[]{ adapterId, partitionId } ) );
+            CatalogPartitionPlacement placement = new CatalogPartitionPlacement(
+                    old.tableId,
+                    old.adapterId,
+                    old.adapterUniqueName,
+                    old.placementType,
+                    old.physicalSchemaName,
+                    old.physicalTableName,
+                    old.partitionId,
+                    role );
+
+            synchronized ( this ) {
+                partitionPlacements.replace( new Object[]{ adapterId, partitionId }, placement );
+                // Rebuild the DataPlacement container to update its pre-aggregation by role
+                addPartitionsToDataPlacement( adapterId, old.tableId, Collections.singletonList( partitionId ) );
+                listeners.firePropertyChange( "partitionPlacement", old, placement );
+            }
+
+        } catch ( NullPointerException e ) {
+            getAdapter( adapterId );
+            getPartition( partitionId );
+            throw new UnknownPartitionPlacementException( adapterId, partitionId );
+        }
+    }
+
+
     /**
      * Updates the last time a materialized view has been refreshed.
      *
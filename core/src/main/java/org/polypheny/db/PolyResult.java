@@ -201,6 +201,7 @@ public List<List<Object>> getRows( Statement statement, int size, boolean isTime
             List<List<Object>> res;
 
             if ( isTimed ) {
+                executionTimeMonitor.setExecutionStarted();
                 stopWatch = new StopWatch();
                 stopWatch.start();
             }
@@ -212,7 +213,8 @@ public List<List<Object>> getRows( Statement statement, int size, boolean isTime
             this.hasMoreRows = iterator.hasNext();
             if ( isTimed ) {
                 stopWatch.stop();
-                executionTimeMonitor.setExecutionTime( stopWatch.getNanoTime() );
+                // The iterator is closed after this call, hence a truncated result only gives a lower bound of the row count
+                executionTimeMonitor.setExecutionTime( stopWatch.getNanoTime(), res.size(), !hasMoreRows );
             }
 
             // Only if it is an index
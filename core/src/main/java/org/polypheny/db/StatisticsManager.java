@@ -19,6 +19,7 @@
 import java.beans.PropertyChangeListener;
 import java.util.List;
 import java.util.Map;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.catalog.entity.CatalogColumn;
 import org.polypheny.db.catalog.entity.CatalogSchema;
 import org.polypheny.db.catalog.entity.CatalogTable;
@@ -78,6 +79,14 @@ public static StatisticsManager getInstance() {
 
     public abstract Integer rowCountPerTable( long tableId );
 
+    /**
+     * Estimates the share of the rows of a column which satisfy the comparison {@code column <kind> value}.
+     *
+     * @param kind The comparison, e.g. {@link Kind#EQUALS} or {@link Kind#LESS_THAN}
+     * @return The selectivity between 0 and 1, or null if it cannot be estimated from the available statistics
+     */
+    public abstract Double getSelectivity( long schemaId, long tableId, long columnId, Kind kind, Object value );
+
     public abstract void updateCommitRollback( boolean committed );
 
     public abstract Object getDashboardInformation();
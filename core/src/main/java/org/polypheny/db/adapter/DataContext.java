@@ -25,6 +25,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.Data;
 import org.apache.calcite.linq4j.QueryProvider;
@@ -105,6 +106,27 @@ default Object getParameterValue( long index ) {
         return getParameterValues().get( 0 ).get( index );
     }
 
+    /**
+     * Assigns rows of parameter values to a group, e.g. the rows of a prepared batch which are inserted into the same
+     * partition. See {@link org.polypheny.db.algebra.core.ParameterGroup}.
+     */
+    default void setParameterGroup( long groupId, List<Map<Long, Object>> values ) {
+        throw new UnsupportedOperationException();
+    }
+
+    default List<Map<Long, Object>> getParameterGroup( long groupId ) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a task which executes the given task with a copy of the current parameter values. Changes of the parameter
+     * values by the task are only visible to the thread executing it, which allows to execute tasks of the same statement
+     * concurrently.
+     */
+    default <T> Callable<T> withParameterSnapshot( Callable<T> task ) {
+        return task;
+    }
+
 
     @Data
     class ParameterValue {
@@ -0,0 +1,656 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.IClassLoader;
+import org.codehaus.janino.Java;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.UnitCompiler;
+import org.codehaus.janino.util.ClassFile;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.runtime.ArrayBindable;
+import org.polypheny.db.runtime.Bindable;
+import org.polypheny.db.runtime.PolyphenyDbException;
+import org.polypheny.db.runtime.Typed;
+import org.polypheny.db.runtime.Utilities;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
+import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
+import org.polypheny.db.util.background.BackgroundTaskManager;
+
+
+/**
+ * Cache of the classes compiled from the generated code of query plans.
+ *
+ * The classes are addressed by a hash of their source code. They are kept in memory and written to disk, so that
+ * a plan which has been evicted from the implementation cache, or which is executed again after a restart, does not
+ * have to be compiled again. Both caches are bounded; if a limit is reached, the least recently used plans are
+ * removed. On startup, the classes of the most frequently compiled plans are loaded in advance (see {@link #warmUp()}).
+ * The cache on disk is cleared if any of the runtime classes the generated code links against have changed.
+ *
+ * Every thread compiles with its own Janino class loader, which caches the types it has resolved from the runtime
+ * classes instead of resolving them again for every plan.
+ */
+@Slf4j
+public final class BindableCache {
+
+    private static final String FOLDER = "bindables";
+    private static final String STAMP_FILE = "stamp";
+    private static final String USAGE_FILE = "usage";
+    private static final String SUFFIX = ".classes";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 2;
+
+    private static BindableCache instance;
+
+    /**
+     * Folder of the cache on disk, or null if the classes are only cached in memory.
+     */
+    private final File directory;
+    private final ClassLoader parentClassLoader;
+    // The Janino class loader is not thread safe
+    private final ThreadLocal<IClassLoader> iClassLoaders;
+    private final Cache<String, Class<?>> classes;
+    private final int diskSize;
+    private final Map<String, Usage> usage = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private volatile boolean usageChanged = false;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * @param directory Folder of the cache on disk, or null to cache the classes only in memory
+     * @param parentClassLoader Class loader of the runtime classes
+     * @param memorySize Maximum number of plans whose classes are kept in memory
+     * @param diskSize Maximum number of plans whose classes are kept on disk
+     */
+    BindableCache( File directory, ClassLoader parentClassLoader, int memorySize, int diskSize ) {
+        this.directory = directory;
+        this.parentClassLoader = parentClassLoader;
+        this.iClassLoaders = ThreadLocal.withInitial( () -> new ClassLoaderIClassLoader( parentClassLoader ) );
+        this.classes = CacheBuilder.newBuilder()
+                .maximumSize( memorySize )
+                .build();
+        this.diskSize = diskSize;
+        if ( directory != null ) {
+            readUsage();
+        }
+    }
+
+
+    public static synchronized BindableCache getInstance() {
+        if ( instance == null ) {
+            instance = new BindableCache(
+                    openDirectory(),
+                    EnumerableInterpretable.class.getClassLoader(),
+                    RuntimeConfig.BINDABLE_CACHE_MEMORY_SIZE.getInteger(),
+                    RuntimeConfig.BINDABLE_CACHE_DISK_SIZE.getInteger() );
+            instance.registerMonitoringPage();
+            if ( instance.directory != null ) {
+                BackgroundTaskManager.INSTANCE.registerTask(
+                        instance::flushUsage,
+                        "Write the usage of the compiled query plans",
+                        TaskPriority.LOW,
+                        TaskSchedulingType.EVERY_MINUTE );
+                Runtime.getRuntime().addShutdownHook( new Thread( instance::flushUsage, "BindableCacheShutdownHook" ) );
+            }
+        }
+        return instance;
+    }
+
+
+    private static File openDirectory() {
+        final String stamp = runtimeStamp( EnumerableInterpretable.class.getClassLoader() );
+        if ( stamp == null ) {
+            log.warn( "Unable to identify the runtime classes, compiled query plans are not cached on disk." );
+            return null;
+        }
+        return openDirectory( PolyphenyHomeDirManager.getInstance().registerNewFolder( FOLDER ), stamp );
+    }
+
+
+    /**
+     * Opens the folder of the cache on disk and removes its content if it has been written with different runtime
+     * classes. Returns null if the folder cannot be used.
+     *
+     * @param directory Folder of the cache
+     * @param stamp Stamp of the runtime classes, see {@link #runtimeStamp(ClassLoader)}
+     */
+    static File openDirectory( File directory, String stamp ) {
+        final File stampFile = new File( directory, STAMP_FILE );
+        try {
+            if ( !stampFile.exists() || !stamp.equals( new String( Files.readAllBytes( stampFile.toPath() ), StandardCharsets.UTF_8 ) ) ) {
+                deleteFiles( directory, ( dir, name ) -> true );
+                Files.write( stampFile.toPath(), stamp.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            return directory;
+        } catch ( IOException e ) {
+            log.warn( "Unable to open the cache of compiled query plans, they are not cached on disk.", e );
+            return null;
+        }
+    }
+
+
+    /**
+     * Identifies the runtime classes the generated code can link against. These are all jars and class folders on
+     * the class path and of the given class loader and its parents. The stamp is a hash of their locations, sizes
+     * and modification times; a class folder is identified by the number, total size and latest modification time
+     * of the files it contains. Returns null if the runtime classes cannot be determined.
+     */
+    static String runtimeStamp( ClassLoader classLoader ) {
+        try {
+            final Set<File> locations = new TreeSet<>();
+            for ( String path : System.getProperty( "java.class.path", "" ).split( File.pathSeparator ) ) {
+                if ( !path.isEmpty() ) {
+                    locations.add( new File( path ).getAbsoluteFile() );
+                }
+            }
+            for ( ClassLoader loader = classLoader; loader != null; loader = loader.getParent() ) {
+                if ( loader instanceof URLClassLoader ) {
+                    for ( URL url : ((URLClassLoader) loader).getURLs() ) {
+                        if ( "file".equals( url.getProtocol() ) ) {
+                            locations.add( new File( url.toURI() ).getAbsoluteFile() );
+                        }
+                    }
+                }
+            }
+            locations.add( new File( EnumerableInterpretable.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).getAbsoluteFile() );
+
+            final StringBuilder sb = new StringBuilder().append( FORMAT_VERSION );
+            for ( File location : locations ) {
+                if ( location.exists() ) {
+                    sb.append( '\n' ).append( location.getPath() ).append( ' ' ).append( locationStamp( location ) );
+                }
+            }
+            return hash( sb.toString() );
+        } catch ( Exception e ) {
+            return null;
+        }
+    }
+
+
+    private static String locationStamp( File location ) throws IOException {
+        if ( !location.isDirectory() ) {
+            return location.length() + " " + location.lastModified();
+        }
+        long count = 0;
+        long size = 0;
+        long lastModified = 0;
+        try ( Stream<Path> paths = Files.walk( location.toPath() ) ) {
+            for ( Path path : (Iterable<Path>) paths::iterator ) {
+                final File file = path.toFile();
+                if ( file.isFile() ) {
+                    count++;
+                    size += file.length();
+                    lastModified = Math.max( lastModified, file.lastModified() );
+                }
+            }
+        }
+        return count + " " + size + " " + lastModified;
+    }
+
+
+    /**
+     * Returns the key under which the classes compiled from the given class body are cached.
+     */
+    static String key( String className, String source, int fieldCount ) {
+        return hash( className + "\n" + fieldCount + "\n" + source );
+    }
+
+
+    /**
+     * Returns a new instance of the class compiled from the given class body.
+     *
+     * @param className Name of the class
+     * @param source Class body
+     * @param fieldCount Number of fields of the rows; if one, the class implements {@link Bindable} and {@link Typed},
+     * otherwise {@link ArrayBindable}
+     */
+    Bindable getBindable( String className, String source, int fieldCount ) throws CompileException, IOException {
+        final String key = key( className, source, fieldCount );
+        touch( key );
+        Class<?> clazz = classes.getIfPresent( key );
+        if ( clazz != null ) {
+            memoryHits.increment();
+        } else {
+            try {
+                // Concurrent requests for the same plan wait for one of them to load it, other plans are not blocked
+                clazz = classes.get( key, () -> load( key, className, source, fieldCount ) );
+            } catch ( ExecutionException | UncheckedExecutionException e ) {
+                Throwables.throwIfInstanceOf( e.getCause(), CompileException.class );
+                Throwables.throwIfInstanceOf( e.getCause(), IOException.class );
+                Throwables.throwIfUnchecked( e.getCause() );
+                throw new PolyphenyDbException( "Unable to load compiled query plan " + className, e.getCause() );
+            }
+        }
+        try {
+            return (Bindable) clazz.getDeclaredConstructor().newInstance();
+        } catch ( ReflectiveOperationException e ) {
+            throw new PolyphenyDbException( "Unable to instantiate compiled query plan " + className, e );
+        }
+    }
+
+
+    private Class<?> load( String key, String className, String source, int fieldCount ) throws CompileException, IOException {
+        final Class<?> cached = read( key );
+        if ( cached != null ) {
+            diskHits.increment();
+            return cached;
+        }
+        final long start = System.nanoTime();
+        final Map<String, byte[]> bytecode = compile( className, source, fieldCount );
+        compileNanos.add( System.nanoTime() - start );
+        compilations.increment();
+        final Class<?> clazz = define( className, bytecode );
+        write( key, className, bytecode );
+        return clazz;
+    }
+
+
+    /**
+     * Records a use of the plan with the given key and evicts the least recently used plans if there are too many.
+     */
+    private void touch( String key ) {
+        final long now = clock.incrementAndGet();
+        final Usage entry = usage.computeIfAbsent( key, k -> new Usage( 0, now ) );
+        entry.count.incrementAndGet();
+        entry.lastUsed = now;
+        usageChanged = true;
+        if ( usage.size() > diskSize ) {
+            evict();
+        }
+    }
+
+
+    /**
+     * Removes the least recently used plans from memory and disk until at most 90% of the limit are left. A plan which
+     * is evicted while it is compiled is written to disk anyway; such files are deleted on the next startup.
+     */
+    private synchronized void evict() {
+        if ( usage.size() <= diskSize ) {
+            return;
+        }
+        final List<Pair<String, Long>> entries = new ArrayList<>();
+        usage.forEach( ( key, entry ) -> entries.add( Pair.of( key, entry.lastUsed ) ) );
+        entries.sort( Comparator.comparingLong( p -> p.right ) );
+        final int target = Math.max( 0, diskSize - diskSize / 10 );
+        for ( int i = 0; i < entries.size() - target; i++ ) {
+            final String key = entries.get( i ).left;
+            usage.remove( key );
+            classes.invalidate( key );
+            if ( directory != null ) {
+                final File file = new File( directory, key + SUFFIX );
+                if ( file.exists() && !file.delete() ) {
+                    log.warn( "Unable to delete {}", file );
+                }
+            }
+            evictions.increment();
+        }
+    }
+
+
+    private Map<String, byte[]> compile( String className, String source, int fieldCount ) throws CompileException, IOException {
+        final String interfaces = fieldCount == 1
+                ? Bindable.class.getName() + ", " + Typed.class.getName()
+                : ArrayBindable.class.getName();
+        final String unit = "public class " + className + " extends " + Utilities.class.getName() + " implements " + interfaces + " {\n"
+                + source + "\n}\n";
+        final Java.CompilationUnit compilationUnit = new Parser( new Scanner( null, new StringReader( unit ) ) ).parseCompilationUnit();
+        final ClassFile[] classFiles = new UnitCompiler( compilationUnit, iClassLoaders.get() ).compileUnit( false, false, false );
+        final Map<String, byte[]> bytecode = new HashMap<>();
+        for ( ClassFile classFile : classFiles ) {
+            bytecode.put( classFile.getThisClassName(), classFile.toByteArray() );
+        }
+        return bytecode;
+    }
+
+
+    private Class<?> define( String className, Map<String, byte[]> bytecode ) {
+        try {
+            return Class.forName( className, true, new BytecodeClassLoader( bytecode, parentClassLoader ) );
+        } catch ( ClassNotFoundException e ) {
+            throw new PolyphenyDbException( "Compiled query plan does not contain class " + className, e );
+        }
+    }
+
+
+    /**
+     * Loads the classes with the given key from disk. Returns null if they are not cached or cannot be read.
+     */
+    private Class<?> read( String key ) {
+        if ( directory == null ) {
+            return null;
+        }
+        final File file = new File( directory, key + SUFFIX );
+        if ( !file.exists() ) {
+            return null;
+        }
+        try ( DataInputStream in = new DataInputStream( new FileInputStream( file ) ) ) {
+            if ( in.readInt() != FORMAT_VERSION ) {
+                return null;
+            }
+            final String className = in.readUTF();
+            final int count = in.readInt();
+            final Map<String, byte[]> bytecode = new HashMap<>();
+            for ( int i = 0; i < count; i++ ) {
+                final String name = in.readUTF();
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully( bytes );
+                bytecode.put( name, bytes );
+            }
+            return define( className, bytecode );
+        } catch ( IOException | RuntimeException | LinkageError e ) {
+            log.warn( "Unable to load compiled query plan {}, it is compiled again.", key, e );
+            if ( !file.delete() ) {
+                log.warn( "Unable to delete {}", file );
+            }
+            return null;
+        }
+    }
+
+
+    private void write( String key, String className, Map<String, byte[]> bytecode ) {
+        if ( directory == null ) {
+            return;
+        }
+        final File file = new File( directory, key + SUFFIX );
+        try {
+            // Write to a temporary file first, so that concurrent readers never see a partially written file
+            final File temp = File.createTempFile( key, TEMP_SUFFIX, directory );
+            try ( DataOutputStream out = new DataOutputStream( new FileOutputStream( temp ) ) ) {
+                out.writeInt( FORMAT_VERSION );
+                out.writeUTF( className );
+                out.writeInt( bytecode.size() );
+                for ( Entry<String, byte[]> entry : bytecode.entrySet() ) {
+                    out.writeUTF( entry.getKey() );
+                    out.writeInt( entry.getValue().length );
+                    out.write( entry.getValue() );
+                }
+            }
+            Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            log.warn( "Unable to write compiled query plan {} to disk.", key, e );
+        }
+    }
+
+
+    /**
+     * Loads the classes of the query plans which have been compiled most frequently, up to
+     * {@link RuntimeConfig#BINDABLE_CACHE_WARM_UP} plans.
+     */
+    public void warmUp() {
+        if ( directory == null || !RuntimeConfig.BINDABLE_CACHE.getBoolean() ) {
+            return;
+        }
+        final List<Pair<String, Long>> entries = new ArrayList<>();
+        usage.forEach( ( key, entry ) -> entries.add( Pair.of( key, entry.count.get() ) ) );
+        entries.sort( Comparator.comparingLong( ( Pair<String, Long> p ) -> p.right ).reversed() );
+        int loaded = 0;
+        for ( Pair<String, Long> entry : entries ) {
+            if ( loaded >= RuntimeConfig.BINDABLE_CACHE_WARM_UP.getInteger() ) {
+                break;
+            }
+            if ( classes.getIfPresent( entry.left ) != null ) {
+                continue;
+            }
+            final Class<?> clazz = read( entry.left );
+            if ( clazz != null ) {
+                classes.put( entry.left, clazz );
+                loaded++;
+            }
+        }
+        log.debug( "Loaded {} compiled query plans.", loaded );
+    }
+
+
+    /**
+     * Reads how often and how recently the plans have been used in previous runs. Files of plans which are not listed,
+     * e.g. because they have been written after the usage has last been written, are deleted.
+     */
+    private void readUsage() {
+        final File file = new File( directory, USAGE_FILE );
+        if ( file.exists() ) {
+            try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ) ) {
+                String line;
+                while ( (line = reader.readLine()) != null ) {
+                    final String[] parts = line.split( " " );
+                    if ( parts.length == 3 && new File( directory, parts[0] + SUFFIX ).exists() ) {
+                        final long lastUsed = Long.parseLong( parts[2] );
+                        usage.put( parts[0], new Usage( Long.parseLong( parts[1] ), lastUsed ) );
+                        clock.accumulateAndGet( lastUsed, Math::max );
+                    }
+                }
+            } catch ( IOException | NumberFormatException e ) {
+                log.warn( "Unable to read the usage of the compiled query plans.", e );
+            }
+        }
+        deleteFiles( directory, ( dir, name ) -> name.endsWith( TEMP_SUFFIX )
+                || (name.endsWith( SUFFIX ) && !usage.containsKey( name.substring( 0, name.length() - SUFFIX.length() ) )) );
+        evict();
+    }
+
+
+    /**
+     * Writes the usage of the plans to disk if it has changed since it has last been written. This is done
+     * periodically and on shutdown, instead of after every compilation.
+     */
+    void flushUsage() {
+        if ( usageChanged ) {
+            usageChanged = false;
+            writeUsage();
+        }
+    }
+
+
+    private synchronized void writeUsage() {
+        if ( directory == null ) {
+            return;
+        }
+        try {
+            final File temp = File.createTempFile( USAGE_FILE, TEMP_SUFFIX, directory );
+            try ( BufferedWriter writer = Files.newBufferedWriter( temp.toPath(), StandardCharsets.UTF_8 ) ) {
+                for ( Entry<String, Usage> entry : usage.entrySet() ) {
+                    writer.write( entry.getKey() + " " + entry.getValue().count.get() + " " + entry.getValue().lastUsed );
+                    writer.newLine();
+                }
+            }
+            Files.move( temp.toPath(), new File( directory, USAGE_FILE ).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            log.warn( "Unable to write the usage of the compiled query plans.", e );
+        }
+    }
+
+
+    /**
+     * Removes all classes from memory and disk.
+     */
+    void clear() {
+        classes.invalidateAll();
+        usage.clear();
+        if ( directory != null ) {
+            deleteFiles( directory, ( dir, name ) -> name.endsWith( SUFFIX ) || name.equals( USAGE_FILE ) );
+        }
+    }
+
+
+    private static void deleteFiles( File directory, FilenameFilter filter ) {
+        final File[] files = directory.listFiles( filter );
+        if ( files != null ) {
+            for ( File file : files ) {
+                if ( !file.delete() ) {
+                    log.warn( "Unable to delete {}", file );
+                }
+            }
+        }
+    }
+
+
+    private static String hash( String s ) {
+        try {
+            final byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( s.getBytes( StandardCharsets.UTF_8 ) );
+            final StringBuilder sb = new StringBuilder();
+            for ( byte b : digest ) {
+                sb.append( String.format( "%02x", b ) );
+            }
+            return sb.toString();
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new PolyphenyDbException( "SHA-256 is not supported", e );
+        }
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Bindable Cache" );
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            final long compiled = compilations.sum();
+            generalKv.putPair( "Status", RuntimeConfig.BINDABLE_CACHE.getBoolean() ? (directory != null ? "Active" : "Memory only") : "Disabled" );
+            generalKv.putPair( "Classes in Memory", classes.size() + "" );
+            generalKv.putPair( "Known Plans", usage.size() + "" );
+            generalKv.putPair( "Memory Hits", memoryHits.sum() + "" );
+            generalKv.putPair( "Disk Hits", diskHits.sum() + "" );
+            generalKv.putPair( "Compilations", compiled + "" );
+            generalKv.putPair( "Evictions", evictions.sum() + "" );
+            generalKv.putPair( "Total Compile Time", TimeUnit.NANOSECONDS.toMillis( compileNanos.sum() ) + " ms" );
+            generalKv.putPair( "Average Compile Time", (compiled == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis( compileNanos.sum() / compiled )) + " ms" );
+        } );
+
+        InformationAction resetAction = new InformationAction( generalGroup, "Reset Counters", parameters -> {
+            memoryHits.reset();
+            diskHits.reset();
+            compilations.reset();
+            compileNanos.reset();
+            evictions.reset();
+            generalGroup.refresh();
+            return "Successfully reset the bindable cache counters!";
+        } );
+        resetAction.setOrder( 2 );
+        im.registerInformation( resetAction );
+
+        InformationAction clearAction = new InformationAction( generalGroup, "Clear Cache", parameters -> {
+            clear();
+            generalGroup.refresh();
+            return "Successfully cleared the bindable cache!";
+        } );
+        clearAction.setOrder( 3 );
+        im.registerInformation( clearAction );
+    }
+
+
+    /**
+     * How often and how recently a plan has been used. The time is a logical clock, which is persisted with the usage.
+     */
+    private static final class Usage {
+
+        private final AtomicLong count;
+        private volatile long lastUsed;
+
+
+        Usage( long count, long lastUsed ) {
+            this.count = new AtomicLong( count );
+            this.lastUsed = lastUsed;
+        }
+
+    }
+
+
+    /**
+     * Class loader for the classes compiled from one plan.
+     */
+    private static final class BytecodeClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> bytecode;
+
+
+        BytecodeClassLoader( Map<String, byte[]> bytecode, ClassLoader parent ) {
+            super( parent );
+            this.bytecode = bytecode;
+        }
+
+
+        @Override
+        protected Class<?> findClass( String name ) throws ClassNotFoundException {
+            final byte[] bytes = bytecode.get( name );
+            if ( bytes == null ) {
+                throw new ClassNotFoundException( name );
+            }
+            return defineClass( name, bytes, 0, bytes.length );
+        }
+
+    }
+
+}
@@ -51,10 +51,12 @@
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Primitive;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.constant.SemiJoinType;
 import org.polypheny.db.algebra.core.JoinAlgType;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
+import org.polypheny.db.plan.Convention;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Util;
@@ -279,5 +281,24 @@ static Expression enforce( final Type storageType, final Expression e ) {
         return e;
     }
 
-}
 
+    /**
+     * Returns the convention of the adapter on which the given input is executed
+     * or {@code null} if it is executed completely in the enumerable convention.
+     */
+    static Convention getAdapterConvention( AlgNode node ) {
+        final Convention convention = node.getConvention();
+        if ( convention != null && convention != EnumerableConvention.INSTANCE && convention != Convention.NONE ) {
+            return convention;
+        }
+        for ( AlgNode input : node.getInputs() ) {
+            final Convention inputConvention = getAdapterConvention( input );
+            if ( inputConvention != null ) {
+                return inputConvention;
+            }
+        }
+        return null;
+    }
+
+
+}
@@ -42,13 +42,17 @@
 import java.util.LinkedList;
 import java.util.List;
 import org.apache.calcite.linq4j.Ord;
+import org.apache.calcite.linq4j.function.DoubleFunction1;
 import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.function.Function2;
+import org.apache.calcite.linq4j.function.LongFunction1;
+import org.apache.calcite.linq4j.function.Predicate1;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.linq4j.tree.Types;
 import org.polypheny.db.adapter.enumerable.impl.AggAddContextImpl;
 import org.polypheny.db.adapter.enumerable.impl.AggResultContextImpl;
@@ -56,6 +60,7 @@
 import org.polypheny.db.algebra.AlgCollations;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.InvalidAlgException;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.algebra.core.Aggregate;
 import org.polypheny.db.algebra.core.AggregateCall;
 import org.polypheny.db.algebra.fun.AggFunction;
@@ -67,6 +72,9 @@
 import org.polypheny.db.prepare.JavaTypeFactoryImpl.SyntheticRecordType;
 import org.polypheny.db.rex.RexInputRef;
 import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.HashAggregate;
+import org.polypheny.db.runtime.HashAggregate.AggKind;
+import org.polypheny.db.type.PolyType;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.ImmutableBitSet;
 import org.polypheny.db.util.Pair;
@@ -182,6 +190,14 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final PhysType keyPhysType = inputPhysType.project( groupSet.asList(), getGroupType() != Group.SIMPLE, JavaRowFormat.LIST );
         final int groupCount = getGroupCount();
 
+        if ( RuntimeConfig.HASH_AGGREGATION.getBoolean() ) {
+            final Expression hashAggregate = implementHashAggregate( typeFactory, childExp, inputPhysType, keyPhysType );
+            if ( hashAggregate != null ) {
+                builder.add( Expressions.return_( null, hashAggregate ) );
+                return implementor.result( PhysTypeImpl.of( typeFactory, getRowType(), JavaRowFormat.ARRAY ), builder.toBlock() );
+            }
+        }
+
         final List<AggImpState> aggs = new ArrayList<>( aggCalls.size() );
         for ( Ord<AggregateCall> call : Ord.zip( aggCalls ) ) {
             aggs.add( new AggImpState( call.i, call.e, false ) );
@@ -377,6 +393,89 @@ public RexToLixTranslator rowTranslator() {
     }
 
 
+    /**
+     * Implements the aggregation using {@link HashAggregate}, which returns the rows as arrays. Returns null if the
+     * aggregation is not supported, i.e., if there are aggregate functions other than COUNT, SUM, MIN and MAX on
+     * numeric values.
+     */
+    private Expression implementHashAggregate( JavaTypeFactory typeFactory, Expression childExp, PhysType inputPhysType, PhysType keyPhysType ) {
+        if ( getGroupType() != Group.SIMPLE || groupSet.isEmpty() || aggCalls.isEmpty() || keyPhysType.comparer() != null ) {
+            return null;
+        }
+        final ParameterExpression row = Expressions.parameter( inputPhysType.getJavaRowType(), "row" );
+        final List<Expression> aggs = new ArrayList<>();
+        for ( AggregateCall call : aggCalls ) {
+            if ( call.isDistinct() || call.isApproximate() || call.filterArg >= 0 || !call.collation.equals( AlgCollations.EMPTY ) ) {
+                return null;
+            }
+            final Kind kind = call.getAggregation().getKind();
+            final List<Integer> args = call.getArgList();
+            if ( kind == Kind.COUNT && args.size() <= 1 && call.type.getPolyType() == PolyType.BIGINT ) {
+                aggs.add( Expressions.call(
+                        BuiltInMethod.HASH_AGGREGATE_COUNT.method,
+                        args.isEmpty() ? Expressions.constant( null ) : isNullPredicate( inputPhysType, row, args.get( 0 ) ) ) );
+                continue;
+            }
+            if ( (kind != Kind.SUM && kind != Kind.SUM0 && kind != Kind.MIN && kind != Kind.MAX) || args.size() != 1 ) {
+                return null;
+            }
+            final PolyType argType = getInput().getRowType().getFieldList().get( args.get( 0 ) ).getType().getPolyType();
+            final PolyType resultType = call.type.getPolyType();
+            final boolean floating;
+            if ( PolyType.INT_TYPES.contains( argType ) && PolyType.INT_TYPES.contains( resultType ) ) {
+                floating = false;
+            } else if ( PolyType.APPROX_TYPES.contains( argType ) && PolyType.APPROX_TYPES.contains( resultType ) ) {
+                floating = true;
+            } else {
+                return null;
+            }
+            final Primitive resultPrimitive = Primitive.ofBoxOr( typeFactory.getJavaClass( call.type ) );
+            if ( resultPrimitive == null ) {
+                return null;
+            }
+            final Expression arg = RexToLixTranslator.convert( inputPhysType.fieldReference( row, args.get( 0 ) ), floating ? double.class : long.class );
+            aggs.add( Expressions.call(
+                    floating ? BuiltInMethod.HASH_AGGREGATE_DOUBLE.method : BuiltInMethod.HASH_AGGREGATE_LONG.method,
+                    Expressions.constant( AggKind.valueOf( kind.name() ) ),
+                    Expressions.constant( resultPrimitive ),
+                    Expressions.lambda( floating ? DoubleFunction1.class : LongFunction1.class, arg, row ),
+                    isNullPredicate( inputPhysType, row, args.get( 0 ) ) ) );
+        }
+        final Expression aggList = Expressions.call( BuiltInMethod.ARRAYS_AS_LIST.method, aggs );
+
+        final int key = groupSet.nth( 0 );
+        final AlgDataType keyType = getInput().getRowType().getFieldList().get( key ).getType();
+        final Primitive keyPrimitive = Primitive.ofBoxOr( typeFactory.getJavaClass( keyType ) );
+        if ( groupSet.cardinality() == 1 && PolyType.INT_TYPES.contains( keyType.getPolyType() ) && keyPrimitive != null ) {
+            // Group by the unboxed value
+            return Expressions.call(
+                    BuiltInMethod.HASH_AGGREGATE_LONG_KEY.method,
+                    childExp,
+                    Expressions.lambda( LongFunction1.class, RexToLixTranslator.convert( inputPhysType.fieldReference( row, key ), long.class ), row ),
+                    isNullPredicate( inputPhysType, row, key ),
+                    Expressions.constant( keyPrimitive ),
+                    aggList );
+        }
+        return Expressions.call(
+                BuiltInMethod.HASH_AGGREGATE.method,
+                childExp,
+                inputPhysType.generateSelector( row, groupSet.asList(), keyPhysType.getFormat() ),
+                Expressions.constant( groupSet.cardinality() ),
+                aggList );
+    }
+
+
+    /**
+     * Returns a predicate testing whether a field of a row is null, or a null constant if the field is not nullable.
+     */
+    private static Expression isNullPredicate( PhysType inputPhysType, ParameterExpression row, int field ) {
+        if ( !inputPhysType.fieldNullable( field ) || inputPhysType.fieldClass( field ).isPrimitive() ) {
+            return Expressions.constant( null );
+        }
+        return Expressions.lambda( Predicate1.class, Expressions.equal( inputPhysType.fieldReference( row, field ), Expressions.constant( null ) ), row );
+    }
+
+
     private static boolean hasOrderedCall( List<AggImpState> aggs ) {
         for ( AggImpState agg : aggs ) {
             if ( !agg.call.collation.equals( AlgCollations.EMPTY ) ) {
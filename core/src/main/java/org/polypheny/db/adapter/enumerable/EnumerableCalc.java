@@ -37,6 +37,7 @@
 import com.google.common.collect.ImmutableList;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.apache.calcite.linq4j.Enumerator;
@@ -47,6 +48,7 @@
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.MemberDeclaration;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.linq4j.tree.Types;
 import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
@@ -58,13 +60,17 @@
 import org.polypheny.db.algebra.metadata.AlgMdCollation;
 import org.polypheny.db.algebra.metadata.AlgMdDistribution;
 import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.algebra.type.AlgDataTypeField;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.AlgOptCluster;
 import org.polypheny.db.plan.AlgOptPredicateList;
 import org.polypheny.db.plan.AlgTraitSet;
 import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexLocalRef;
 import org.polypheny.db.rex.RexProgram;
 import org.polypheny.db.rex.RexSimplify;
 import org.polypheny.db.rex.RexUtil;
+import org.polypheny.db.runtime.vector.VectorExpression;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Conformance;
 import org.polypheny.db.util.Pair;
@@ -136,6 +142,13 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final RexSimplify simplify = new RexSimplify( rexBuilder, predicates, RexUtil.EXECUTOR );
         final RexProgram program = this.program.normalize( rexBuilder, simplify );
 
+        if ( RuntimeConfig.VECTORIZED_EXECUTION.getBoolean() ) {
+            final Result vectorized = implementVectorized( implementor, result, program );
+            if ( vectorized != null ) {
+                return vectorized;
+            }
+        }
+
         BlockStatement moveNextBody;
         if ( program.getCondition() == null ) {
             moveNextBody = Blocks.toFunctionBlock( Expressions.call( inputEnumerator, BuiltInMethod.ENUMERATOR_MOVE_NEXT.method ) );
@@ -273,6 +286,61 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
     }
 
 
+    /**
+     * Implements the calc using {@link org.polypheny.db.runtime.vector.VectorizedCalc}, which returns the rows as
+     * arrays. Returns null if the input rows are not arrays or if an expression is not supported by the vectorized
+     * implementation.
+     */
+    private Result implementVectorized( EnumerableAlgImplementor implementor, Result result, RexProgram program ) {
+        final JavaTypeFactory typeFactory = implementor.getTypeFactory();
+        final int inputFieldCount = program.getInputRowType().getFieldCount();
+        if ( program.getOutputRowType().getFieldCount() == 0 || inputFieldCount == 0 ) {
+            return null;
+        }
+        if ( result.format != JavaRowFormat.ARRAY && !(result.format == JavaRowFormat.SCALAR && inputFieldCount == 1) ) {
+            return null;
+        }
+        final RexToVectorTranslator translator = new RexToVectorTranslator( typeFactory, program );
+        final Expression condition;
+        if ( program.getCondition() == null ) {
+            condition = Expressions.constant( null, VectorExpression.class );
+        } else {
+            condition = translator.translate( program.getCondition() );
+            if ( condition == null ) {
+                return null;
+            }
+        }
+        final List<Expression> projects = new ArrayList<>();
+        for ( RexLocalRef project : program.getProjectList() ) {
+            final Expression expression = translator.translate( project );
+            if ( expression == null ) {
+                return null;
+            }
+            projects.add( expression );
+        }
+        final List<Expression> inputTypes = new ArrayList<>();
+        for ( AlgDataTypeField field : program.getInputRowType().getFieldList() ) {
+            inputTypes.add( Expressions.constant( translator.vectorType( field.getType() ), Primitive.class ) );
+        }
+
+        final PhysType physType = PhysTypeImpl.of( typeFactory, getRowType(), JavaRowFormat.ARRAY );
+        final BlockBuilder builder = new BlockBuilder();
+        final Expression childExp = builder.append( "child", result.block );
+        builder.add(
+                Expressions.return_(
+                        null,
+                        Expressions.call(
+                                BuiltInMethod.VECTORIZED_CALC.method,
+                                childExp,
+                                Expressions.call( BuiltInMethod.ARRAYS_AS_LIST.method, Expressions.newArrayInit( Primitive.class, inputTypes ) ),
+                                Expressions.constant( result.format == JavaRowFormat.SCALAR ),
+                                condition,
+                                Expressions.call( BuiltInMethod.ARRAYS_AS_LIST.method, Expressions.newArrayInit( VectorExpression.class, projects ) ),
+                                Expressions.constant( physType.getFormat() == JavaRowFormat.SCALAR ) ) ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+
     @Override
     public RexProgram getProgram() {
         return program;
@@ -132,6 +132,9 @@ static ArrayBindable getArrayBindable( ClassDeclaration expr, String s, int fiel
 
 
     static Bindable getBindable( ClassDeclaration expr, String s, int fieldCount ) throws CompileException, IOException {
+        if ( RuntimeConfig.BINDABLE_CACHE.getBoolean() && !RuntimeConfig.DEBUG.getBoolean() ) {
+            return BindableCache.getInstance().getBindable( expr.name, s, fieldCount );
+        }
         ICompilerFactory compilerFactory;
         try {
             compilerFactory = CompilerFactoryFactory.getDefaultCompilerFactory();
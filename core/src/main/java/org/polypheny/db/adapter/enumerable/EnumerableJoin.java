@@ -39,6 +39,7 @@
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.algebra.AlgCollation;
 import org.polypheny.db.algebra.AlgCollationTraitDef;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.AlgNodes;
@@ -153,6 +154,15 @@ private double addEpsilon( double d ) {
     }
 
 
+    /**
+     * Whether the plan relies on this join to retain the collation of its left input.
+     */
+    private boolean preservesOrder() {
+        final AlgCollation collation = traitSet.getTrait( AlgCollationTraitDef.INSTANCE );
+        return collation != null && !collation.getFieldCollations().isEmpty();
+    }
+
+
     @Override
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         BlockBuilder builder = new BlockBuilder();
@@ -162,21 +172,28 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         Expression rightExpression = builder.append( "right" + System.nanoTime(), rightResult.block );
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), pref.preferArray() );
         final PhysType keyPhysType = leftResult.physType.project( leftKeys, JavaRowFormat.LIST );
-        return implementor.result(
-                physType,
-                builder.append(
-                                Expressions.call(
-                                        leftExpression,
-                                        BuiltInMethod.JOIN.method,
-                                        Expressions.list(
-                                                        rightExpression,
-                                                        leftResult.physType.generateAccessor( leftKeys ),
-                                                        rightResult.physType.generateAccessor( rightKeys ),
-                                                        EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType, rightResult.physType ) ) )
-                                                .append( Util.first( keyPhysType.comparer(), Expressions.constant( null ) ) )
-                                                .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
-                                                .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) ) )
-                        .toBlock() );
+        final Expression outerKeySelector = leftResult.physType.generateAccessor( leftKeys );
+        final Expression innerKeySelector = rightResult.physType.generateAccessor( rightKeys );
+        final Expression resultSelector = EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType, rightResult.physType ) );
+        final Expression comparer = Util.first( keyPhysType.comparer(), Expressions.constant( null ) );
+        final Expression join;
+        if ( preservesOrder() ) {
+            join = Expressions.call(
+                    leftExpression,
+                    BuiltInMethod.JOIN.method,
+                    Expressions.list( rightExpression, outerKeySelector, innerKeySelector, resultSelector )
+                            .append( comparer )
+                            .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
+                            .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) );
+        } else {
+            // The build side may be spilled to disk, which does not retain the order of the left input
+            join = Expressions.call(
+                    BuiltInMethod.GRACE_HASH_JOIN.method,
+                    Expressions.list( leftExpression, rightExpression, outerKeySelector, innerKeySelector, resultSelector, comparer )
+                            .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
+                            .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) );
+        }
+        return implementor.result( physType, builder.append( join ).toBlock() );
     }
 
 }
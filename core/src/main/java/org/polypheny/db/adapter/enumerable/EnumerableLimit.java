@@ -117,6 +117,13 @@ public AlgWriter explainTerms( AlgWriter pw ) {
 
     @Override
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
+        if ( fetch != null && getInput() instanceof EnumerableSort ) {
+            final EnumerableSort sort = (EnumerableSort) getInput();
+            if ( sort.offset == null && sort.fetch == null ) {
+                // Only keep the first rows of the sort in memory
+                return sort.implement( implementor, pref, offset, fetch );
+            }
+        }
         final BlockBuilder builder = new BlockBuilder();
         final EnumerableAlg child = (EnumerableAlg) getInput();
         final Result result = implementor.visitChild( this, 0, child, pref );
@@ -139,7 +146,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
     }
 
 
-    private static Expression getExpression( RexNode offset ) {
+    static Expression getExpression( RexNode offset ) {
         if ( offset instanceof RexDynamicParam ) {
             final RexDynamicParam param = (RexDynamicParam) offset;
             return Expressions.convert_(
@@ -17,15 +17,22 @@
 package org.polypheny.db.adapter.enumerable;
 
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.core.ModifyCollect;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.AlgOptCluster;
 import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.Convention;
 import org.polypheny.db.util.BuiltInMethod;
 
 
@@ -48,12 +55,16 @@ public EnumerableModifyCollect copy( AlgTraitSet traitSet, List<AlgNode> inputs,
     @Override
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final BlockBuilder builder = new BlockBuilder();
-        Expression unionExp = null;
+        // Modifications on the same adapter share its connection and are therefore always executed one after another
+        final boolean parallel = RuntimeConfig.PARALLEL_MODIFY_COLLECT.getBoolean();
+        final Map<Convention, Expression> unionExpPerAdapter = new LinkedHashMap<>();
         for ( Ord<AlgNode> ord : Ord.zip( inputs ) ) {
             EnumerableAlg input = (EnumerableAlg) ord.e;
             final Result result = implementor.visitChild( this, ord.i, input, pref );
             Expression childExp = builder.append( "child" + ord.i, result.block );
 
+            final Convention adapterConvention = parallel ? EnumUtils.getAdapterConvention( input ) : null;
+            Expression unionExp = unionExpPerAdapter.get( adapterConvention );
             if ( unionExp == null ) {
                 unionExp = childExp;
             } else {
@@ -61,9 +72,19 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
                         ? Expressions.call( unionExp, BuiltInMethod.CONCAT.method, childExp )
                         : Expressions.call( unionExp, BuiltInMethod.UNION.method, Expressions.list( childExp ).appendIfNotNull( result.physType.comparer() ) );
             }
+            unionExpPerAdapter.put( adapterConvention, unionExp );
         }
 
-        builder.add( unionExp );
+        if ( unionExpPerAdapter.size() == 1 ) {
+            builder.add( unionExpPerAdapter.values().iterator().next() );
+        } else {
+            builder.add( Expressions.call(
+                    BuiltInMethod.PARALLEL_COLLECT.method,
+                    DataContext.ROOT,
+                    Expressions.call(
+                            BuiltInMethod.ARRAYS_AS_LIST.method,
+                            Expressions.newArrayInit( Enumerable.class, new ArrayList<>( unionExpPerAdapter.values() ) ) ) ) );
+        }
         final PhysType physType =
                 PhysTypeImpl.of(
                         implementor.getTypeFactory(),
@@ -73,4 +94,3 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
     }
 
 }
-
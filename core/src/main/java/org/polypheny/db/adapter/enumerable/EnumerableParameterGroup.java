@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.polypheny.db.adapter.enumerable;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.MemberDeclaration;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.core.ParameterGroup;
+import org.polypheny.db.plan.AlgOptCluster;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.util.BuiltInMethod;
+
+public class EnumerableParameterGroup extends ParameterGroup implements EnumerableAlg {
+
+    /**
+     * Creates a <code>EnumerableParameterGroup</code>.
+     *
+     * @param cluster Cluster this relational expression belongs to
+     * @param traits The trait set
+     * @param input Input relational expression
+     * @param groupId Id of the group of parameter values
+     */
+    protected EnumerableParameterGroup( AlgOptCluster cluster, AlgTraitSet traits, AlgNode input, long groupId ) {
+        super( cluster, traits, input, groupId );
+    }
+
+
+    public static EnumerableParameterGroup create( AlgNode input, long groupId ) {
+        return new EnumerableParameterGroup( input.getCluster(), input.getTraitSet(), input, groupId );
+    }
+
+
+    @Override
+    public AlgNode copy( AlgTraitSet traitSet, List<AlgNode> inputs ) {
+        return new EnumerableParameterGroup( inputs.get( 0 ).getCluster(), traitSet, inputs.get( 0 ), groupId );
+    }
+
+
+    @Override
+    public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        Result result = implementor.visitChild( this, 0, (EnumerableAlg) getInput(), pref );
+
+        final ParameterExpression _group = Expressions.parameter( Enumerable.class, "_group" );
+
+        // The input is created lazily, as it has to be executed with the parameter values of the group
+        builder.add( Expressions.declare( 0, _group, Expressions.new_(
+                BuiltInMethod.BATCH_ITERATOR_CTOR.constructor,
+                EnumUtils.NO_EXPRS,
+                ImmutableList.<MemberDeclaration>of(
+                        EnumUtils.overridingMethodDecl(
+                                BuiltInMethod.BATCH_ITERATOR_GET_ENUM.method,
+                                EnumUtils.NO_PARAMS,
+                                Blocks.toFunctionBlock( result.block ) ) ) ) ) );
+
+        builder.add( Expressions.return_( null, builder.append(
+                "group",
+                Expressions.call( BuiltInMethod.PARAMETER_GROUP.method, DataContext.ROOT, _group, Expressions.constant( groupId ) ) ) ) );
+        return implementor.result( result.physType, builder.toBlock() );
+    }
+
+}
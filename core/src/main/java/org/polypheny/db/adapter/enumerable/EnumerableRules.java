@@ -74,6 +74,8 @@ private EnumerableRules() {
 
     public static final EnumerableBatchIteratorRule ENUMERABLE_BATCH_ITERATOR_RULE = new EnumerableBatchIteratorRule();
 
+    public static final EnumerableParameterGroupRule ENUMERABLE_PARAMETER_GROUP_RULE = new EnumerableParameterGroupRule();
+
     public static final EnumerableConstraintEnforcerRule ENUMERABLE_CONSTRAINT_ENFORCER_RULE = new EnumerableConstraintEnforcerRule();
 
     public static final EnumerableProjectRule ENUMERABLE_PROJECT_RULE = new EnumerableProjectRule();
@@ -45,10 +45,14 @@
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.Util;
 
 
 /**
  * Implementation of {@link org.polypheny.db.algebra.core.Sort} in {@link org.polypheny.db.adapter.enumerable.EnumerableConvention enumerable calling convention}.
+ *
+ * Sorted runs are spilled to disk if the input exceeds the memory limit of the operator. If a fetch is present, only the
+ * rows up to the fetch are kept in memory.
  */
 public class EnumerableSort extends Sort implements EnumerableAlg {
 
@@ -82,6 +86,15 @@ public EnumerableSort copy( AlgTraitSet traitSet, AlgNode newInput, AlgCollation
 
     @Override
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
+        return implement( implementor, pref, offset, fetch );
+    }
+
+
+    /**
+     * Implements this sort followed by the given offset and fetch. Used by {@link EnumerableLimit} to compute the
+     * top-N rows of its input without sorting it completely.
+     */
+    Result implement( EnumerableAlgImplementor implementor, Prefer pref, RexNode offset, RexNode fetch ) {
         final BlockBuilder builder = new BlockBuilder();
         final EnumerableAlg child = (EnumerableAlg) getInput();
         final Result result = implementor.visitChild( this, 0, child, pref );
@@ -91,14 +104,24 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         PhysType inputPhysType = result.physType;
         final Pair<Expression, Expression> pair = inputPhysType.generateCollationKey( collation.getFieldCollations() );
 
-        builder.add(
-                Expressions.return_(
-                        null,
-                        Expressions.call(
-                                childExp,
-                                BuiltInMethod.ORDER_BY.method,
-                                Expressions.list( builder.append( "keySelector", pair.left ) )
-                                        .appendIfNotNull( builder.appendIfNotNull( "comparator", pair.right ) ) ) ) );
+        final Expression keySelector = builder.append( "keySelector", pair.left );
+        final Expression comparator = Util.first( builder.appendIfNotNull( "comparator", pair.right ), Expressions.constant( null ) );
+        Expression v;
+        if ( fetch != null ) {
+            v = Expressions.call(
+                    BuiltInMethod.ORDER_BY_LIMIT.method,
+                    childExp,
+                    keySelector,
+                    comparator,
+                    offset == null ? Expressions.constant( 0 ) : EnumerableLimit.getExpression( offset ),
+                    EnumerableLimit.getExpression( fetch ) );
+        } else {
+            v = Expressions.call( BuiltInMethod.EXTERNAL_ORDER_BY.method, childExp, keySelector, comparator );
+            if ( offset != null ) {
+                v = Expressions.call( builder.append( "sorted", v ), BuiltInMethod.SKIP.method, EnumerableLimit.getExpression( offset ) );
+            }
+        }
+        builder.add( Expressions.return_( null, v ) );
         return implementor.result( physType, builder.toBlock() );
     }
 
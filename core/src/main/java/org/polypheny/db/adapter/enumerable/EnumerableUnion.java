@@ -34,7 +34,11 @@
 package org.polypheny.db.adapter.enumerable;
 
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
@@ -43,6 +47,7 @@
 import org.polypheny.db.algebra.core.Union;
 import org.polypheny.db.plan.AlgOptCluster;
 import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.Convention;
 import org.polypheny.db.util.BuiltInMethod;
 
 
@@ -65,12 +70,26 @@ public EnumerableUnion copy( AlgTraitSet traitSet, List<AlgNode> inputs, boolean
     @Override
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final BlockBuilder builder = new BlockBuilder();
+        // With UNION ALL, the inputs on different adapters can be read concurrently. Inputs on the same adapter
+        // share its connection and are therefore always read one after another.
+        final Map<Convention, Integer> groupPerAdapter = new LinkedHashMap<>();
+        final List<Expression> childExps = new ArrayList<>();
+        final List<Expression> groups = new ArrayList<>();
         Expression unionExp = null;
         for ( Ord<AlgNode> ord : Ord.zip( inputs ) ) {
             EnumerableAlg input = (EnumerableAlg) ord.e;
             final Result result = implementor.visitChild( this, ord.i, input, pref );
             Expression childExp = builder.append( "child" + ord.i, result.block );
 
+            if ( all ) {
+                final Convention adapterConvention = EnumUtils.getAdapterConvention( input );
+                if ( !groupPerAdapter.containsKey( adapterConvention ) ) {
+                    groupPerAdapter.put( adapterConvention, groupPerAdapter.size() );
+                }
+                childExps.add( childExp );
+                groups.add( Expressions.constant( groupPerAdapter.get( adapterConvention ) ) );
+            }
+
             if ( unionExp == null ) {
                 unionExp = childExp;
             } else {
@@ -80,7 +99,18 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
             }
         }
 
-        builder.add( unionExp );
+        if ( groupPerAdapter.size() > 1 ) {
+            builder.add( Expressions.call(
+                    BuiltInMethod.PARALLEL_GATHER.method,
+                    Expressions.call(
+                            BuiltInMethod.ARRAYS_AS_LIST.method,
+                            Expressions.newArrayInit( Enumerable.class, childExps ) ),
+                    Expressions.call(
+                            BuiltInMethod.ARRAYS_AS_LIST.method,
+                            Expressions.newArrayInit( Integer.class, groups ) ) ) );
+        } else {
+            builder.add( unionExp );
+        }
         final PhysType physType =
                 PhysTypeImpl.of(
                         implementor.getTypeFactory(),
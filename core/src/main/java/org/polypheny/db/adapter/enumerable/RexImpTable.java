@@ -99,6 +99,7 @@
 import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.runtime.Functions;
+import org.polypheny.db.runtime.Like;
 import org.polypheny.db.schema.Function;
 import org.polypheny.db.schema.ImplementableAggFunction;
 import org.polypheny.db.schema.ImplementableFunction;
@@ -107,6 +108,7 @@
 import org.polypheny.db.type.PolyTypeUtil;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.ImmutableIntList;
+import org.polypheny.db.util.Pair;
 import org.polypheny.db.util.Util;
 
 
@@ -243,7 +245,7 @@ public Expression implement( RexToLixTranslator translator, RexCall call, List<E
         map.put( OperatorRegistry.get( OperatorName.IS_NOT_FALSE ), new IsXxxImplementor( false, true ) );
 
         // LIKE and SIMILAR
-        final MethodImplementor likeImplementor = new MethodImplementor( BuiltInMethod.LIKE.method );
+        final MethodImplementor likeImplementor = new LikeImplementor();
         defineImplementor( OperatorRegistry.get( OperatorName.LIKE ), NullPolicy.STRICT, likeImplementor, false );
         defineImplementor( OperatorRegistry.get( OperatorName.NOT_LIKE ), NullPolicy.STRICT, NotImplementor.of( likeImplementor ), false );
         final MethodImplementor similarImplementor = new MethodImplementor( BuiltInMethod.SIMILAR.method );
@@ -1929,6 +1931,74 @@ public Expression implement( RexToLixTranslator translator, RexCall call, List<E
     }
 
 
+    /**
+     * Implementor for LIKE. Constant patterns are analyzed at code generation time: a literal with optional leading and
+     * trailing {@code %} is translated to a call of the corresponding {@link String} method, all other patterns are
+     * compiled once and then matched by {@link Functions#like} using the cached matcher.
+     */
+    private static class LikeImplementor extends MethodImplementor {
+
+        LikeImplementor() {
+            super( BuiltInMethod.LIKE.method );
+        }
+
+
+        @Override
+        public Expression implement( RexToLixTranslator translator, RexCall call, List<Expression> translatedOperands ) {
+            final Pair<Like.Shape, String> shape = constantShape( translator, call );
+            if ( shape == null ) {
+                return super.implement( translator, call, translatedOperands );
+            }
+            final Expression operand = translatedOperands.get( 0 );
+            final Expression literal = Expressions.constant( shape.right );
+            switch ( shape.left ) {
+                case EQUALS:
+                    return Expressions.call( operand, BuiltInMethod.STRING_EQUALS.method, literal );
+                case STARTS_WITH:
+                    return Expressions.call( operand, BuiltInMethod.STRING_STARTS_WITH.method, literal );
+                case ENDS_WITH:
+                    return Expressions.call( operand, BuiltInMethod.STRING_ENDS_WITH.method, literal );
+                case CONTAINS:
+                    return Expressions.greaterThanOrEqual(
+                            Expressions.call( operand, BuiltInMethod.STRING_INDEX_OF.method, literal ),
+                            Expressions.constant( 0 ) );
+                default:
+                    return Expressions.constant( true );
+            }
+        }
+
+
+        /**
+         * Returns the shape of the pattern if the pattern and the escape string are literals and the pattern can be
+         * evaluated without a regular expression, otherwise null.
+         */
+        private static Pair<Like.Shape, String> constantShape( RexToLixTranslator translator, RexCall call ) {
+            final List<String> constants = new ArrayList<>();
+            for ( RexNode operand : Util.skip( call.getOperands() ) ) {
+                final RexNode node = translator.deref( operand );
+                if ( !(node instanceof RexLiteral) || ((RexLiteral) node).isNull() ) {
+                    return null;
+                }
+                constants.add( ((RexLiteral) node).getValueAs( String.class ) );
+            }
+            final String pattern = constants.get( 0 );
+            final String escape = constants.size() > 1 ? constants.get( 1 ) : null;
+            try {
+                final Pair<Like.Shape, String> shape = Like.likeShape( pattern, escape );
+                if ( shape == null ) {
+                    // Compile the pattern now, the generated code finds it in the cache
+                    Like.likeMatcher( pattern, escape );
+                }
+                return shape;
+            } catch ( RuntimeException e ) {
+                // Invalid patterns are reported when the statement is executed
+                return null;
+            }
+        }
+
+    }
+
+
     /**
      * Implementor for SQL functions that generates calls to a given method name.
      *
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.operators.OperatorName;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexLocalRef;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.runtime.vector.VectorExpression;
+import org.polypheny.db.runtime.vector.VectorExpressions.Arithmetic;
+import org.polypheny.db.runtime.vector.VectorExpressions.Comparison;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Translates the expressions of a {@link RexProgram} to code which builds
+ * {@link org.polypheny.db.runtime.vector.VectorExpression vector expressions}.
+ *
+ * Only a subset of the operators is supported; {@link #translate} returns null for expressions which contain other
+ * operators or operand types whose semantics would differ from the row-by-row implementation.
+ */
+final class RexToVectorTranslator {
+
+    private final JavaTypeFactory typeFactory;
+    private final RexProgram program;
+
+
+    RexToVectorTranslator( JavaTypeFactory typeFactory, RexProgram program ) {
+        this.typeFactory = typeFactory;
+        this.program = program;
+    }
+
+
+    /**
+     * Returns the primitive type in which values of the given type are stored in a column vector, or null if they are
+     * stored as objects.
+     */
+    Primitive vectorType( AlgDataType type ) {
+        final Type javaClass = typeFactory.getJavaClass( type );
+        if ( !(javaClass instanceof Class) ) {
+            return null;
+        }
+        final Primitive primitive = Primitive.ofBoxOr( javaClass );
+        if ( primitive == null ) {
+            return null;
+        }
+        switch ( primitive ) {
+            case BOOLEAN:
+            case BYTE:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return primitive;
+            default:
+                return null;
+        }
+    }
+
+
+    /**
+     * Returns an expression which builds the vector expression for the given node, or null if it is not supported.
+     */
+    Expression translate( RexNode node ) {
+        if ( node instanceof RexLocalRef ) {
+            return translate( program.getExprList().get( ((RexLocalRef) node).getIndex() ) );
+        } else if ( node instanceof RexInputRef ) {
+            return Expressions.call(
+                    BuiltInMethod.VECTOR_COLUMN.method,
+                    Expressions.constant( ((RexInputRef) node).getIndex() ),
+                    typeConstant( node.getType() ) );
+        } else if ( node instanceof RexLiteral ) {
+            final RexLiteral literal = (RexLiteral) node;
+            return Expressions.call(
+                    BuiltInMethod.VECTOR_CONSTANT.method,
+                    Expressions.box( RexToLixTranslator.translateLiteral( literal, literal.getType(), typeFactory, RexImpTable.NullAs.NULL ) ),
+                    typeConstant( node.getType() ) );
+        } else if ( node instanceof RexDynamicParam ) {
+            return Expressions.call(
+                    BuiltInMethod.VECTOR_PARAMETER.method,
+                    DataContext.ROOT,
+                    Expressions.constant( ((RexDynamicParam) node).getIndex(), long.class ),
+                    typeConstant( node.getType() ) );
+        } else if ( node instanceof RexCall ) {
+            return translateCall( (RexCall) node );
+        }
+        return null;
+    }
+
+
+    private Expression translateCall( RexCall call ) {
+        final List<RexNode> operands = resolve( call.getOperands() );
+        final List<Expression> translated = new ArrayList<>();
+        for ( RexNode operand : operands ) {
+            final Expression expression = translate( operand );
+            if ( expression == null ) {
+                return null;
+            }
+            translated.add( expression );
+        }
+        switch ( call.getOperator().getOperatorName() ) {
+            case EQUALS:
+                return compare( Comparison.EQUALS, operands, translated );
+            case NOT_EQUALS:
+                return compare( Comparison.NOT_EQUALS, operands, translated );
+            case LESS_THAN:
+                return compare( Comparison.LESS_THAN, operands, translated );
+            case LESS_THAN_OR_EQUAL:
+                return compare( Comparison.LESS_THAN_OR_EQUAL, operands, translated );
+            case GREATER_THAN:
+                return compare( Comparison.GREATER_THAN, operands, translated );
+            case GREATER_THAN_OR_EQUAL:
+                return compare( Comparison.GREATER_THAN_OR_EQUAL, operands, translated );
+            case PLUS:
+                return arithmetic( Arithmetic.PLUS, call, operands, translated );
+            case MINUS:
+                return arithmetic( Arithmetic.MINUS, call, operands, translated );
+            case MULTIPLY:
+                return arithmetic( Arithmetic.TIMES, call, operands, translated );
+            case DIVIDE:
+                return arithmetic( Arithmetic.DIVIDE, call, operands, translated );
+            case UNARY_MINUS:
+                if ( !isArithmetic( call.getType(), operands ) ) {
+                    return null;
+                }
+                return Expressions.call( BuiltInMethod.VECTOR_NEGATE.method, typeConstant( call.getType() ), translated.get( 0 ) );
+            case AND:
+                return Expressions.call( BuiltInMethod.VECTOR_AND.method, list( translated ) );
+            case OR:
+                return Expressions.call( BuiltInMethod.VECTOR_OR.method, list( translated ) );
+            case NOT:
+                return Expressions.call( BuiltInMethod.VECTOR_NOT.method, translated.get( 0 ) );
+            case IS_NULL:
+                return Expressions.call( BuiltInMethod.VECTOR_IS_NULL.method, translated.get( 0 ), Expressions.constant( false ) );
+            case IS_NOT_NULL:
+                return Expressions.call( BuiltInMethod.VECTOR_IS_NULL.method, translated.get( 0 ), Expressions.constant( true ) );
+            case CASE:
+                if ( operands.size() % 2 != 1 || !sameStorage( call.getType(), operands ) ) {
+                    return null;
+                }
+                return Expressions.call( BuiltInMethod.VECTOR_CASE.method, typeConstant( call.getType() ), list( translated ) );
+            case LIKE:
+            case NOT_LIKE:
+                for ( RexNode operand : operands ) {
+                    if ( operand.getType().getFamily() != PolyTypeFamily.CHARACTER ) {
+                        return null;
+                    }
+                }
+                return Expressions.call(
+                        BuiltInMethod.VECTOR_LIKE.method,
+                        translated.get( 0 ),
+                        translated.get( 1 ),
+                        translated.size() > 2 ? translated.get( 2 ) : Expressions.constant( null, VectorExpression.class ),
+                        Expressions.constant( call.getOperator().getOperatorName() == OperatorName.NOT_LIKE ) );
+            case CAST:
+                if ( !isSupportedCast( operands.get( 0 ).getType(), call.getType() ) ) {
+                    return null;
+                }
+                return Expressions.call( BuiltInMethod.VECTOR_CAST.method, typeConstant( call.getType() ), translated.get( 0 ) );
+            default:
+                return null;
+        }
+    }
+
+
+    private List<RexNode> resolve( List<RexNode> operands ) {
+        final List<RexNode> resolved = new ArrayList<>();
+        for ( RexNode operand : operands ) {
+            resolved.add( operand instanceof RexLocalRef ? program.getExprList().get( ((RexLocalRef) operand).getIndex() ) : operand );
+        }
+        return resolved;
+    }
+
+
+    /**
+     * Numbers and booleans are compared unboxed, strings and decimals as comparable objects. Other combinations are
+     * not supported.
+     */
+    private Expression compare( Comparison op, List<RexNode> operands, List<Expression> translated ) {
+        final AlgDataType left = operands.get( 0 ).getType();
+        final AlgDataType right = operands.get( 1 ).getType();
+        final Primitive l = vectorType( left );
+        final Primitive r = vectorType( right );
+        final boolean supported;
+        if ( l != null && r != null ) {
+            supported = left.getFamily() == right.getFamily();
+        } else if ( l == null && r == null ) {
+            supported = (left.getFamily() == PolyTypeFamily.CHARACTER && right.getFamily() == PolyTypeFamily.CHARACTER)
+                    || (left.getPolyType() == PolyType.DECIMAL && right.getPolyType() == PolyType.DECIMAL);
+        } else {
+            supported = false;
+        }
+        if ( !supported ) {
+            return null;
+        }
+        return Expressions.call( BuiltInMethod.VECTOR_COMPARE.method, Expressions.constant( op ), translated.get( 0 ), translated.get( 1 ) );
+    }
+
+
+    private Expression arithmetic( Arithmetic op, RexCall call, List<RexNode> operands, List<Expression> translated ) {
+        if ( operands.size() != 2 || !isArithmetic( call.getType(), operands ) ) {
+            return null;
+        }
+        return Expressions.call(
+                BuiltInMethod.VECTOR_ARITHMETIC.method,
+                Expressions.constant( op ),
+                typeConstant( call.getType() ),
+                translated.get( 0 ),
+                translated.get( 1 ) );
+    }
+
+
+    /**
+     * Integral results are only computed from integral operands, so that the result wraps around like in Java.
+     * Floating point results are only supported as doubles; float arithmetic would round differently.
+     */
+    private boolean isArithmetic( AlgDataType type, List<RexNode> operands ) {
+        final boolean integral = PolyType.INT_TYPES.contains( type.getPolyType() );
+        if ( !integral && vectorType( type ) != Primitive.DOUBLE ) {
+            return false;
+        }
+        for ( RexNode operand : operands ) {
+            final PolyType operandType = operand.getType().getPolyType();
+            if ( !PolyType.INT_TYPES.contains( operandType ) && (integral || vectorType( operand.getType() ) != Primitive.DOUBLE) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Whether the values of a CASE are stored like its result, so that they can be copied without conversion.
+     */
+    private boolean sameStorage( AlgDataType type, List<RexNode> operands ) {
+        final Primitive primitive = vectorType( type );
+        for ( int i = 0; i < operands.size(); i++ ) {
+            final boolean isValue = i % 2 == 1 || i == operands.size() - 1;
+            final AlgDataType operandType = operands.get( i ).getType();
+            if ( isValue && (vectorType( operandType ) != primitive || operandType.getPolyType() != type.getPolyType()) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Casts between numbers which behave like a cast in Java, and casts which only change the nullability.
+     */
+    private boolean isSupportedCast( AlgDataType from, AlgDataType to ) {
+        if ( from.getPolyType() == to.getPolyType() ) {
+            return vectorType( to ) != null && from.getPrecision() == to.getPrecision() && from.getScale() == to.getScale();
+        }
+        final boolean integral = PolyType.INT_TYPES.contains( from.getPolyType() );
+        if ( PolyType.INT_TYPES.contains( to.getPolyType() ) ) {
+            return integral;
+        }
+        return vectorType( to ) == Primitive.DOUBLE && (integral || vectorType( from ) == Primitive.DOUBLE);
+    }
+
+
+    private Expression typeConstant( AlgDataType type ) {
+        return Expressions.constant( vectorType( type ), Primitive.class );
+    }
+
+
+    private static Expression list( List<Expression> expressions ) {
+        return Expressions.call( BuiltInMethod.ARRAYS_AS_LIST.method, Expressions.newArrayInit( VectorExpression.class, expressions ) );
+    }
+
+}
@@ -49,6 +49,7 @@
 import org.polypheny.db.algebra.logical.LogicalMatch;
 import org.polypheny.db.algebra.logical.LogicalMinus;
 import org.polypheny.db.algebra.logical.LogicalModifyCollect;
+import org.polypheny.db.algebra.logical.LogicalParameterGroup;
 import org.polypheny.db.algebra.logical.LogicalProject;
 import org.polypheny.db.algebra.logical.LogicalSort;
 import org.polypheny.db.algebra.logical.LogicalStreamer;
@@ -353,6 +354,12 @@ public void rewriteAlg( LogicalBatchIterator alg ) {
     }
 
 
+    public void rewriteAlg( LogicalParameterGroup alg ) {
+        LogicalParameterGroup newAlg = LogicalParameterGroup.create( alg.getInput(), alg.groupId );
+        setNewForOldRel( alg, newAlg );
+    }
+
+
     public void rewriteAlg( LogicalConstraintEnforcer alg ) {
         LogicalConstraintEnforcer newAlg = LogicalConstraintEnforcer.create( alg.getLeft(), alg.getRight(), alg.getExceptionClasses(), alg.getExceptionMessages() );
         setNewForOldRel( alg, newAlg );
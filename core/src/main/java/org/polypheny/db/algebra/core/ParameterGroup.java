@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.polypheny.db.algebra.core;
+
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
+import org.polypheny.db.algebra.SingleAlg;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.plan.AlgOptCluster;
+import org.polypheny.db.plan.AlgTraitSet;
+
+
+/**
+ * Executes its input with a group of the rows of bound parameter values, e.g. with the rows of a prepared batch
+ * which are inserted into the same partition. The rows of the group are assigned to the {@link org.polypheny.db.adapter.DataContext}
+ * under the id of the group, which keeps the plan independent of the bound values.
+ */
+public abstract class ParameterGroup extends SingleAlg {
+
+    public final long groupId;
+
+
+    /**
+     * Creates a <code>ParameterGroup</code>.
+     *
+     * @param cluster Cluster this relational expression belongs to
+     * @param traits The trait set
+     * @param input Input relational expression
+     * @param groupId Id of the group of parameter values
+     */
+    protected ParameterGroup( AlgOptCluster cluster, AlgTraitSet traits, AlgNode input, long groupId ) {
+        super( cluster, traits, input );
+        this.groupId = groupId;
+    }
+
+
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "group", groupId );
+    }
+
+
+    @Override
+    protected AlgDataType deriveRowType() {
+        return getInput().getRowType();
+    }
+
+
+    @Override
+    public String algCompareString() {
+        return "group" + groupId + "[" + getInput().algCompareString() + "]";
+    }
+
+}
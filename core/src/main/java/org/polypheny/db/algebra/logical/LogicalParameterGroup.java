@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.polypheny.db.algebra.logical;
+
+import java.util.List;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.core.ParameterGroup;
+import org.polypheny.db.plan.AlgOptCluster;
+import org.polypheny.db.plan.AlgTraitSet;
+
+public class LogicalParameterGroup extends ParameterGroup {
+
+    /**
+     * Creates a <code>LogicalParameterGroup</code>.
+     *
+     * @param cluster Cluster this relational expression belongs to
+     * @param traits The trait set
+     * @param input Input relational expression
+     * @param groupId Id of the group of parameter values
+     */
+    protected LogicalParameterGroup( AlgOptCluster cluster, AlgTraitSet traits, AlgNode input, long groupId ) {
+        super( cluster, traits, input, groupId );
+    }
+
+
+    public static LogicalParameterGroup create( AlgNode input, long groupId ) {
+        return new LogicalParameterGroup( input.getCluster(), input.getTraitSet(), input, groupId );
+    }
+
+
+    @Override
+    public AlgNode copy( AlgTraitSet traitSet, List<AlgNode> inputs ) {
+        return new LogicalParameterGroup(
+                inputs.get( 0 ).getCluster(),
+                traitSet,
+                inputs.get( 0 ),
+                groupId );
+    }
+
+}
@@ -36,21 +36,32 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import org.polypheny.db.StatisticsManager;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.core.Aggregate;
 import org.polypheny.db.algebra.core.Filter;
 import org.polypheny.db.algebra.core.Project;
 import org.polypheny.db.algebra.core.SemiJoin;
 import org.polypheny.db.algebra.core.Sort;
+import org.polypheny.db.algebra.core.TableScan;
 import org.polypheny.db.algebra.core.Union;
+import org.polypheny.db.algebra.metadata.AlgMdUtil.ParameterComparison;
 import org.polypheny.db.algebra.operators.OperatorName;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.exceptions.UnknownColumnException;
 import org.polypheny.db.languages.OperatorRegistry;
 import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.plan.volcano.AlgSubset;
 import org.polypheny.db.rex.RexBuilder;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexUtil;
+import org.polypheny.db.schema.Table;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.ImmutableBitSet;
+import org.polypheny.db.util.Util;
 
 
 /**
@@ -174,10 +185,85 @@ public Double getSelectivity( Project alg, AlgMetadataQuery mq, RexNode predicat
     }
 
 
+    /**
+     * The selectivity of a predicate comparing a column with a parameter depends on the bound value, which only the
+     * handlers of the expressions of the subset take into account. Other predicates are guessed.
+     */
+    public Double getSelectivity( AlgSubset alg, AlgMetadataQuery mq, RexNode predicate ) {
+        if ( parameterValues( alg ) == null ) {
+            return AlgMdUtil.guessSelectivity( predicate );
+        }
+        return mq.getSelectivity( Util.first( alg.getBest(), alg.getOriginal() ), predicate );
+    }
+
+
+    /**
+     * If the planner knows the values the parameters are bound to, the selectivity of the predicates comparing a column
+     * of the table with a parameter is estimated from the column statistics. The remaining predicates are guessed.
+     */
+    public Double getSelectivity( TableScan alg, AlgMetadataQuery mq, RexNode predicate ) {
+        final Map<Long, Object> parameterValues = parameterValues( alg );
+        final Table table = alg.getTable().unwrap( Table.class );
+        if ( predicate == null || parameterValues == null || table == null || table.getTableId() == null ) {
+            return AlgMdUtil.guessSelectivity( predicate );
+        }
+        double selectivity = 1.0;
+        final List<RexNode> guessed = new ArrayList<>();
+        for ( RexNode conjunction : AlgOptUtil.conjunctions( predicate ) ) {
+            final Double estimated = parameterSelectivity( alg, table.getTableId(), conjunction, parameterValues );
+            if ( estimated == null ) {
+                guessed.add( conjunction );
+            } else {
+                selectivity *= estimated;
+            }
+        }
+        return selectivity * AlgMdUtil.guessSelectivity( RexUtil.composeConjunction( alg.getCluster().getRexBuilder(), guessed, true ) );
+    }
+
+
     // Catch-all rule when none of the others apply.
     public Double getSelectivity( AlgNode alg, AlgMetadataQuery mq, RexNode predicate ) {
         return AlgMdUtil.guessSelectivity( predicate );
     }
 
-}
 
+    /**
+     * Returns the parameter values of the statement which is optimized by the planner of the expression, or null if
+     * they are not known to the planner or if the statement is executed for a batch of parameter values.
+     */
+    private static Map<Long, Object> parameterValues( AlgNode alg ) {
+        if ( alg.getCluster().getPlanner() == null ) {
+            return null;
+        }
+        final DataContext dataContext = alg.getCluster().getPlanner().getContext().unwrap( DataContext.class );
+        if ( dataContext == null || dataContext.getParameterValues() == null || dataContext.getParameterValues().size() != 1 ) {
+            return null;
+        }
+        return dataContext.getParameterValues().get( 0 );
+    }
+
+
+    /**
+     * Estimates the selectivity of the predicate {@code column <kind> ?parameter} from the statistics of the column.
+     *
+     * @return The selectivity, or null if the predicate has another form or no statistics are available
+     */
+    private static Double parameterSelectivity( TableScan alg, long tableId, RexNode predicate, Map<Long, Object> parameterValues ) {
+        final ParameterComparison comparison = AlgMdUtil.parameterComparison( predicate );
+        if ( comparison == null ) {
+            return null;
+        }
+        final Object value = parameterValues.get( comparison.parameterIndex );
+        if ( value == null ) {
+            return null;
+        }
+        final String columnName = alg.getRowType().getFieldNames().get( comparison.inputIndex );
+        try {
+            final CatalogColumn column = Catalog.getInstance().getColumn( tableId, columnName );
+            return StatisticsManager.getInstance().getSelectivity( column.schemaId, column.tableId, column.id, comparison.kind, value );
+        } catch ( UnknownColumnException e ) {
+            return null;
+        }
+    }
+
+}
@@ -60,6 +60,7 @@
 import org.polypheny.db.plan.AlgOptUtil;
 import org.polypheny.db.rex.RexBuilder;
 import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
 import org.polypheny.db.rex.RexInputRef;
 import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexLocalRef;
@@ -775,4 +776,69 @@ public static boolean checkInputForCollationAndLimit( AlgMetadataQuery mq, AlgNo
         return alreadySorted && alreadySmaller;
     }
 
+
+    /**
+     * Returns the comparison of a column with a parameter if the predicate has the form {@code column <op> ?param} or
+     * {@code ?param <op> column}, where op is =, <, <=, > or >=. Casts of the operands are ignored. The comparison is
+     * normalized so that the column is on the left.
+     *
+     * @param predicate Predicate, e.g. a conjunction of a filter condition
+     * @return The comparison, or null if the predicate has another form
+     */
+    public static ParameterComparison parameterComparison( RexNode predicate ) {
+        if ( !(predicate instanceof RexCall) ) {
+            return null;
+        }
+        Kind kind = predicate.getKind();
+        switch ( kind ) {
+            case EQUALS:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                break;
+            default:
+                return null;
+        }
+        RexNode left = removeCast( ((RexCall) predicate).getOperands().get( 0 ) );
+        RexNode right = removeCast( ((RexCall) predicate).getOperands().get( 1 ) );
+        if ( left instanceof RexDynamicParam && right instanceof RexInputRef ) {
+            final RexNode tmp = left;
+            left = right;
+            right = tmp;
+            kind = kind.reverse();
+        }
+        if ( !(left instanceof RexInputRef) || !(right instanceof RexDynamicParam) ) {
+            return null;
+        }
+        return new ParameterComparison( kind, ((RexInputRef) left).getIndex(), ((RexDynamicParam) right).getIndex() );
+    }
+
+
+    private static RexNode removeCast( RexNode node ) {
+        while ( node.getKind() == Kind.CAST ) {
+            node = ((RexCall) node).getOperands().get( 0 );
+        }
+        return node;
+    }
+
+
+    /**
+     * Comparison {@code $inputIndex <kind> ?parameterIndex} of a column with a parameter.
+     */
+    public static class ParameterComparison {
+
+        public final Kind kind;
+        public final int inputIndex;
+        public final long parameterIndex;
+
+
+        public ParameterComparison( Kind kind, int inputIndex, long parameterIndex ) {
+            this.kind = kind;
+            this.inputIndex = inputIndex;
+            this.parameterIndex = parameterIndex;
+        }
+
+    }
+
 }
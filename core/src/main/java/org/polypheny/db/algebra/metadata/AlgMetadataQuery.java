@@ -37,23 +37,34 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.polypheny.db.algebra.AlgCollation;
 import org.polypheny.db.algebra.AlgDistribution;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.constant.ExplainLevel;
+import org.polypheny.db.algebra.externalize.AlgWriterImpl;
 import org.polypheny.db.plan.AlgOptCost;
 import org.polypheny.db.plan.AlgOptPredicateList;
 import org.polypheny.db.plan.AlgOptTable;
+import org.polypheny.db.plan.hep.HepAlgVertex;
+import org.polypheny.db.plan.volcano.AlgSubset;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexTableInputRef.AlgTableRef;
 import org.polypheny.db.util.ImmutableBitSet;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.Util;
 
 
 /**
@@ -87,6 +98,16 @@ public class AlgMetadataQuery {
 
     public final JaninoRelMetadataProvider metadataProvider;
 
+    /**
+     * Results shared with other metadata queries, keyed by the {@link SharedKey} of the expression; null if results are not shared.
+     */
+    private Map<List, Object> sharedMap;
+
+    /**
+     * Keys of the expressions seen by this query in the shared map.
+     */
+    private final Map<AlgNode, SharedKey> sharedKeys = new IdentityHashMap<>();
+
     protected static final AlgMetadataQuery EMPTY = new AlgMetadataQuery( false );
 
     private BuiltInMetadata.Collation.Handler collationHandler;
@@ -162,6 +183,21 @@ public static AlgMetadataQuery instance() {
     }
 
 
+    /**
+     * Returns an instance of RelMetadataQuery which shares row counts, selectivities and costs through {@code sharedMap}
+     * with all other instances created with the same map. Expressions are identified by their digest and the keys of
+     * their inputs, leaves by {@link AlgNode#algCompareString()}. A {@link AlgSubset} or {@link HepAlgVertex} is
+     * identified by the key of the expression the planner node currently stands for.
+     *
+     * @param sharedMap Map holding the shared results, must be thread-safe
+     */
+    public static AlgMetadataQuery instance( Map<List, Object> sharedMap ) {
+        final AlgMetadataQuery mq = instance();
+        mq.sharedMap = Objects.requireNonNull( sharedMap );
+        return mq;
+    }
+
+
     /**
      * Creates and initializes the instance that will serve as a prototype for all other instances.
      */
@@ -225,6 +261,11 @@ public Multimap<Class<? extends AlgNode>, AlgNode> getNodeTypes( AlgNode alg ) {
      * @return estimated row count, or null if no algiable estimate can be determined
      */
     public Double getRowCount( AlgNode alg ) {
+        return shared( "rowCount", alg, null, null, () -> computeRowCount( alg ) );
+    }
+
+
+    private Double computeRowCount( AlgNode alg ) {
         for ( ; ; ) {
             try {
                 Double result = rowCountHandler.getRowCount( alg, this );
@@ -277,6 +318,11 @@ public Double getMinRowCount( AlgNode alg ) {
      * @return estimated cost, or null if no algiable estimate can be determined
      */
     public AlgOptCost getCumulativeCost( AlgNode alg ) {
+        return shared( "cumulativeCost", alg, null, null, () -> computeCumulativeCost( alg ) );
+    }
+
+
+    private AlgOptCost computeCumulativeCost( AlgNode alg ) {
         for ( ; ; ) {
             try {
                 return cumulativeCostHandler.getCumulativeCost( alg, this );
@@ -294,6 +340,11 @@ public AlgOptCost getCumulativeCost( AlgNode alg ) {
      * @return estimated cost, or null if no algiable estimate can be determined
      */
     public AlgOptCost getNonCumulativeCost( AlgNode alg ) {
+        return shared( "nonCumulativeCost", alg, null, null, () -> computeNonCumulativeCost( alg ) );
+    }
+
+
+    private AlgOptCost computeNonCumulativeCost( AlgNode alg ) {
         for ( ; ; ) {
             try {
                 return nonCumulativeCostHandler.getNonCumulativeCost( alg, this );
@@ -413,6 +464,11 @@ public AlgOptTable getTableOrigin( AlgNode alg ) {
      * @return estimated selectivity (between 0.0 and 1.0), or null if no algiable estimate can be determined
      */
     public Double getSelectivity( AlgNode alg, RexNode predicate ) {
+        return shared( "selectivity", alg, null, predicate, () -> computeSelectivity( alg, predicate ) );
+    }
+
+
+    private Double computeSelectivity( AlgNode alg, RexNode predicate ) {
         for ( ; ; ) {
             try {
                 Double result = selectivityHandler.getSelectivity( alg, this, predicate );
@@ -691,6 +747,11 @@ public Double cumulativeMemoryWithinPhaseSplit( AlgNode alg ) {
      * @return distinct row count for groupKey, filtered by predicate, or null if no algiable estimate can be determined
      */
     public Double getDistinctRowCount( AlgNode alg, ImmutableBitSet groupKey, RexNode predicate ) {
+        return shared( "distinctRowCount", alg, groupKey, predicate, () -> computeDistinctRowCount( alg, groupKey, predicate ) );
+    }
+
+
+    private Double computeDistinctRowCount( AlgNode alg, ImmutableBitSet groupKey, RexNode predicate ) {
         for ( ; ; ) {
             try {
                 Double result = distinctRowCountHandler.getDistinctRowCount( alg, this, groupKey, predicate );
@@ -801,6 +862,96 @@ private static boolean isNonNegative( Double result, boolean fail ) {
     }
 
 
+    /**
+     * Looks up a result in the shared map, computing and storing it if it is not present or if the expression cannot be shared.
+     */
+    private <T> T shared( String name, AlgNode alg, Object arg, RexNode predicate, Supplier<T> supplier ) {
+        final SharedKey algKey = sharedMap == null ? SharedKey.UNSHAREABLE : sharedKey( alg );
+        if ( algKey == SharedKey.UNSHAREABLE ) {
+            return supplier.get();
+        }
+        final List<Object> key = Arrays.asList( name, metadataProvider, algKey, arg, predicate == null ? null : predicate.toString() );
+        final Object cached = sharedMap.get( key );
+        if ( cached != null ) {
+            //noinspection unchecked
+            return cached == NullSentinel.INSTANCE ? null : (T) cached;
+        }
+        final T result = supplier.get();
+        sharedMap.put( key, NullSentinel.mask( result ) );
+        return result;
+    }
+
+
+    private SharedKey sharedKey( AlgNode alg ) {
+        SharedKey key = sharedKeys.get( alg );
+        if ( key == null ) {
+            // Not shareable while the key is computed, which ends cycles through planner nodes
+            sharedKeys.put( alg, SharedKey.UNSHAREABLE );
+            key = computeSharedKey( alg );
+            sharedKeys.put( alg, key );
+        }
+        return key;
+    }
+
+
+    private SharedKey computeSharedKey( AlgNode alg ) {
+        if ( isPlannerNode( alg ) ) {
+            // Same as the row count handler, the metadata of a subset is the one of its best or its original expression
+            final AlgNode current = alg instanceof AlgSubset
+                    ? Util.first( ((AlgSubset) alg).getBest(), ((AlgSubset) alg).getOriginal() )
+                    : ((HepAlgVertex) alg).getCurrentAlg();
+            final SharedKey currentKey = current == null ? SharedKey.UNSHAREABLE : sharedKey( current );
+            return currentKey == SharedKey.UNSHAREABLE
+                    ? SharedKey.UNSHAREABLE
+                    : new SharedKey( alg.getClass().getSimpleName() + alg.getTraitSet(), ImmutableList.of( currentKey ) );
+        }
+        if ( alg.getInputs().isEmpty() ) {
+            return new SharedKey( alg.algCompareString() + alg.getTraitSet(), ImmutableList.of() );
+        }
+        final ImmutableList.Builder<SharedKey> inputKeys = ImmutableList.builder();
+        for ( AlgNode input : alg.getInputs() ) {
+            final SharedKey inputKey = sharedKey( input );
+            if ( inputKey == SharedKey.UNSHAREABLE ) {
+                return SharedKey.UNSHAREABLE;
+            }
+            inputKeys.add( inputKey );
+        }
+        return new SharedKey( describe( alg ), inputKeys.build() );
+    }
+
+
+    /**
+     * Returns the digest of an expression without the identities of its inputs, which are part of its shared key instead.
+     */
+    private static String describe( AlgNode alg ) {
+        final StringWriter sw = new StringWriter();
+        final AlgWriter writer = new AlgWriterImpl( new PrintWriter( sw ), ExplainLevel.DIGEST_ATTRIBUTES, false ) {
+            @Override
+            protected void explain_( AlgNode node, List<Pair<String, Object>> values ) {
+                pw.write( node.getAlgTypeName() );
+                pw.write( node.getTraitSet().toString() );
+                pw.write( "(" );
+                for ( Pair<String, Object> value : values ) {
+                    if ( !(value.right instanceof AlgNode) ) {
+                        pw.write( value.left );
+                        pw.write( "=" );
+                        pw.write( String.valueOf( value.right ) );
+                        pw.write( "," );
+                    }
+                }
+                pw.write( ")" );
+            }
+        };
+        alg.explain( writer );
+        return sw.toString();
+    }
+
+
+    private static boolean isPlannerNode( AlgNode alg ) {
+        return alg instanceof AlgSubset || alg instanceof HepAlgVertex;
+    }
+
+
     private static Double validateResult( Double result ) {
         if ( result == null ) {
             return null;
@@ -818,5 +969,49 @@ private static Double validateResult( Double result ) {
         return result;
     }
 
-}
 
+    /**
+     * Key of an expression in the shared map, made up of the description of the expression and the keys of its inputs.
+     * Keys are built once per expression and their hash code is computed from the hash codes of the input keys, hence
+     * the cost of a key does not grow with the size of the tree.
+     */
+    private static final class SharedKey {
+
+        /**
+         * Key of an expression whose metadata cannot be shared.
+         */
+        static final SharedKey UNSHAREABLE = new SharedKey( "", ImmutableList.of() );
+
+        private final String description;
+        private final List<SharedKey> inputs;
+        private final int hash;
+
+
+        SharedKey( String description, List<SharedKey> inputs ) {
+            this.description = description;
+            this.inputs = inputs;
+            this.hash = Objects.hash( description, inputs );
+        }
+
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof SharedKey) ) {
+                return false;
+            }
+            final SharedKey that = (SharedKey) o;
+            return hash == that.hash && description.equals( that.description ) && inputs.equals( that.inputs );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -62,10 +62,20 @@
 import org.codehaus.commons.compiler.ICompilerFactory;
 import org.codehaus.commons.compiler.ISimpleCompiler;
 import org.polypheny.db.adapter.enumerable.EnumerableAggregate;
+import org.polypheny.db.adapter.enumerable.EnumerableBindable;
+import org.polypheny.db.adapter.enumerable.EnumerableCalc;
+import org.polypheny.db.adapter.enumerable.EnumerableCorrelate;
 import org.polypheny.db.adapter.enumerable.EnumerableFilter;
+import org.polypheny.db.adapter.enumerable.EnumerableInterpreter;
 import org.polypheny.db.adapter.enumerable.EnumerableJoin;
+import org.polypheny.db.adapter.enumerable.EnumerableLimit;
 import org.polypheny.db.adapter.enumerable.EnumerableProject;
+import org.polypheny.db.adapter.enumerable.EnumerableSemiJoin;
+import org.polypheny.db.adapter.enumerable.EnumerableSort;
+import org.polypheny.db.adapter.enumerable.EnumerableTableModify;
 import org.polypheny.db.adapter.enumerable.EnumerableTableScan;
+import org.polypheny.db.adapter.enumerable.EnumerableUnion;
+import org.polypheny.db.adapter.enumerable.EnumerableValues;
 import org.polypheny.db.algebra.AbstractAlgNode;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.convert.ConverterImpl;
@@ -154,10 +164,49 @@ public class JaninoRelMetadataProvider implements AlgMetadataProvider {
                         EnumerableFilter.class,
                         EnumerableProject.class,
                         EnumerableJoin.class,
-                        EnumerableTableScan.class ) );
+                        EnumerableTableScan.class,
+                        EnumerableCalc.class,
+                        EnumerableSort.class,
+                        EnumerableLimit.class,
+                        EnumerableUnion.class,
+                        EnumerableValues.class,
+                        EnumerableSemiJoin.class,
+                        EnumerableCorrelate.class,
+                        EnumerableTableModify.class,
+                        EnumerableInterpreter.class,
+                        EnumerableBindable.class ) );
     }
 
 
+    /**
+     * Kinds of metadata queried by {@link AlgMetadataQuery}; their handlers are generated by {@link #pregenerate()}.
+     */
+    private static final List<MetadataDef<?>> BUILT_IN_DEFS = ImmutableList.of(
+            BuiltInMetadata.Collation.DEF,
+            BuiltInMetadata.ColumnOrigin.DEF,
+            BuiltInMetadata.ExpressionLineage.DEF,
+            BuiltInMetadata.TableReferences.DEF,
+            BuiltInMetadata.ColumnUniqueness.DEF,
+            BuiltInMetadata.CumulativeCost.DEF,
+            BuiltInMetadata.DistinctRowCount.DEF,
+            BuiltInMetadata.Distribution.DEF,
+            BuiltInMetadata.ExplainVisibility.DEF,
+            BuiltInMetadata.MaxRowCount.DEF,
+            BuiltInMetadata.MinRowCount.DEF,
+            BuiltInMetadata.Memory.DEF,
+            BuiltInMetadata.NonCumulativeCost.DEF,
+            BuiltInMetadata.Parallelism.DEF,
+            BuiltInMetadata.PercentageOriginalRows.DEF,
+            BuiltInMetadata.PopulationSize.DEF,
+            BuiltInMetadata.Predicates.DEF,
+            BuiltInMetadata.AllPredicates.DEF,
+            BuiltInMetadata.NodeTypes.DEF,
+            BuiltInMetadata.RowCount.DEF,
+            BuiltInMetadata.Selectivity.DEF,
+            BuiltInMetadata.Size.DEF,
+            BuiltInMetadata.UniqueKeys.DEF );
+
+
     /**
      * Private constructor; use {@link #of}.
      */
@@ -513,6 +562,17 @@ synchronized <M extends Metadata, H extends MetadataHandler<M>> H revise( Class<
     }
 
 
+    /**
+     * Generates the handlers of all built-in kinds of metadata for the registered classes. Calling this method on startup
+     * moves the compilation of the handlers out of the first queries, which would otherwise compile them one by one.
+     */
+    public void pregenerate() {
+        for ( MetadataDef<?> def : BUILT_IN_DEFS ) {
+            create( def );
+        }
+    }
+
+
     /**
      * Registers some classes. Does not flush the providers, but next time we need to generate a provider, it will handle all of these classes.
      * So, calling this method reduces the number of times we need to re-generate.
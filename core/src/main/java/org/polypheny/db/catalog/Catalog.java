@@ -1515,6 +1515,15 @@ protected final boolean isValidIdentifier( final String str ) {
      */
     public abstract void updatePartitionPlacementPhysicalNames( int adapterId, long partitionId, String physicalSchemaName, String physicalTableName );
 
+    /**
+     * Change the role of a partition placement.
+     *
+     * @param adapterId The id of the adapter
+     * @param partitionId The id of the partition
+     * @param role The new role of the placement
+     */
+    public abstract void updatePartitionPlacementRole( int adapterId, long partitionId, DataPlacementRole role );
+
     /**
      * Deletes a placement for a partition.
      *
@@ -137,6 +137,62 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "planningGroup" ),
 
+    PLANNING_TIME_BUDGET(
+            "runtime/planningTimeBudget",
+            "Maximum time in milliseconds the cost-based planner may spend on a query. If it is exceeded, the cheapest plan found so far is used. 0 means unlimited.",
+            0,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    PLANNING_RULE_FIRING_BUDGET(
+            "runtime/planningRuleFiringBudget",
+            "Maximum number of rules the cost-based planner may fire for a query. If it is exceeded, the cheapest plan found so far is used. 0 means unlimited.",
+            0,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    HEURISTIC_JOIN_ORDER_THRESHOLD(
+            "runtime/heuristicJoinOrderThreshold",
+            "Number of joins from which the join order is determined heuristically before the cost-based planning, instead of exploring all join orders. 0 means never.",
+            0,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    SHARED_METADATA_CACHE(
+            "runtime/sharedMetadataCache",
+            "Share estimated row counts, selectivities and costs of equal subtrees between all routing proposals of a statement.",
+            true,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
+    PROPOSAL_IMPLEMENTATION_PARALLELISM(
+            "runtime/proposalImplementationParallelism",
+            "Maximum number of routing proposals of a statement which are implemented concurrently. 1 means one after the other. If the implementation is lazy, the selected proposal is implemented concurrently with up to this number minus one of the cheapest other proposals.",
+            4,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    LAZY_PROPOSAL_IMPLEMENTATION(
+            "runtime/lazyProposalImplementation",
+            "Implement only the selected routing proposal and as many of the cheapest other proposals as are implemented concurrently with it. The remaining proposals are kept as optimized plans and are implemented once they are selected from the routing plan cache.",
+            true,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
+    PROPOSAL_PRUNING_FACTOR(
+            "runtime/proposalPruningFactor",
+            "Routing proposals whose estimated cost exceeds the cost of the cheapest proposal by more than this factor are discarded before their implementation. 0 means never.",
+            0.0,
+            ConfigType.DOUBLE,
+            "planningGroup" ),
+
+    METADATA_HANDLER_PREGENERATION(
+            "runtime/metadataHandlerPregeneration",
+            "Generate the metadata handlers of the cost-based planner on startup instead of during the first queries.",
+            true,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
     VALIDATE_MM_CONTENT_TYPE(
             "validation/validateMultimediaContentType",
             "Validate multimedia data by checking its content-type.",
@@ -206,6 +262,30 @@ public enum RuntimeConfig {
             TaskSchedulingType.EVERY_SECOND_FIXED,
             ConfigType.ENUM ),
 
+    MATERIALIZED_VIEW_INCREMENTAL_REFRESH(
+            "materializedView/incrementalRefresh",
+            "Refresh materialized views by applying the rows inserted into the underlying tables instead of recomputing them. Only supported for views consisting of selections, projections, inner joins and grouped aggregations.",
+            true,
+            ConfigType.BOOLEAN ),
+
+    MATERIALIZED_VIEW_MAX_DELTA_ROWS(
+            "materializedView/maxDeltaRows",
+            "Maximal number of inserted rows for which a materialized view is refreshed incrementally. If more rows have been inserted, the view is recomputed.",
+            1000,
+            ConfigType.INTEGER ),
+
+    MATERIALIZED_VIEW_QUERY_REWRITING(
+            "materializedView/queryRewriting",
+            "Answer queries on tables from materialized views with a matching definition.",
+            true,
+            ConfigType.BOOLEAN ),
+
+    MATERIALIZED_VIEW_REWRITING_MAX_STALENESS(
+            "materializedView/rewritingMaxStaleness",
+            "Maximal time in milliseconds since the last refresh of a materialized view for it to be used to answer queries on tables which have changed since. If zero, only materialized views without pending changes are used.",
+            0,
+            ConfigType.INTEGER ),
+
     EXPLORE_BY_EXAMPLE_TO_SQL(
             "exploreByExample/classificationToSQL",
             "Build SQL query from classification.",
@@ -272,6 +352,34 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "queryPlanCachingGroup" ),
 
+    ADAPTIVE_REOPTIMIZATION(
+            "runtime/adaptiveReoptimization",
+            "Compare the observed executions of cached plans with the estimates of the planner. If the number of result rows diverges from the estimate, the statistics of the accessed tables are re-evaluated and the query is planned again. If the execution time diverges from the average, the query is routed again.",
+            false,
+            ConfigType.BOOLEAN,
+            "queryPlanCachingGroup" ),
+
+    ADAPTIVE_REOPTIMIZATION_FACTOR(
+            "runtime/adaptiveReoptimizationFactor",
+            "Factor by which observed row counts or execution times have to differ from the expected ones to trigger a re-optimization.",
+            10.0,
+            ConfigType.DOUBLE,
+            "queryPlanCachingGroup" ),
+
+    PARAMETER_SENSITIVE_PLANS(
+            "runtime/parameterSensitivePlans",
+            "Cache variants of a plan for different selectivities of the predicates comparing columns with parameters. Each variant is optimized for the selectivities of the bound values. The variant is chosen when the parameter values are bound.",
+            true,
+            ConfigType.BOOLEAN,
+            "queryPlanCachingGroup" ),
+
+    PARAMETER_SENSITIVE_PLAN_VARIANTS(
+            "runtime/parameterSensitivePlanVariants",
+            "Maximum number of variants per parameterized plan. Further combinations of selectivities use the generic plan.",
+            4,
+            ConfigType.INTEGER,
+            "queryPlanCachingGroup" ),
+
     IMPLEMENTATION_CACHING(
             "runtime/implementationCaching",
             "Cache implemented query plans.",
@@ -293,6 +401,34 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "implementationCachingGroup" ),
 
+    BINDABLE_CACHE(
+            "runtime/bindableCache",
+            "Cache the compiled code of query plans in memory and on disk. Plans which have been evicted from the implementation cache or which are executed again after a restart do not have to be compiled again.",
+            true,
+            ConfigType.BOOLEAN,
+            "implementationCachingGroup" ),
+
+    BINDABLE_CACHE_WARM_UP(
+            "runtime/bindableCacheWarmUp",
+            "Number of compiled query plans which are loaded from disk on startup. The most frequently compiled plans are loaded first.",
+            100,
+            ConfigType.INTEGER,
+            "implementationCachingGroup" ),
+
+    BINDABLE_CACHE_MEMORY_SIZE(
+            "runtime/bindableCacheMemorySize",
+            "Number of compiled query plans which are kept in memory. If the limit is reached, the least recently used plan is removed.",
+            1000,
+            ConfigType.INTEGER,
+            "implementationCachingGroup" ),
+
+    BINDABLE_CACHE_DISK_SIZE(
+            "runtime/bindableCacheDiskSize",
+            "Number of compiled query plans which are kept on disk. If the limit is reached, the least recently used plans are deleted.",
+            10000,
+            ConfigType.INTEGER,
+            "implementationCachingGroup" ),
+
     ROUTING_PLAN_CACHING(
             "runtime/routingPlanCaching",
             "Caching of routing plans.",
@@ -333,12 +469,74 @@ public enum RuntimeConfig {
             1000,
             ConfigType.INTEGER ),
 
+    PARALLEL_MODIFY_COLLECT(
+            "runtime/parallelModifyCollect",
+            "Execute the modifications of a DML statement on different adapters concurrently. Modifications on the same adapter are always executed sequentially.",
+            true,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
+    PARALLEL_MODIFY_COLLECT_THREADS(
+            "runtime/parallelModifyCollectThreads",
+            "Maximum number of threads which execute the modifications of DML statements concurrently, shared by all statements. If all of them are busy, the modifications are executed by the thread of the statement.",
+            8,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    OPERATOR_MEMORY_LIMIT(
+            "runtime/operatorMemoryLimit",
+            "Maximal amount of memory (in MB) a single operator of a query may use for buffering rows. If exceeded, the operator writes rows to temporary files on disk. Zero disables spilling.",
+            256,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    QUERY_PARALLELISM(
+            "runtime/queryParallelism",
+            "Maximal number of threads an operator of a query may use. If larger than one, UNION ALL inputs on different adapters are read concurrently and hash aggregations and joins are executed on hash partitions of their inputs concurrently. The order of the rows is not preserved.",
+            1,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    SCATTER_GATHER_UNION(
+            "runtime/scatterGatherUnion",
+            "Start the inputs of a UNION ALL on different adapters concurrently (e.g., the partitions of a table placed on several stores) and prefetch their rows. The rows are still returned in the order of the inputs. The inputs share the statement and transaction of the query.",
+            false,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
+    UNION_PREFETCH_ROWS(
+            "runtime/unionPrefetchRows",
+            "Maximal number of rows prefetched per input of a scatter-gather UNION ALL.",
+            4096,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    VECTORIZED_EXECUTION(
+            "runtime/vectorizedExecution",
+            "Evaluate filters and projections batch by batch on column vectors instead of row by row. Only used if all expressions of the operator are supported.",
+            false,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
+    HASH_AGGREGATION(
+            "runtime/hashAggregation",
+            "Compute grouped COUNT, SUM, MIN and MAX aggregations over numeric values using unboxed accumulators. Groups exceeding the operator memory limit are spilled to disk.",
+            true,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
     DATA_MIGRATOR_BATCH_SIZE(
             "runtime/dataMigratorBatchSize",
             "Batch size for data insertion on the target store.",
             1000,
             ConfigType.INTEGER ),
 
+    DATA_MIGRATOR_PIPELINING(
+            "runtime/dataMigratorPipelining",
+            "Read the next batch from the source while the current batch is inserted on the target store.",
+            true,
+            ConfigType.BOOLEAN ),
+
     UNIQUE_CONSTRAINT_ENFORCEMENT(
             "runtime/uniqueConstraintEnforcement",
             "Enable enforcement of uniqueness constraints.",
@@ -418,6 +616,20 @@ public enum RuntimeConfig {
             ConfigType.ENUM,
             "temperaturePartitionProcessingSettingsGroup" ),
 
+    TEMPERATURE_ONLINE_REDISTRIBUTION(
+            "runtime/partitionOnlineRedistribution",
+            "Redistribute partitions of TEMPERATURE-partitioned tables in the background without locking the table for the whole data migration.",
+            false,
+            ConfigType.BOOLEAN,
+            "temperaturePartitionProcessingSettingsGroup" ),
+
+    TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND(
+            "runtime/partitionRedistributionRowsPerSecond",
+            "Maximum number of rows per second copied by an online redistribution of TEMPERATURE partitions. Zero disables the throttling.",
+            10000,
+            ConfigType.INTEGER,
+            "temperaturePartitionProcessingSettingsGroup" ),
+
     CATALOG_DEBUG_MESSAGES(
             "runtime/catalogDebugMessages",
             "Enable output of catalog debug messages on the monitoring page.",
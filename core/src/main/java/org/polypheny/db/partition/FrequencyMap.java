@@ -16,6 +16,8 @@
 
 package org.polypheny.db.partition;
 
+import java.util.Map;
+import java.util.Set;
 import org.polypheny.db.catalog.entity.CatalogTable;
 
 
@@ -39,4 +41,12 @@ public static FrequencyMap setAndGetInstance( FrequencyMap frequencyMap ) {
 
     public abstract void determinePartitionFrequency( CatalogTable table, long invocationTimestamp );
 
+    /**
+     * Records an access to partitions. This is called for every statement and must therefore be cheap and thread-safe.
+     *
+     * @param accessedPartitions Mapping of table ids to the accessed partitions of this table
+     * @param isWrite Whether the partitions have been modified
+     */
+    public abstract void recordPartitionAccess( Map<Long, Set<Long>> accessedPartitions, boolean isWrite );
+
 }
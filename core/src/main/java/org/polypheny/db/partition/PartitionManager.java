@@ -30,6 +30,15 @@ public interface PartitionManager {
      */
     long getTargetPartitionId( CatalogTable catalogTable, String columnValue );
 
+    /**
+     * Returns the ids of all partitions which can contain rows with one of the given values in the partition column.
+     *
+     * @param catalogTable Table to look for partitions
+     * @param values Values of the partition column which are accessed
+     * @return The ids of all partitions which might contain one of the values
+     */
+    List<Long> getTargetPartitionIds( CatalogTable catalogTable, PartitionValueSet values );
+
     boolean probePartitionGroupDistributionChange( CatalogTable catalogTable, int storeId, long columnId, int threshold );
 
     Map<Long, List<CatalogColumnPlacement>> getRelevantPlacements( CatalogTable catalogTable, List<Long> partitionIds, List<Integer> excludedAdapters );
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.polypheny.db.util.NlsString;
+
+
+/**
+ * Set of values of the partition column which can satisfy a filter. The values are represented as ranges,
+ * equality predicates are singleton ranges. Numeric values are normalized to {@link BigDecimal}.
+ *
+ * A value set is always a superset of the values actually satisfying the filter and can therefore be used
+ * to prune partitions which certainly do not contain any qualifying row.
+ */
+@EqualsAndHashCode
+public class PartitionValueSet {
+
+    private static final PartitionValueSet ALL = new PartitionValueSet( ImmutableRangeSet.of( Range.all() ), true );
+    private static final PartitionValueSet NONE = new PartitionValueSet( ImmutableRangeSet.of(), false );
+
+    @SuppressWarnings("rawtypes")
+    private final ImmutableRangeSet<Comparable> ranges;
+
+    /**
+     * Whether rows with a NULL value in the partition column can satisfy the filter
+     */
+    @Getter
+    private final boolean nullIncluded;
+
+
+    @SuppressWarnings("rawtypes")
+    private PartitionValueSet( RangeSet<Comparable> ranges, boolean nullIncluded ) {
+        this.ranges = ImmutableRangeSet.copyOf( ranges );
+        this.nullIncluded = nullIncluded;
+    }
+
+
+    public static PartitionValueSet all() {
+        return ALL;
+    }
+
+
+    public static PartitionValueSet none() {
+        return NONE;
+    }
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static PartitionValueSet of( Range<?> range ) {
+        return new PartitionValueSet( ImmutableRangeSet.of( (Range) range ), false );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    public static PartitionValueSet of( RangeSet<Comparable> ranges, boolean nullIncluded ) {
+        return new PartitionValueSet( ranges, nullIncluded );
+    }
+
+
+    /**
+     * Returns the set of all non-null values.
+     */
+    public static PartitionValueSet allValues() {
+        return new PartitionValueSet( ImmutableRangeSet.of( Range.all() ), false );
+    }
+
+
+    public static PartitionValueSet onlyNull() {
+        return new PartitionValueSet( ImmutableRangeSet.of(), true );
+    }
+
+
+    /**
+     * Converts a value into its comparable representation used in value sets.
+     *
+     * @return The normalized value or {@code null} if the value cannot be used for pruning
+     */
+    @SuppressWarnings("rawtypes")
+    public static Comparable normalize( Object value ) {
+        if ( value == null ) {
+            return null;
+        } else if ( value instanceof BigDecimal ) {
+            return (BigDecimal) value;
+        } else if ( value instanceof Number ) {
+            try {
+                return new BigDecimal( value.toString() );
+            } catch ( NumberFormatException e ) {
+                // NaN and infinity
+                return null;
+            }
+        } else if ( value instanceof NlsString ) {
+            return ((NlsString) value).getValue();
+        } else if ( value instanceof Character ) {
+            return value.toString();
+        } else if ( value instanceof Comparable ) {
+            return (Comparable) value;
+        }
+        return null;
+    }
+
+
+    public boolean isAll() {
+        return nullIncluded && ranges.encloses( Range.all() );
+    }
+
+
+    public boolean isEmpty() {
+        return !nullIncluded && ranges.isEmpty();
+    }
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public PartitionValueSet intersect( PartitionValueSet other ) {
+        RangeSet<Comparable> result = TreeRangeSet.create( ranges );
+        result.removeAll( other.ranges.complement() );
+        return new PartitionValueSet( result, nullIncluded && other.nullIncluded );
+    }
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public PartitionValueSet union( PartitionValueSet other ) {
+        RangeSet<Comparable> result = TreeRangeSet.create( ranges );
+        result.addAll( other.ranges );
+        return new PartitionValueSet( result, nullIncluded || other.nullIncluded );
+    }
+
+
+    public PartitionValueSet withNull( boolean nullIncluded ) {
+        return new PartitionValueSet( ranges, nullIncluded );
+    }
+
+
+    /**
+     * Returns the non-null values which are not part of this set.
+     */
+    public PartitionValueSet complementOfValues() {
+        return new PartitionValueSet( ranges.complement(), false );
+    }
+
+
+    /**
+     * Returns the contained values if this set consists only of single values.
+     *
+     * @return The values or {@code null} if the set contains at least one range which is not a single value
+     */
+    @SuppressWarnings("rawtypes")
+    public List<Comparable> getPoints() {
+        List<Comparable> points = new ArrayList<>();
+        for ( Range<Comparable> range : ranges.asRanges() ) {
+            if ( !isSingleton( range ) ) {
+                return null;
+            }
+            points.add( range.lowerEndpoint() );
+        }
+        return Collections.unmodifiableList( points );
+    }
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public boolean intersects( Range<?> range ) {
+        return ranges.intersects( (Range) range );
+    }
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public boolean contains( Comparable value ) {
+        return ranges.contains( value );
+    }
+
+
+    /**
+     * Checks whether this set contains values outside the given ranges.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public boolean hasValuesOutside( RangeSet<?> covered ) {
+        return !((RangeSet) covered).enclosesAll( ranges );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    private static boolean isSingleton( Range<Comparable> range ) {
+        return range.hasLowerBound()
+                && range.hasUpperBound()
+                && range.lowerBoundType() == BoundType.CLOSED
+                && range.upperBoundType() == BoundType.CLOSED
+                && range.lowerEndpoint().equals( range.upperEndpoint() );
+    }
+
+
+    @Override
+    public String toString() {
+        return ranges + (nullIncluded ? " + NULL" : "");
+    }
+
+}
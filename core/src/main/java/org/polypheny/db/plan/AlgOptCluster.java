@@ -34,7 +34,10 @@
 package org.polypheny.db.plan;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -47,6 +50,7 @@
 import org.polypheny.db.algebra.metadata.MetadataFactory;
 import org.polypheny.db.algebra.metadata.MetadataFactoryImpl;
 import org.polypheny.db.algebra.type.AlgDataTypeFactory;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.rex.RexBuilder;
 import org.polypheny.db.rex.RexNode;
 
@@ -66,7 +70,26 @@ public class AlgOptCluster {
     private AlgMetadataProvider metadataProvider;
     private MetadataFactory metadataFactory;
     private final AlgTraitSet emptyTraitSet;
-    private AlgMetadataQuery mq;
+
+    /**
+     * Metadata query per thread. A metadata query is not thread-safe, but the proposals of a statement may be
+     * implemented concurrently. The thread local is replaced to discard the metadata queries of all threads; the
+     * values held by pool threads are then only reachable through the replaced thread local and are collected.
+     */
+    private volatile ThreadLocal<AlgMetadataQuery> metadataQuery = new ThreadLocal<>();
+
+    /**
+     * Maximal number of shared metadata results of a cluster.
+     */
+    private static final int SHARED_METADATA_SIZE = 10_000;
+
+    /**
+     * Metadata of expressions that is shared by all metadata queries of this cluster, keyed by the compare string of the
+     * expression. As there is one cluster per statement, equal subtrees of different routing proposals are estimated once.
+     * Clusters are retained by cached plans, hence the results are reset by {@link #resetSharedMetadata()} once the
+     * statement has been prepared.
+     */
+    private final Cache<List, Object> sharedMetadata = CacheBuilder.newBuilder().maximumSize( SHARED_METADATA_SIZE ).build();
 
 
     /**
@@ -125,6 +148,7 @@ public AlgMetadataProvider getMetadataProvider() {
     public void setMetadataProvider( AlgMetadataProvider metadataProvider ) {
         this.metadataProvider = metadataProvider;
         this.metadataFactory = new MetadataFactoryImpl( metadataProvider );
+        this.sharedMetadata.invalidateAll();
     }
 
 
@@ -140,8 +164,13 @@ public MetadataFactory getMetadataFactory() {
      * a {@link AlgOptRule#onMatch(AlgOptRuleCall)} method, then use {@link AlgOptRuleCall#getMetadataQuery()} instead.
      */
     public AlgMetadataQuery getMetadataQuery() {
+        final ThreadLocal<AlgMetadataQuery> metadataQuery = this.metadataQuery;
+        AlgMetadataQuery mq = metadataQuery.get();
         if ( mq == null ) {
-            mq = AlgMetadataQuery.instance();
+            mq = RuntimeConfig.SHARED_METADATA_CACHE.getBoolean()
+                    ? AlgMetadataQuery.instance( sharedMetadata.asMap() )
+                    : AlgMetadataQuery.instance();
+            metadataQuery.set( mq );
         }
         return mq;
     }
@@ -151,7 +180,17 @@ public AlgMetadataQuery getMetadataQuery() {
      * Should be called whenever the current {@link AlgMetadataQuery} becomes invalid. Typically invoked from {@link AlgOptRuleCall#transformTo}.
      */
     public void invalidateMetadataQuery() {
-        mq = null;
+        metadataQuery = new ThreadLocal<>();
+    }
+
+
+    /**
+     * Discards the shared metadata and the current {@link AlgMetadataQuery}, so that later estimates are computed from
+     * the current statistics.
+     */
+    public void resetSharedMetadata() {
+        sharedMetadata.invalidateAll();
+        metadataQuery = new ThreadLocal<>();
     }
 
 
@@ -176,4 +215,3 @@ public AlgTraitSet traitSetOf( AlgTrait trait ) {
     }
 
 }
-
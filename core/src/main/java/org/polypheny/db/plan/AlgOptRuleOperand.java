@@ -168,6 +168,14 @@ public Class<? extends AlgNode> getMatchedClass() {
     }
 
 
+    /**
+     * @return trait required by this operand, or null if any trait is accepted
+     */
+    public AlgTrait getTrait() {
+        return trait;
+    }
+
+
     /**
      * Returns the child operands.
      *
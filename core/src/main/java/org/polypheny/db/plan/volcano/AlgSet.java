@@ -292,7 +292,7 @@ void mergeWith( VolcanoPlanner planner, AlgSet otherSet ) {
 
         // merge subsets
         for ( AlgSubset otherSubset : otherSet.subsets ) {
-            planner.ruleQueue.subsetImportances.remove( otherSubset );
+            planner.ruleQueue.removeImportance( otherSubset );
             AlgSubset subset = getOrCreateSubset( otherSubset.getCluster(), otherSubset.getTraitSet() );
             if ( otherSubset.bestCost.isLt( subset.bestCost ) ) {
                 subset.bestCost = otherSubset.bestCost;
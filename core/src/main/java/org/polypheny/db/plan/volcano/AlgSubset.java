@@ -103,6 +103,14 @@ public class AlgSubset extends AbstractAlgNode {
      */
     boolean boosted;
 
+    /**
+     * Importance of this subset as computed by {@link RuleQueue#getImportance(AlgSubset)}, valid as long as
+     * {@link #importanceVersion} equals the version of the importances in the rule queue.
+     */
+    double importance;
+
+    long importanceVersion = -1;
+
 
     AlgSubset( AlgOptCluster cluster, AlgSet set, AlgTraitSet traits ) {
         super( cluster, traits );
@@ -80,10 +80,17 @@ class RuleQueue {
 
 
     /**
-     * The importance of each subset.
+     * The importance of each subset. Must only be modified through {@link #updateImportance(AlgSubset, Double)},
+     * {@link #putImportance(AlgSubset, double)} and {@link #removeImportance(AlgSubset)}, so that the importances cached in the subsets are invalidated.
      */
     final Map<AlgSubset, Double> subsetImportances = new HashMap<>();
 
+    /**
+     * Incremented whenever {@link #subsetImportances} changes. Importances computed by {@link #getImportance(AlgSubset)}
+     * are cached in the subsets together with this version.
+     */
+    private long importanceVersion = 0;
+
     /**
      * The set of RelSubsets whose importance is currently in an artificially raised state. Typically this only includes RelSubsets which have only logical RelNodes.
      */
@@ -145,6 +152,7 @@ class RuleQueue {
      */
     public void clear() {
         this.subsetImportances.clear();
+        this.importanceVersion++;
         this.boostedSubsets.clear();
         for ( PhaseMatchList matchList : matchListMap.values() ) {
             matchList.clear();
@@ -266,6 +274,7 @@ private int countChildren( AlgSubset subset ) {
 
     void updateImportance( AlgSubset subset, Double importance ) {
         subsetImportances.put( subset, importance );
+        importanceVersion++;
 
         for ( PhaseMatchList matchList : matchListMap.values() ) {
             Multimap<AlgSubset, VolcanoRuleMatch> algMatchMap = matchList.matchMap;
@@ -278,14 +287,38 @@ void updateImportance( AlgSubset subset, Double importance ) {
     }
 
 
+    /**
+     * Sets the importance of a subset without invalidating the importance of the rule matches of the subset.
+     */
+    void putImportance( AlgSubset subset, double importance ) {
+        subsetImportances.put( subset, importance );
+        importanceVersion++;
+    }
+
+
+    /**
+     * Removes the importance of a subset, e.g. because its set has been merged into another set.
+     */
+    void removeImportance( AlgSubset subset ) {
+        if ( subsetImportances.remove( subset ) != null ) {
+            importanceVersion++;
+        }
+    }
+
+
     /**
      * Returns the importance of an equivalence class of relational expressions. Subset importances are held in a lookup table, and importance changes gradually propagate through that table.
      *
      * If a subset in the same set but with a different calling convention is deemed to be important, then this subset has at least half of its importance.
      * (This rule is designed to encourage conversions to take place.)
+     *
+     * The result is cached in the subset until an importance changes.
      */
     double getImportance( AlgSubset alg ) {
         assert alg != null;
+        if ( alg.importanceVersion == importanceVersion ) {
+            return alg.importance;
+        }
 
         double importance = 0;
         final AlgSet set = planner.getSet( alg );
@@ -303,6 +336,8 @@ void updateImportance( AlgSubset subset, Double importance ) {
                 importance = subsetImportance;
             }
         }
+        alg.importance = importance;
+        alg.importanceVersion = importanceVersion;
         return importance;
     }
 
@@ -334,6 +369,19 @@ void addMatch( VolcanoRuleMatch match ) {
     }
 
 
+    /**
+     * Returns whether a rule match with the given digest has already been added to every phase.
+     */
+    boolean isQueued( String digest ) {
+        for ( PhaseMatchList matchList : matchListMap.values() ) {
+            if ( !matchList.names.contains( digest ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
     /**
      * Computes the <dfn>importance</dfn> of a node. Importance is defined as follows:
      *
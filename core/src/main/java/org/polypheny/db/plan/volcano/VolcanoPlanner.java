@@ -48,6 +48,7 @@
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -57,6 +58,7 @@
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import lombok.Getter;
 import org.apache.calcite.avatica.util.Spaces;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.polypheny.db.algebra.AlgNode;
@@ -128,6 +130,42 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
      */
     protected boolean impatient = false;
 
+    /**
+     * Maximum time in milliseconds {@link #findBestExp()} may spend firing rules, or 0 if unlimited. Once the budget is
+     * exhausted, the planner returns the cheapest plan found so far, or the first implementable plan if none has been
+     * found yet.
+     */
+    private long timeBudget = 0;
+
+    /**
+     * Maximum number of rules {@link #findBestExp()} may fire, or 0 if unlimited.
+     */
+    private int ruleFiringBudget = 0;
+
+    /**
+     * Whether the last call of {@link #findBestExp()} has been stopped because its budget was exhausted.
+     */
+    @Getter
+    private boolean budgetExhausted;
+
+    /**
+     * Time in nanoseconds spent in each phase by the last call of {@link #findBestExp()}.
+     */
+    @Getter
+    private final Map<VolcanoPlannerPhase, Long> phaseNanos = new EnumMap<>( VolcanoPlannerPhase.class );
+
+    /**
+     * Number of rules fired by this planner.
+     */
+    @Getter
+    private long ruleFiringCount;
+
+    /**
+     * Number of rule matches which have been discarded because an identical match was already queued.
+     */
+    @Getter
+    private long duplicateMatchCount;
+
     /**
      * Operands that apply to a given class of {@link AlgNode}.
      *
@@ -136,6 +174,13 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
      */
     private final Multimap<Class<? extends AlgNode>, AlgOptRuleOperand> classOperands = LinkedListMultimap.create();
 
+    /**
+     * Index of {@link #classOperands} by the traits of the {@link AlgNode}. Contains, in the same order, only the operands
+     * whose trait is contained in the trait set, so that {@link #fireRules(AlgNode, boolean)} does not need to test the
+     * other operands. Built lazily; cleared whenever {@link #classOperands} changes.
+     */
+    private final Map<Class<? extends AlgNode>, Map<AlgTraitSet, List<AlgOptRuleOperand>>> operandIndex = new HashMap<>();
+
     /**
      * List of all sets. Used only for debugging.
      */
@@ -354,6 +399,7 @@ public void clear() {
             removeRule( rule );
         }
         this.classOperands.clear();
+        this.operandIndex.clear();
         this.allSets.clear();
         this.mapDigestToRel.clear();
         this.mapRel2Subset.clear();
@@ -397,6 +443,7 @@ public boolean addRule( AlgOptRule rule ) {
                 classOperands.put( subClass, operand );
             }
         }
+        operandIndex.clear();
 
         // If this is a converter rule, check that it operates on one of the kinds of trait we are interested in, and if so, register the rule with the trait.
         if ( rule instanceof ConverterRule ) {
@@ -425,6 +472,7 @@ public boolean removeRule( AlgOptRule rule ) {
 
         // Remove operands.
         classOperands.values().removeIf( entry -> entry.getRule().equals( rule ) );
+        operandIndex.clear();
 
         // Remove trait mappings. (In particular, entries from conversion graph.)
         if ( rule instanceof ConverterRule ) {
@@ -452,6 +500,7 @@ protected void onNewClass( AlgNode node ) {
                 }
             }
         }
+        operandIndex.remove( clazz );
     }
 
 
@@ -503,7 +552,18 @@ public AlgOptPlanner chooseDelegate() {
     public AlgNode findBestExp() {
         ensureRootConverters();
         int cumulativeTicks = 0;
+        final long deadline = timeBudget > 0 ? System.nanoTime() + timeBudget * 1_000_000L : Long.MAX_VALUE;
+        budgetExhausted = false;
+        phaseNanos.clear();
+        phases:
         for ( VolcanoPlannerPhase phase : VolcanoPlannerPhase.values() ) {
+            final long phaseStart = System.nanoTime();
+            if ( budgetExhausted ) {
+                // Skip the remaining phases, but leave the queue in a clean state
+                ruleQueue.phaseCompleted( phase );
+                phaseNanos.put( phase, 0L );
+                continue;
+            }
             setInitialImportance();
 
             AlgOptCost targetCost = costFactory.makeHugeCost();
@@ -544,6 +604,19 @@ public AlgNode findBestExp() {
                     injectImportanceBoost();
                 }
 
+                if ( !budgetExhausted
+                        && ((ruleFiringBudget > 0 && cumulativeTicks > ruleFiringBudget) || (deadline != Long.MAX_VALUE && System.nanoTime() > deadline)) ) {
+                    LOGGER.debug( "Planning budget exhausted after {} ticks in phase {}; COST = {}", cumulativeTicks, phase, root.bestCost );
+                    budgetExhausted = true;
+                }
+                if ( budgetExhausted && !root.bestCost.isInfinite() ) {
+                    // Take the best plan found so far. Without an implementable plan there is nothing to return,
+                    // so the planner continues until it has found one.
+                    ruleQueue.phaseCompleted( phase );
+                    phaseNanos.put( phase, System.nanoTime() - phaseStart );
+                    continue phases;
+                }
+
                 LOGGER.debug( "PLANNER = {}; TICK = {}/{}; PHASE = {}; COST = {}", this, cumulativeTicks, tick, phase.toString(), root.bestCost );
 
                 VolcanoRuleMatch match = ruleQueue.popMatch( phase );
@@ -553,12 +626,14 @@ public AlgNode findBestExp() {
 
                 assert match.getRule().matches( match );
                 match.onMatch();
+                ruleFiringCount++;
 
                 // The root may have been merged with another subset. Find the new root subset.
                 root = canonize( root );
             }
 
             ruleQueue.phaseCompleted( phase );
+            phaseNanos.put( phase, System.nanoTime() - phaseStart );
         }
         if ( LOGGER.isTraceEnabled() ) {
             StringWriter sw = new StringWriter();
@@ -576,6 +651,18 @@ public AlgNode findBestExp() {
     }
 
 
+    /**
+     * Limits the effort of {@link #findBestExp()}.
+     *
+     * @param timeBudget Maximum planning time in milliseconds, or 0 if unlimited
+     * @param ruleFiringBudget Maximum number of rule firings, or 0 if unlimited
+     */
+    public void setBudget( long timeBudget, int ruleFiringBudget ) {
+        this.timeBudget = timeBudget;
+        this.ruleFiringBudget = ruleFiringBudget;
+    }
+
+
     /**
      * Informs {@link JaninoRelMetadataProvider} about the different kinds of {@link AlgNode} that we will be dealing with.
      * It will reduce the number of times that we need to re-generate the provider.
@@ -1201,7 +1288,7 @@ private AlgSubset canonize( final AlgSubset subset ) {
      * @param deferred If true, each time a rule matches, just add an entry to the queue.
      */
     void fireRules( AlgNode alg, boolean deferred ) {
-        for ( AlgOptRuleOperand operand : classOperands.get( alg.getClass() ) ) {
+        for ( AlgOptRuleOperand operand : getOperands( alg ) ) {
             if ( operand.matches( alg ) ) {
                 final VolcanoRuleCall ruleCall;
                 if ( deferred ) {
@@ -1215,6 +1302,25 @@ void fireRules( AlgNode alg, boolean deferred ) {
     }
 
 
+    /**
+     * Returns the operands which could match the given algebra expression, based on its class and traits.
+     */
+    private List<AlgOptRuleOperand> getOperands( AlgNode alg ) {
+        final AlgTraitSet traitSet = alg.getTraitSet();
+        return operandIndex
+                .computeIfAbsent( alg.getClass(), c -> new HashMap<>() )
+                .computeIfAbsent( traitSet, t -> {
+                    final List<AlgOptRuleOperand> operands = new ArrayList<>();
+                    for ( AlgOptRuleOperand operand : classOperands.get( alg.getClass() ) ) {
+                        if ( operand.getTrait() == null || traitSet.contains( operand.getTrait() ) ) {
+                            operands.add( operand );
+                        }
+                    }
+                    return operands;
+                } );
+    }
+
+
     private boolean fixUpInputs( AlgNode alg ) {
         List<AlgNode> inputs = alg.getInputs();
         int i = -1;
@@ -1434,7 +1540,7 @@ private AlgSubset registerImpl( AlgNode alg, AlgSet set ) {
 
         // Create back-links from its children, which makes children more important.
         if ( alg == this.root ) {
-            ruleQueue.subsetImportances.put( subset, 1.0 ); // todo: remove
+            ruleQueue.putImportance( subset, 1.0 ); // todo: remove
         }
         for ( AlgNode input : alg.getInputs() ) {
             AlgSubset childSubset = (AlgSubset) input;
@@ -1444,7 +1550,7 @@ private AlgSubset registerImpl( AlgNode alg, AlgSet set ) {
             ruleQueue.recompute( childSubset );
         }
         if ( alg == this.root ) {
-            ruleQueue.subsetImportances.remove( subset );
+            ruleQueue.removeImportance( subset );
         }
 
         // Remember abstract converters until they're satisfied
@@ -1608,11 +1714,16 @@ private static class DeferringRuleCall extends VolcanoRuleCall {
 
         /**
          * Rather than invoking the rule (as the base method does), creates a {@link VolcanoRuleMatch}
-         * which can be invoked later.
+         * which can be invoked later. Matches which are already queued in every phase are skipped before they are created.
          */
         @Override
         protected void onMatch() {
-            final VolcanoRuleMatch match = new VolcanoRuleMatch( volcanoPlanner, getOperand0(), algs, nodeInputs );
+            final String digest = VolcanoRuleMatch.computeDigest( getRule(), algs );
+            if ( volcanoPlanner.ruleQueue.isQueued( digest ) ) {
+                volcanoPlanner.duplicateMatchCount++;
+                return;
+            }
+            final VolcanoRuleMatch match = new VolcanoRuleMatch( volcanoPlanner, getOperand0(), algs, nodeInputs, digest );
             volcanoPlanner.ruleQueue.addMatch( match );
         }
 
@@ -37,6 +37,7 @@
 import java.util.List;
 import java.util.Map;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.plan.AlgOptRule;
 import org.polypheny.db.plan.AlgOptRuleOperand;
 import org.polypheny.db.plan.AlgTrait;
 import org.polypheny.db.plan.AlgTraitSet;
@@ -60,15 +61,16 @@ class VolcanoRuleMatch extends VolcanoRuleCall {
      * @param operand0 Primary operand
      * @param algs List of targets; copied by the constructor, so the client can modify it later
      * @param nodeInputs Map from relational expressions to their inputs
+     * @param digest Digest of the match, as computed by {@link #computeDigest(AlgOptRule, AlgNode[])}
      */
-    VolcanoRuleMatch( VolcanoPlanner volcanoPlanner, AlgOptRuleOperand operand0, AlgNode[] algs, Map<AlgNode, List<AlgNode>> nodeInputs ) {
+    VolcanoRuleMatch( VolcanoPlanner volcanoPlanner, AlgOptRuleOperand operand0, AlgNode[] algs, Map<AlgNode, List<AlgNode>> nodeInputs, String digest ) {
         super( volcanoPlanner, operand0, algs.clone(), nodeInputs );
         assert allNotNull( algs, Litmus.THROW );
 
         // Try to deduce which subset the result will belong to. Assume -- for now -- that the set is the same as the root relexp.
         targetSet = volcanoPlanner.getSet( algs[0] );
         assert targetSet != null : algs[0].toString() + " isn't in a set";
-        digest = computeDigest();
+        this.digest = digest;
     }
 
 
@@ -137,12 +139,12 @@ void clearCachedImportance() {
 
 
     /**
-     * Computes a string describing this rule match. Two rule matches are equivalent if and only if their digests are the same.
+     * Computes a string describing a rule match. Two rule matches are equivalent if and only if their digests are the same.
      *
-     * @return description of this rule match
+     * @return description of the rule match
      */
-    private String computeDigest() {
-        StringBuilder buf = new StringBuilder( "rule [" + getRule() + "] rels [" );
+    static String computeDigest( AlgOptRule rule, AlgNode[] algs ) {
+        StringBuilder buf = new StringBuilder( "rule [" + rule + "] rels [" );
         for ( int i = 0; i < algs.length; i++ ) {
             if ( i > 0 ) {
                 buf.append( ", " );
@@ -158,7 +160,7 @@ private String computeDigest() {
      * Recomputes the digest of this VolcanoRuleMatch. It is necessary when sets have merged since the match was created.
      */
     public void recomputeDigest() {
-        digest = computeDigest();
+        digest = computeDigest( getRule(), algs );
     }
 
 
@@ -258,7 +258,7 @@ public static AlgDataType toSql( final AlgDataTypeFactory typeFactory, AlgDataTy
 
 
     @Override
-    public Type createSyntheticType( List<Type> types ) {
+    public synchronized Type createSyntheticType( List<Type> types ) {
         if ( types.isEmpty() ) {
             // Unit is a pre-defined synthetic type to be used when there are 0 fields. Because all instances are the same, we use a singleton.
             return Unit.class;
@@ -299,8 +299,11 @@ public int size() {
 
     /**
      * Creates a synthetic Java class whose fields have the same names and relational types.
+     *
+     * Synchronized, as the proposals of a statement are implemented concurrently with the same type factory and the
+     * names of the synthetic types are derived from the number of registered types.
      */
-    private Type createSyntheticType( AlgRecordType type ) {
+    private synchronized Type createSyntheticType( AlgRecordType type ) {
         final String name = "Record" + type.getFieldCount() + "_" + syntheticTypes.size();
         final SyntheticRecordType syntheticType = new SyntheticRecordType( type, name );
         for ( final AlgDataTypeField recordField : type.getFieldList() ) {
@@ -206,6 +206,7 @@ public class PolyphenyDbPrepareImpl implements PolyphenyDbPrepare {
                     EnumerableRules.ENUMERABLE_STREAMER_RULE,
                     EnumerableRules.ENUMERABLE_TABLE_MODIFY_TO_STREAMER_RULE,
                     EnumerableRules.ENUMERABLE_BATCH_ITERATOR_RULE,
+                    EnumerableRules.ENUMERABLE_PARAMETER_GROUP_RULE,
                     EnumerableRules.ENUMERABLE_CONSTRAINT_ENFORCER_RULE,
                     EnumerableRules.ENUMERABLE_PROJECT_RULE,
                     EnumerableRules.ENUMERABLE_FILTER_RULE,
@@ -82,6 +82,16 @@ void copyPartitionData(
 
     AlgRoot buildDeleteStatement( Statement statement, List<CatalogColumnPlacement> to, long partitionId );
 
+    /**
+     * Builds a statement deleting the rows whose values in the given key columns are equal to the parameters.
+     * The parameters are indexed by the ids of the key columns.
+     *
+     * @param statement Statement used to execute the delete
+     * @param keys Placements of the key columns
+     * @param partitionId Partition from which the rows are deleted
+     */
+    AlgRoot buildDeleteByKeyStatement( Statement statement, List<CatalogColumnPlacement> keys, long partitionId );
+
     AlgRoot getSourceIterator( Statement statement, Map<Long, List<CatalogColumnPlacement>> placementDistribution );
 
 }
@@ -23,8 +23,6 @@
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.AlgShuttleImpl;
@@ -45,6 +43,7 @@
 import org.polypheny.db.algebra.logical.LogicalUnion;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.partition.PartitionValueSet;
 import org.polypheny.db.prepare.AlgOptTableImpl;
 import org.polypheny.db.schema.LogicalTable;
 import org.polypheny.db.schema.Table;
@@ -58,8 +57,7 @@ public class LogicalAlgAnalyzeShuttle extends AlgShuttleImpl {
 
     protected final LogicalAlgAnalyzeRexShuttle rexShuttle;
     @Getter
-    //protected final Map<Integer, List<String>> filterMap = new HashMap<>(); // logical scanId (TableScanId) -> List partitionsValue
-    protected final Map<Integer, Set<String>> partitionValueFilterPerScan = new HashMap<>(); // logical scanId (TableScanId) -> (logical tableId -> List partitionsValue)
+    protected final Map<Integer, PartitionValueSet> partitionValuesPerScan = new HashMap<>(); // logical scanId (TableScanId) -> values of the partition column which are accessed
     @Getter
     protected final HashSet<String> hashBasis = new HashSet<>();
     @Getter
@@ -277,24 +275,12 @@ private void getPartitioningInfo( LogicalFilter filter ) {
 
         // Only if table is partitioned
         if ( catalogTable.partitionProperty.isPartitioned ) {
-            WhereClauseVisitor whereClauseVisitor = new WhereClauseVisitor(
+            PartitionFilterAnalyzer filterAnalyzer = new PartitionFilterAnalyzer(
                     statement,
                     catalogTable.columnIds.indexOf( catalogTable.partitionProperty.partitionColumnId ) );
-            filter.accept( whereClauseVisitor );
+            PartitionValueSet values = filterAnalyzer.analyze( filter.getCondition() );
 
-            int scanId = filter.getInput().getId();
-
-            if ( !partitionValueFilterPerScan.containsKey( scanId ) ) {
-                partitionValueFilterPerScan.put( scanId, new HashSet<>() );
-            }
-
-            if ( whereClauseVisitor.valueIdentified ) {
-                if ( !whereClauseVisitor.getValues().isEmpty() && !whereClauseVisitor.isUnsupportedFilter() ) {
-                    partitionValueFilterPerScan.get( scanId ).addAll( whereClauseVisitor.getValues().stream()
-                            .map( Object::toString )
-                            .collect( Collectors.toSet() ) );
-                }
-            }
+            partitionValuesPerScan.merge( filter.getInput().getId(), values, PartitionValueSet::intersect );
         }
     }
 
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.collect.Range;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.partition.PartitionValueSet;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexUtil;
+import org.polypheny.db.transaction.Statement;
+
+
+/**
+ * Derives the set of partition column values which can satisfy a filter condition. In contrast to the
+ * {@link WhereClauseVisitor}, which only collects values of equality predicates, this analyzer supports range
+ * predicates, IN-lists as well as arbitrary combinations using AND, OR and NOT.
+ *
+ * The analysis is conservative: predicates which cannot be analyzed (e.g., predicates on other columns or
+ * function calls) are treated as if they could be satisfied by any value.
+ */
+@Slf4j
+public class PartitionFilterAnalyzer {
+
+    private final Statement statement;
+    private final int partitionColumnIndex;
+
+
+    public PartitionFilterAnalyzer( Statement statement, int partitionColumnIndex ) {
+        this.statement = statement;
+        this.partitionColumnIndex = partitionColumnIndex;
+    }
+
+
+    /**
+     * Returns the values of the partition column which can satisfy the given condition.
+     */
+    public PartitionValueSet analyze( RexNode condition ) {
+        try {
+            return visit( condition ).values;
+        } catch ( ClassCastException e ) {
+            // Values of different types have been compared; no pruning possible
+            log.debug( "Unable to analyze filter for partition pruning: {}", condition, e );
+            return PartitionValueSet.all();
+        }
+    }
+
+
+    private Constraint visit( RexNode node ) {
+        if ( node instanceof RexLiteral ) {
+            Object value = ((RexLiteral) node).getValue();
+            if ( Boolean.TRUE.equals( value ) ) {
+                return Constraint.exact( PartitionValueSet.all(), Truth.TRUE );
+            } else if ( Boolean.FALSE.equals( value ) ) {
+                return Constraint.exact( PartitionValueSet.none(), Truth.FALSE );
+            }
+            return Constraint.UNKNOWN;
+        }
+        if ( !(node instanceof RexCall) ) {
+            return Constraint.UNKNOWN;
+        }
+        final RexCall call = (RexCall) node;
+        switch ( call.getKind() ) {
+            case AND: {
+                Constraint result = visit( call.operands.get( 0 ) );
+                for ( RexNode operand : call.operands.subList( 1, call.operands.size() ) ) {
+                    result = result.and( visit( operand ) );
+                }
+                return result;
+            }
+            case OR: {
+                Constraint result = visit( call.operands.get( 0 ) );
+                for ( RexNode operand : call.operands.subList( 1, call.operands.size() ) ) {
+                    result = result.or( visit( operand ) );
+                }
+                return result;
+            }
+            case NOT:
+                return visit( call.operands.get( 0 ) ).not();
+            case IS_NULL:
+                if ( isPartitionColumn( call.operands.get( 0 ) ) ) {
+                    return Constraint.exact( PartitionValueSet.onlyNull(), Truth.TRUE );
+                }
+                return Constraint.UNKNOWN;
+            case IS_NOT_NULL:
+                if ( isPartitionColumn( call.operands.get( 0 ) ) ) {
+                    return Constraint.exact( PartitionValueSet.allValues(), Truth.FALSE );
+                }
+                return Constraint.UNKNOWN;
+            case IN:
+                return visitIn( call );
+            case EQUALS:
+            case NOT_EQUALS:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                return visitComparison( call );
+            default:
+                return Constraint.UNKNOWN;
+        }
+    }
+
+
+    private Constraint visitIn( RexCall call ) {
+        if ( !isPartitionColumn( call.operands.get( 0 ) ) ) {
+            return Constraint.UNKNOWN;
+        }
+        PartitionValueSet values = PartitionValueSet.none();
+        for ( RexNode operand : call.operands.subList( 1, call.operands.size() ) ) {
+            @SuppressWarnings("rawtypes") Comparable value = getValue( operand );
+            if ( value == null ) {
+                return Constraint.UNKNOWN;
+            }
+            values = values.union( PartitionValueSet.of( Range.singleton( value ) ) );
+        }
+        return Constraint.exact( values, Truth.UNKNOWN );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    private Constraint visitComparison( RexCall call ) {
+        final RexNode left = call.operands.get( 0 );
+        final RexNode right = call.operands.get( 1 );
+        Kind kind = call.getKind();
+        final Comparable value;
+        if ( isPartitionColumn( left ) ) {
+            value = getValue( right );
+        } else if ( isPartitionColumn( right ) ) {
+            value = getValue( left );
+            kind = kind.reverse();
+        } else {
+            return Constraint.UNKNOWN;
+        }
+        if ( value == null ) {
+            return Constraint.UNKNOWN;
+        }
+
+        final PartitionValueSet values;
+        switch ( kind ) {
+            case EQUALS:
+                values = PartitionValueSet.of( Range.singleton( value ) );
+                break;
+            case NOT_EQUALS:
+                values = PartitionValueSet.of( Range.singleton( value ) ).complementOfValues();
+                break;
+            case LESS_THAN:
+                values = PartitionValueSet.of( Range.lessThan( value ) );
+                break;
+            case LESS_THAN_OR_EQUAL:
+                values = PartitionValueSet.of( Range.atMost( value ) );
+                break;
+            case GREATER_THAN:
+                values = PartitionValueSet.of( Range.greaterThan( value ) );
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                values = PartitionValueSet.of( Range.atLeast( value ) );
+                break;
+            default:
+                return Constraint.UNKNOWN;
+        }
+        // A comparison with NULL is neither true nor false
+        return Constraint.exact( values, Truth.UNKNOWN );
+    }
+
+
+    private boolean isPartitionColumn( RexNode node ) {
+        return node instanceof RexInputRef && ((RexInputRef) node).getIndex() == partitionColumnIndex;
+    }
+
+
+    /**
+     * Returns the normalized value of a literal or dynamic parameter, or {@code null} if the value is unknown.
+     * Casts are only unwrapped if they preserve the value.
+     */
+    @SuppressWarnings("rawtypes")
+    private Comparable getValue( RexNode node ) {
+        if ( node instanceof RexLiteral ) {
+            return PartitionValueSet.normalize( ((RexLiteral) node).getValueForQueryParameterizer() );
+        } else if ( node instanceof RexDynamicParam ) {
+            long index = ((RexDynamicParam) node).getIndex();
+            List<?> parameterValues = statement.getDataContext().getParameterValues();
+            if ( parameterValues.size() != 1 ) {
+                // Batch of values, the filter is evaluated with different values
+                return null;
+            }
+            return PartitionValueSet.normalize( statement.getDataContext().getParameterValue( index ) );
+        } else if ( RexUtil.isLosslessCast( node ) ) {
+            // Other casts might change the value, e.g. a cast of 2.5 to INTEGER
+            return getValue( ((RexCall) node).operands.get( 0 ) );
+        }
+        return null;
+    }
+
+
+    /**
+     * Result of a predicate for a row with NULL in the partition column.
+     */
+    private enum Truth {
+        TRUE, FALSE, UNKNOWN;
+
+
+        Truth not() {
+            return this == TRUE ? FALSE : this == FALSE ? TRUE : UNKNOWN;
+        }
+
+
+        Truth and( Truth other ) {
+            if ( this == FALSE || other == FALSE ) {
+                return FALSE;
+            }
+            return this == TRUE && other == TRUE ? TRUE : UNKNOWN;
+        }
+
+
+        Truth or( Truth other ) {
+            if ( this == TRUE || other == TRUE ) {
+                return TRUE;
+            }
+            return this == FALSE && other == FALSE ? FALSE : UNKNOWN;
+        }
+    }
+
+
+    /**
+     * Values satisfying a predicate. A constraint is exact if the predicate only depends on the partition column;
+     * only exact constraints can be negated.
+     */
+    private static class Constraint {
+
+        static final Constraint UNKNOWN = new Constraint( PartitionValueSet.all(), false, null );
+
+        final PartitionValueSet values;
+        final boolean exact;
+        final Truth nullTruth;
+
+
+        private Constraint( PartitionValueSet values, boolean exact, Truth nullTruth ) {
+            this.values = values;
+            this.exact = exact;
+            this.nullTruth = nullTruth;
+        }
+
+
+        static Constraint exact( PartitionValueSet values, Truth nullTruth ) {
+            return new Constraint( values.withNull( nullTruth == Truth.TRUE ), true, nullTruth );
+        }
+
+
+        Constraint and( Constraint other ) {
+            if ( exact && other.exact ) {
+                return exact( values.intersect( other.values ), nullTruth.and( other.nullTruth ) );
+            }
+            return new Constraint( values.intersect( other.values ), false, null );
+        }
+
+
+        Constraint or( Constraint other ) {
+            if ( exact && other.exact ) {
+                return exact( values.union( other.values ), nullTruth.or( other.nullTruth ) );
+            }
+            return new Constraint( values.union( other.values ), false, null );
+        }
+
+
+        Constraint not() {
+            if ( exact ) {
+                return exact( values.complementOfValues(), nullTruth.not() );
+            }
+            return UNKNOWN;
+        }
+
+    }
+
+}
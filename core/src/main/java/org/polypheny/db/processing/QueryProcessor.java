@@ -17,6 +17,7 @@
 package org.polypheny.db.processing;
 
 
+import java.util.Collection;
 import org.polypheny.db.PolyResult;
 import org.polypheny.db.algebra.AlgRoot;
 import org.polypheny.db.algebra.type.AlgDataType;
@@ -61,6 +62,24 @@ public interface QueryProcessor {
      */
     void resetCaches();
 
+    /**
+     * Resets the caches after a change of the given table. Only the cached routing plans of queries accessing the
+     * table are removed.
+     */
+    void resetCachesOfTable( long tableId );
+
+    /**
+     * Resets the caches after a change of the placements of the given partitions. Only the cached routing plans of
+     * queries accessing one of the partitions are removed.
+     */
+    void resetCachesOfPartitions( Collection<Long> partitionIds );
+
+    /**
+     * Resets the caches after a change of the given adapter. Only the cached routing plans using a placement on the
+     * adapter are removed.
+     */
+    void resetCachesOfAdapter( int adapterId );
+
     /**
      * To acquire a global shared lock for a statement.
      * This method is used before the statistics are updated to make sure nothing changes during the updating process.
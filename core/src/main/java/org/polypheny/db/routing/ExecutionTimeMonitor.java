@@ -24,9 +24,36 @@ public class ExecutionTimeMonitor {
     private final Map<ExecutionTimeObserver, String> observers = new HashMap<>(); // Observer and their individual reference
 
 
+    /**
+     * Signals that the execution of the statement has started, i.e. that the first rows are fetched.
+     */
+    public void setExecutionStarted() {
+        for ( Map.Entry<ExecutionTimeObserver, String> observerEntry : observers.entrySet() ) {
+            observerEntry.getKey().executionStarted( observerEntry.getValue() );
+        }
+    }
+
+
     public void setExecutionTime( long nanoTime ) {
+        setExecutionTime( nanoTime, -1 );
+    }
+
+
+    /**
+     * @param rowCount Number of result rows, or -1 if unknown
+     */
+    public void setExecutionTime( long nanoTime, long rowCount ) {
+        setExecutionTime( nanoTime, rowCount, true );
+    }
+
+
+    /**
+     * @param rowCount Number of fetched result rows, or -1 if unknown
+     * @param complete Whether all result rows have been fetched; otherwise, the row count is only a lower bound
+     */
+    public void setExecutionTime( long nanoTime, long rowCount, boolean complete ) {
         for ( Map.Entry<ExecutionTimeObserver, String> observerEntry : observers.entrySet() ) {
-            observerEntry.getKey().executionTime( observerEntry.getValue(), nanoTime );
+            observerEntry.getKey().executionTime( observerEntry.getValue(), nanoTime, rowCount, complete );
         }
     }
 
@@ -40,6 +67,13 @@ public interface ExecutionTimeObserver {
 
         void executionTime( String reference, long nanoTime );
 
+        default void executionStarted( String reference ) {
+        }
+
+        default void executionTime( String reference, long nanoTime, long rowCount, boolean complete ) {
+            executionTime( reference, nanoTime );
+        }
+
     }
 
 }
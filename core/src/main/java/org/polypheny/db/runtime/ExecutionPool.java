@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Shared thread pools for executing independent parts of a query concurrently (e.g., the routing proposals
+ * of a statement or the modifications of a DML statement on different adapters).
+ */
+public final class ExecutionPool {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( runnable -> {
+        Thread thread = new Thread( runnable, "query-execution-" + THREAD_COUNTER.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    /**
+     * Bounded pool for modifications. If all of its threads are busy, a modification is executed on the submitting thread,
+     * i.e., the thread of the transaction, instead of waiting for a free thread.
+     */
+    private static final ExecutorService MODIFY_EXECUTOR = new ThreadPoolExecutor(
+            0,
+            Math.max( 1, RuntimeConfig.PARALLEL_MODIFY_COLLECT_THREADS.getInteger() ),
+            60L,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            runnable -> {
+                Thread thread = new Thread( runnable, "modify-execution-" + THREAD_COUNTER.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            },
+            new CallerRunsPolicy() );
+
+
+    private ExecutionPool() {
+        // Utility class
+    }
+
+
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+
+    /**
+     * Executes all tasks concurrently and waits for their results. The first task is executed on the calling thread.
+     * If one of the tasks fails, the remaining tasks are cancelled and the exception is rethrown.
+     *
+     * @param tasks The tasks to execute
+     * @return The results of the tasks, in the order of the tasks
+     */
+    public static <T> List<T> invokeAll( List<Callable<T>> tasks ) {
+        return invokeAll( tasks, EXECUTOR );
+    }
+
+
+    /**
+     * Executes modifications concurrently and waits for their results. In contrast to {@link #invokeAll(List)}, the
+     * modifications of all statements share a bounded number of threads
+     * (see {@link RuntimeConfig#PARALLEL_MODIFY_COLLECT_THREADS}). If all of them are busy, the remaining modifications
+     * are executed one after another on the calling thread.
+     *
+     * @param tasks The modifications to execute
+     * @return The results of the modifications, in the order of the tasks
+     */
+    public static <T> List<T> invokeAllModifications( List<Callable<T>> tasks ) {
+        return invokeAll( tasks, MODIFY_EXECUTOR );
+    }
+
+
+    private static <T> List<T> invokeAll( List<Callable<T>> tasks, ExecutorService executor ) {
+        List<Future<T>> futures = new ArrayList<>( tasks.size() );
+        for ( int i = 1; i < tasks.size(); i++ ) {
+            futures.add( executor.submit( tasks.get( i ) ) );
+        }
+        List<T> results = new ArrayList<>( tasks.size() );
+        try {
+            if ( !tasks.isEmpty() ) {
+                results.add( tasks.get( 0 ).call() );
+            }
+            for ( Future<T> future : futures ) {
+                results.add( future.get() );
+            }
+        } catch ( InterruptedException e ) {
+            futures.forEach( f -> f.cancel( true ) );
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        } catch ( ExecutionException e ) {
+            futures.forEach( f -> f.cancel( true ) );
+            throw unwrap( e.getCause() );
+        } catch ( Exception e ) {
+            futures.forEach( f -> f.cancel( true ) );
+            throw unwrap( e );
+        }
+        return results;
+    }
+
+
+    /**
+     * Executes the tasks with at most {@code parallelism} threads, including the calling thread, and waits for their results.
+     * Each thread takes the next pending task until all tasks are done. If one of the tasks fails, no further tasks are
+     * started and the exception is rethrown.
+     *
+     * @param tasks The tasks to execute
+     * @param parallelism The maximum number of tasks executed at the same time
+     * @return The results of the tasks, in the order of the tasks
+     */
+    public static <T> List<T> invokeAll( List<Callable<T>> tasks, int parallelism ) {
+        if ( parallelism >= tasks.size() ) {
+            return invokeAll( tasks );
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Object[] results = new Object[tasks.size()];
+        final Callable<Void> worker = () -> {
+            for ( int i = next.getAndIncrement(); i < tasks.size() && !failed.get(); i = next.getAndIncrement() ) {
+                try {
+                    results[i] = tasks.get( i ).call();
+                } catch ( Exception e ) {
+                    failed.set( true );
+                    throw e;
+                }
+            }
+            return null;
+        };
+        invokeAll( Collections.nCopies( Math.max( 1, parallelism ), worker ) );
+        //noinspection unchecked
+        return (List<T>) Arrays.asList( results );
+    }
+
+
+    private static RuntimeException unwrap( Throwable t ) {
+        if ( t instanceof RuntimeException ) {
+            return (RuntimeException) t;
+        } else if ( t instanceof Error ) {
+            throw (Error) t;
+        }
+        return new RuntimeException( t );
+    }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+
+
+/**
+ * Sorting of rows which does not require the whole input to fit into memory.
+ *
+ * <ul>
+ * <li>{@link #orderBy} sorts runs of rows which fit into the memory budget of the operator, writes them to temporary
+ * files and merges them afterwards.</li>
+ * <li>{@link #orderByLimit} only keeps the first {@code offset + fetch} rows in a bounded heap.</li>
+ * </ul>
+ *
+ * Like {@link org.apache.calcite.linq4j.ExtendedEnumerable#orderBy(Function1, Comparator)}, both sorts are stable.
+ *
+ * @param <TSource> Row type
+ * @param <TKey> Sort key type
+ */
+@Slf4j
+public class ExternalSort<TSource, TKey> {
+
+    /**
+     * Maximal number of rows kept in the heap of a top-N sort. Larger limits use the external sort.
+     */
+    static final int TOP_N_MAX_ROWS = 100_000;
+
+    /**
+     * Maximal number of runs merged at once.
+     */
+    static final int MERGE_FAN_IN = 64;
+
+    private final Function1<TSource, TKey> keySelector;
+    private final Comparator<TKey> comparator;
+    private final long memoryLimit;
+
+
+    private ExternalSort( Function1<TSource, TKey> keySelector, Comparator<TKey> comparator, long memoryLimit ) {
+        this.keySelector = keySelector;
+        this.comparator = comparator;
+        this.memoryLimit = memoryLimit;
+    }
+
+
+    /**
+     * Sorts the rows, writing sorted runs to disk if the input exceeds the memory limit of {@link Spilling#getMemoryLimit()}.
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <TSource, TKey> Enumerable<TSource> orderBy( Enumerable<TSource> source, Function1<TSource, TKey> keySelector, Comparator<TKey> comparator ) {
+        return orderBy( source, keySelector, comparator, Spilling.getMemoryLimit() );
+    }
+
+
+    static <TSource, TKey> Enumerable<TSource> orderBy( Enumerable<TSource> source, Function1<TSource, TKey> keySelector, Comparator<TKey> comparator, long memoryLimit ) {
+        ExternalSort<TSource, TKey> sort = new ExternalSort<>( keySelector, comparator, memoryLimit );
+        return new AbstractEnumerable<TSource>() {
+            @Override
+            public Enumerator<TSource> enumerator() {
+                return sort.sort( source );
+            }
+        };
+    }
+
+
+    /**
+     * Sorts the rows and returns {@code fetch} rows starting at {@code offset}. If {@code offset + fetch} is small,
+     * only these rows are kept in memory.
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <TSource, TKey> Enumerable<TSource> orderByLimit( Enumerable<TSource> source, Function1<TSource, TKey> keySelector, Comparator<TKey> comparator, int offset, int fetch ) {
+        return orderByLimit( source, keySelector, comparator, offset, fetch, Spilling.getMemoryLimit() );
+    }
+
+
+    static <TSource, TKey> Enumerable<TSource> orderByLimit( Enumerable<TSource> source, Function1<TSource, TKey> keySelector, Comparator<TKey> comparator, int offset, int fetch, long memoryLimit ) {
+        if ( (long) offset + fetch > TOP_N_MAX_ROWS ) {
+            return orderBy( source, keySelector, comparator, memoryLimit ).skip( offset ).take( fetch );
+        }
+        ExternalSort<TSource, TKey> sort = new ExternalSort<>( keySelector, comparator, memoryLimit );
+        return new AbstractEnumerable<TSource>() {
+            @Override
+            public Enumerator<TSource> enumerator() {
+                return sort.topN( source, offset, fetch );
+            }
+        };
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private int compare( TKey k1, TKey k2 ) {
+        if ( comparator != null ) {
+            return comparator.compare( k1, k2 );
+        }
+        return ((Comparable<TKey>) k1).compareTo( k2 );
+    }
+
+
+    private Enumerator<TSource> topN( Enumerable<TSource> source, int offset, int fetch ) {
+        final int limit = offset + fetch;
+        if ( fetch <= 0 ) {
+            return Linq4j.emptyEnumerator();
+        }
+        // Max-heap; for equal keys, the row read last is the largest, which keeps the sort stable
+        final Comparator<KeyedRow<TSource, TKey>> order = this::compareRows;
+        final PriorityQueue<KeyedRow<TSource, TKey>> heap = new PriorityQueue<>( limit, order.reversed() );
+        long sequence = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                TSource row = enumerator.current();
+                TKey key = keySelector.apply( row );
+                if ( heap.size() < limit ) {
+                    heap.add( new KeyedRow<>( key, row, sequence++ ) );
+                } else if ( compare( key, heap.peek().key ) < 0 ) {
+                    heap.poll();
+                    heap.add( new KeyedRow<>( key, row, sequence++ ) );
+                }
+            }
+        }
+        final List<KeyedRow<TSource, TKey>> sorted = new ArrayList<>( heap );
+        sorted.sort( order );
+        final List<TSource> rows = new ArrayList<>( fetch );
+        for ( int i = offset; i < sorted.size(); i++ ) {
+            rows.add( sorted.get( i ).row );
+        }
+        return Linq4j.enumerator( rows );
+    }
+
+
+    private int compareRows( KeyedRow<TSource, TKey> r1, KeyedRow<TSource, TKey> r2 ) {
+        int c = compare( r1.key, r2.key );
+        return c != 0 ? c : Long.compare( r1.sequence, r2.sequence );
+    }
+
+
+    private Enumerator<TSource> sort( Enumerable<TSource> source ) {
+        final Comparator<KeyedRow<TSource, TKey>> order = ( r1, r2 ) -> compare( r1.key, r2.key );
+        final List<SpillFile<TSource>> spilledRuns = new ArrayList<>();
+        List<KeyedRow<TSource, TKey>> buffer = new ArrayList<>();
+        boolean spillable = true;
+        long size = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                TSource row = enumerator.current();
+                buffer.add( new KeyedRow<>( keySelector.apply( row ), row, 0 ) );
+                // Estimate of the row plus the entry in the buffer
+                size += Spilling.estimateSize( row ) + 40;
+                if ( spillable && size > memoryLimit ) {
+                    // List.sort is stable
+                    buffer.sort( order );
+                    if ( writeRun( buffer, spilledRuns ) ) {
+                        buffer = new ArrayList<>();
+                        size = 0;
+                    } else {
+                        log.debug( "Unable to spill rows of sort, exceeding memory limit" );
+                        spillable = false;
+                    }
+                }
+            }
+        } catch ( RuntimeException e ) {
+            spilledRuns.forEach( SpillFile::close );
+            throw e;
+        }
+
+        buffer.sort( order );
+        final List<TSource> rows = new ArrayList<>( buffer.size() );
+        buffer.forEach( r -> rows.add( r.row ) );
+        if ( spilledRuns.isEmpty() ) {
+            return Linq4j.enumerator( rows );
+        }
+        Spilling.operatorSpilled();
+
+        // All files, to delete them if the merge fails
+        final List<SpillFile<TSource>> files = new ArrayList<>( spilledRuns );
+        List<SpillFile<TSource>> runs = spilledRuns;
+        try {
+            // Reduce the number of runs until all of them can be merged at once. Consecutive runs are merged to keep the sort stable.
+            while ( runs.size() >= MERGE_FAN_IN ) {
+                List<SpillFile<TSource>> mergedRuns = new ArrayList<>();
+                for ( int i = 0; i < runs.size(); i += MERGE_FAN_IN ) {
+                    List<SpillFile<TSource>> group = runs.subList( i, Math.min( i + MERGE_FAN_IN, runs.size() ) );
+                    SpillFile<TSource> run = Spilling.createFile( "sort" );
+                    mergedRuns.add( run );
+                    files.add( run );
+                    try ( Enumerator<TSource> enumerator = new MergeEnumerator( group, Linq4j.emptyEnumerator() ) ) {
+                        while ( enumerator.moveNext() ) {
+                            run.write( enumerator.current() );
+                        }
+                    }
+                    run.finish();
+                }
+                runs = mergedRuns;
+            }
+        } catch ( IOException | RuntimeException e ) {
+            files.forEach( SpillFile::close );
+            if ( e instanceof IOException ) {
+                throw new PolyphenyDbException( "Unable to spill rows of sort", e );
+            }
+            throw (RuntimeException) e;
+        }
+        // The rows still in memory are the last run
+        return new MergeEnumerator( runs, Linq4j.enumerator( rows ) );
+    }
+
+
+    /**
+     * Writes the sorted rows to a new run. Returns false if the rows cannot be written to disk.
+     */
+    private boolean writeRun( List<KeyedRow<TSource, TKey>> rows, List<SpillFile<TSource>> runs ) {
+        SpillFile<TSource> run = Spilling.createFile( "sort" );
+        try {
+            for ( KeyedRow<TSource, TKey> row : rows ) {
+                run.write( row.row );
+            }
+            run.finish();
+        } catch ( NotSerializableException e ) {
+            run.close();
+            if ( runs.isEmpty() ) {
+                return false;
+            }
+            // Some rows have already been written, there is no way back
+            runs.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of sort", e );
+        } catch ( IOException e ) {
+            run.close();
+            runs.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of sort", e );
+        }
+        runs.add( run );
+        return true;
+    }
+
+
+    /**
+     * A row together with its sort key.
+     */
+    private static class KeyedRow<TSource, TKey> {
+
+        private final TKey key;
+        private final TSource row;
+        private final long sequence;
+
+
+        private KeyedRow( TKey key, TSource row, long sequence ) {
+            this.key = key;
+            this.row = row;
+            this.sequence = sequence;
+        }
+
+    }
+
+
+    /**
+     * Merges sorted runs. For equal keys, rows of earlier runs are returned first. The runs are deleted on close.
+     */
+    private class MergeEnumerator implements Enumerator<TSource> {
+
+        private final List<SpillFile<TSource>> runs;
+        private final List<Enumerator<TSource>> enumerators = new ArrayList<>();
+        private final PriorityQueue<KeyedRow<TSource, TKey>> heap;
+        private TSource current;
+
+
+        private MergeEnumerator( List<SpillFile<TSource>> runs, Enumerator<TSource> last ) {
+            this.runs = runs;
+            runs.forEach( run -> enumerators.add( run.enumerator() ) );
+            enumerators.add( last );
+            // The sequence is the index of the run
+            heap = new PriorityQueue<>( enumerators.size(), ExternalSort.this::compareRows );
+            for ( int i = 0; i < enumerators.size(); i++ ) {
+                advance( i );
+            }
+        }
+
+
+        private void advance( int run ) {
+            Enumerator<TSource> enumerator = enumerators.get( run );
+            if ( enumerator.moveNext() ) {
+                TSource row = enumerator.current();
+                heap.add( new KeyedRow<>( keySelector.apply( row ), row, run ) );
+            }
+        }
+
+
+        @Override
+        public TSource current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            KeyedRow<TSource, TKey> next = heap.poll();
+            if ( next == null ) {
+                return false;
+            }
+            current = next.row;
+            advance( (int) next.sequence );
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            enumerators.forEach( Enumerator::close );
+            runs.forEach( SpillFile::close );
+        }
+
+    }
+
+}
@@ -80,6 +80,7 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -301,6 +302,49 @@ public static Enumerable<?> batch( final DataContext context, final Enumerable<O
     }
 
 
+    /**
+     * Executes the given input with the rows of parameter values assigned to the group. The input is executed when
+     * the returned enumerable is enumerated, afterwards the parameter values of the context are restored.
+     */
+    @SuppressWarnings("unused")
+    public static Enumerable<?> parameterGroup( final DataContext context, final Enumerable<Object> baz, final long groupId ) {
+        return new AbstractEnumerable<Object>() {
+            @Override
+            public Enumerator<Object> enumerator() {
+                List<Map<Long, Object>> values = context.getParameterValues();
+                context.setParameterValues( context.getParameterGroup( groupId ) );
+                try {
+                    return Linq4j.enumerator( baz.toList() );
+                } finally {
+                    context.setParameterValues( values );
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Executes the given groups of modifications concurrently and concatenates their results.
+     * Every group is consumed completely on one thread of the bounded modification pool or on the calling thread,
+     * the results are returned in the order of the groups. Each group works on its own snapshot of the parameter
+     * values, as they are changed during the execution (e.g. by {@link #parameterGroup}).
+     *
+     * @param context The data context of the statement
+     * @param modifies The groups of modifications, one per adapter
+     */
+    @SuppressWarnings("unused")
+    public static Enumerable<?> parallelCollect( final DataContext context, final List<Enumerable<Object>> modifies ) {
+        List<Callable<List<Object>>> tasks = modifies.stream()
+                .map( modify -> context.withParameterSnapshot( (Callable<List<Object>>) modify::toList ) )
+                .collect( Collectors.toList() );
+        List<Object> results = new ArrayList<>();
+        for ( List<Object> result : ExecutionPool.invokeAllModifications( tasks ) ) {
+            results.addAll( result );
+        }
+        return Linq4j.asEnumerable( results );
+    }
+
+
     @SuppressWarnings("unused")
     public static <T> Enumerable<Object> streamRight( final DataContext context, final Enumerable<Object> baz, final Function0<Enumerable<Object>> executorCall, final List<PolyType> polyTypes ) {
         PolyTypeFactoryImpl factory = new PolyTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
@@ -752,8 +796,7 @@ public static ByteString overlay( ByteString s, ByteString r, int start, int len
      * SQL {@code LIKE} function.
      */
     public static boolean like( String s, String pattern ) {
-        final String regex = Like.sqlToRegexLike( pattern, null );
-        return Pattern.matches( regex, s );
+        return Like.likeMatcher( pattern, null ).apply( s );
     }
 
 
@@ -761,8 +804,7 @@ public static boolean like( String s, String pattern ) {
      * SQL {@code LIKE} function with escape.
      */
     public static boolean like( String s, String pattern, String escape ) {
-        final String regex = Like.sqlToRegexLike( pattern, escape );
-        return Pattern.matches( regex, s );
+        return Like.likeMatcher( pattern, escape ).apply( s );
     }
 
 
@@ -770,8 +812,7 @@ public static boolean like( String s, String pattern, String escape ) {
      * SQL {@code SIMILAR} function.
      */
     public static boolean similar( String s, String pattern ) {
-        final String regex = Like.sqlToRegexSimilar( pattern, null );
-        return Pattern.matches( regex, s );
+        return Like.similarMatcher( pattern, null ).apply( s );
     }
 
 
@@ -779,8 +820,7 @@ public static boolean similar( String s, String pattern ) {
      * SQL {@code SIMILAR} function with escape.
      */
     public static boolean similar( String s, String pattern, String escape ) {
-        final String regex = Like.sqlToRegexSimilar( pattern, escape );
-        return Pattern.matches( regex, s );
+        return Like.similarMatcher( pattern, escape ).apply( s );
     }
 
     // =
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+
+
+/**
+ * Hash join which partitions both inputs to temporary files if the inner (build) input exceeds the memory budget of
+ * the operator. Rows with equal keys end up in the same partition, so that the partitions can be joined independently
+ * using the in-memory hash join of linq4j. Partitions which still exceed the budget are partitioned again using
+ * a different hash function, up to {@link #MAX_LEVELS} times.
+ *
+ * As long as the inner input fits into the budget, this behaves exactly like
+ * {@link org.apache.calcite.linq4j.ExtendedEnumerable#join(Enumerable, Function1, Function1, Function2, EqualityComparer, boolean, boolean)}.
+ * Once spilled, the order of the outer input is not preserved.
+ *
+ * @param <TSource> Row type of the outer input
+ * @param <TInner> Row type of the inner input
+ * @param <TKey> Key type
+ * @param <TResult> Row type of the result
+ */
+@Slf4j
+public class GraceHashJoin<TSource, TInner, TKey, TResult> {
+
+    static final int FAN_OUT = 16;
+    static final int MAX_LEVELS = 3;
+
+    private final Function1<TSource, TKey> outerKeySelector;
+    private final Function1<TInner, TKey> innerKeySelector;
+    private final Function2<TSource, TInner, TResult> resultSelector;
+    private final EqualityComparer<TKey> comparer;
+    private final boolean generateNullsOnLeft;
+    private final boolean generateNullsOnRight;
+    private final long memoryLimit;
+
+
+    private GraceHashJoin(
+            Function1<TSource, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TSource, TInner, TResult> resultSelector,
+            EqualityComparer<TKey> comparer,
+            boolean generateNullsOnLeft,
+            boolean generateNullsOnRight,
+            long memoryLimit ) {
+        this.outerKeySelector = outerKeySelector;
+        this.innerKeySelector = innerKeySelector;
+        this.resultSelector = resultSelector;
+        this.comparer = comparer;
+        this.generateNullsOnLeft = generateNullsOnLeft;
+        this.generateNullsOnRight = generateNullsOnRight;
+        this.memoryLimit = memoryLimit;
+    }
+
+
+    /**
+     * Joins two inputs based on matching keys, using the memory limit of {@link Spilling#getMemoryLimit()}.
+     * With a {@link ParallelExecution#getParallelism() parallelism} above one, hash partitions of the inputs are
+     * joined concurrently, each with its share of the memory limit.
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+            Enumerable<TSource> outer,
+            Enumerable<TInner> inner,
+            Function1<TSource, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TSource, TInner, TResult> resultSelector,
+            EqualityComparer<TKey> comparer,
+            boolean generateNullsOnLeft,
+            boolean generateNullsOnRight ) {
+        final int parallelism = ParallelExecution.getParallelism();
+        final long memoryLimit = Spilling.getMemoryLimit() / parallelism;
+        return ParallelExecution.exchange(
+                outer,
+                row -> hash( outerKeySelector.apply( row ), comparer ),
+                inner,
+                row -> hash( innerKeySelector.apply( row ), comparer ),
+                ( o, i ) -> join( o, i, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, memoryLimit ),
+                parallelism );
+    }
+
+
+    static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+            Enumerable<TSource> outer,
+            Enumerable<TInner> inner,
+            Function1<TSource, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TSource, TInner, TResult> resultSelector,
+            EqualityComparer<TKey> comparer,
+            boolean generateNullsOnLeft,
+            boolean generateNullsOnRight,
+            long memoryLimit ) {
+        GraceHashJoin<TSource, TInner, TKey, TResult> join = new GraceHashJoin<>( outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, memoryLimit );
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                return join.join( outer, inner.enumerator(), 0 );
+            }
+        };
+    }
+
+
+    /**
+     * Joins the outer input with the rows of the inner enumerator. The inner enumerator is consumed and closed.
+     */
+    private Enumerator<TResult> join( Enumerable<TSource> outer, Enumerator<TInner> inner, int level ) {
+        final List<TInner> buffer = new ArrayList<>();
+        boolean spillable = level < MAX_LEVELS;
+        long size = 0;
+        try {
+            while ( inner.moveNext() ) {
+                TInner row = inner.current();
+                buffer.add( row );
+                size += Spilling.estimateSize( row );
+                if ( spillable && size > memoryLimit ) {
+                    List<SpillFile<TInner>> innerPartitions = partitionInner( buffer, inner, level );
+                    if ( innerPartitions != null ) {
+                        buffer.clear();
+                        Spilling.operatorSpilled();
+                        return new PartitionEnumerator( partitionOuter( outer, level ), innerPartitions, level );
+                    }
+                    // Rows cannot be written to disk, keep them in memory
+                    log.debug( "Unable to spill rows of hash join, exceeding memory limit" );
+                    spillable = false;
+                }
+            }
+        } finally {
+            inner.close();
+        }
+        return outer.join( Linq4j.asEnumerable( buffer ), outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight ).enumerator();
+    }
+
+
+    /**
+     * Writes the buffered and the remaining rows of the inner input to partition files.
+     * Returns null (and leaves the buffer untouched) if the rows cannot be written to disk.
+     */
+    private List<SpillFile<TInner>> partitionInner( List<TInner> buffer, Enumerator<TInner> remaining, int level ) {
+        List<SpillFile<TInner>> partitions = createPartitions( "join-inner" );
+        try {
+            for ( TInner row : buffer ) {
+                partitions.get( partition( innerKeySelector.apply( row ), level ) ).write( row );
+            }
+        } catch ( NotSerializableException e ) {
+            partitions.forEach( SpillFile::close );
+            return null;
+        } catch ( IOException e ) {
+            partitions.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of hash join", e );
+        }
+        try {
+            while ( remaining.moveNext() ) {
+                TInner row = remaining.current();
+                partitions.get( partition( innerKeySelector.apply( row ), level ) ).write( row );
+            }
+        } catch ( IOException e ) {
+            partitions.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of hash join", e );
+        } catch ( RuntimeException e ) {
+            partitions.forEach( SpillFile::close );
+            throw e;
+        }
+        return partitions;
+    }
+
+
+    private List<SpillFile<TSource>> partitionOuter( Enumerable<TSource> outer, int level ) {
+        List<SpillFile<TSource>> partitions = createPartitions( "join-outer" );
+        try ( Enumerator<TSource> enumerator = outer.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                TSource row = enumerator.current();
+                partitions.get( partition( outerKeySelector.apply( row ), level ) ).write( row );
+            }
+        } catch ( IOException e ) {
+            partitions.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of hash join", e );
+        } catch ( RuntimeException e ) {
+            partitions.forEach( SpillFile::close );
+            throw e;
+        }
+        return partitions;
+    }
+
+
+    private static <T> List<SpillFile<T>> createPartitions( String prefix ) {
+        List<SpillFile<T>> partitions = new ArrayList<>( FAN_OUT );
+        for ( int i = 0; i < FAN_OUT; i++ ) {
+            partitions.add( Spilling.createFile( prefix ) );
+        }
+        return partitions;
+    }
+
+
+    /**
+     * Assigns a key to a partition. Every level uses a different hash function, so that a partition which is
+     * partitioned again does not end up in a single partition.
+     */
+    private int partition( TKey key, int level ) {
+        int hash = hash( key, comparer );
+        hash = (hash + level * 0x9E3779B9) * 0x85EBCA6B;
+        hash ^= hash >>> 15;
+        return Math.floorMod( hash, FAN_OUT );
+    }
+
+
+    private static <TKey> int hash( TKey key, EqualityComparer<TKey> comparer ) {
+        if ( key == null ) {
+            return 0;
+        }
+        return comparer == null ? key.hashCode() : comparer.hashCode( key );
+    }
+
+
+    /**
+     * Joins the partitions one after the other. Partitions are deleted as soon as they have been joined.
+     */
+    private class PartitionEnumerator implements Enumerator<TResult> {
+
+        private final List<SpillFile<TSource>> outerPartitions;
+        private final List<SpillFile<TInner>> innerPartitions;
+        private final int level;
+        private int partition = -1;
+        private Enumerator<TResult> current = Linq4j.emptyEnumerator();
+
+
+        private PartitionEnumerator( List<SpillFile<TSource>> outerPartitions, List<SpillFile<TInner>> innerPartitions, int level ) {
+            this.outerPartitions = outerPartitions;
+            this.innerPartitions = innerPartitions;
+            this.level = level;
+        }
+
+
+        @Override
+        public TResult current() {
+            return current.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( !current.moveNext() ) {
+                current.close();
+                if ( partition >= 0 ) {
+                    outerPartitions.get( partition ).close();
+                    innerPartitions.get( partition ).close();
+                }
+                if ( ++partition >= FAN_OUT ) {
+                    current = Linq4j.emptyEnumerator();
+                    return false;
+                }
+                SpillFile<TSource> outer = outerPartitions.get( partition );
+                SpillFile<TInner> inner = innerPartitions.get( partition );
+                if ( (outer.size() == 0 && !generateNullsOnLeft) || (inner.size() == 0 && !generateNullsOnRight) ) {
+                    // The partition cannot produce any rows
+                    current = Linq4j.emptyEnumerator();
+                } else {
+                    current = join( outer.asEnumerable(), inner.enumerator(), level + 1 );
+                }
+            }
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            current.close();
+            outerPartitions.forEach( SpillFile::close );
+            innerPartitions.forEach( SpillFile::close );
+        }
+
+    }
+
+}
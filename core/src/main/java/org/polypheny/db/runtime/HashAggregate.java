@@ -0,0 +1,686 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.DoubleFunction1;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.LongFunction1;
+import org.apache.calcite.linq4j.function.Predicate1;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * Hash aggregation for COUNT, SUM, MIN and MAX over numeric values. The accumulators of all groups are stored in
+ * primitive arrays instead of one object per group. If the key is a single integral column, the groups are looked up
+ * in an open-addressing table over the unboxed key.
+ *
+ * If the groups exceed the memory budget of the operator, no further groups are created. Rows of groups which are
+ * not in memory are written to partition files and aggregated once the in-memory groups have been returned.
+ * Every group is therefore either completely aggregated in memory or in exactly one partition.
+ *
+ * The rows returned are arrays containing the key columns followed by the aggregated values.
+ *
+ * @param <TSource> Row type of the input
+ */
+@Slf4j
+public class HashAggregate<TSource> {
+
+    static final int FAN_OUT = 16;
+    static final int MAX_LEVELS = 3;
+
+    private final List<AggSpec<TSource>> aggs;
+    private final Function1<TSource, Object> keySelector;
+    private final int keyCount;
+    private final LongFunction1<TSource> longKeySelector;
+    private final Predicate1<TSource> keyIsNull;
+    private final Primitive keyType;
+    private final long memoryLimit;
+
+
+    private HashAggregate(
+            List<AggSpec<TSource>> aggs,
+            Function1<TSource, Object> keySelector,
+            int keyCount,
+            LongFunction1<TSource> longKeySelector,
+            Predicate1<TSource> keyIsNull,
+            Primitive keyType,
+            long memoryLimit ) {
+        this.aggs = aggs;
+        this.keySelector = keySelector;
+        this.keyCount = keyCount;
+        this.longKeySelector = longKeySelector;
+        this.keyIsNull = keyIsNull;
+        this.keyType = keyType;
+        this.memoryLimit = memoryLimit;
+    }
+
+
+    /**
+     * Aggregates the rows grouped by arbitrary keys. If there are multiple key columns, the key selector returns a list.
+     * With a {@link ParallelExecution#getParallelism() parallelism} above one, hash partitions of the input are
+     * aggregated concurrently, each with its share of the memory limit.
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <TSource> Enumerable<Object[]> aggregate( Enumerable<TSource> source, Function1<TSource, Object> keySelector, int keyCount, List<AggSpec<TSource>> aggs ) {
+        final int parallelism = ParallelExecution.getParallelism();
+        final long memoryLimit = Spilling.getMemoryLimit() / parallelism;
+        return ParallelExecution.exchange(
+                source,
+                row -> Objects.hashCode( keySelector.apply( row ) ),
+                partition -> aggregate( partition, keySelector, keyCount, aggs, memoryLimit ),
+                parallelism );
+    }
+
+
+    static <TSource> Enumerable<Object[]> aggregate( Enumerable<TSource> source, Function1<TSource, Object> keySelector, int keyCount, List<AggSpec<TSource>> aggs, long memoryLimit ) {
+        return new HashAggregate<>( aggs, keySelector, keyCount, null, null, null, memoryLimit ).asEnumerable( source );
+    }
+
+
+    /**
+     * Aggregates the rows grouped by a single integral key column.
+     *
+     * @param keyIsNull Tests whether the key of a row is null, or null if the key is not nullable
+     * @param keyType Type of the key column
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <TSource> Enumerable<Object[]> aggregateLongKey( Enumerable<TSource> source, LongFunction1<TSource> keySelector, Predicate1<TSource> keyIsNull, Primitive keyType, List<AggSpec<TSource>> aggs ) {
+        final int parallelism = ParallelExecution.getParallelism();
+        final long memoryLimit = Spilling.getMemoryLimit() / parallelism;
+        return ParallelExecution.exchange(
+                source,
+                row -> keyIsNull != null && keyIsNull.apply( row ) ? 0 : Long.hashCode( keySelector.apply( row ) ),
+                partition -> aggregateLongKey( partition, keySelector, keyIsNull, keyType, aggs, memoryLimit ),
+                parallelism );
+    }
+
+
+    static <TSource> Enumerable<Object[]> aggregateLongKey( Enumerable<TSource> source, LongFunction1<TSource> keySelector, Predicate1<TSource> keyIsNull, Primitive keyType, List<AggSpec<TSource>> aggs, long memoryLimit ) {
+        return new HashAggregate<>( aggs, null, 1, keySelector, keyIsNull, keyType, memoryLimit ).asEnumerable( source );
+    }
+
+
+    private Enumerable<Object[]> asEnumerable( Enumerable<TSource> source ) {
+        return new AbstractEnumerable<Object[]>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                return aggregate( source, 0 );
+            }
+        };
+    }
+
+
+    private GroupTable createTable() {
+        return longKeySelector != null ? new LongGroupTable() : new ObjectGroupTable();
+    }
+
+
+    private Enumerator<Object[]> aggregate( Enumerable<TSource> source, int level ) {
+        final GroupTable table = createTable();
+        final Accumulators accumulators = new Accumulators();
+        final long bytesPerGroup = table.bytesPerGroup() + accumulators.bytesPerGroup();
+        List<SpillFile<TSource>> partitions = null;
+        boolean spillable = level < MAX_LEVELS;
+        long spilledRows = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                final TSource row = enumerator.current();
+                int group = table.find( row, partitions == null );
+                if ( group < 0 ) {
+                    // Not in memory, the memory limit has been reached
+                    try {
+                        partitions.get( partition( table.hash( row ), level ) ).write( row );
+                        spilledRows++;
+                        continue;
+                    } catch ( NotSerializableException e ) {
+                        if ( spilledRows > 0 ) {
+                            throw new PolyphenyDbException( "Unable to spill rows of aggregation", e );
+                        }
+                        log.debug( "Unable to spill rows of aggregation, exceeding memory limit" );
+                        partitions.forEach( SpillFile::close );
+                        partitions = null;
+                        spillable = false;
+                        group = table.find( row, true );
+                    }
+                }
+                accumulators.ensureCapacity( table.size() );
+                accumulators.add( group, row );
+                if ( spillable && partitions == null && table.size() * bytesPerGroup + table.keyBytes() > memoryLimit ) {
+                    partitions = new ArrayList<>( FAN_OUT );
+                    for ( int i = 0; i < FAN_OUT; i++ ) {
+                        partitions.add( Spilling.createFile( "aggregate" ) );
+                    }
+                }
+            }
+        } catch ( IOException e ) {
+            partitions.forEach( SpillFile::close );
+            throw new PolyphenyDbException( "Unable to spill rows of aggregation", e );
+        } catch ( RuntimeException e ) {
+            if ( partitions != null ) {
+                partitions.forEach( SpillFile::close );
+            }
+            throw e;
+        }
+
+        final List<Object[]> results = new ArrayList<>( table.size() );
+        for ( int group = 0; group < table.size(); group++ ) {
+            final Object[] result = new Object[keyCount + aggs.size()];
+            table.key( group, result );
+            for ( int i = 0; i < aggs.size(); i++ ) {
+                result[keyCount + i] = accumulators.result( group, i );
+            }
+            results.add( result );
+        }
+        if ( partitions == null ) {
+            return Linq4j.enumerator( results );
+        }
+        if ( spilledRows == 0 ) {
+            // All rows belonged to groups in memory
+            partitions.forEach( SpillFile::close );
+            return Linq4j.enumerator( results );
+        }
+        Spilling.operatorSpilled();
+        return new PartitionEnumerator( Linq4j.enumerator( results ), partitions, level );
+    }
+
+
+    private static int partition( int hash, int level ) {
+        hash = (hash + level * 0x9E3779B9) * 0x85EBCA6B;
+        hash ^= hash >>> 15;
+        return Math.floorMod( hash, FAN_OUT );
+    }
+
+
+    /**
+     * Kind of aggregate function.
+     */
+    public enum AggKind {
+        COUNT, SUM, SUM0, MIN, MAX
+    }
+
+
+    /**
+     * An aggregate function and its argument.
+     *
+     * @param <TSource> Row type of the input
+     */
+    public static class AggSpec<TSource> {
+
+        private final AggKind kind;
+        private final Primitive resultType;
+        private final LongFunction1<TSource> longArg;
+        private final DoubleFunction1<TSource> doubleArg;
+        private final Predicate1<TSource> isNull;
+
+
+        private AggSpec( AggKind kind, Primitive resultType, LongFunction1<TSource> longArg, DoubleFunction1<TSource> doubleArg, Predicate1<TSource> isNull ) {
+            this.kind = kind;
+            this.resultType = resultType;
+            this.longArg = longArg;
+            this.doubleArg = doubleArg;
+            this.isNull = isNull;
+        }
+
+
+        /**
+         * Counts the rows, or the rows for which the argument is not null.
+         *
+         * @param isNull Tests whether the argument is null; null to count all rows
+         */
+        public static <TSource> AggSpec<TSource> count( Predicate1<TSource> isNull ) {
+            return new AggSpec<>( AggKind.COUNT, Primitive.LONG, null, null, isNull );
+        }
+
+
+        /**
+         * Aggregates an integral argument.
+         */
+        public static <TSource> AggSpec<TSource> ofLong( AggKind kind, Primitive resultType, LongFunction1<TSource> arg, Predicate1<TSource> isNull ) {
+            return new AggSpec<>( kind, resultType, arg, null, isNull );
+        }
+
+
+        /**
+         * Aggregates a floating point argument.
+         */
+        public static <TSource> AggSpec<TSource> ofDouble( AggKind kind, Primitive resultType, DoubleFunction1<TSource> arg, Predicate1<TSource> isNull ) {
+            return new AggSpec<>( kind, resultType, null, arg, isNull );
+        }
+
+    }
+
+
+    private static Object box( Primitive type, long value ) {
+        switch ( type ) {
+            case BYTE:
+                return (byte) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            case FLOAT:
+                return (float) value;
+            case DOUBLE:
+                return (double) value;
+            default:
+                return value;
+        }
+    }
+
+
+    private static Object box( Primitive type, double value ) {
+        if ( type == Primitive.FLOAT ) {
+            return (float) value;
+        }
+        return value;
+    }
+
+
+    /**
+     * The accumulators of all groups, one primitive array per aggregate function.
+     */
+    private class Accumulators {
+
+        private final long[][] longs = new long[aggs.size()][];
+        private final double[][] doubles = new double[aggs.size()][];
+        // Whether a group has at least one non-null value
+        private final boolean[][] seen = new boolean[aggs.size()][];
+        private int capacity = 0;
+
+
+        void ensureCapacity( int groups ) {
+            if ( groups <= capacity ) {
+                return;
+            }
+            capacity = Math.max( 16, capacity * 2 );
+            for ( int i = 0; i < aggs.size(); i++ ) {
+                if ( aggs.get( i ).doubleArg != null ) {
+                    doubles[i] = doubles[i] == null ? new double[capacity] : Arrays.copyOf( doubles[i], capacity );
+                } else {
+                    longs[i] = longs[i] == null ? new long[capacity] : Arrays.copyOf( longs[i], capacity );
+                }
+                seen[i] = seen[i] == null ? new boolean[capacity] : Arrays.copyOf( seen[i], capacity );
+            }
+        }
+
+
+        long bytesPerGroup() {
+            return 9L * aggs.size();
+        }
+
+
+        void add( int group, TSource row ) {
+            for ( int i = 0; i < aggs.size(); i++ ) {
+                final AggSpec<TSource> agg = aggs.get( i );
+                if ( agg.isNull != null && agg.isNull.apply( row ) ) {
+                    continue;
+                }
+                if ( agg.kind == AggKind.COUNT ) {
+                    longs[i][group]++;
+                } else if ( agg.doubleArg != null ) {
+                    addDouble( i, group, agg.kind, agg.doubleArg.apply( row ) );
+                } else {
+                    addLong( i, group, agg.kind, agg.longArg.apply( row ) );
+                }
+            }
+        }
+
+
+        private void addLong( int i, int group, AggKind kind, long value ) {
+            final long[] values = longs[i];
+            if ( !seen[i][group] ) {
+                seen[i][group] = true;
+                values[group] = value;
+                return;
+            }
+            switch ( kind ) {
+                case SUM:
+                case SUM0:
+                    values[group] += value;
+                    break;
+                case MIN:
+                    values[group] = Math.min( values[group], value );
+                    break;
+                case MAX:
+                    values[group] = Math.max( values[group], value );
+                    break;
+                default:
+                    throw new AssertionError( kind );
+            }
+        }
+
+
+        private void addDouble( int i, int group, AggKind kind, double value ) {
+            final double[] values = doubles[i];
+            if ( !seen[i][group] ) {
+                seen[i][group] = true;
+                values[group] = value;
+                return;
+            }
+            switch ( kind ) {
+                case SUM:
+                case SUM0:
+                    values[group] += value;
+                    break;
+                case MIN:
+                    values[group] = Math.min( values[group], value );
+                    break;
+                case MAX:
+                    values[group] = Math.max( values[group], value );
+                    break;
+                default:
+                    throw new AssertionError( kind );
+            }
+        }
+
+
+        Object result( int group, int i ) {
+            final AggSpec<TSource> agg = aggs.get( i );
+            if ( agg.kind != AggKind.COUNT && agg.kind != AggKind.SUM0 && !seen[i][group] ) {
+                return null;
+            }
+            if ( agg.doubleArg != null ) {
+                return box( agg.resultType, doubles[i][group] );
+            }
+            return box( agg.resultType, longs[i][group] );
+        }
+
+    }
+
+
+    /**
+     * Maps the keys of the rows to consecutive group numbers.
+     */
+    private abstract class GroupTable {
+
+        /**
+         * Returns the group of the row. If there is none yet, either a new group is created, or -1 is returned.
+         */
+        abstract int find( TSource row, boolean create );
+
+        abstract int hash( TSource row );
+
+        /**
+         * Writes the key columns of the group into the result row.
+         */
+        abstract void key( int group, Object[] result );
+
+        abstract int size();
+
+        abstract long bytesPerGroup();
+
+        /**
+         * Memory occupied by the keys, in addition to {@link #bytesPerGroup()}.
+         */
+        abstract long keyBytes();
+
+    }
+
+
+    /**
+     * Open-addressing hash table over a single integral key. The null key is stored separately.
+     */
+    private class LongGroupTable extends GroupTable {
+
+        private long[] slotKeys = new long[64];
+        // Group number + 1, zero for empty slots
+        private int[] slotGroups = new int[64];
+        private long[] groupKeys = new long[16];
+        private int nullGroup = -1;
+        private int size = 0;
+
+
+        @Override
+        int find( TSource row, boolean create ) {
+            if ( keyIsNull != null && keyIsNull.apply( row ) ) {
+                if ( nullGroup < 0 && create ) {
+                    nullGroup = newGroup( 0 );
+                }
+                return nullGroup;
+            }
+            final long key = longKeySelector.apply( row );
+            int mask = slotKeys.length - 1;
+            int slot = mix( key ) & mask;
+            while ( slotGroups[slot] != 0 ) {
+                if ( slotKeys[slot] == key ) {
+                    return slotGroups[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ( !create ) {
+                return -1;
+            }
+            final int group = newGroup( key );
+            slotKeys[slot] = key;
+            slotGroups[slot] = group + 1;
+            // Keep the load factor below one half
+            if ( 2 * size > slotKeys.length ) {
+                rehash();
+            }
+            return group;
+        }
+
+
+        private int newGroup( long key ) {
+            if ( size == groupKeys.length ) {
+                groupKeys = Arrays.copyOf( groupKeys, size * 2 );
+            }
+            groupKeys[size] = key;
+            return size++;
+        }
+
+
+        private void rehash() {
+            final long[] oldKeys = slotKeys;
+            final int[] oldGroups = slotGroups;
+            slotKeys = new long[oldKeys.length * 2];
+            slotGroups = new int[oldGroups.length * 2];
+            final int mask = slotKeys.length - 1;
+            for ( int i = 0; i < oldKeys.length; i++ ) {
+                if ( oldGroups[i] != 0 ) {
+                    int slot = mix( oldKeys[i] ) & mask;
+                    while ( slotGroups[slot] != 0 ) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slotKeys[slot] = oldKeys[i];
+                    slotGroups[slot] = oldGroups[i];
+                }
+            }
+        }
+
+
+        private int mix( long key ) {
+            final long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+
+        @Override
+        int hash( TSource row ) {
+            if ( keyIsNull != null && keyIsNull.apply( row ) ) {
+                return 0;
+            }
+            return mix( longKeySelector.apply( row ) );
+        }
+
+
+        @Override
+        void key( int group, Object[] result ) {
+            result[0] = group == nullGroup ? null : box( keyType, groupKeys[group] );
+        }
+
+
+        @Override
+        int size() {
+            return size;
+        }
+
+
+        @Override
+        long bytesPerGroup() {
+            // Two slots per group plus the key of the group
+            return 2 * (8 + 4) + 8;
+        }
+
+
+        @Override
+        long keyBytes() {
+            return 0;
+        }
+
+    }
+
+
+    /**
+     * Hash table over arbitrary keys.
+     */
+    private class ObjectGroupTable extends GroupTable {
+
+        private final Map<Object, Integer> groups = new HashMap<>();
+        private final List<Object> keys = new ArrayList<>();
+        private long keyBytes = 0;
+
+
+        @Override
+        int find( TSource row, boolean create ) {
+            final Object key = keySelector.apply( row );
+            final Integer group = groups.get( key );
+            if ( group != null ) {
+                return group;
+            }
+            if ( !create ) {
+                return -1;
+            }
+            groups.put( key, keys.size() );
+            keys.add( key );
+            keyBytes += Spilling.estimateSize( key );
+            return keys.size() - 1;
+        }
+
+
+        @Override
+        int hash( TSource row ) {
+            final Object key = keySelector.apply( row );
+            return key == null ? 0 : key.hashCode();
+        }
+
+
+        @Override
+        void key( int group, Object[] result ) {
+            final Object key = keys.get( group );
+            if ( keyCount == 1 ) {
+                result[0] = key;
+            } else {
+                final List<?> list = (List<?>) key;
+                for ( int i = 0; i < keyCount; i++ ) {
+                    result[i] = list.get( i );
+                }
+            }
+        }
+
+
+        @Override
+        int size() {
+            return keys.size();
+        }
+
+
+        @Override
+        long bytesPerGroup() {
+            // Entry of the map, boxed group number and reference in the list
+            return 48 + 16 + 8;
+        }
+
+
+        @Override
+        long keyBytes() {
+            return keyBytes;
+        }
+
+    }
+
+
+    /**
+     * Returns the groups aggregated in memory, followed by the groups of the partitions.
+     */
+    private class PartitionEnumerator implements Enumerator<Object[]> {
+
+        private final List<SpillFile<TSource>> partitions;
+        private final int level;
+        private int partition = -1;
+        private Enumerator<Object[]> current;
+
+
+        private PartitionEnumerator( Enumerator<Object[]> inMemory, List<SpillFile<TSource>> partitions, int level ) {
+            this.current = inMemory;
+            this.partitions = partitions;
+            this.level = level;
+        }
+
+
+        @Override
+        public Object[] current() {
+            return current.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( !current.moveNext() ) {
+                current.close();
+                if ( partition >= 0 ) {
+                    partitions.get( partition ).close();
+                }
+                if ( ++partition >= FAN_OUT ) {
+                    current = Linq4j.emptyEnumerator();
+                    return false;
+                }
+                current = aggregate( partitions.get( partition ).asEnumerable(), level + 1 );
+            }
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            current.close();
+            partitions.forEach( SpillFile::close );
+        }
+
+    }
+
+}
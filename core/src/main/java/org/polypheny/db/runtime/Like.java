@@ -34,11 +34,34 @@
 package org.polypheny.db.runtime;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.regex.Pattern;
+import org.apache.calcite.linq4j.function.Predicate1;
+import org.polypheny.db.util.Pair;
+
+
 /**
  * Utilities for converting SQL {@code LIKE} and {@code SIMILAR} operators to regular expressions.
+ *
+ * Translating and compiling a pattern is much more expensive than matching a string against it. The matchers of the
+ * recently used patterns are therefore kept in bounded caches. LIKE patterns which are a literal with optional leading
+ * and trailing {@code %} are evaluated without a regular expression.
  */
 public class Like {
 
+    /**
+     * Maximum number of patterns for which the matchers are cached, per operator.
+     */
+    private static final int MATCHER_CACHE_SIZE = 1000;
+
+    private static final Cache<Pair<String, String>, Predicate1<String>> LIKE_MATCHERS = CacheBuilder.newBuilder()
+            .maximumSize( MATCHER_CACHE_SIZE )
+            .build();
+    private static final Cache<Pair<String, String>, Predicate1<String>> SIMILAR_MATCHERS = CacheBuilder.newBuilder()
+            .maximumSize( MATCHER_CACHE_SIZE )
+            .build();
+
     private static final String JAVA_REGEX_SPECIALS = "[]()|^-+*?{}$\\.";
     private static final String SQL_SIMILAR_SPECIALS = "[]()|^-+*_%?{}";
     private static final String[] REG_CHAR_CLASSES = {
@@ -63,10 +86,149 @@ private Like() {
     }
 
 
+    /**
+     * Shapes of LIKE patterns which can be evaluated without a regular expression.
+     */
+    public enum Shape {
+        /**
+         * {@code 'abc'}
+         */
+        EQUALS,
+        /**
+         * {@code 'abc%'}
+         */
+        STARTS_WITH,
+        /**
+         * {@code '%abc'}
+         */
+        ENDS_WITH,
+        /**
+         * {@code '%abc%'}
+         */
+        CONTAINS,
+        /**
+         * {@code '%'}, which matches every string
+         */
+        ANY
+    }
+
+
+    /**
+     * Returns a matcher for a SQL LIKE pattern, with optional escape string. Matchers are cached.
+     */
+    public static Predicate1<String> likeMatcher( String sqlPattern, String escapeStr ) {
+        final Pair<String, String> key = Pair.of( sqlPattern, escapeStr );
+        Predicate1<String> matcher = LIKE_MATCHERS.getIfPresent( key );
+        if ( matcher == null ) {
+            matcher = compileLike( sqlPattern, escapeStr );
+            LIKE_MATCHERS.put( key, matcher );
+        }
+        return matcher;
+    }
+
+
+    /**
+     * Returns a matcher for a SQL SIMILAR TO pattern, with optional escape string. Matchers are cached.
+     */
+    public static Predicate1<String> similarMatcher( String sqlPattern, String escapeStr ) {
+        final Pair<String, String> key = Pair.of( sqlPattern, escapeStr );
+        Predicate1<String> matcher = SIMILAR_MATCHERS.getIfPresent( key );
+        if ( matcher == null ) {
+            final Pattern regex = Pattern.compile( sqlToRegexSimilar( sqlPattern, escapeStr ) );
+            matcher = s -> regex.matcher( s ).matches();
+            SIMILAR_MATCHERS.put( key, matcher );
+        }
+        return matcher;
+    }
+
+
+    static Predicate1<String> compileLike( String sqlPattern, String escapeStr ) {
+        final Pair<Shape, String> shape = likeShape( sqlPattern, escapeStr );
+        if ( shape != null ) {
+            final String literal = shape.right;
+            switch ( shape.left ) {
+                case EQUALS:
+                    return literal::equals;
+                case STARTS_WITH:
+                    return s -> s.startsWith( literal );
+                case ENDS_WITH:
+                    return s -> s.endsWith( literal );
+                case CONTAINS:
+                    return s -> s.contains( literal );
+                default:
+                    return s -> true;
+            }
+        }
+        final Pattern regex = Pattern.compile( sqlToRegexLike( sqlPattern, escapeStr ) );
+        return s -> regex.matcher( s ).matches();
+    }
+
+
+    /**
+     * Analyzes a SQL LIKE pattern, with optional escape string. If the pattern is a literal with optional leading and
+     * trailing {@code %}, returns its shape and the unescaped literal. Returns null for all other patterns.
+     */
+    public static Pair<Shape, String> likeShape( String sqlPattern, CharSequence escapeStr ) {
+        final char escapeChar;
+        if ( escapeStr != null ) {
+            if ( escapeStr.length() != 1 ) {
+                throw invalidEscapeCharacter( escapeStr.toString() );
+            }
+            escapeChar = escapeStr.charAt( 0 );
+        } else {
+            escapeChar = 0;
+        }
+        final int len = sqlPattern.length();
+        final StringBuilder literal = new StringBuilder( len );
+        boolean leading = false;
+        boolean trailing = false;
+        for ( int i = 0; i < len; i++ ) {
+            final char c = sqlPattern.charAt( i );
+            if ( c == escapeChar ) {
+                if ( i == len - 1 ) {
+                    throw invalidEscapeSequence( sqlPattern, i );
+                }
+                final char nextChar = sqlPattern.charAt( i + 1 );
+                if ( nextChar != '_' && nextChar != '%' && nextChar != escapeChar ) {
+                    throw invalidEscapeSequence( sqlPattern, i );
+                }
+                if ( trailing ) {
+                    return null;
+                }
+                literal.append( nextChar );
+                i++;
+            } else if ( c == '_' ) {
+                return null;
+            } else if ( c == '%' ) {
+                if ( literal.length() == 0 ) {
+                    leading = true;
+                } else {
+                    trailing = true;
+                }
+            } else {
+                if ( trailing ) {
+                    return null;
+                }
+                literal.append( c );
+            }
+        }
+        if ( literal.length() == 0 ) {
+            return Pair.of( leading ? Shape.ANY : Shape.EQUALS, "" );
+        }
+        final Shape shape;
+        if ( leading ) {
+            shape = trailing ? Shape.CONTAINS : Shape.ENDS_WITH;
+        } else {
+            shape = trailing ? Shape.STARTS_WITH : Shape.EQUALS;
+        }
+        return Pair.of( shape, literal.toString() );
+    }
+
+
     /**
      * Translates a SQL LIKE pattern to Java regex pattern, with optional escape string.
      */
-    static String sqlToRegexLike( String sqlPattern, CharSequence escapeStr ) {
+    public static String sqlToRegexLike( String sqlPattern, CharSequence escapeStr ) {
         final char escapeChar;
         if ( escapeStr != null ) {
             if ( escapeStr.length() != 1 ) {
@@ -16,6 +16,8 @@
 
 package org.polypheny.db.runtime;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -40,6 +42,15 @@
  */
 public class MqlFunctions {
 
+    private static final Pattern WHITESPACE = Pattern.compile( "\\s" );
+
+    /**
+     * Compiled patterns of {@link #docRegexMatch}, by regex and flags. The regex is usually the same for all documents.
+     */
+    private static final Cache<Pair<String, Integer>, Pattern> REGEX_PATTERNS = CacheBuilder.newBuilder()
+            .maximumSize( 1000 )
+            .build();
+
     /**
      * This method extracts the provided the filter from the input.
      *
@@ -380,14 +391,20 @@ public static boolean docRegexMatch( Object input, String regex, boolean isInsen
                 flags |= Pattern.MULTILINE;
             }
             if ( doesIgnoreWhitespace ) {
-                regex = regex.replaceAll( "\\s", "" );
-                comp = comp.replaceAll( "\\s", "" );
+                regex = WHITESPACE.matcher( regex ).replaceAll( "" );
+                comp = WHITESPACE.matcher( comp ).replaceAll( "" );
             }
             if ( allowsDot ) {
                 flags |= Pattern.DOTALL;
             }
 
-            return Pattern.compile( ".*" + regex + ".*", flags ).matcher( comp ).matches();
+            final Pair<String, Integer> key = Pair.of( regex, flags );
+            Pattern pattern = REGEX_PATTERNS.getIfPresent( key );
+            if ( pattern == null ) {
+                pattern = Pattern.compile( ".*" + regex + ".*", flags );
+                REGEX_PATTERNS.put( key, pattern );
+            }
+            return pattern.matcher( comp ).matches();
         }
         return false;
     }
@@ -0,0 +1,626 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Exchange operators which execute parts of a query concurrently on the {@link ExecutionPool}.
+ *
+ * <ul>
+ * <li>{@link #gather} reads several inputs concurrently and merges their rows. Unless the query may use more than one
+ * thread per operator, the rows are returned in the order of the inputs.</li>
+ * <li>{@link #exchange} partitions its input by the hash of a key and applies an operator to every partition
+ * concurrently. This is used for the parallel aggregation and join: all rows with the same key end up in the same
+ * partition, so the partitions can be processed independently.</li>
+ * </ul>
+ *
+ * Rows are passed between the threads in batches through bounded queues, so a slow consumer slows down the producers
+ * instead of buffering the whole input. The number of concurrent tasks per operator is limited by
+ * {@link RuntimeConfig#QUERY_PARALLELISM}. Apart from the ordered {@link #gather}, the operators do not preserve the
+ * order of the rows.
+ */
+public final class ParallelExecution {
+
+    static final int BATCH_SIZE = 256;
+
+    /**
+     * Number of batches a queue can hold before the producers are blocked.
+     */
+    static final int QUEUE_CAPACITY = 16;
+
+    /**
+     * Interval in which blocked threads check whether the execution has failed or has been closed.
+     */
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    private static final List<Object> END = Collections.unmodifiableList( new ArrayList<>() );
+
+
+    private ParallelExecution() {
+        // Utility class
+    }
+
+
+    /**
+     * Returns the maximal number of tasks an operator of a query may execute concurrently.
+     */
+    public static int getParallelism() {
+        return Math.max( 1, RuntimeConfig.QUERY_PARALLELISM.getInteger() );
+    }
+
+
+    /**
+     * Returns the rows of all inputs, e.g., the partitions of a table on several adapters. Inputs of the same group
+     * (e.g., inputs which share the connection of an adapter) are always read one after another. With a parallelism
+     * above one, up to {@link #getParallelism()} groups are read concurrently and their rows are returned as they arrive.
+     * Otherwise, all groups are started at once and prefetched, but the rows are returned in the order of the inputs,
+     * so that the latencies of the adapters overlap instead of adding up.
+     *
+     * @param inputs Inputs
+     * @param groups Group of every input
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static <T> Enumerable<T> gather( List<Enumerable<T>> inputs, List<Integer> groups ) {
+        final int parallelism = getParallelism();
+        if ( parallelism > 1 ) {
+            final List<Enumerable<T>> concatenated = new ArrayList<>();
+            for ( List<Integer> members : members( groups ).values() ) {
+                final List<Enumerable<T>> groupInputs = new ArrayList<>( members.size() );
+                members.forEach( i -> groupInputs.add( inputs.get( i ) ) );
+                concatenated.add( Linq4j.concat( groupInputs ) );
+            }
+            return gather( concatenated, parallelism );
+        }
+        if ( RuntimeConfig.SCATTER_GATHER_UNION.getBoolean() ) {
+            return scatterGather( inputs, groups, RuntimeConfig.UNION_PREFETCH_ROWS.getInteger() );
+        }
+        return Linq4j.concat( inputs );
+    }
+
+
+    /**
+     * Returns the indexes of the inputs per group, in the order of the inputs.
+     */
+    private static Map<Integer, List<Integer>> members( List<Integer> groups ) {
+        final Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+        for ( int i = 0; i < groups.size(); i++ ) {
+            members.computeIfAbsent( groups.get( i ), g -> new ArrayList<>() ).add( i );
+        }
+        return members;
+    }
+
+
+    /**
+     * Starts one task per group and returns the rows in the order of the inputs. A task reads the inputs of its group
+     * in their order, every input is read ahead up to the given number of rows. Beyond that, the task waits until the
+     * consumer has reached the input. The consumer reads the inputs in the same order as the tasks, hence it never
+     * waits for an input whose task is blocked by a later one.
+     */
+    static <T> Enumerable<T> scatterGather( List<Enumerable<T>> inputs, List<Integer> groups, int prefetchRows ) {
+        final Map<Integer, List<Integer>> members = members( groups );
+        if ( members.size() <= 1 ) {
+            return Linq4j.concat( inputs );
+        }
+        final int capacity = Math.max( 1, prefetchRows / BATCH_SIZE );
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                final Execution execution = new Execution();
+                final List<Channel<T>> channels = new ArrayList<>( inputs.size() );
+                for ( int i = 0; i < inputs.size(); i++ ) {
+                    channels.add( new Channel<>( execution, 1, capacity ) );
+                }
+                for ( List<Integer> group : members.values() ) {
+                    execution.submit( () -> {
+                        for ( int i : group ) {
+                            try {
+                                channels.get( i ).drain( inputs.get( i ) );
+                            } finally {
+                                channels.get( i ).producerDone();
+                            }
+                        }
+                    } );
+                }
+                final List<Enumerator<T>> enumerators = new ArrayList<>( inputs.size() );
+                for ( Channel<T> channel : channels ) {
+                    enumerators.add( channel.enumerator( false ) );
+                }
+                return new ConcatEnumerator<>( execution, enumerators );
+            }
+        };
+    }
+
+
+    static <T> Enumerable<T> gather( List<Enumerable<T>> inputs, int parallelism ) {
+        if ( parallelism <= 1 || inputs.size() <= 1 ) {
+            return Linq4j.concat( inputs );
+        }
+        final int tasks = Math.min( parallelism, inputs.size() );
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                final Execution execution = new Execution();
+                final Channel<T> output = execution.channel( tasks );
+                final AtomicInteger next = new AtomicInteger();
+                for ( int t = 0; t < tasks; t++ ) {
+                    execution.submit( () -> {
+                        try {
+                            int i;
+                            while ( (i = next.getAndIncrement()) < inputs.size() && !execution.isDone() ) {
+                                output.drain( inputs.get( i ) );
+                            }
+                        } finally {
+                            output.producerDone();
+                        }
+                    } );
+                }
+                return output.enumerator( true );
+            }
+        };
+    }
+
+
+    /**
+     * Partitions the rows by the hash of their key and applies the operator to every partition concurrently.
+     *
+     * @param source Input
+     * @param hash Hash of the key of a row; rows with equal keys must have the same hash
+     * @param operator Operator applied to the rows of a partition
+     */
+    public static <T, R> Enumerable<R> exchange( Enumerable<T> source, ToIntFunction<T> hash, Function1<Enumerable<T>, Enumerable<R>> operator ) {
+        return exchange( source, hash, operator, getParallelism() );
+    }
+
+
+    static <T, R> Enumerable<R> exchange( Enumerable<T> source, ToIntFunction<T> hash, Function1<Enumerable<T>, Enumerable<R>> operator, int parallelism ) {
+        if ( parallelism <= 1 ) {
+            return operator.apply( source );
+        }
+        return new AbstractEnumerable<R>() {
+            @Override
+            public Enumerator<R> enumerator() {
+                final Execution execution = new Execution();
+                final List<Channel<T>> partitions = execution.channels( parallelism );
+                final Channel<R> output = execution.channel( parallelism );
+                execution.submit( () -> route( source, hash, partitions ) );
+                for ( Channel<T> partition : partitions ) {
+                    execution.submit( () -> {
+                        try {
+                            output.drain( operator.apply( partition.asEnumerable() ) );
+                        } finally {
+                            partition.close();
+                            output.producerDone();
+                        }
+                    } );
+                }
+                return output.enumerator( true );
+            }
+        };
+    }
+
+
+    /**
+     * Partitions both inputs by the hash of their keys and applies the operator to every pair of partitions
+     * concurrently. The inputs are read one after another, first the inner, then the outer input.
+     */
+    public static <T, I, R> Enumerable<R> exchange(
+            Enumerable<T> outer,
+            ToIntFunction<T> outerHash,
+            Enumerable<I> inner,
+            ToIntFunction<I> innerHash,
+            Function2<Enumerable<T>, Enumerable<I>, Enumerable<R>> operator ) {
+        return exchange( outer, outerHash, inner, innerHash, operator, getParallelism() );
+    }
+
+
+    static <T, I, R> Enumerable<R> exchange(
+            Enumerable<T> outer,
+            ToIntFunction<T> outerHash,
+            Enumerable<I> inner,
+            ToIntFunction<I> innerHash,
+            Function2<Enumerable<T>, Enumerable<I>, Enumerable<R>> operator,
+            int parallelism ) {
+        if ( parallelism <= 1 ) {
+            return operator.apply( outer, inner );
+        }
+        return new AbstractEnumerable<R>() {
+            @Override
+            public Enumerator<R> enumerator() {
+                final Execution execution = new Execution();
+                final List<Channel<T>> outerPartitions = execution.channels( parallelism );
+                final List<Channel<I>> innerPartitions = execution.channels( parallelism );
+                final Channel<R> output = execution.channel( parallelism );
+                // Reading the inputs one after another avoids concurrent reads on the same adapter
+                execution.submit( () -> {
+                    route( inner, innerHash, innerPartitions );
+                    route( outer, outerHash, outerPartitions );
+                } );
+                for ( int i = 0; i < parallelism; i++ ) {
+                    final Channel<T> outerPartition = outerPartitions.get( i );
+                    final Channel<I> innerPartition = innerPartitions.get( i );
+                    execution.submit( () -> {
+                        try {
+                            output.drain( operator.apply( outerPartition.asEnumerable(), innerPartition.asEnumerable() ) );
+                        } finally {
+                            outerPartition.close();
+                            innerPartition.close();
+                            output.producerDone();
+                        }
+                    } );
+                }
+                return output.enumerator( true );
+            }
+        };
+    }
+
+
+    /**
+     * Distributes the rows of the source to the partitions.
+     */
+    private static <T> void route( Enumerable<T> source, ToIntFunction<T> hash, List<Channel<T>> partitions ) {
+        final Execution execution = partitions.get( 0 ).execution;
+        final int n = partitions.size();
+        final List<List<T>> batches = new ArrayList<>( n );
+        for ( int i = 0; i < n; i++ ) {
+            batches.add( new ArrayList<>( BATCH_SIZE ) );
+        }
+        try ( Enumerator<T> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() && !execution.isDone() ) {
+                final T row = enumerator.current();
+                final int partition = partition( hash.applyAsInt( row ), n );
+                final List<T> batch = batches.get( partition );
+                batch.add( row );
+                if ( batch.size() >= BATCH_SIZE ) {
+                    partitions.get( partition ).put( batch );
+                    batches.set( partition, new ArrayList<>( BATCH_SIZE ) );
+                }
+            }
+            for ( int i = 0; i < n; i++ ) {
+                if ( !batches.get( i ).isEmpty() ) {
+                    partitions.get( i ).put( batches.get( i ) );
+                }
+            }
+        } finally {
+            partitions.forEach( Channel::producerDone );
+        }
+    }
+
+
+    /**
+     * Maps the hash to a partition. The hash is scrambled first, so that the hash tables within the partitions,
+     * which use the low bits of the same hash, are not left with a fraction of their buckets.
+     */
+    static int partition( int hash, int partitions ) {
+        final long scrambled = (hash * 0x9E3779B9L) & 0xFFFFFFFFL;
+        return (int) ((scrambled * partitions) >>> 32);
+    }
+
+
+    /**
+     * State shared by all tasks of one execution of an exchange operator.
+     */
+    private static final class Execution {
+
+        private final List<Future<?>> tasks = new ArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile boolean closed;
+
+
+        private <T> Channel<T> channel( int producers ) {
+            return new Channel<>( this, producers, QUEUE_CAPACITY );
+        }
+
+
+        private <T> List<Channel<T>> channels( int count ) {
+            final List<Channel<T>> channels = new ArrayList<>( count );
+            for ( int i = 0; i < count; i++ ) {
+                channels.add( channel( 1 ) );
+            }
+            return channels;
+        }
+
+
+        private void submit( Runnable task ) {
+            tasks.add( ExecutionPool.getExecutor().submit( () -> {
+                try {
+                    task.run();
+                } catch ( Throwable e ) {
+                    error.compareAndSet( null, e );
+                }
+            } ) );
+        }
+
+
+        /**
+         * Whether the execution has failed or has been closed, in which case the tasks stop.
+         */
+        private boolean isDone() {
+            return closed || error.get() != null;
+        }
+
+
+        private void checkError() {
+            final Throwable e = error.get();
+            if ( e instanceof RuntimeException ) {
+                throw (RuntimeException) e;
+            } else if ( e instanceof Error ) {
+                throw (Error) e;
+            } else if ( e != null ) {
+                throw new PolyphenyDbException( "Parallel execution failed", e );
+            }
+        }
+
+
+        /**
+         * Stops the tasks and waits for them to finish, so that they have closed their inputs before the
+         * statement continues.
+         */
+        private void close() {
+            closed = true;
+            boolean interrupted = false;
+            for ( Future<?> task : tasks ) {
+                try {
+                    task.get();
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                } catch ( ExecutionException e ) {
+                    // Failures are recorded by the task itself
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+
+    /**
+     * Bounded queue of batches of rows between one or more producers and a consumer.
+     */
+    private static final class Channel<T> {
+
+        private final Execution execution;
+        private final BlockingQueue<List<T>> queue;
+        private final AtomicInteger producers;
+        private volatile boolean closed;
+
+
+        private Channel( Execution execution, int producers, int capacity ) {
+            this.execution = execution;
+            this.producers = new AtomicInteger( producers );
+            this.queue = new ArrayBlockingQueue<>( capacity );
+        }
+
+
+        /**
+         * Adds a batch, waiting while the queue is full. If the consumer is no longer interested in the rows,
+         * the batch is dropped.
+         */
+        private void put( List<T> batch ) {
+            try {
+                while ( !closed && !execution.isDone() ) {
+                    if ( queue.offer( batch, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+                        return;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new PolyphenyDbException( "Interrupted while passing rows to another thread", e );
+            }
+        }
+
+
+        /**
+         * Adds all rows of the input.
+         */
+        private void drain( Enumerable<T> input ) {
+            List<T> batch = new ArrayList<>( BATCH_SIZE );
+            try ( Enumerator<T> enumerator = input.enumerator() ) {
+                while ( enumerator.moveNext() ) {
+                    if ( closed || execution.isDone() ) {
+                        return;
+                    }
+                    batch.add( enumerator.current() );
+                    if ( batch.size() >= BATCH_SIZE ) {
+                        put( batch );
+                        batch = new ArrayList<>( BATCH_SIZE );
+                    }
+                }
+            }
+            if ( !batch.isEmpty() ) {
+                put( batch );
+            }
+        }
+
+
+        @SuppressWarnings("unchecked")
+        private void producerDone() {
+            if ( producers.decrementAndGet() == 0 ) {
+                put( (List<T>) END );
+            }
+        }
+
+
+        private void close() {
+            closed = true;
+            queue.clear();
+        }
+
+
+        private List<T> take() {
+            try {
+                while ( true ) {
+                    execution.checkError();
+                    if ( execution.closed ) {
+                        throw new PolyphenyDbException( "Parallel execution has been closed" );
+                    }
+                    final List<T> batch = queue.poll( POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+                    if ( batch != null ) {
+                        return batch;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new PolyphenyDbException( "Interrupted while waiting for rows of another thread", e );
+            }
+        }
+
+
+        /**
+         * Returns the rows of the channel. The enumerable can only be enumerated once.
+         */
+        private Enumerable<T> asEnumerable() {
+            return new AbstractEnumerable<T>() {
+                @Override
+                public Enumerator<T> enumerator() {
+                    return Channel.this.enumerator( false );
+                }
+            };
+        }
+
+
+        /**
+         * @param closesExecution Whether closing the enumerator stops all tasks of the execution
+         */
+        private Enumerator<T> enumerator( boolean closesExecution ) {
+            return new Enumerator<T>() {
+                private List<T> batch = Collections.emptyList();
+                private int index;
+                private boolean ended;
+                private T current;
+
+
+                @Override
+                public T current() {
+                    return current;
+                }
+
+
+                @Override
+                public boolean moveNext() {
+                    while ( index >= batch.size() ) {
+                        if ( ended ) {
+                            return false;
+                        }
+                        batch = take();
+                        index = 0;
+                        if ( batch == END ) {
+                            ended = true;
+                            // A failed producer ends the channel as well
+                            execution.checkError();
+                        }
+                    }
+                    current = batch.get( index++ );
+                    return true;
+                }
+
+
+                @Override
+                public void reset() {
+                    throw new UnsupportedOperationException();
+                }
+
+
+                @Override
+                public void close() {
+                    if ( closesExecution ) {
+                        execution.close();
+                    } else {
+                        Channel.this.close();
+                    }
+                }
+            };
+        }
+
+    }
+
+
+    /**
+     * Returns the rows of the enumerators one after another. Closing it stops all tasks of the execution.
+     */
+    private static final class ConcatEnumerator<T> implements Enumerator<T> {
+
+        private final Execution execution;
+        private final List<Enumerator<T>> enumerators;
+        private int index;
+        private T current;
+
+
+        private ConcatEnumerator( Execution execution, List<Enumerator<T>> enumerators ) {
+            this.execution = execution;
+            this.enumerators = enumerators;
+        }
+
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( index < enumerators.size() ) {
+                final Enumerator<T> enumerator = enumerators.get( index );
+                if ( enumerator.moveNext() ) {
+                    current = enumerator.current();
+                    return true;
+                }
+                enumerator.close();
+                index++;
+            }
+            return false;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            execution.close();
+        }
+
+    }
+
+}
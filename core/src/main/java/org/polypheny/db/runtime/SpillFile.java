@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+
+
+/**
+ * A temporary file holding rows which do not fit into the memory budget of an operator. Rows are appended using
+ * {@link #write(Object)} and can be read (multiple times) afterwards. Closing the file deletes it.
+ *
+ * @param <T> Row type
+ */
+public class SpillFile<T> implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // The stream keeps a reference to every written object until it is reset
+    private static final int RESET_INTERVAL = 1024;
+
+    private final File file;
+    private ObjectOutputStream out;
+    private ClassLoader classLoader;
+    private long rows = 0;
+    private boolean closed = false;
+
+
+    SpillFile( File file ) {
+        this.file = file;
+        Spilling.fileOpened();
+    }
+
+
+    /**
+     * Appends a row to the file.
+     *
+     * @throws java.io.NotSerializableException if the row contains values which cannot be written to disk
+     */
+    public void write( T row ) throws IOException {
+        if ( out == null ) {
+            out = new ObjectOutputStream( new BufferedOutputStream( new FileOutputStream( file ), BUFFER_SIZE ) );
+        }
+        if ( classLoader == null && row != null && row.getClass().getClassLoader() != null ) {
+            // Rows of generated code are instances of classes unknown to the default class loader
+            classLoader = row.getClass().getClassLoader();
+        }
+        out.writeObject( row );
+        if ( ++rows % RESET_INTERVAL == 0 ) {
+            out.reset();
+        }
+    }
+
+
+    public long size() {
+        return rows;
+    }
+
+
+    /**
+     * Returns the rows written so far. No further rows can be written once the file is read.
+     */
+    public Enumerable<T> asEnumerable() {
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                return SpillFile.this.enumerator();
+            }
+        };
+    }
+
+
+    /**
+     * Completes writing the file and releases its handle. No further rows can be written afterwards.
+     */
+    public void finish() throws IOException {
+        if ( out != null ) {
+            out.close();
+        }
+    }
+
+
+    public Enumerator<T> enumerator() {
+        try {
+            finish();
+            if ( rows == 0 ) {
+                return Linq4j.emptyEnumerator();
+            }
+            return new SpillFileEnumerator( new SpillInputStream( new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE ) ) );
+        } catch ( IOException e ) {
+            throw new PolyphenyDbException( "Unable to read spill file " + file.getName(), e );
+        }
+    }
+
+
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        try {
+            if ( out != null ) {
+                out.close();
+            }
+        } catch ( IOException e ) {
+            // Ignore, the file is deleted anyway
+        }
+        Spilling.fileClosed( file.length(), rows );
+        if ( !file.delete() ) {
+            file.deleteOnExit();
+        }
+    }
+
+
+    /**
+     * Reads the rows of the file.
+     */
+    private class SpillFileEnumerator implements Enumerator<T> {
+
+        private final ObjectInputStream in;
+        private long read = 0;
+        private T current;
+
+
+        private SpillFileEnumerator( ObjectInputStream in ) {
+            this.in = in;
+        }
+
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean moveNext() {
+            if ( read >= rows ) {
+                return false;
+            }
+            try {
+                current = (T) in.readObject();
+            } catch ( IOException | ClassNotFoundException e ) {
+                throw new PolyphenyDbException( "Unable to read spill file " + file.getName(), e );
+            }
+            read++;
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch ( IOException e ) {
+                // Ignore
+            }
+        }
+
+    }
+
+
+    /**
+     * Resolves classes using the class loader of the written rows.
+     */
+    private class SpillInputStream extends ObjectInputStream {
+
+        private SpillInputStream( InputStream in ) throws IOException {
+            super( in );
+        }
+
+
+        @Override
+        protected Class<?> resolveClass( ObjectStreamClass desc ) throws IOException, ClassNotFoundException {
+            if ( classLoader != null ) {
+                try {
+                    return Class.forName( desc.getName(), false, classLoader );
+                } catch ( ClassNotFoundException e ) {
+                    // Fall through
+                }
+            }
+            return super.resolveClass( desc );
+        }
+
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+
+
+/**
+ * Support for operators which write parts of their input to temporary files if they exceed their memory budget.
+ * The budget of a single operator is configured by {@link RuntimeConfig#OPERATOR_MEMORY_LIMIT}.
+ */
+public final class Spilling {
+
+    private static final String SPILL_FOLDER = "spill";
+
+    private static final LongAdder spilledBytes = new LongAdder();
+    private static final LongAdder spilledRows = new LongAdder();
+    private static final LongAdder spillingOperators = new LongAdder();
+    private static final AtomicLong openFiles = new AtomicLong();
+
+    private static File directory;
+
+
+    static {
+        registerMonitoringPage();
+    }
+
+
+    private Spilling() {
+        // Utility class
+    }
+
+
+    /**
+     * Returns the number of bytes an operator may keep in memory, or {@link Long#MAX_VALUE} if spilling is disabled.
+     */
+    public static long getMemoryLimit() {
+        long limit = RuntimeConfig.OPERATOR_MEMORY_LIMIT.getInteger();
+        return limit <= 0 ? Long.MAX_VALUE : limit * 1024 * 1024;
+    }
+
+
+    /**
+     * Creates a new, empty spill file. The file has to be closed by the caller, which deletes it.
+     */
+    public static <T> SpillFile<T> createFile( String prefix ) {
+        try {
+            return new SpillFile<>( File.createTempFile( prefix, ".spill", getDirectory() ) );
+        } catch ( IOException e ) {
+            throw new PolyphenyDbException( "Unable to create spill file", e );
+        }
+    }
+
+
+    private static synchronized File getDirectory() {
+        if ( directory == null ) {
+            PolyphenyHomeDirManager homeDirManager = PolyphenyHomeDirManager.getInstance();
+            // Remove files left over by a previous run which has not been shut down properly
+            homeDirManager.recursiveDeleteFolder( SPILL_FOLDER );
+            directory = homeDirManager.registerNewFolder( SPILL_FOLDER );
+            homeDirManager.recursiveDeleteFolderOnExit( SPILL_FOLDER );
+        }
+        return directory;
+    }
+
+
+    /**
+     * Roughly estimates the number of bytes a row occupies on the heap.
+     */
+    public static long estimateSize( Object o ) {
+        if ( o == null ) {
+            return 8;
+        } else if ( o instanceof Object[] ) {
+            long size = 16;
+            for ( Object field : (Object[]) o ) {
+                size += 8 + estimateSize( field );
+            }
+            return size;
+        } else if ( o instanceof String ) {
+            return 40 + 2L * ((String) o).length();
+        } else if ( o instanceof BigDecimal ) {
+            return 64;
+        } else if ( o instanceof Number || o instanceof Boolean || o instanceof Character ) {
+            return 16;
+        } else if ( o instanceof ByteString ) {
+            return 32 + ((ByteString) o).length();
+        } else if ( o instanceof byte[] ) {
+            return 16 + ((byte[]) o).length;
+        } else if ( o instanceof Collection ) {
+            long size = 40;
+            for ( Object element : (Collection<?>) o ) {
+                size += 8 + estimateSize( element );
+            }
+            return size;
+        } else if ( o instanceof Map ) {
+            long size = 48;
+            for ( Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet() ) {
+                size += 32 + estimateSize( entry.getKey() ) + estimateSize( entry.getValue() );
+            }
+            return size;
+        }
+        return 64;
+    }
+
+
+    static void fileOpened() {
+        openFiles.incrementAndGet();
+    }
+
+
+    static void fileClosed( long bytes, long rows ) {
+        openFiles.decrementAndGet();
+        spilledBytes.add( bytes );
+        spilledRows.add( rows );
+    }
+
+
+    /**
+     * Records that an operator has exceeded its memory budget.
+     */
+    public static void operatorSpilled() {
+        spillingOperators.increment();
+    }
+
+
+    private static void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Spilling" );
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            int limit = RuntimeConfig.OPERATOR_MEMORY_LIMIT.getInteger();
+            generalKv.putPair( "Memory Limit per Operator", limit <= 0 ? "Disabled" : limit + " MB" );
+            generalKv.putPair( "Spilling Operators", spillingOperators.sum() + "" );
+            generalKv.putPair( "Spilled Rows", spilledRows.sum() + "" );
+            generalKv.putPair( "Spilled Bytes", spilledBytes.sum() + "" );
+            generalKv.putPair( "Open Spill Files", openFiles.get() + "" );
+        } );
+
+        InformationAction resetAction = new InformationAction( generalGroup, "Reset Counters", parameters -> {
+            spillingOperators.reset();
+            spilledRows.reset();
+            spilledBytes.reset();
+            generalGroup.refresh();
+            return "Successfully reset the spilling counters!";
+        } );
+        resetAction.setOrder( 2 );
+        im.registerInformation( resetAction );
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * The values of one column for the positions of a {@link VectorBatch}.
+ *
+ * Integral, boolean and character values are stored unboxed in a {@code long} array, floating point values in a
+ * {@code double} array and all other values in an {@code Object} array. Nulls are tracked in a separate array.
+ * The {@link #type} determines the Java type of the values returned by {@link #get}.
+ */
+public final class ColumnVector {
+
+    /**
+     * Type of the values, or null if the values are objects.
+     */
+    public final Primitive type;
+
+    final long[] longs;
+    final double[] doubles;
+    final Object[] objects;
+    final boolean[] nulls;
+
+
+    public ColumnVector( Primitive type, int capacity ) {
+        this.type = type;
+        this.longs = storage( type ) == Storage.LONG ? new long[capacity] : null;
+        this.doubles = storage( type ) == Storage.DOUBLE ? new double[capacity] : null;
+        this.objects = storage( type ) == Storage.OBJECT ? new Object[capacity] : null;
+        this.nulls = new boolean[capacity];
+    }
+
+
+    static Storage storage( Primitive type ) {
+        if ( type == null ) {
+            return Storage.OBJECT;
+        }
+        switch ( type ) {
+            case FLOAT:
+            case DOUBLE:
+                return Storage.DOUBLE;
+            case BOOLEAN:
+            case BYTE:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+                return Storage.LONG;
+            default:
+                return Storage.OBJECT;
+        }
+    }
+
+
+    Storage storage() {
+        return storage( type );
+    }
+
+
+    public boolean isNull( int i ) {
+        return nulls[i];
+    }
+
+
+    /**
+     * Returns the value at the given position, boxed to the Java type of the column.
+     */
+    public Object get( int i ) {
+        if ( nulls[i] ) {
+            return null;
+        }
+        switch ( storage() ) {
+            case LONG:
+                return box( type, longs[i] );
+            case DOUBLE:
+                return type == Primitive.FLOAT ? (Object) (float) doubles[i] : (Object) doubles[i];
+            default:
+                return objects[i];
+        }
+    }
+
+
+    /**
+     * Sets the value at the given position.
+     */
+    public void set( int i, Object value ) {
+        if ( value == null ) {
+            nulls[i] = true;
+            return;
+        }
+        nulls[i] = false;
+        switch ( storage() ) {
+            case LONG:
+                longs[i] = unboxLong( value );
+                break;
+            case DOUBLE:
+                doubles[i] = ((Number) value).doubleValue();
+                break;
+            default:
+                objects[i] = value;
+        }
+    }
+
+
+    /**
+     * Returns the (non-null) value at the given position as a double.
+     */
+    double getDouble( int i ) {
+        return doubles != null ? doubles[i] : longs[i];
+    }
+
+
+    /**
+     * Copies the value at position {@code from} of the given vector to position {@code to} of this vector,
+     * converting it to the type of this vector.
+     */
+    void copy( ColumnVector source, int from, int to ) {
+        if ( source.nulls[from] ) {
+            nulls[to] = true;
+            return;
+        }
+        nulls[to] = false;
+        switch ( storage() ) {
+            case LONG:
+                longs[to] = narrow( type, source.longs != null ? source.longs[from] : unboxLong( source.get( from ) ) );
+                break;
+            case DOUBLE:
+                doubles[to] = source.storage() == Storage.OBJECT ? ((Number) source.objects[from]).doubleValue() : source.getDouble( from );
+                break;
+            default:
+                objects[to] = source.get( from );
+        }
+    }
+
+
+    static long unboxLong( Object value ) {
+        if ( value instanceof Boolean ) {
+            return (Boolean) value ? 1 : 0;
+        } else if ( value instanceof Character ) {
+            return (Character) value;
+        }
+        return ((Number) value).longValue();
+    }
+
+
+    static Object box( Primitive type, long value ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return value != 0;
+            case BYTE:
+                return (byte) value;
+            case CHAR:
+                return (char) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+
+    /**
+     * Converts the value to the range of the type, like a cast in Java.
+     */
+    static long narrow( Primitive type, long value ) {
+        switch ( type ) {
+            case BYTE:
+                return (byte) value;
+            case CHAR:
+                return (char) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+
+    /**
+     * How the values of a vector are stored.
+     */
+    enum Storage {
+        LONG, DOUBLE, OBJECT
+    }
+
+}
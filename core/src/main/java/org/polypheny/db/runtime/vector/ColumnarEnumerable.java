@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * An enumerable which can also return its rows as batches of column vectors. Vectorized operators read such inputs
+ * batch by batch instead of converting rows. Adapters with a columnar storage can implement it to hand their data to
+ * the vectorized operators without materializing rows.
+ */
+public interface ColumnarEnumerable {
+
+    /**
+     * Types of the column vectors of the batches; null for columns which are stored as objects.
+     */
+    List<Primitive> columnTypes();
+
+    /**
+     * Returns the rows as batches of at most {@link VectorBatch#CAPACITY} rows.
+     */
+    Enumerator<VectorBatch> batches();
+
+}
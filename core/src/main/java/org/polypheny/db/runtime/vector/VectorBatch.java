@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import java.util.List;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * A batch of rows stored column by column. Only the positions in the selection vector belong to the batch; the
+ * values at the other positions are undefined. Filters therefore only have to compute a new selection vector instead
+ * of copying the values of the remaining rows.
+ */
+public final class VectorBatch {
+
+    public static final int CAPACITY = 1024;
+
+    /**
+     * Selection vector of a batch in which all positions are selected. Must not be modified.
+     */
+    private static final int[] ALL = new int[CAPACITY];
+
+
+    static {
+        for ( int i = 0; i < CAPACITY; i++ ) {
+            ALL[i] = i;
+        }
+    }
+
+
+    /**
+     * Columns of the batch; columns which are not used are null.
+     */
+    final ColumnVector[] columns;
+    final int[] selection;
+    final int count;
+
+
+    public VectorBatch( ColumnVector[] columns, int[] selection, int count ) {
+        this.columns = columns;
+        this.selection = selection;
+        this.count = count;
+    }
+
+
+    /**
+     * Number of rows in the batch.
+     */
+    public int count() {
+        return count;
+    }
+
+
+    public ColumnVector column( int index ) {
+        return columns[index];
+    }
+
+
+    /**
+     * Position of the i-th row of the batch in the column vectors.
+     */
+    public int position( int i ) {
+        return selection[i];
+    }
+
+
+    /**
+     * Converts rows to a batch. Only the columns with a non-null entry in {@code used} are loaded.
+     *
+     * @param rows Rows; arrays or, if {@code scalar} is set, the value of the only column
+     * @param count Number of rows, at most {@link #CAPACITY}
+     * @param types Types of the columns
+     * @param used Whether the column is needed
+     */
+    static VectorBatch fromRows( Object[] rows, int count, List<Primitive> types, boolean[] used, boolean scalar ) {
+        final ColumnVector[] columns = new ColumnVector[types.size()];
+        for ( int c = 0; c < columns.length; c++ ) {
+            if ( !used[c] ) {
+                continue;
+            }
+            final ColumnVector vector = new ColumnVector( types.get( c ), CAPACITY );
+            for ( int i = 0; i < count; i++ ) {
+                vector.set( i, scalar ? rows[i] : ((Object[]) rows[i])[c] );
+            }
+            columns[c] = vector;
+        }
+        return new VectorBatch( columns, ALL, count );
+    }
+
+
+    /**
+     * Converts the i-th row of the batch back to a row: an array or, if {@code scalar} is set, the value of the
+     * only column.
+     */
+    Object toRow( int i, boolean scalar ) {
+        final int position = selection[i];
+        if ( scalar ) {
+            return columns[0].get( position );
+        }
+        final Object[] row = new Object[columns.length];
+        for ( int c = 0; c < columns.length; c++ ) {
+            row[c] = columns[c].get( position );
+        }
+        return row;
+    }
+
+}
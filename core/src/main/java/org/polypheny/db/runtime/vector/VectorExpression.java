@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * An expression which is evaluated for a whole {@link VectorBatch} at once. Instances are created with the factory
+ * methods of {@link VectorExpressions}.
+ */
+public abstract class VectorExpression {
+
+    /**
+     * Type of the result, or null if the result is an object.
+     */
+    public final Primitive type;
+
+    final List<VectorExpression> operands;
+
+
+    VectorExpression( Primitive type, VectorExpression... operands ) {
+        this.type = type;
+        this.operands = Arrays.asList( operands );
+    }
+
+
+    /**
+     * Evaluates the expression for the positions {@code selection[0 .. count - 1]} of the batch. The values of the
+     * returned vector at other positions are undefined.
+     */
+    abstract ColumnVector evaluate( VectorBatch batch, int[] selection, int count );
+
+
+    /**
+     * Marks the columns of the input referenced by this expression.
+     */
+    void collectColumns( boolean[] used ) {
+        for ( VectorExpression operand : operands ) {
+            if ( operand != null ) {
+                operand.collectColumns( used );
+            }
+        }
+    }
+
+}
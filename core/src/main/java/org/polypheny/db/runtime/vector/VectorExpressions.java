@@ -0,0 +1,487 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import java.util.List;
+import java.util.Objects;
+import org.apache.calcite.linq4j.function.Predicate1;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.runtime.Like;
+import org.polypheny.db.runtime.vector.ColumnVector.Storage;
+
+
+/**
+ * Factory methods for {@link VectorExpression vector expressions}, used by generated code.
+ *
+ * The expressions follow the semantics of the scalar code generated by
+ * {@link org.polypheny.db.adapter.enumerable.RexImpTable}: comparisons and arithmetic return null if an operand is
+ * null, AND, OR and NOT use three-valued logic, and integral arithmetic wraps around like the Java operators.
+ * AND, OR and CASE only evaluate their operands for the rows for which the result is not yet decided.
+ */
+public final class VectorExpressions {
+
+    private VectorExpressions() {
+        // Utility class
+    }
+
+
+    /**
+     * Comparison operators.
+     */
+    public enum Comparison {
+        EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL;
+
+
+        boolean test( int c ) {
+            switch ( this ) {
+                case EQUALS:
+                    return c == 0;
+                case NOT_EQUALS:
+                    return c != 0;
+                case LESS_THAN:
+                    return c < 0;
+                case LESS_THAN_OR_EQUAL:
+                    return c <= 0;
+                case GREATER_THAN:
+                    return c > 0;
+                default:
+                    return c >= 0;
+            }
+        }
+
+
+        boolean test( long a, long b ) {
+            switch ( this ) {
+                case EQUALS:
+                    return a == b;
+                case NOT_EQUALS:
+                    return a != b;
+                case LESS_THAN:
+                    return a < b;
+                case LESS_THAN_OR_EQUAL:
+                    return a <= b;
+                case GREATER_THAN:
+                    return a > b;
+                default:
+                    return a >= b;
+            }
+        }
+
+
+        boolean test( double a, double b ) {
+            switch ( this ) {
+                case EQUALS:
+                    return a == b;
+                case NOT_EQUALS:
+                    return a != b;
+                case LESS_THAN:
+                    return a < b;
+                case LESS_THAN_OR_EQUAL:
+                    return a <= b;
+                case GREATER_THAN:
+                    return a > b;
+                default:
+                    return a >= b;
+            }
+        }
+    }
+
+
+    /**
+     * Arithmetic operators.
+     */
+    public enum Arithmetic {
+        PLUS, MINUS, TIMES, DIVIDE;
+
+
+        long apply( long a, long b ) {
+            switch ( this ) {
+                case PLUS:
+                    return a + b;
+                case MINUS:
+                    return a - b;
+                case TIMES:
+                    return a * b;
+                default:
+                    return a / b;
+            }
+        }
+
+
+        double apply( double a, double b ) {
+            switch ( this ) {
+                case PLUS:
+                    return a + b;
+                case MINUS:
+                    return a - b;
+                case TIMES:
+                    return a * b;
+                default:
+                    return a / b;
+            }
+        }
+    }
+
+
+    /**
+     * References a column of the input.
+     */
+    public static VectorExpression column( int index, Primitive type ) {
+        return new VectorExpression( type ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                return batch.columns[index];
+            }
+
+
+            @Override
+            void collectColumns( boolean[] used ) {
+                used[index] = true;
+            }
+        };
+    }
+
+
+    public static VectorExpression constant( Object value, Primitive type ) {
+        final ColumnVector vector = new ColumnVector( type, VectorBatch.CAPACITY );
+        for ( int i = 0; i < VectorBatch.CAPACITY; i++ ) {
+            vector.set( i, value );
+        }
+        return new VectorExpression( type ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                return vector;
+            }
+        };
+    }
+
+
+    /**
+     * Value of a dynamic parameter, which is looked up once per batch.
+     */
+    public static VectorExpression parameter( DataContext root, long index, Primitive type ) {
+        return new VectorExpression( type ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final Object value = root.getParameterValue( index );
+                final ColumnVector vector = new ColumnVector( type, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    vector.set( selection[k], value );
+                }
+                return vector;
+            }
+        };
+    }
+
+
+    /**
+     * Compares two numbers, two booleans or two comparable objects (e.g., strings or decimals).
+     */
+    public static VectorExpression compare( Comparison op, VectorExpression left, VectorExpression right ) {
+        final Storage l = ColumnVector.storage( left.type );
+        final Storage r = ColumnVector.storage( right.type );
+        if ( (l == Storage.OBJECT) != (r == Storage.OBJECT) ) {
+            throw new IllegalArgumentException( "Cannot compare " + left.type + " with " + right.type );
+        }
+        final Storage storage = l == r ? l : Storage.DOUBLE;
+        return new VectorExpression( Primitive.BOOLEAN, left, right ) {
+            @Override
+            @SuppressWarnings("unchecked")
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = left.evaluate( batch, selection, count );
+                final ColumnVector b = right.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( Primitive.BOOLEAN, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    if ( a.nulls[i] || b.nulls[i] ) {
+                        result.nulls[i] = true;
+                        continue;
+                    }
+                    final boolean value;
+                    switch ( storage ) {
+                        case LONG:
+                            value = op.test( a.longs[i], b.longs[i] );
+                            break;
+                        case DOUBLE:
+                            value = op.test( a.getDouble( i ), b.getDouble( i ) );
+                            break;
+                        default:
+                            value = op.test( ((Comparable<Object>) a.objects[i]).compareTo( b.objects[i] ) );
+                    }
+                    result.longs[i] = value ? 1 : 0;
+                }
+                return result;
+            }
+        };
+    }
+
+
+    /**
+     * Arithmetic on numbers. If the result is integral, both operands have to be integral.
+     */
+    public static VectorExpression arithmetic( Arithmetic op, Primitive type, VectorExpression left, VectorExpression right ) {
+        final boolean integral = ColumnVector.storage( type ) == Storage.LONG;
+        return new VectorExpression( type, left, right ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = left.evaluate( batch, selection, count );
+                final ColumnVector b = right.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( type, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    if ( a.nulls[i] || b.nulls[i] ) {
+                        result.nulls[i] = true;
+                    } else if ( integral ) {
+                        result.longs[i] = ColumnVector.narrow( type, op.apply( a.longs[i], b.longs[i] ) );
+                    } else {
+                        result.doubles[i] = op.apply( a.getDouble( i ), b.getDouble( i ) );
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+
+    public static VectorExpression negate( Primitive type, VectorExpression operand ) {
+        final boolean integral = ColumnVector.storage( type ) == Storage.LONG;
+        return new VectorExpression( type, operand ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = operand.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( type, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    if ( a.nulls[i] ) {
+                        result.nulls[i] = true;
+                    } else if ( integral ) {
+                        result.longs[i] = ColumnVector.narrow( type, -a.longs[i] );
+                    } else {
+                        result.doubles[i] = -a.getDouble( i );
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+
+    public static VectorExpression and( List<VectorExpression> operands ) {
+        return new Logical( true, operands );
+    }
+
+
+    public static VectorExpression or( List<VectorExpression> operands ) {
+        return new Logical( false, operands );
+    }
+
+
+    public static VectorExpression not( VectorExpression operand ) {
+        return new VectorExpression( Primitive.BOOLEAN, operand ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = operand.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( Primitive.BOOLEAN, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    result.nulls[i] = a.nulls[i];
+                    result.longs[i] = a.longs[i] == 0 ? 1 : 0;
+                }
+                return result;
+            }
+        };
+    }
+
+
+    /**
+     * IS NULL or, if negated, IS NOT NULL.
+     */
+    public static VectorExpression isNull( VectorExpression operand, boolean negated ) {
+        return new VectorExpression( Primitive.BOOLEAN, operand ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = operand.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( Primitive.BOOLEAN, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    result.longs[i] = a.nulls[i] != negated ? 1 : 0;
+                }
+                return result;
+            }
+        };
+    }
+
+
+    /**
+     * CASE WHEN c1 THEN v1 ... [ELSE e] END. The operands are the conditions and values followed by the else value.
+     */
+    public static VectorExpression caseWhen( Primitive type, List<VectorExpression> operands ) {
+        if ( operands.size() % 2 != 1 ) {
+            throw new IllegalArgumentException( "CASE requires an ELSE operand" );
+        }
+        return new VectorExpression( type, operands.toArray( new VectorExpression[0] ) ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector result = new ColumnVector( type, VectorBatch.CAPACITY );
+                int[] remaining = selection;
+                int remainingCount = count;
+                for ( int w = 0; w + 1 < operands.size() && remainingCount > 0; w += 2 ) {
+                    final ColumnVector condition = operands.get( w ).evaluate( batch, remaining, remainingCount );
+                    final int[] matched = new int[remainingCount];
+                    final int[] rest = new int[remainingCount];
+                    int matchedCount = 0;
+                    int restCount = 0;
+                    for ( int k = 0; k < remainingCount; k++ ) {
+                        final int i = remaining[k];
+                        if ( !condition.nulls[i] && condition.longs[i] != 0 ) {
+                            matched[matchedCount++] = i;
+                        } else {
+                            rest[restCount++] = i;
+                        }
+                    }
+                    copy( operands.get( w + 1 ), batch, matched, matchedCount, result );
+                    remaining = rest;
+                    remainingCount = restCount;
+                }
+                copy( operands.get( operands.size() - 1 ), batch, remaining, remainingCount, result );
+                return result;
+            }
+        };
+    }
+
+
+    private static void copy( VectorExpression expression, VectorBatch batch, int[] selection, int count, ColumnVector target ) {
+        if ( count == 0 ) {
+            return;
+        }
+        final ColumnVector values = expression.evaluate( batch, selection, count );
+        for ( int k = 0; k < count; k++ ) {
+            target.copy( values, selection[k], selection[k] );
+        }
+    }
+
+
+    /**
+     * LIKE or, if negated, NOT LIKE. The pattern is usually constant, the matcher is therefore only looked up when it changes.
+     *
+     * @param escape Escape character, or null
+     */
+    public static VectorExpression like( VectorExpression operand, VectorExpression pattern, VectorExpression escape, boolean negated ) {
+        return new VectorExpression( Primitive.BOOLEAN, operand, pattern, escape ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = operand.evaluate( batch, selection, count );
+                final ColumnVector p = pattern.evaluate( batch, selection, count );
+                final ColumnVector e = escape == null ? null : escape.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( Primitive.BOOLEAN, VectorBatch.CAPACITY );
+                String lastPattern = null;
+                String lastEscape = null;
+                Predicate1<String> matcher = null;
+                for ( int k = 0; k < count; k++ ) {
+                    final int i = selection[k];
+                    if ( a.nulls[i] || p.nulls[i] || (e != null && e.nulls[i]) ) {
+                        result.nulls[i] = true;
+                        continue;
+                    }
+                    final String currentPattern = (String) p.objects[i];
+                    final String currentEscape = e == null ? null : (String) e.objects[i];
+                    if ( matcher == null || !currentPattern.equals( lastPattern ) || !Objects.equals( currentEscape, lastEscape ) ) {
+                        matcher = Like.likeMatcher( currentPattern, currentEscape );
+                        lastPattern = currentPattern;
+                        lastEscape = currentEscape;
+                    }
+                    result.longs[i] = matcher.apply( (String) a.objects[i] ) != negated ? 1 : 0;
+                }
+                return result;
+            }
+        };
+    }
+
+
+    /**
+     * Converts a number to another numeric type, like a cast in Java.
+     */
+    public static VectorExpression cast( Primitive type, VectorExpression operand ) {
+        return new VectorExpression( type, operand ) {
+            @Override
+            ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+                final ColumnVector a = operand.evaluate( batch, selection, count );
+                final ColumnVector result = new ColumnVector( type, VectorBatch.CAPACITY );
+                for ( int k = 0; k < count; k++ ) {
+                    result.copy( a, selection[k], selection[k] );
+                }
+                return result;
+            }
+        };
+    }
+
+
+    /**
+     * AND or OR over any number of operands.
+     */
+    private static class Logical extends VectorExpression {
+
+        private final boolean and;
+
+
+        Logical( boolean and, List<VectorExpression> operands ) {
+            super( Primitive.BOOLEAN, operands.toArray( new VectorExpression[0] ) );
+            this.and = and;
+        }
+
+
+        @Override
+        ColumnVector evaluate( VectorBatch batch, int[] selection, int count ) {
+            // The value which decides the result: FALSE for AND, TRUE for OR
+            final long decisive = and ? 0 : 1;
+            final ColumnVector result = new ColumnVector( Primitive.BOOLEAN, VectorBatch.CAPACITY );
+            for ( int k = 0; k < count; k++ ) {
+                result.longs[selection[k]] = 1 - decisive;
+            }
+            // Rows whose result is not decided yet
+            int[] active = selection;
+            int activeCount = count;
+            for ( VectorExpression operand : operands ) {
+                if ( activeCount == 0 ) {
+                    break;
+                }
+                final ColumnVector values = operand.evaluate( batch, active, activeCount );
+                final int[] next = new int[activeCount];
+                int nextCount = 0;
+                for ( int k = 0; k < activeCount; k++ ) {
+                    final int i = active[k];
+                    if ( values.nulls[i] ) {
+                        result.nulls[i] = true;
+                        next[nextCount++] = i;
+                    } else if ( values.longs[i] == decisive ) {
+                        result.nulls[i] = false;
+                        result.longs[i] = decisive;
+                    } else {
+                        next[nextCount++] = i;
+                    }
+                }
+                active = next;
+                activeCount = nextCount;
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import java.util.AbstractList;
+import java.util.List;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+
+/**
+ * Filter and projection of rows, evaluated batch by batch on column vectors.
+ *
+ * The rows of the input are converted to batches of column vectors, unless the input already provides batches
+ * (see {@link ColumnarEnumerable}). The condition computes a selection vector, and the projections are only evaluated
+ * for the selected rows. The result can be read as rows or, by another vectorized operator, as batches.
+ */
+public final class VectorizedCalc extends AbstractEnumerable<Object> implements ColumnarEnumerable {
+
+    private final Enumerable<?> source;
+    private final List<Primitive> inputTypes;
+    private final boolean scalarInput;
+    private final VectorExpression condition;
+    private final List<VectorExpression> projects;
+    private final boolean scalarOutput;
+    private final boolean[] usedColumns;
+
+
+    private VectorizedCalc(
+            Enumerable<?> source,
+            List<Primitive> inputTypes,
+            boolean scalarInput,
+            VectorExpression condition,
+            List<VectorExpression> projects,
+            boolean scalarOutput ) {
+        this.source = source;
+        this.inputTypes = inputTypes;
+        this.scalarInput = scalarInput;
+        this.condition = condition;
+        this.projects = projects;
+        this.scalarOutput = scalarOutput;
+        this.usedColumns = new boolean[inputTypes.size()];
+        if ( condition != null ) {
+            condition.collectColumns( usedColumns );
+        }
+        projects.forEach( p -> p.collectColumns( usedColumns ) );
+    }
+
+
+    /**
+     * Filters and projects the rows of the input.
+     *
+     * @param source Input; rows are arrays or, if {@code scalarInput} is set, the value of the only column
+     * @param inputTypes Types of the input columns; null for columns which are stored as objects
+     * @param condition Filter condition, or null
+     * @param projects Values of the output columns
+     * @param scalarOutput Whether the rows of the result are the value of the only column instead of arrays
+     */
+    @SuppressWarnings("unused") // Used by generated code
+    public static Enumerable<Object> calc(
+            Enumerable<?> source,
+            List<Primitive> inputTypes,
+            boolean scalarInput,
+            VectorExpression condition,
+            List<VectorExpression> projects,
+            boolean scalarOutput ) {
+        return new VectorizedCalc( source, inputTypes, scalarInput, condition, projects, scalarOutput );
+    }
+
+
+    @Override
+    public List<Primitive> columnTypes() {
+        return new AbstractList<Primitive>() {
+            @Override
+            public Primitive get( int index ) {
+                return projects.get( index ).type;
+            }
+
+
+            @Override
+            public int size() {
+                return projects.size();
+            }
+        };
+    }
+
+
+    @Override
+    public Enumerator<Object> enumerator() {
+        final Enumerator<VectorBatch> batches = batches();
+        return new Enumerator<Object>() {
+            private VectorBatch batch;
+            private int index;
+            private Object current;
+
+
+            @Override
+            public Object current() {
+                return current;
+            }
+
+
+            @Override
+            public boolean moveNext() {
+                while ( batch == null || index >= batch.count ) {
+                    if ( !batches.moveNext() ) {
+                        return false;
+                    }
+                    batch = batches.current();
+                    index = 0;
+                }
+                current = batch.toRow( index++, scalarOutput );
+                return true;
+            }
+
+
+            @Override
+            public void reset() {
+                batches.reset();
+                batch = null;
+            }
+
+
+            @Override
+            public void close() {
+                batches.close();
+            }
+        };
+    }
+
+
+    @Override
+    public Enumerator<VectorBatch> batches() {
+        final Enumerator<VectorBatch> input = inputBatches();
+        return new Enumerator<VectorBatch>() {
+            private VectorBatch current;
+
+
+            @Override
+            public VectorBatch current() {
+                return current;
+            }
+
+
+            @Override
+            public boolean moveNext() {
+                while ( input.moveNext() ) {
+                    current = apply( input.current() );
+                    if ( current.count > 0 ) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+
+            @Override
+            public void reset() {
+                input.reset();
+            }
+
+
+            @Override
+            public void close() {
+                input.close();
+            }
+        };
+    }
+
+
+    private VectorBatch apply( VectorBatch batch ) {
+        int[] selection = batch.selection;
+        int count = batch.count;
+        if ( condition != null ) {
+            final ColumnVector matches = condition.evaluate( batch, selection, count );
+            final int[] selected = new int[count];
+            int selectedCount = 0;
+            for ( int k = 0; k < count; k++ ) {
+                final int i = selection[k];
+                if ( !matches.nulls[i] && matches.longs[i] != 0 ) {
+                    selected[selectedCount++] = i;
+                }
+            }
+            selection = selected;
+            count = selectedCount;
+        }
+        final ColumnVector[] columns = new ColumnVector[projects.size()];
+        for ( int c = 0; c < columns.length; c++ ) {
+            columns[c] = projects.get( c ).evaluate( batch, selection, count );
+        }
+        return new VectorBatch( columns, selection, count );
+    }
+
+
+    private Enumerator<VectorBatch> inputBatches() {
+        if ( source instanceof ColumnarEnumerable && ((ColumnarEnumerable) source).columnTypes().equals( inputTypes ) ) {
+            return ((ColumnarEnumerable) source).batches();
+        }
+        final Enumerator<?> rows = source.enumerator();
+        return new Enumerator<VectorBatch>() {
+            private final Object[] buffer = new Object[VectorBatch.CAPACITY];
+            private VectorBatch current;
+
+
+            @Override
+            public VectorBatch current() {
+                return current;
+            }
+
+
+            @Override
+            public boolean moveNext() {
+                int count = 0;
+                while ( count < buffer.length && rows.moveNext() ) {
+                    buffer[count++] = rows.current();
+                }
+                if ( count == 0 ) {
+                    return false;
+                }
+                current = VectorBatch.fromRows( buffer, count, inputTypes, usedColumns, scalarInput );
+                return true;
+            }
+
+
+            @Override
+            public void reset() {
+                rows.reset();
+            }
+
+
+            @Override
+            public void close() {
+                rows.close();
+            }
+        };
+    }
+
+}
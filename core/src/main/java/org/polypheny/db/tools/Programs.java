@@ -130,6 +130,7 @@ public class Programs {
                     EnumerableRules.ENUMERABLE_STREAMER_RULE,
                     EnumerableRules.ENUMERABLE_TABLE_MODIFY_TO_STREAMER_RULE,
                     EnumerableRules.ENUMERABLE_BATCH_ITERATOR_RULE,
+                    EnumerableRules.ENUMERABLE_PARAMETER_GROUP_RULE,
                     EnumerableRules.ENUMERABLE_CONSTRAINT_ENFORCER_RULE,
                     EnumerableRules.ENUMERABLE_PROJECT_RULE,
                     EnumerableRules.ENUMERABLE_FILTER_RULE,
@@ -295,6 +296,28 @@ public static Program heuristicJoinOrder( final Iterable<? extends AlgOptRule> r
     }
 
 
+    /**
+     * Creates a program that orders the joins heuristically (via {@link JoinToMultiJoinRule}, {@link MultiJoin} and
+     * {@link LoptOptimizeJoinRule}) in a HEP planner. Unlike {@link #heuristicJoinOrder(Iterable, boolean, int)}, the
+     * rules of the given planner are left untouched, so it can be run as a first stage before a cost-based planner.
+     */
+    public static Program heuristicJoinOrder( final boolean bushy, final AlgMetadataProvider metadataProvider ) {
+        final HepProgram multiJoin = new HepProgramBuilder()
+                .addRuleInstance( FilterJoinRule.FILTER_ON_JOIN )
+                .addMatchOrder( HepMatchOrder.BOTTOM_UP )
+                .addRuleInstance( JoinToMultiJoinRule.INSTANCE )
+                .build();
+        return sequence(
+                of( multiJoin, false, metadataProvider ),
+                hep(
+                        ImmutableList.of( bushy
+                                ? MultiJoinOptimizeBushyRule.INSTANCE
+                                : LoptOptimizeJoinRule.INSTANCE ),
+                        false,
+                        metadataProvider ) );
+    }
+
+
     public static Program calc( AlgMetadataProvider metadataProvider ) {
         return hep( CALC_RULES, true, metadataProvider );
     }
@@ -61,10 +61,12 @@
 import org.apache.calcite.linq4j.ExtendedEnumerable;
 import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.Queryable;
+import org.apache.calcite.linq4j.function.DoubleFunction1;
 import org.apache.calcite.linq4j.function.EqualityComparer;
 import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.function.Function2;
+import org.apache.calcite.linq4j.function.LongFunction1;
 import org.apache.calcite.linq4j.function.Predicate1;
 import org.apache.calcite.linq4j.function.Predicate2;
 import org.apache.calcite.linq4j.tree.FunctionExpression;
@@ -114,13 +116,24 @@
 import org.polypheny.db.runtime.BinarySearch;
 import org.polypheny.db.runtime.Bindable;
 import org.polypheny.db.runtime.Enumerables;
+import org.polypheny.db.runtime.ExternalSort;
 import org.polypheny.db.runtime.FlatLists;
 import org.polypheny.db.runtime.Functions;
 import org.polypheny.db.runtime.Functions.FlatProductInputType;
+import org.polypheny.db.runtime.GraceHashJoin;
+import org.polypheny.db.runtime.HashAggregate;
+import org.polypheny.db.runtime.HashAggregate.AggKind;
+import org.polypheny.db.runtime.HashAggregate.AggSpec;
 import org.polypheny.db.runtime.MqlFunctions;
+import org.polypheny.db.runtime.ParallelExecution;
 import org.polypheny.db.runtime.RandomFunction;
 import org.polypheny.db.runtime.SortedMultiMap;
 import org.polypheny.db.runtime.Utilities;
+import org.polypheny.db.runtime.vector.VectorExpression;
+import org.polypheny.db.runtime.vector.VectorExpressions;
+import org.polypheny.db.runtime.vector.VectorExpressions.Arithmetic;
+import org.polypheny.db.runtime.vector.VectorExpressions.Comparison;
+import org.polypheny.db.runtime.vector.VectorizedCalc;
 import org.polypheny.db.schema.FilterableTable;
 import org.polypheny.db.schema.ModifiableTable;
 import org.polypheny.db.schema.ProjectableFilterableTable;
@@ -139,6 +152,9 @@ public enum BuiltInMethod {
     BATCH( Functions.class, "batch", DataContext.class, Enumerable.class ),
     STREAM_RIGHT( Functions.class, "streamRight", DataContext.class, Enumerable.class, Function0.class, List.class ),
     ENFORCE_CONSTRAINT( Functions.class, "enforceConstraint", Enumerable.class, Enumerable.class, List.class, List.class ),
+    PARAMETER_GROUP( Functions.class, "parameterGroup", DataContext.class, Enumerable.class, long.class ),
+    PARALLEL_COLLECT( Functions.class, "parallelCollect", DataContext.class, List.class ),
+    PARALLEL_GATHER( ParallelExecution.class, "gather", List.class, List.class ),
     PARSE_ARRAY_FROM_TEXT( Functions.class, "reparse", PolyType.class, Long.class, String.class ),
     QUERYABLE_SELECT( Queryable.class, "select", FunctionExpression.class ),
     QUERYABLE_AS_ENUMERABLE( Queryable.class, "asEnumerable" ),
@@ -164,6 +180,7 @@ public enum BuiltInMethod {
     ROW_VALUE( Row.class, "getObject", int.class ),
     ROW_AS_COPY( Row.class, "asCopy", Object[].class ),
     JOIN( ExtendedEnumerable.class, "join", Enumerable.class, Function1.class, Function1.class, Function2.class ),
+    GRACE_HASH_JOIN( GraceHashJoin.class, "join", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, EqualityComparer.class, boolean.class, boolean.class ),
     MERGE_JOIN( EnumerableDefaults.class, "mergeJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, boolean.class, boolean.class ),
     SLICE0( Enumerables.class, "slice0", Enumerable.class ),
     SEMI_JOIN( EnumerableDefaults.class, "semiJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class ),
@@ -177,10 +194,31 @@ public enum BuiltInMethod {
     DISTINCT( ExtendedEnumerable.class, "distinct" ),
     DISTINCT2( ExtendedEnumerable.class, "distinct", EqualityComparer.class ),
     GROUP_BY( ExtendedEnumerable.class, "groupBy", Function1.class ),
+    HASH_AGGREGATE( HashAggregate.class, "aggregate", Enumerable.class, Function1.class, int.class, List.class ),
+    HASH_AGGREGATE_LONG_KEY( HashAggregate.class, "aggregateLongKey", Enumerable.class, LongFunction1.class, Predicate1.class, Primitive.class, List.class ),
+    HASH_AGGREGATE_COUNT( AggSpec.class, "count", Predicate1.class ),
+    HASH_AGGREGATE_LONG( AggSpec.class, "ofLong", AggKind.class, Primitive.class, LongFunction1.class, Predicate1.class ),
+    HASH_AGGREGATE_DOUBLE( AggSpec.class, "ofDouble", AggKind.class, Primitive.class, DoubleFunction1.class, Predicate1.class ),
+    VECTORIZED_CALC( VectorizedCalc.class, "calc", Enumerable.class, List.class, boolean.class, VectorExpression.class, List.class, boolean.class ),
+    VECTOR_COLUMN( VectorExpressions.class, "column", int.class, Primitive.class ),
+    VECTOR_CONSTANT( VectorExpressions.class, "constant", Object.class, Primitive.class ),
+    VECTOR_PARAMETER( VectorExpressions.class, "parameter", DataContext.class, long.class, Primitive.class ),
+    VECTOR_COMPARE( VectorExpressions.class, "compare", Comparison.class, VectorExpression.class, VectorExpression.class ),
+    VECTOR_ARITHMETIC( VectorExpressions.class, "arithmetic", Arithmetic.class, Primitive.class, VectorExpression.class, VectorExpression.class ),
+    VECTOR_NEGATE( VectorExpressions.class, "negate", Primitive.class, VectorExpression.class ),
+    VECTOR_AND( VectorExpressions.class, "and", List.class ),
+    VECTOR_OR( VectorExpressions.class, "or", List.class ),
+    VECTOR_NOT( VectorExpressions.class, "not", VectorExpression.class ),
+    VECTOR_IS_NULL( VectorExpressions.class, "isNull", VectorExpression.class, boolean.class ),
+    VECTOR_CASE( VectorExpressions.class, "caseWhen", Primitive.class, List.class ),
+    VECTOR_LIKE( VectorExpressions.class, "like", VectorExpression.class, VectorExpression.class, VectorExpression.class, boolean.class ),
+    VECTOR_CAST( VectorExpressions.class, "cast", Primitive.class, VectorExpression.class ),
     GROUP_BY2( ExtendedEnumerable.class, "groupBy", Function1.class, Function0.class, Function2.class, Function2.class ),
     GROUP_BY_MULTIPLE( EnumerableDefaults.class, "groupByMultiple", Enumerable.class, List.class, Function0.class, Function2.class, Function2.class ),
     AGGREGATE( ExtendedEnumerable.class, "aggregate", Object.class, Function2.class, Function1.class ),
     ORDER_BY( ExtendedEnumerable.class, "orderBy", Function1.class, Comparator.class ),
+    EXTERNAL_ORDER_BY( ExternalSort.class, "orderBy", Enumerable.class, Function1.class, Comparator.class ),
+    ORDER_BY_LIMIT( ExternalSort.class, "orderByLimit", Enumerable.class, Function1.class, Comparator.class, int.class, int.class ),
     UNION( ExtendedEnumerable.class, "union", Enumerable.class ),
     CONCAT( ExtendedEnumerable.class, "concat", Enumerable.class ),
     INTERSECT( ExtendedEnumerable.class, "intersect", Enumerable.class ),
@@ -292,6 +330,10 @@ public enum BuiltInMethod {
     RTRIM( Functions.class, "rtrim", String.class ),
     LIKE( Functions.class, "like", String.class, String.class ),
     SIMILAR( Functions.class, "similar", String.class, String.class ),
+    STRING_EQUALS( String.class, "equals", Object.class ),
+    STRING_STARTS_WITH( String.class, "startsWith", String.class ),
+    STRING_ENDS_WITH( String.class, "endsWith", String.class ),
+    STRING_INDEX_OF( String.class, "indexOf", String.class ),
     IS_TRUE( Functions.class, "isTrue", Boolean.class ),
     IS_NOT_FALSE( Functions.class, "isNotFalse", Boolean.class ),
     NOT( Functions.class, "not", Boolean.class ),
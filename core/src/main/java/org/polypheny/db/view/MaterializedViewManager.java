@@ -31,6 +31,7 @@
 import org.polypheny.db.catalog.entity.MaterializedCriteria;
 import org.polypheny.db.schema.LogicalTable;
 import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.transaction.Statement;
 import org.polypheny.db.transaction.Transaction;
 
 
@@ -74,6 +75,34 @@ public abstract void addData(
 
     public abstract void updateCommittedXid( PolyXid xid );
 
+    /**
+     * Records the changes of the given modifications on tables used by materialized views. The changes become
+     * visible to the refresh of materialized views when the transaction is committed.
+     */
+    public abstract void addDeltas( Statement statement, List<LogicalTableModify> modifies );
+
+    /**
+     * Records a change of a table which cannot be applied incrementally to materialized views.
+     */
+    public abstract void addUntrackedChange( Transaction transaction, long tableId );
+
+    /**
+     * Hands the changes recorded for a transaction over to the materialized views. Has to be called before the
+     * locks of the transaction are released.
+     */
+    public abstract void publishDeltas( PolyXid xid );
+
+    public abstract void rollbackXid( PolyXid xid );
+
+    /**
+     * Replaces parts of a query by scans of materialized views which compute the same result and are fresh enough.
+     *
+     * @param statement Statement executing the query
+     * @param root Logical query
+     * @return The rewritten query or the given query if no materialized view can be used
+     */
+    public abstract AlgRoot rewriteWithMaterializedViews( Statement statement, AlgRoot root );
+
     public abstract void updateMaterializedTime( Long materializedId );
 
     public abstract void addMaterializedInfo( Long materializedId, MaterializedCriteria matViewCriteria );
@@ -87,9 +116,15 @@ public static class TableUpdateVisitor extends AlgShuttleImpl {
         @Getter
         private final List<String> names = new ArrayList<>();
 
+        @Getter
+        private final List<LogicalTableModify> modifies = new ArrayList<>();
+
 
         @Override
         public AlgNode visit( LogicalTableModify modify ) {
+            if ( modify.getTable().getTable() instanceof LogicalTable ) {
+                modifies.add( modify );
+            }
             if ( modify.getOperation() != Operation.MERGE ) {
                 if ( (modify.getTable().getTable() instanceof LogicalTable) ) {
                     List<String> qualifiedName = modify.getTable().getQualifiedName();
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.codehaus.commons.compiler.CompileException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.runtime.ArrayBindable;
+import org.polypheny.db.runtime.Bindable;
+
+
+/**
+ * Unit tests for {@link BindableCache}.
+ */
+public class BindableCacheTest {
+
+    private static final String SOURCE = "public org.apache.calcite.linq4j.Enumerable bind(final org.polypheny.db.adapter.DataContext root) {\n"
+            + "  return org.apache.calcite.linq4j.Linq4j.asEnumerable(new Object[][] {\n"
+            + "    new Object[] {Integer.valueOf(1), \"a\"},\n"
+            + "    new Object[] {Integer.valueOf(2), \"b\"}});\n"
+            + "}\n"
+            + "public Class getElementType() {\n"
+            + "  return java.lang.Object[].class;\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    private BindableCache newCache( File directory ) {
+        return newCache( directory, 100 );
+    }
+
+
+    private BindableCache newCache( File directory, int diskSize ) {
+        return new BindableCache( directory, getClass().getClassLoader(), 100, diskSize );
+    }
+
+
+    private static File classFile( File directory, String className ) {
+        return new File( directory, BindableCache.key( className, SOURCE, 2 ) + ".classes" );
+    }
+
+
+    private static void assertRows( Bindable bindable ) {
+        final Object[][] rows = ((ArrayBindable) bindable).bind( null ).toList().toArray( new Object[0][] );
+        assertEquals( 2, rows.length );
+        assertArrayEquals( new Object[]{ 1, "a" }, rows[0] );
+        assertArrayEquals( new Object[]{ 2, "b" }, rows[1] );
+    }
+
+
+    @Test
+    public void testMemoryCache() throws CompileException, IOException {
+        final BindableCache cache = newCache( null );
+        final Bindable first = cache.getBindable( "Baz", SOURCE, 2 );
+        final Bindable second = cache.getBindable( "Baz", SOURCE, 2 );
+        assertRows( first );
+        assertRows( second );
+        assertNotSame( first, second );
+        assertSame( first.getClass(), second.getClass() );
+    }
+
+
+    @Test
+    public void testDiskCache() throws CompileException, IOException {
+        final File directory = folder.newFolder();
+        final BindableCache first = newCache( directory );
+        final Bindable compiled = first.getBindable( "Baz", SOURCE, 2 );
+        assertTrue( classFile( directory, "Baz" ).exists() );
+
+        // The usage is not written after every compilation, but periodically and on shutdown
+        assertFalse( new File( directory, "usage" ).exists() );
+        first.flushUsage();
+        assertTrue( new File( directory, "usage" ).exists() );
+
+        // A new cache, e.g. after a restart, loads the class from disk
+        final BindableCache cache = newCache( directory );
+        cache.warmUp();
+        final Bindable loaded = cache.getBindable( "Baz", SOURCE, 2 );
+        assertRows( loaded );
+        assertNotSame( compiled.getClass(), loaded.getClass() );
+        assertSame( loaded.getClass(), cache.getBindable( "Baz", SOURCE, 2 ).getClass() );
+
+        cache.clear();
+        assertRows( newCache( directory ).getBindable( "Baz", SOURCE, 2 ) );
+    }
+
+
+    @Test
+    public void testEviction() throws CompileException, IOException {
+        final File directory = folder.newFolder();
+        final BindableCache cache = newCache( directory, 2 );
+        assertRows( cache.getBindable( "Foo", SOURCE, 2 ) );
+        assertRows( cache.getBindable( "Bar", SOURCE, 2 ) );
+        assertRows( cache.getBindable( "Foo", SOURCE, 2 ) );
+        assertTrue( classFile( directory, "Foo" ).exists() );
+        assertTrue( classFile( directory, "Bar" ).exists() );
+
+        // The least recently used plan is deleted from disk
+        assertRows( cache.getBindable( "Baz", SOURCE, 2 ) );
+        assertTrue( classFile( directory, "Foo" ).exists() );
+        assertFalse( classFile( directory, "Bar" ).exists() );
+        assertTrue( classFile( directory, "Baz" ).exists() );
+
+        // Files which are not listed in the usage are deleted on startup
+        cache.flushUsage();
+        assertRows( newCache( directory ).getBindable( "Bar", SOURCE, 2 ) );
+        assertTrue( classFile( directory, "Bar" ).exists() );
+        newCache( directory, 2 );
+        assertTrue( classFile( directory, "Foo" ).exists() );
+        assertFalse( classFile( directory, "Bar" ).exists() );
+        assertTrue( classFile( directory, "Baz" ).exists() );
+    }
+
+
+    @Test
+    public void testInvalidation() throws CompileException, IOException {
+        final File directory = folder.newFolder();
+        assertSame( directory, BindableCache.openDirectory( directory, "a" ) );
+        final BindableCache cache = newCache( directory );
+        cache.getBindable( "Baz", SOURCE, 2 );
+        cache.flushUsage();
+
+        // The same runtime classes keep the cache on disk
+        assertSame( directory, BindableCache.openDirectory( directory, "a" ) );
+        assertTrue( classFile( directory, "Baz" ).exists() );
+
+        // Different runtime classes clear it
+        assertSame( directory, BindableCache.openDirectory( directory, "b" ) );
+        assertFalse( classFile( directory, "Baz" ).exists() );
+        assertFalse( new File( directory, "usage" ).exists() );
+        assertEquals( "b", new String( Files.readAllBytes( new File( directory, "stamp" ).toPath() ), StandardCharsets.UTF_8 ) );
+        assertRows( newCache( directory ).getBindable( "Baz", SOURCE, 2 ) );
+    }
+
+
+    @Test
+    public void testRuntimeStamp() throws IOException {
+        final File jar = folder.newFile( "module.jar" );
+        Files.write( jar.toPath(), new byte[]{ 1, 2, 3 } );
+        try ( URLClassLoader loader = new URLClassLoader( new URL[]{ jar.toURI().toURL() }, getClass().getClassLoader() ) ) {
+            final String stamp = BindableCache.runtimeStamp( loader );
+            assertNotNull( stamp );
+            assertEquals( stamp, BindableCache.runtimeStamp( loader ) );
+
+            // Any module the generated code can link against changes the stamp, not only the one of the enumerable convention
+            Files.write( jar.toPath(), new byte[]{ 1, 2, 3, 4 } );
+            assertNotEquals( stamp, BindableCache.runtimeStamp( loader ) );
+        }
+    }
+
+}
@@ -974,6 +974,19 @@ public void updatePartitionPlacementPhysicalNames( int adapterId, long partition
     }
 
 
+    /**
+     * Change the role of a partition placement.
+     *
+     * @param adapterId The id of the adapter
+     * @param partitionId The id of the partition
+     * @param role The new role of the placement
+     */
+    @Override
+    public void updatePartitionPlacementRole( int adapterId, long partitionId, DataPlacementRole role ) {
+        throw new NotImplementedException();
+    }
+
+
     /**
      * Deletes a placement for a partition.
      *
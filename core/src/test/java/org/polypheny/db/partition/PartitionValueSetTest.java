@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.math.BigDecimal;
+import org.junit.Test;
+
+
+/**
+ * Test for {@link PartitionValueSet}.
+ */
+public class PartitionValueSetTest {
+
+    private static PartitionValueSet point( int value ) {
+        return PartitionValueSet.of( Range.singleton( PartitionValueSet.normalize( value ) ) );
+    }
+
+
+    @Test
+    public void testNormalize() {
+        assertEquals( new BigDecimal( "5" ), PartitionValueSet.normalize( 5 ) );
+        assertEquals( new BigDecimal( "5" ), PartitionValueSet.normalize( 5L ) );
+        assertEquals( "5", PartitionValueSet.normalize( 5 ).toString() );
+        assertEquals( "abc", PartitionValueSet.normalize( "abc" ) );
+        assertNull( PartitionValueSet.normalize( null ) );
+        assertNull( PartitionValueSet.normalize( Double.NaN ) );
+    }
+
+
+    @Test
+    public void testPoints() {
+        PartitionValueSet values = point( 1 ).union( point( 3 ) ).union( point( 1 ) );
+        assertEquals( ImmutableList.of( new BigDecimal( "1" ), new BigDecimal( "3" ) ), values.getPoints() );
+        assertFalse( values.isAll() );
+        assertFalse( values.isEmpty() );
+
+        PartitionValueSet range = PartitionValueSet.of( Range.atLeast( PartitionValueSet.normalize( 10 ) ) );
+        assertNull( range.getPoints() );
+        assertNull( values.union( range ).getPoints() );
+    }
+
+
+    @Test
+    public void testIntersect() {
+        PartitionValueSet greater = PartitionValueSet.of( Range.greaterThan( PartitionValueSet.normalize( 10 ) ) );
+        PartitionValueSet less = PartitionValueSet.of( Range.lessThan( PartitionValueSet.normalize( 20 ) ) );
+        PartitionValueSet between = greater.intersect( less );
+
+        assertTrue( between.intersects( Range.closed( new BigDecimal( 15 ), new BigDecimal( 30 ) ) ) );
+        assertFalse( between.intersects( Range.closed( new BigDecimal( 20 ), new BigDecimal( 30 ) ) ) );
+        assertFalse( between.intersects( Range.closed( new BigDecimal( 0 ), new BigDecimal( 10 ) ) ) );
+
+        assertTrue( greater.intersect( PartitionValueSet.of( Range.lessThan( PartitionValueSet.normalize( 5 ) ) ) ).isEmpty() );
+        assertEquals( between, between.intersect( PartitionValueSet.all() ) );
+    }
+
+
+    @Test
+    public void testComplement() {
+        PartitionValueSet notFive = point( 5 ).complementOfValues();
+        assertFalse( notFive.contains( new BigDecimal( 5 ) ) );
+        assertTrue( notFive.contains( new BigDecimal( 4 ) ) );
+        assertFalse( notFive.isNullIncluded() );
+        assertEquals( point( 5 ), notFive.complementOfValues() );
+    }
+
+
+    @Test
+    public void testNull() {
+        assertTrue( PartitionValueSet.all().isAll() );
+        assertTrue( PartitionValueSet.none().isEmpty() );
+        assertFalse( PartitionValueSet.allValues().isAll() );
+        assertTrue( PartitionValueSet.onlyNull().isNullIncluded() );
+        assertFalse( PartitionValueSet.onlyNull().isEmpty() );
+        assertTrue( point( 1 ).union( PartitionValueSet.onlyNull() ).isNullIncluded() );
+        assertFalse( point( 1 ).withNull( true ).intersect( PartitionValueSet.allValues() ).isNullIncluded() );
+    }
+
+
+    @Test
+    public void testValuesOutside() {
+        RangeSet<BigDecimal> covered = TreeRangeSet.create();
+        covered.add( Range.closedOpen( new BigDecimal( 1 ), new BigDecimal( 11 ) ) );
+        covered.add( Range.closedOpen( new BigDecimal( 11 ), new BigDecimal( 21 ) ) );
+
+        PartitionValueSet inside = PartitionValueSet.of( Range.closed( PartitionValueSet.normalize( 1 ), PartitionValueSet.normalize( 20 ) ) );
+        PartitionValueSet outside = PartitionValueSet.of( Range.closed( PartitionValueSet.normalize( 15 ), PartitionValueSet.normalize( 25 ) ) );
+        assertFalse( inside.hasValuesOutside( covered ) );
+        assertTrue( outside.hasValuesOutside( covered ) );
+    }
+
+}
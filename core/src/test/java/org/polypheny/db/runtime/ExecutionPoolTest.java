@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Unit tests for {@link ExecutionPool}.
+ */
+public class ExecutionPoolTest {
+
+    @Test
+    public void testBoundedParallelism() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            final int value = i;
+            tasks.add( () -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                Thread.sleep( 5 );
+                running.decrementAndGet();
+                return value * value;
+            } );
+        }
+        final List<Integer> results = ExecutionPool.invokeAll( tasks, 3 );
+        for ( int i = 0; i < 20; i++ ) {
+            assertEquals( i * i, (int) results.get( i ) );
+        }
+        assertTrue( "Too many concurrent tasks: " + maxRunning.get(), maxRunning.get() <= 3 );
+    }
+
+
+    @Test
+    public void testFailure() {
+        final AtomicInteger executed = new AtomicInteger();
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ ) {
+            final int value = i;
+            tasks.add( () -> {
+                executed.incrementAndGet();
+                if ( value == 2 ) {
+                    throw new IllegalStateException( "Failing task" );
+                }
+                Thread.sleep( 1 );
+                return value;
+            } );
+        }
+        try {
+            ExecutionPool.invokeAll( tasks, 2 );
+            fail( "Expected failure of the task" );
+        } catch ( IllegalStateException e ) {
+            assertEquals( "Failing task", e.getMessage() );
+        }
+        // No further tasks are started after the failure
+        assertTrue( executed.get() < 100 );
+    }
+
+
+    @Test
+    public void testBoundedModifications() {
+        final int threads = Math.max( 1, RuntimeConfig.PARALLEL_MODIFY_COLLECT_THREADS.getInteger() );
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Set<Thread> poolThreads = ConcurrentHashMap.newKeySet();
+        final Thread caller = Thread.currentThread();
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for ( int i = 0; i < 4 * threads; i++ ) {
+            final int value = i;
+            tasks.add( () -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                if ( Thread.currentThread() != caller ) {
+                    poolThreads.add( Thread.currentThread() );
+                }
+                Thread.sleep( 5 );
+                running.decrementAndGet();
+                return value * value;
+            } );
+        }
+        final List<Integer> results = ExecutionPool.invokeAllModifications( tasks );
+        for ( int i = 0; i < tasks.size(); i++ ) {
+            assertEquals( i * i, (int) results.get( i ) );
+        }
+        // If all threads of the pool are busy, the modifications are executed on the calling thread
+        assertTrue( "Too many concurrent modifications: " + maxRunning.get(), maxRunning.get() <= threads + 1 );
+        assertTrue( "Too many threads: " + poolThreads.size(), poolThreads.size() <= threads );
+    }
+
+}
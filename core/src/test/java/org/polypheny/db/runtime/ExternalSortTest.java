@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+import org.junit.Test;
+import org.polypheny.db.util.Benchmark;
+
+
+/**
+ * Unit tests for {@link ExternalSort}.
+ */
+public class ExternalSortTest {
+
+    private static final Function1<Object[], Integer> KEY = row -> (Integer) row[0];
+    private static final Comparator<Integer> NULLS_FIRST = Comparator.nullsFirst( Comparator.naturalOrder() );
+
+
+    private static Enumerable<Object[]> rows( int count, int distinctKeys ) {
+        final Random random = new Random( count );
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            // Few distinct keys, so that the stability of the sort is checked
+            rows.add( new Object[]{ i % 17 == 0 ? null : random.nextInt( distinctKeys ), "row" + i } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static List<String> toStrings( Enumerable<Object[]> rows ) {
+        final List<String> strings = new ArrayList<>();
+        for ( Object[] row : rows ) {
+            strings.add( row[0] + ":" + row[1] );
+        }
+        return strings;
+    }
+
+
+    @Test
+    public void testOrderBy() {
+        final Enumerable<Object[]> rows = rows( 5000, 50 );
+        final List<String> expected = toStrings( rows.orderBy( KEY, NULLS_FIRST ) );
+        assertEquals( expected, toStrings( ExternalSort.orderBy( rows, KEY, NULLS_FIRST, Long.MAX_VALUE ) ) );
+        // A few runs
+        assertEquals( expected, toStrings( ExternalSort.orderBy( rows, KEY, NULLS_FIRST, 100_000 ) ) );
+        // More runs than can be merged at once
+        assertEquals( expected, toStrings( ExternalSort.orderBy( rows, KEY, NULLS_FIRST, 3000 ) ) );
+    }
+
+
+    @Test
+    public void testOrderByLimit() {
+        final Enumerable<Object[]> rows = rows( 5000, 50 );
+        final Enumerable<Object[]> sorted = rows.orderBy( KEY, NULLS_FIRST );
+        assertEquals( toStrings( sorted.take( 10 ) ), toStrings( ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 0, 10, Long.MAX_VALUE ) ) );
+        assertEquals( toStrings( sorted.skip( 200 ).take( 30 ) ), toStrings( ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 200, 30, Long.MAX_VALUE ) ) );
+        assertEquals( toStrings( sorted.skip( 4990 ).take( 30 ) ), toStrings( ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 4990, 30, Long.MAX_VALUE ) ) );
+        assertEquals( 0, ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 0, 0, Long.MAX_VALUE ).count() );
+        // Too large for the heap, uses the external sort
+        assertEquals( toStrings( sorted.skip( 10 ) ), toStrings( ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 10, ExternalSort.TOP_N_MAX_ROWS, 10_000 ) ) );
+    }
+
+
+    @Test
+    public void testNaturalOrder() {
+        final Enumerable<Integer> numbers = Linq4j.asEnumerable( new Integer[]{ 5, 3, 9, 1, 7, 3 } );
+        assertEquals( "[1, 3, 3, 5, 7, 9]", ExternalSort.orderBy( numbers, n -> n, null, 1 ).toList().toString() );
+        assertEquals( "[3, 3, 5]", ExternalSort.orderByLimit( numbers, n -> n, null, 1, 3, Long.MAX_VALUE ).toList().toString() );
+    }
+
+
+    @Test
+    public void testPerformance() {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        final Enumerable<Object[]> rows = Linq4j.asEnumerable( rows( 1_000_000, 1_000_000 ).toList() );
+        new Benchmark( "sort 1m rows in memory", statistician -> {
+            long start = System.currentTimeMillis();
+            ExternalSort.orderBy( rows, KEY, NULLS_FIRST, Long.MAX_VALUE ).count();
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+        new Benchmark( "sort 1m rows with runs of 8 MB", statistician -> {
+            long start = System.currentTimeMillis();
+            ExternalSort.orderBy( rows, KEY, NULLS_FIRST, 8 * 1024 * 1024 ).count();
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+        new Benchmark( "full sort of 1m rows, fetch 10", statistician -> {
+            long start = System.currentTimeMillis();
+            rows.orderBy( KEY, NULLS_FIRST ).take( 10 ).count();
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+        new Benchmark( "top-n of 1m rows, fetch 10", statistician -> {
+            long start = System.currentTimeMillis();
+            ExternalSort.orderByLimit( rows, KEY, NULLS_FIRST, 0, 10, Long.MAX_VALUE ).count();
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+    }
+
+}
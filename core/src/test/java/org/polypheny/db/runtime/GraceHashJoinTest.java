@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function2;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for {@link GraceHashJoin}.
+ */
+public class GraceHashJoinTest {
+
+    private static final Function2<Object[], Object[], String> TO_STRING = ( o, i ) -> Arrays.toString( o ) + Arrays.toString( i );
+
+
+    private static Enumerable<Object[]> rows( int count, int distinctKeys, String prefix ) {
+        List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            // Every tenth key is null
+            Integer key = i % 10 == 0 ? null : i % distinctKeys;
+            rows.add( new Object[]{ key, prefix + i } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static List<String> join( Enumerable<Object[]> outer, Enumerable<Object[]> inner, boolean nullsOnLeft, boolean nullsOnRight, long memoryLimit ) {
+        List<String> result = GraceHashJoin.join( outer, inner, o -> o[0], i -> i[0], TO_STRING, null, nullsOnLeft, nullsOnRight, memoryLimit ).toList();
+        result.sort( String::compareTo );
+        return result;
+    }
+
+
+    private void checkJoin( boolean nullsOnLeft, boolean nullsOnRight ) {
+        Enumerable<Object[]> outer = rows( 2000, 130, "o" );
+        Enumerable<Object[]> inner = rows( 500, 170, "i" );
+        List<String> expected = join( outer, inner, nullsOnLeft, nullsOnRight, Long.MAX_VALUE );
+        // Small enough to partition twice
+        assertEquals( expected, join( outer, inner, nullsOnLeft, nullsOnRight, 2000 ) );
+        // Too small to ever fit, forces partitioning up to the maximal level
+        assertEquals( expected, join( outer, inner, nullsOnLeft, nullsOnRight, 1 ) );
+    }
+
+
+    @Test
+    public void testInnerJoin() {
+        checkJoin( false, false );
+    }
+
+
+    @Test
+    public void testLeftJoin() {
+        checkJoin( false, true );
+    }
+
+
+    @Test
+    public void testRightJoin() {
+        checkJoin( true, false );
+    }
+
+
+    @Test
+    public void testFullJoin() {
+        checkJoin( true, true );
+    }
+
+
+    @Test
+    public void testNotSerializable() {
+        // Rows which cannot be written to disk are kept in memory
+        Object lock = new Object();
+        List<Object[]> inner = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ ) {
+            inner.add( new Object[]{ i, lock } );
+        }
+        List<Object[]> result = GraceHashJoin.join(
+                rows( 100, 100, "o" ),
+                Linq4j.asEnumerable( inner ),
+                o -> o[0],
+                i -> i[0],
+                ( o, i ) -> i,
+                null,
+                false,
+                false,
+                1 ).toList();
+        assertEquals( 90, result.size() );
+    }
+
+}
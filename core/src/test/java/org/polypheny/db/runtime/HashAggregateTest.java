@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.junit.Test;
+import org.polypheny.db.runtime.HashAggregate.AggKind;
+import org.polypheny.db.runtime.HashAggregate.AggSpec;
+
+
+/**
+ * Unit tests for {@link HashAggregate}.
+ */
+public class HashAggregateTest {
+
+    /**
+     * Rows of (Integer key, String name, Integer value, Double amount). Every seventh key and every fifth value is null.
+     */
+    private static Enumerable<Object[]> rows( int count, int distinctKeys ) {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            final int key = (i * 31) % distinctKeys;
+            rows.add( new Object[]{
+                    key % 7 == 0 ? null : key,
+                    "name" + key % 3,
+                    i % 5 == 0 ? null : i - count / 2,
+                    i * 0.5 } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static List<AggSpec<Object[]>> aggs() {
+        return Arrays.asList(
+                AggSpec.count( null ),
+                AggSpec.count( r -> r[2] == null ),
+                AggSpec.ofLong( AggKind.SUM, Primitive.INT, r -> (Integer) r[2], r -> r[2] == null ),
+                AggSpec.ofLong( AggKind.MIN, Primitive.INT, r -> (Integer) r[2], r -> r[2] == null ),
+                AggSpec.ofLong( AggKind.MAX, Primitive.INT, r -> (Integer) r[2], r -> r[2] == null ),
+                AggSpec.ofDouble( AggKind.SUM0, Primitive.DOUBLE, r -> (Double) r[3], null ) );
+    }
+
+
+    /**
+     * Computes the expected result of {@link #aggs()}.
+     */
+    private static List<String> expected( Enumerable<Object[]> rows, int keyCount ) {
+        final Map<String, Object[]> groups = new HashMap<>();
+        for ( Object[] row : rows ) {
+            final String key = keyCount == 1 ? String.valueOf( row[0] ) : row[0] + ", " + row[1];
+            final Object[] acc = groups.computeIfAbsent( key, k -> new Object[]{ 0L, 0L, null, null, null, 0.0 } );
+            acc[0] = (Long) acc[0] + 1;
+            final Integer value = (Integer) row[2];
+            if ( value != null ) {
+                acc[1] = (Long) acc[1] + 1;
+                acc[2] = acc[2] == null ? value : (Integer) acc[2] + value;
+                acc[3] = acc[3] == null ? value : Math.min( (Integer) acc[3], value );
+                acc[4] = acc[4] == null ? value : Math.max( (Integer) acc[4], value );
+            }
+            acc[5] = (Double) acc[5] + (Double) row[3];
+        }
+        final List<String> result = new ArrayList<>();
+        groups.forEach( ( key, acc ) -> result.add( key + ": " + Arrays.toString( acc ) ) );
+        result.sort( String::compareTo );
+        return result;
+    }
+
+
+    private static List<String> toStrings( Enumerable<Object[]> results, int keyCount ) {
+        final List<String> strings = new ArrayList<>();
+        for ( Object[] result : results ) {
+            final String key = keyCount == 1 ? String.valueOf( result[0] ) : result[0] + ", " + result[1];
+            strings.add( key + ": " + Arrays.toString( Arrays.copyOfRange( result, keyCount, result.length ) ) );
+        }
+        strings.sort( String::compareTo );
+        return strings;
+    }
+
+
+    @Test
+    public void testLongKey() {
+        final Enumerable<Object[]> rows = rows( 5000, 700 );
+        final List<String> expected = expected( rows, 1 );
+        for ( long memoryLimit : new long[]{ Long.MAX_VALUE, 10_000, 1 } ) {
+            assertEquals(
+                    expected,
+                    toStrings( HashAggregate.aggregateLongKey( rows, r -> (Integer) r[0], r -> r[0] == null, Primitive.INT, aggs(), memoryLimit ), 1 ) );
+        }
+        // The key has the type of the column
+        assertEquals( Integer.class, HashAggregate.aggregateLongKey( rows, r -> (Integer) r[0], r -> r[0] == null, Primitive.INT, aggs() ).where( r -> r[0] != null ).first()[0].getClass() );
+    }
+
+
+    @Test
+    public void testObjectKey() {
+        final Enumerable<Object[]> rows = rows( 5000, 700 );
+        final List<String> expected = expected( rows, 2 );
+        for ( long memoryLimit : new long[]{ Long.MAX_VALUE, 10_000, 1 } ) {
+            assertEquals(
+                    expected,
+                    toStrings( HashAggregate.aggregate( rows, r -> Arrays.asList( r[0], r[1] ), 2, aggs(), memoryLimit ), 2 ) );
+        }
+    }
+
+
+    @Test
+    public void testEmptyGroups() {
+        // Groups without non-null values
+        final Enumerable<Object[]> rows = Linq4j.asEnumerable( Arrays.asList( new Object[]{ 1, null }, new Object[]{ 1, null } ) );
+        final List<AggSpec<Object[]>> aggs = Arrays.asList(
+                AggSpec.ofLong( AggKind.SUM, Primitive.LONG, r -> (Long) r[1], r -> r[1] == null ),
+                AggSpec.ofLong( AggKind.SUM0, Primitive.LONG, r -> (Long) r[1], r -> r[1] == null ),
+                AggSpec.count( r -> r[1] == null ) );
+        final Object[] result = HashAggregate.aggregate( rows, r -> r[0], 1, aggs ).single();
+        assertEquals( "[1, null, 0, 0]", Arrays.toString( result ) );
+        assertEquals( Long.class, Objects.requireNonNull( result[2] ).getClass() );
+    }
+
+}
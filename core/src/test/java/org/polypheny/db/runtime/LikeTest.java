@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.polypheny.db.runtime.Like.Shape;
+import org.polypheny.db.util.Benchmark;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Unit tests for the matchers of {@link Like}.
+ */
+public class LikeTest {
+
+    private static final List<String> VALUES = Arrays.asList( "", "a", "abc", "xabcx", "abcabc", "ab%c", "a_c", "ABC", "a\nc", "%" );
+
+
+    @Test
+    public void testShapes() {
+        assertEquals( Pair.of( Shape.EQUALS, "abc" ), Like.likeShape( "abc", null ) );
+        assertEquals( Pair.of( Shape.EQUALS, "" ), Like.likeShape( "", null ) );
+        assertEquals( Pair.of( Shape.STARTS_WITH, "abc" ), Like.likeShape( "abc%", null ) );
+        assertEquals( Pair.of( Shape.ENDS_WITH, "abc" ), Like.likeShape( "%abc", null ) );
+        assertEquals( Pair.of( Shape.CONTAINS, "abc" ), Like.likeShape( "%%abc%%", null ) );
+        assertEquals( Pair.of( Shape.ANY, "" ), Like.likeShape( "%", null ) );
+        assertEquals( Pair.of( Shape.CONTAINS, "%" ), Like.likeShape( "%\\%%", "\\" ) );
+        assertEquals( Pair.of( Shape.STARTS_WITH, "a_" ), Like.likeShape( "a!_%", "!" ) );
+        assertNull( Like.likeShape( "a_c", null ) );
+        assertNull( Like.likeShape( "a%c", null ) );
+        assertNull( Like.likeShape( "%a%c%", null ) );
+        assertNull( Like.likeShape( "a%!%", "!" ) );
+    }
+
+
+    @Test
+    public void testLikeMatchesRegex() {
+        final List<String> patterns = Arrays.asList( "", "abc", "abc%", "%abc", "%abc%", "%", "a_c", "a%c", "%b%", "ab!%c", "a!_c%", "%!%", "a%" );
+        for ( String pattern : patterns ) {
+            final String escape = pattern.contains( "!" ) ? "!" : null;
+            final Pattern regex = Pattern.compile( Like.sqlToRegexLike( pattern, escape ) );
+            for ( String value : VALUES ) {
+                assertEquals( pattern + " on " + value, regex.matcher( value ).matches(), Like.likeMatcher( pattern, escape ).apply( value ) );
+            }
+        }
+    }
+
+
+    @Test
+    public void testSimilar() {
+        assertTrue( Functions.similar( "abc", "(a|x)bc" ) );
+        assertTrue( Functions.similar( "xbc", "(a|x)bc" ) );
+        assertFalse( Functions.similar( "ybc", "(a|x)bc" ) );
+        assertTrue( Functions.similar( "abc", "a%" ) );
+        // The matcher is cached
+        assertTrue( Like.similarMatcher( "(a|x)bc", null ) == Like.similarMatcher( "(a|x)bc", null ) );
+    }
+
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidEscape() {
+        Functions.like( "abc", "ab!", "!" );
+    }
+
+
+    @Test
+    public void testDocRegexMatch() {
+        assertTrue( MqlFunctions.docRegexMatch( "Polypheny", "lyp", false, false, false, false ) );
+        assertTrue( MqlFunctions.docRegexMatch( "Polypheny", "LYP", true, false, false, false ) );
+        assertFalse( MqlFunctions.docRegexMatch( "Polypheny", "LYP", false, false, false, false ) );
+        assertTrue( MqlFunctions.docRegexMatch( "Poly pheny", "y p h", false, false, true, false ) );
+        assertFalse( MqlFunctions.docRegexMatch( 42, "4", false, false, false, false ) );
+    }
+
+
+    @Test
+    public void testPerformance() {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        final Random random = new Random( 42 );
+        final List<String> values = new ArrayList<>();
+        for ( int i = 0; i < 1_000_000; i++ ) {
+            values.add( "value-" + random.nextInt( 100_000 ) + "-suffix" );
+        }
+        for ( String pattern : Arrays.asList( "value-1%", "%-suffix", "%-12%", "value-_2%suffix" ) ) {
+            // Both variants must match the same values, which also keeps the loops from being optimized away
+            final int[] counts = new int[2];
+            new Benchmark( "LIKE '" + pattern + "' on 1m values, regex compiled per value", statistician -> {
+                long start = System.currentTimeMillis();
+                int count = 0;
+                for ( String value : values ) {
+                    if ( Pattern.matches( Like.sqlToRegexLike( pattern, null ), value ) ) {
+                        count++;
+                    }
+                }
+                statistician.record( start );
+                counts[0] = count;
+                return null;
+            }, 5 ).run();
+            new Benchmark( "LIKE '" + pattern + "' on 1m values, cached matcher", statistician -> {
+                long start = System.currentTimeMillis();
+                int count = 0;
+                for ( String value : values ) {
+                    if ( Functions.like( value, pattern ) ) {
+                        count++;
+                    }
+                }
+                statistician.record( start );
+                counts[1] = count;
+                return null;
+            }, 5 ).run();
+            assertEquals( pattern, counts[0], counts[1] );
+            assertTrue( pattern, counts[0] > 0 );
+        }
+    }
+
+}
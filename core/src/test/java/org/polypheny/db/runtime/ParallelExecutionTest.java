@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.junit.Test;
+import org.polypheny.db.runtime.HashAggregate.AggKind;
+import org.polypheny.db.runtime.HashAggregate.AggSpec;
+
+
+/**
+ * Unit tests for {@link ParallelExecution}.
+ */
+public class ParallelExecutionTest {
+
+    private static Enumerable<Object[]> rows( int count, int distinctKeys, String prefix ) {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{ i % 10 == 0 ? null : i % distinctKeys, prefix + i } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static <T> List<String> sorted( Enumerable<T> rows ) {
+        final List<String> strings = new ArrayList<>();
+        for ( T row : rows ) {
+            strings.add( row instanceof Object[] ? Arrays.toString( (Object[]) row ) : String.valueOf( row ) );
+        }
+        strings.sort( String::compareTo );
+        return strings;
+    }
+
+
+    @Test
+    public void testGather() {
+        final List<Enumerable<Object[]>> inputs = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            inputs.add( rows( 1000 + i, 100, "r" + i + "_" ) );
+        }
+        final List<String> expected = sorted( Linq4j.concat( inputs ) );
+        assertEquals( expected, sorted( ParallelExecution.gather( inputs, 4 ) ) );
+        assertEquals( expected, sorted( ParallelExecution.gather( inputs, 16 ) ) );
+        // Enumerable can be enumerated more than once
+        assertEquals( expected.size(), ParallelExecution.gather( inputs, 4 ).count() );
+    }
+
+
+    @Test
+    public void testScatterGather() {
+        // All inputs have to be started before any of them returns rows
+        final CountDownLatch started = new CountDownLatch( 3 );
+        final List<Enumerable<Object[]>> inputs = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ ) {
+            final Enumerable<Object[]> rows = rows( 2000 + i, 100, "r" + i + "_" );
+            rows.forEach( row -> expected.add( Arrays.toString( row ) ) );
+            inputs.add( Linq4j.asEnumerable( () -> {
+                started.countDown();
+                try {
+                    assertTrue( "Inputs are not started concurrently", started.await( 10, TimeUnit.SECONDS ) );
+                } catch ( InterruptedException e ) {
+                    throw new RuntimeException( e );
+                }
+                return rows.iterator();
+            } ) );
+        }
+        final List<String> actual = new ArrayList<>();
+        // Small prefetch, the order of the inputs is preserved
+        ParallelExecution.scatterGather( inputs, Arrays.asList( 0, 1, 2 ), 100 ).forEach( row -> actual.add( Arrays.toString( row ) ) );
+        assertEquals( expected, actual );
+    }
+
+
+    @Test
+    public void testScatterGatherGroups() {
+        // Inputs 0 and 2 are in the same group and must not be read concurrently, the order is still preserved
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final List<Enumerable<Object[]>> inputs = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ ) {
+            final Enumerable<Object[]> rows = rows( 2000 + i, 100, "r" + i + "_" );
+            rows.forEach( row -> expected.add( Arrays.toString( row ) ) );
+            final boolean grouped = i != 1;
+            inputs.add( Linq4j.asEnumerable( () -> {
+                final Iterator<Object[]> iterator = rows.iterator();
+                if ( grouped ) {
+                    maxActive.accumulateAndGet( active.incrementAndGet(), Math::max );
+                }
+                return new Iterator<Object[]>() {
+                    private boolean done;
+
+
+                    @Override
+                    public boolean hasNext() {
+                        final boolean hasNext = iterator.hasNext();
+                        if ( !hasNext && grouped && !done ) {
+                            done = true;
+                            active.decrementAndGet();
+                        }
+                        return hasNext;
+                    }
+
+
+                    @Override
+                    public Object[] next() {
+                        return iterator.next();
+                    }
+                };
+            } ) );
+        }
+        final List<String> actual = new ArrayList<>();
+        ParallelExecution.scatterGather( inputs, Arrays.asList( 0, 1, 0 ), 100 ).forEach( row -> actual.add( Arrays.toString( row ) ) );
+        assertEquals( expected, actual );
+        assertEquals( 1, maxActive.get() );
+    }
+
+
+    @Test
+    public void testAggregate() {
+        final Enumerable<Object[]> rows = rows( 10_000, 700, "r" );
+        final List<AggSpec<Object[]>> aggs = Arrays.asList(
+                AggSpec.count( null ),
+                AggSpec.ofLong( AggKind.MAX, Primitive.INT, r -> ((String) r[1]).length(), null ) );
+        final List<String> expected = sorted( HashAggregate.aggregate( rows, r -> r[0], 1, aggs, Long.MAX_VALUE ) );
+        assertEquals(
+                expected,
+                sorted( ParallelExecution.exchange(
+                        rows,
+                        r -> Objects.hashCode( r[0] ),
+                        partition -> HashAggregate.aggregate( partition, r -> r[0], 1, aggs, Long.MAX_VALUE ),
+                        4 ) ) );
+        // Spilling within the partitions
+        assertEquals(
+                expected,
+                sorted( ParallelExecution.exchange(
+                        rows,
+                        r -> Objects.hashCode( r[0] ),
+                        partition -> HashAggregate.aggregate( partition, r -> r[0], 1, aggs, 1 ),
+                        3 ) ) );
+    }
+
+
+    private static List<String> join( int parallelism, boolean nullsOnLeft, boolean nullsOnRight, long memoryLimit ) {
+        final Enumerable<Object[]> outer = rows( 5000, 130, "o" );
+        final Enumerable<Object[]> inner = rows( 2000, 170, "i" );
+        return sorted( ParallelExecution.exchange(
+                outer,
+                o -> Objects.hashCode( o[0] ),
+                inner,
+                i -> Objects.hashCode( i[0] ),
+                ( o, i ) -> GraceHashJoin.join( o, i, r -> r[0], r -> r[0], ( l, r ) -> Arrays.toString( l ) + Arrays.toString( r ), null, nullsOnLeft, nullsOnRight, memoryLimit ),
+                parallelism ) );
+    }
+
+
+    @Test
+    public void testJoin() {
+        for ( boolean[] nulls : new boolean[][]{ { false, false }, { true, false }, { false, true }, { true, true } } ) {
+            final List<String> expected = join( 1, nulls[0], nulls[1], Long.MAX_VALUE );
+            assertEquals( expected, join( 4, nulls[0], nulls[1], Long.MAX_VALUE ) );
+            assertEquals( expected, join( 4, nulls[0], nulls[1], 2000 ) );
+        }
+    }
+
+
+    @Test
+    public void testFailure() {
+        final Enumerable<Object[]> failing = rows( 1000, 10, "f" ).select( r -> {
+            if ( r[1].equals( "f500" ) ) {
+                throw new IllegalStateException( "Failing input" );
+            }
+            return r;
+        } );
+        try {
+            ParallelExecution.gather( Arrays.asList( rows( 100_000, 10, "r" ), failing ), 2 ).count();
+            fail( "Expected failure of the input" );
+        } catch ( IllegalStateException e ) {
+            assertEquals( "Failing input", e.getMessage() );
+        }
+        try {
+            ParallelExecution.exchange( failing, r -> Objects.hashCode( r[0] ), partition -> partition, 4 ).count();
+            fail( "Expected failure of the input" );
+        } catch ( IllegalStateException e ) {
+            assertEquals( "Failing input", e.getMessage() );
+        }
+    }
+
+
+    @Test
+    public void testEarlyClose() {
+        // Producers blocked on full queues are stopped when the consumer closes the enumerator
+        final List<Enumerable<Object[]>> inputs = Arrays.asList( rows( 100_000, 10, "a" ), rows( 100_000, 10, "b" ) );
+        assertEquals( 5, ParallelExecution.gather( inputs, 2 ).take( 5 ).count() );
+        assertEquals( 5, ParallelExecution.exchange( inputs.get( 0 ), r -> Objects.hashCode( r[0] ), partition -> partition, 4 ).take( 5 ).count() );
+    }
+
+
+    @Test
+    public void testPartition() {
+        final int[] counts = new int[5];
+        for ( int i = 0; i < 10_000; i++ ) {
+            counts[ParallelExecution.partition( i, counts.length )]++;
+        }
+        for ( int count : counts ) {
+            assertTrue( "Uneven partitions: " + Arrays.toString( counts ), count > 1_500 && count < 2_500 );
+        }
+    }
+
+}
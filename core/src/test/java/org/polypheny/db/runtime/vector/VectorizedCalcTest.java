@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.polypheny.db.runtime.vector.VectorExpressions.column;
+import static org.polypheny.db.runtime.vector.VectorExpressions.constant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.junit.Test;
+import org.polypheny.db.runtime.vector.VectorExpressions.Arithmetic;
+import org.polypheny.db.runtime.vector.VectorExpressions.Comparison;
+
+
+/**
+ * Unit tests for {@link VectorizedCalc} and {@link VectorExpressions}.
+ */
+public class VectorizedCalcTest {
+
+    private static final List<Primitive> TYPES = Arrays.asList( Primitive.INT, null, Primitive.DOUBLE );
+
+
+    /**
+     * Rows of (Integer id, String name, Double amount). Every fifth id and every seventh amount is null. There are
+     * more rows than fit into one batch.
+     */
+    private static Enumerable<Object> rows( int count ) {
+        final List<Object> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{
+                    i % 5 == 0 ? null : i,
+                    "name" + i % 3,
+                    i % 7 == 0 ? null : i * 0.5 } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static List<String> toStrings( Enumerable<Object> rows ) {
+        final List<String> strings = new ArrayList<>();
+        for ( Object row : rows ) {
+            strings.add( row instanceof Object[] ? Arrays.toString( (Object[]) row ) : String.valueOf( row ) );
+        }
+        return strings;
+    }
+
+
+    @Test
+    public void testFilterAndProject() {
+        // SELECT id * 2, name, amount FROM t WHERE id > 1000 OR amount < 10
+        final VectorExpression condition = VectorExpressions.or( Arrays.asList(
+                VectorExpressions.compare( Comparison.GREATER_THAN, column( 0, Primitive.INT ), constant( 1000, Primitive.INT ) ),
+                VectorExpressions.compare( Comparison.LESS_THAN, column( 2, Primitive.DOUBLE ), constant( 10.0, Primitive.DOUBLE ) ) ) );
+        final List<VectorExpression> projects = Arrays.asList(
+                VectorExpressions.arithmetic( Arithmetic.TIMES, Primitive.INT, column( 0, Primitive.INT ), constant( 2, Primitive.INT ) ),
+                column( 1, null ),
+                column( 2, Primitive.DOUBLE ) );
+        final Enumerable<Object> result = VectorizedCalc.calc( rows( 3000 ), TYPES, false, condition, projects, false );
+
+        final List<String> expected = new ArrayList<>();
+        for ( Object o : rows( 3000 ) ) {
+            final Object[] row = (Object[]) o;
+            final Integer id = (Integer) row[0];
+            final Double amount = (Double) row[2];
+            if ( (id != null && id > 1000) || (amount != null && amount < 10) ) {
+                expected.add( Arrays.toString( new Object[]{ id == null ? null : id * 2, row[1], amount } ) );
+            }
+        }
+        assertEquals( expected, toStrings( result ) );
+    }
+
+
+    @Test
+    public void testThreeValuedLogic() {
+        final VectorExpression nullInt = constant( null, Primitive.INT );
+        final VectorExpression isNull = VectorExpressions.compare( Comparison.EQUALS, column( 0, Primitive.INT ), nullInt );
+        final VectorExpression isTrue = VectorExpressions.compare( Comparison.EQUALS, column( 0, Primitive.INT ), column( 0, Primitive.INT ) );
+        final VectorExpression isFalse = VectorExpressions.not( isTrue );
+        final List<VectorExpression> projects = Arrays.asList(
+                VectorExpressions.and( Arrays.asList( isNull, isFalse ) ),
+                VectorExpressions.and( Arrays.asList( isNull, isTrue ) ),
+                VectorExpressions.or( Arrays.asList( isNull, isTrue ) ),
+                VectorExpressions.or( Arrays.asList( isNull, isFalse ) ),
+                VectorExpressions.isNull( isNull, false ) );
+        final Enumerable<Object> input = Linq4j.asEnumerable( Collections.singletonList( new Object[]{ 1 } ) );
+        final Enumerable<Object> result = VectorizedCalc.calc( input, Collections.singletonList( Primitive.INT ), false, null, projects, false );
+        assertEquals( Collections.singletonList( "[false, null, true, null, true]" ), toStrings( result ) );
+    }
+
+
+    @Test
+    public void testCaseAvoidsDivisionByZero() {
+        // CASE WHEN id <> 0 THEN 100 / id ELSE -1 END
+        final List<VectorExpression> projects = Collections.singletonList( VectorExpressions.caseWhen( Primitive.INT, Arrays.asList(
+                VectorExpressions.compare( Comparison.NOT_EQUALS, column( 0, Primitive.INT ), constant( 0, Primitive.INT ) ),
+                VectorExpressions.arithmetic( Arithmetic.DIVIDE, Primitive.INT, constant( 100, Primitive.INT ), column( 0, Primitive.INT ) ),
+                constant( -1, Primitive.INT ) ) ) );
+        final Enumerable<Object> input = Linq4j.asEnumerable( Arrays.asList( 0, 3, null, -50 ) );
+        final Enumerable<Object> result = VectorizedCalc.calc( input, Collections.singletonList( Primitive.INT ), true, null, projects, true );
+        assertEquals( Arrays.asList( "-1", "33", "-1", "-2" ), toStrings( result ) );
+    }
+
+
+    @Test
+    public void testLike() {
+        final VectorExpression condition = VectorExpressions.like( column( 1, null ), constant( "%e1", null ), null, false );
+        final Enumerable<Object> result = VectorizedCalc.calc( rows( 10 ), TYPES, false, condition, Collections.singletonList( column( 0, Primitive.INT ) ), true );
+        assertEquals( Arrays.asList( "1", "4", "7" ), toStrings( result ) );
+    }
+
+
+    @Test
+    public void testIntegerOverflow() {
+        final List<VectorExpression> projects = Arrays.asList(
+                VectorExpressions.arithmetic( Arithmetic.PLUS, Primitive.INT, column( 0, Primitive.INT ), constant( 1, Primitive.INT ) ),
+                VectorExpressions.cast( Primitive.LONG, column( 0, Primitive.INT ) ),
+                VectorExpressions.negate( Primitive.INT, column( 0, Primitive.INT ) ) );
+        final Enumerable<Object> input = Linq4j.asEnumerable( Collections.singletonList( Integer.MAX_VALUE ) );
+        final Enumerable<Object> result = VectorizedCalc.calc( input, Collections.singletonList( Primitive.INT ), true, null, projects, false );
+        final Object[] row = (Object[]) result.first();
+        assertEquals( Integer.MAX_VALUE + 1, row[0] );
+        assertEquals( (long) Integer.MAX_VALUE, row[1] );
+        assertEquals( -Integer.MAX_VALUE, row[2] );
+    }
+
+
+    @Test
+    public void testBatchesAreChained() {
+        // The inner calc filters, the outer one reads its batches and projects.
+        final VectorizedCalc inner = (VectorizedCalc) VectorizedCalc.calc(
+                rows( 5000 ),
+                TYPES,
+                false,
+                VectorExpressions.isNull( column( 0, Primitive.INT ), true ),
+                Arrays.asList( column( 0, Primitive.INT ), column( 2, Primitive.DOUBLE ) ),
+                false );
+        final Enumerable<Object> outer = VectorizedCalc.calc(
+                inner,
+                Arrays.asList( Primitive.INT, Primitive.DOUBLE ),
+                false,
+                VectorExpressions.compare( Comparison.GREATER_THAN_OR_EQUAL, column( 1, Primitive.DOUBLE ), column( 0, Primitive.INT ) ),
+                Collections.singletonList( column( 0, Primitive.INT ) ),
+                true );
+        // amount = id / 2 is never greater than or equal to a positive id, only id 0 could qualify, but it is null
+        assertEquals( Collections.emptyList(), toStrings( outer ) );
+
+        final Enumerable<Object> count = VectorizedCalc.calc(
+                inner,
+                Arrays.asList( Primitive.INT, Primitive.DOUBLE ),
+                false,
+                VectorExpressions.isNull( column( 1, Primitive.DOUBLE ), false ),
+                Collections.singletonList( column( 0, Primitive.INT ) ),
+                true );
+        final List<String> expected = new ArrayList<>();
+        for ( int i = 0; i < 5000; i++ ) {
+            if ( i % 5 != 0 && i % 7 == 0 ) {
+                expected.add( String.valueOf( i ) );
+            }
+        }
+        assertEquals( expected, toStrings( count ) );
+    }
+
+}
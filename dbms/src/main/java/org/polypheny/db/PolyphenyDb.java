@@ -30,7 +30,9 @@
 import org.polypheny.db.StatusService.ErrorConfig;
 import org.polypheny.db.StatusService.StatusType;
 import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.adapter.enumerable.BindableCache;
 import org.polypheny.db.adapter.index.IndexManager;
+import org.polypheny.db.algebra.metadata.JaninoRelMetadataProvider;
 import org.polypheny.db.catalog.Adapter;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.CatalogImpl;
@@ -398,6 +400,14 @@ public void join( final long millis ) throws InterruptedException {
             TrayGui.getInstance();
         }
 
+        // Load the compiled code of the most frequently used query plans
+        BindableCache.getInstance().warmUp();
+
+        // Generate the metadata handlers of the planner before the first queries need them
+        if ( RuntimeConfig.METADATA_HANDLER_PREGENERATION.getBoolean() ) {
+            JaninoRelMetadataProvider.DEFAULT.pregenerate();
+        }
+
         // Add tracker, which rechecks constraints after enabling
         ConstraintTracker tracker = new ConstraintTracker( transactionManager );
         RuntimeConfig.FOREIGN_KEY_ENFORCEMENT.addObserver( tracker );
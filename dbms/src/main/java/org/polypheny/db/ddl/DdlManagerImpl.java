@@ -28,6 +28,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.polypheny.db.StatisticsManager;
@@ -367,7 +368,7 @@ public void dropAdapter( String name, Statement statement ) throws UnknownAdapte
             }
 
             // Reset plan cache implementation cache & routing cache
-            statement.getQueryProcessor().resetCaches();
+            statement.getQueryProcessor().resetCachesOfAdapter( catalogAdapter.id );
         }
         AdapterManager.getInstance().removeAdapter( catalogAdapter.id );
     }
@@ -472,7 +473,7 @@ public void addColumnToSourceTable( CatalogTable catalogTable, String columnPhys
         catalog.updateColumnPlacementPhysicalPosition( adapterId, columnId, exportedColumn.physicalPosition );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -545,7 +546,7 @@ public void addColumn( String columnName, CatalogTable catalogTable, String befo
         }
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -798,7 +799,7 @@ else if ( partitionGroupIds.isEmpty() && partitionGroupNames.isEmpty() ) {
         dataMigrator.copyData( statement.getTransaction(), catalog.getAdapter( dataStore.getAdapterId() ), addedColumns, partitionIds );
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -918,7 +919,7 @@ public void dropColumn( CatalogTable catalogTable, String columnName, Statement
         prepareMonitoring( statement, Kind.DROP_COLUMN, catalogTable, column );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1026,7 +1027,7 @@ public void dropDataPlacement( CatalogTable catalogTable, DataStore storeInstanc
         catalog.removeDataPlacement( storeInstance.getAdapterId(), catalogTable.id );
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1069,7 +1070,7 @@ public void setColumnType( CatalogTable catalogTable, String columnName, ColumnT
         }
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1086,7 +1087,7 @@ public void setColumnNullable( CatalogTable catalogTable, String columnName, boo
         catalog.setNullable( catalogColumn.id, nullable );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1137,7 +1138,7 @@ public void setColumnPosition( CatalogTable catalogTable, String columnName, Str
         // Do nothing
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1154,7 +1155,7 @@ public void setColumnCollation( CatalogTable catalogTable, String columnName, Co
         catalog.setCollation( catalogColumn.id, collation );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1168,7 +1169,7 @@ public void setDefaultValue( CatalogTable catalogTable, String columnName, Strin
         addDefaultValue( defaultValue, catalogColumn.id );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1182,7 +1183,7 @@ public void dropDefaultValue( CatalogTable catalogTable, String columnName, Stat
         catalog.deleteDefaultValue( catalogColumn.id );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1363,7 +1364,7 @@ else if ( !partitionGroupNames.isEmpty() && partitionGroupIds.isEmpty() ) {
         }
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1435,7 +1436,7 @@ public void modifyPartitionPlacement( CatalogTable catalogTable, List<Long> part
         }
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfPartitions( Stream.concat( newPartitions.stream(), removedPartitions.stream() ).collect( Collectors.toList() ) );
     }
 
 
@@ -1482,7 +1483,7 @@ public void addColumnPlacement( CatalogTable catalogTable, String columnName, Da
         }
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1524,7 +1525,7 @@ public void dropColumnPlacement( CatalogTable catalogTable, String columnName, D
         catalog.deleteColumnPlacement( storeInstance.getAdapterId(), catalogColumn.id, false );
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1549,7 +1550,7 @@ public void renameTable( CatalogTable catalogTable, String newTableName, Stateme
         StatisticsManager.getInstance().updateTableName( catalogTable, newTableName );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -1569,7 +1570,7 @@ public void renameColumn( CatalogTable catalogTable, String columnName, String n
         StatisticsManager.getInstance().updateColumnName( catalogColumn, newColumnName );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -2233,7 +2234,7 @@ public void addPartitioning( PartitionInformation partitionInfo, List<DataStore>
         catalog.deletePartitionGroup( unPartitionedTable.id, unPartitionedTable.schemaId, unPartitionedTable.partitionProperty.partitionGroupIds.get( 0 ) );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( partitionInfo.table.id );
     }
 
 
@@ -2330,7 +2331,7 @@ public void removePartitioning( CatalogTable partitionedTable, Statement stateme
         }
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( partitionedTable.id );
     }
 
 
@@ -2436,7 +2437,7 @@ public void dropView( CatalogTable catalogView, Statement statement ) throws Ddl
         catalog.deleteTable( catalogView.id );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogView.id );
     }
 
 
@@ -2458,7 +2459,7 @@ public void dropMaterializedView( CatalogTable materializedView, Statement state
         dropTable( materializedView, statement );
 
         // Reset query plan cache, implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( materializedView.id );
     }
 
 
@@ -2571,7 +2572,7 @@ public void dropTable( CatalogTable catalogTable, Statement statement ) throws D
         statement.getTransaction().getCatalogTables().remove( catalogTable );
 
         // Reset plan cache implementation cache & routing cache
-        statement.getQueryProcessor().resetCaches();
+        statement.getQueryProcessor().resetCachesOfTable( catalogTable.id );
     }
 
 
@@ -2585,6 +2586,9 @@ public void truncate( CatalogTable catalogTable, Statement statement ) {
         // Monitor truncate for rowCount
         prepareMonitoring( statement, Kind.TRUNCATE, catalogTable );
 
+        // Materialized views based on this table cannot be refreshed incrementally
+        MaterializedViewManager.getInstance().addUntrackedChange( statement.getTransaction(), catalogTable.id );
+
         //  Execute truncate on all placements
         catalogTable.dataPlacements.forEach( adapterId -> {
             AdapterManager.getInstance().getAdapter( adapterId ).truncate( statement.getPrepareContext(), catalogTable );
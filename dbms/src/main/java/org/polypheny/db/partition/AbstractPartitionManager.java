@@ -18,15 +18,19 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.catalog.Catalog;
-import org.polypheny.db.catalog.entity.CatalogAdapter;
+import org.polypheny.db.catalog.Catalog.DataPlacementRole;
 import org.polypheny.db.catalog.entity.CatalogColumn;
 import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
 import org.polypheny.db.catalog.entity.CatalogPartition;
 import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.type.PolyType;
 
 
 @Slf4j
@@ -40,6 +44,35 @@ public abstract class AbstractPartitionManager implements PartitionManager {
     public abstract long getTargetPartitionId( CatalogTable catalogTable, String columnValue );
 
 
+    /**
+     * Maps single values to their partitions using {@link #getTargetPartitionId(CatalogTable, String)}.
+     * Ranges of values cannot be mapped by a generic partition function, in this case all partitions are returned.
+     * The same applies to approximate numeric partition columns: the partition function works on the string
+     * representation of a value, which is not unique for floating point numbers (e.g. {@code 1.0E10} and
+     * {@code 1.0E+10}).
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List<Long> getTargetPartitionIds( CatalogTable catalogTable, PartitionValueSet values ) {
+        List<Comparable> points = values.getPoints();
+        if ( values.isAll() || points == null ) {
+            return catalogTable.partitionProperty.partitionIds;
+        }
+        if ( PolyType.APPROX_TYPES.contains( catalog.getColumn( catalogTable.partitionProperty.partitionColumnId ).type ) ) {
+            return catalogTable.partitionProperty.partitionIds;
+        }
+
+        Set<Long> partitionIds = new LinkedHashSet<>();
+        for ( Comparable point : points ) {
+            partitionIds.add( getTargetPartitionId( catalogTable, point.toString() ) );
+        }
+        if ( values.isNullIncluded() ) {
+            partitionIds.add( getTargetPartitionId( catalogTable, getUnifiedNullValue() ) );
+        }
+        return new ArrayList<>( partitionIds );
+    }
+
+
     @Override
     public boolean probePartitionGroupDistributionChange( CatalogTable catalogTable, int storeId, long columnId, int threshold ) {
         // Check for the specified columnId if we still have a ColumnPlacement for every partitionGroup
@@ -67,10 +100,11 @@ public Map<Long, List<CatalogColumnPlacement>> getRelevantPlacements( CatalogTab
             for ( long partitionId : partitionIds ) {
                 CatalogPartition catalogPartition = catalog.getPartition( partitionId );
                 List<CatalogColumnPlacement> relevantCcps = new ArrayList<>();
+                Set<Integer> upToDateAdapters = getUpToDateAdapters( catalogTable, partitionId );
 
                 for ( long columnId : catalogTable.columnIds ) {
                     List<CatalogColumnPlacement> ccps = catalog.getColumnPlacementsByPartitionGroup( catalogTable.id, catalogPartition.partitionGroupId, columnId );
-                    ccps.removeIf( ccp -> excludedAdapters.contains( ccp.adapterId ) );
+                    ccps.removeIf( ccp -> excludedAdapters.contains( ccp.adapterId ) || !upToDateAdapters.contains( ccp.adapterId ) );
                     if ( !ccps.isEmpty() ) {
                         // Get first column placement which contains partition
                         relevantCcps.add( ccps.get( 0 ) );
@@ -130,18 +164,29 @@ public Map<Integer, Map<Long, List<CatalogColumnPlacement>>> getAllPlacements( C
         Map<Integer, Map<Long, List<CatalogColumnPlacement>>> adapterPlacements = new HashMap<>(); // adapterId -> partitionId ; placements
         if ( partitionIds != null ) {
             for ( long partitionId : partitionIds ) {
-                List<CatalogAdapter> adapters = catalog.getAdaptersByPartitionGroup( catalogTable.id, partitionId );
-
-                for ( CatalogAdapter adapter : adapters ) {
-                    if ( !adapterPlacements.containsKey( adapter.id ) ) {
-                        adapterPlacements.put( adapter.id, new HashMap<>() );
+                for ( int adapterId : getUpToDateAdapters( catalogTable, partitionId ) ) {
+                    if ( !adapterPlacements.containsKey( adapterId ) ) {
+                        adapterPlacements.put( adapterId, new HashMap<>() );
                     }
-                    List<CatalogColumnPlacement> placements = catalog.getColumnPlacementsOnAdapterPerTable( adapter.id, catalogTable.id );
-                    adapterPlacements.get( adapter.id ).put( partitionId, placements );
+                    List<CatalogColumnPlacement> placements = catalog.getColumnPlacementsOnAdapterPerTable( adapterId, catalogTable.id );
+                    adapterPlacements.get( adapterId ).put( partitionId, placements );
                 }
             }
         }
         return adapterPlacements;
     }
 
+
+    /**
+     * Returns the adapters holding an up-to-date placement of the partition. Reads are only routed to these adapters,
+     * as {@link DataPlacementRole#REFRESHABLE} placements are still being filled, e.g. during the online redistribution
+     * of a partition.
+     */
+    private Set<Integer> getUpToDateAdapters( CatalogTable catalogTable, long partitionId ) {
+        return catalog.getPartitionPlacementsByIdAndRole( catalogTable.id, partitionId, DataPlacementRole.UPTODATE )
+                .stream()
+                .map( placement -> placement.adapterId )
+                .collect( Collectors.toSet() );
+    }
+
 }
@@ -19,11 +19,16 @@
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
@@ -36,7 +41,6 @@
 import org.polypheny.db.catalog.Catalog.PlacementType;
 import org.polypheny.db.catalog.entity.CatalogAdapter;
 import org.polypheny.db.catalog.entity.CatalogColumn;
-import org.polypheny.db.catalog.entity.CatalogPartition;
 import org.polypheny.db.catalog.entity.CatalogTable;
 import org.polypheny.db.catalog.exceptions.GenericCatalogException;
 import org.polypheny.db.catalog.exceptions.UnknownDatabaseException;
@@ -47,20 +51,27 @@
 import org.polypheny.db.monitoring.events.metrics.DmlDataPoint;
 import org.polypheny.db.monitoring.events.metrics.QueryDataPointImpl;
 import org.polypheny.db.partition.properties.TemperaturePartitionProperty;
+import org.polypheny.db.partition.properties.TemperaturePartitionProperty.PartitionCostIndication;
 import org.polypheny.db.processing.DataMigrator;
 import org.polypheny.db.transaction.Statement;
 import org.polypheny.db.transaction.Transaction;
 import org.polypheny.db.transaction.TransactionException;
 import org.polypheny.db.transaction.TransactionManager;
 import org.polypheny.db.transaction.TransactionManagerImpl;
+import org.polypheny.db.util.Pair;
 import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
 import org.polypheny.db.util.background.BackgroundTaskManager;
 
 
 /**
- * Periodically retrieves information from the MonitoringService to get current statistics about
- * the frequency map to determine which chunk of data should reside in HOT {@literal &}  which in COLD partition
+ * Maintains the access frequency of the partitions of TEMPERATURE partitioned tables and periodically determines
+ * which chunk of data should reside in HOT {@literal &}  which in COLD partition
+ *
+ * Accesses are recorded on the routing path into lock-free per-partition counters. The access frequency of a partition
+ * is an exponentially decayed sum of its accesses, hence processing a table only costs O(partitions) per interval.
+ * The counters of a table are created on its first access or processing. They are initialized with the accesses of the
+ * last interval which have been persisted by the monitoring, hence the history survives a restart.
  *
  * Only one instance of the MAP exists.
  * Which gets created once the first TEMPERATURE partitioned table gets created. (Including creation of BackgroundTask)
@@ -75,13 +86,26 @@ public class FrequencyMapImpl extends FrequencyMap {
 
     private final Catalog catalog;
 
+    private final OnlinePartitionMigrator onlineMigrator;
+
+    // Scores below this threshold are considered as not accessed
+    private static final double MIN_ACCESS_SCORE = 0.5;
+
     // Make use of central configuration
     private String backgroundTaskId;
-    private Map<Long, Long> accessCounter = new HashMap<>();
+
+    // Counters of tables which are not TEMPERATURE partitioned
+    private static final Map<Long, PartitionAccessCounter> NO_COUNTERS = Collections.emptyMap();
+
+    // tableId -> partitionId -> counter; tables which are not TEMPERATURE partitioned are mapped to NO_COUNTERS
+    private final Map<Long, Map<Long, PartitionAccessCounter>> accessCounters = new ConcurrentHashMap<>();
+    // tableId -> timestamp of the last decay
+    private final Map<Long, Long> lastDecay = new ConcurrentHashMap<>();
 
 
     public FrequencyMapImpl( Catalog catalog ) {
         this.catalog = catalog;
+        this.onlineMigrator = new OnlinePartitionMigrator( catalog, transactionManager );
     }
 
 
@@ -124,24 +148,33 @@ private void processAllPeriodicTables() {
 
         long invocationTimestamp = System.currentTimeMillis();
         List<CatalogTable> periodicTables = catalog.getTablesForPeriodicProcessing();
+        Set<Long> temperatureTables = new HashSet<>();
         // Retrieve all Tables which rely on periodic processing
         for ( CatalogTable table : periodicTables ) {
             if ( table.partitionProperty.partitionType == PartitionType.TEMPERATURE ) {
-                determinePartitionFrequency( table, invocationTimestamp );
+                temperatureTables.add( table.id );
+                if ( !onlineMigrator.isMigrating( table.id ) ) {
+                    determinePartitionFrequency( table, invocationTimestamp );
+                }
             }
         }
+        // Forget counters of tables which have been dropped or are not TEMPERATURE partitioned (anymore)
+        accessCounters.keySet().retainAll( temperatureTables );
+        lastDecay.keySet().retainAll( temperatureTables );
         log.debug( "Finished processing access frequency of tables" );
     }
 
 
-    private void incrementPartitionAccess( long identifiedPartitionId, List<Long> partitionIds ) {
-        // Outer if is needed to ignore frequencies from old non-existing partitionIds
-        // Which are not yet linked to the table but are still in monitoring
-        if ( partitionIds.contains( identifiedPartitionId ) ) {
-            if ( accessCounter.containsKey( identifiedPartitionId ) ) {
-                accessCounter.replace( identifiedPartitionId, accessCounter.get( identifiedPartitionId ) + 1 );
-            } else {
-                accessCounter.put( identifiedPartitionId, (long) 1 );
+    @Override
+    public void recordPartitionAccess( Map<Long, Set<Long>> accessedPartitions, boolean isWrite ) {
+        for ( Entry<Long, Set<Long>> entry : accessedPartitions.entrySet() ) {
+            Map<Long, PartitionAccessCounter> counters = accessCounters.computeIfAbsent( entry.getKey(), this::getCountersOfTable );
+            for ( long partitionId : entry.getValue() ) {
+                // Ignore old non-existing partitionIds which are not linked to the table anymore
+                PartitionAccessCounter counter = counters.get( partitionId );
+                if ( counter != null ) {
+                    counter.increment( isWrite );
+                }
             }
         }
     }
@@ -152,8 +185,9 @@ private void incrementPartitionAccess( long identifiedPartitionId, List<Long> pa
      * and from COLD to HOT. To setup the table corresponding to the current access frequencies patterns.
      *
      * @param table Temperature partitioned Table
+     * @param accessScores Access frequency of every partition of the table
      */
-    private void determinePartitionDistribution( CatalogTable table ) {
+    private void determinePartitionDistribution( CatalogTable table, Map<Long, Double> accessScores ) {
         if ( log.isDebugEnabled() ) {
             log.debug( "Determine access frequency of partitions of table: {}", table.name );
         }
@@ -171,26 +205,48 @@ private void determinePartitionDistribution( CatalogTable table ) {
             allowedTablesInHot = 1;
         }
 
+        List<Long> currentHotPartitions = Catalog.INSTANCE.getPartitions( ((TemperaturePartitionProperty) table.partitionProperty).getHotPartitionGroupId() )
+                .stream()
+                .map( catalogPartition -> catalogPartition.id )
+                .collect( Collectors.toList() );
+
+        Pair<List<Long>, List<Long>> redistribution = decideRedistribution( accessScores, currentHotPartitions, numberOfPartitionsInHot, allowedTablesInHot );
+        if ( redistribution != null && (!redistribution.left.isEmpty() || !redistribution.right.isEmpty()) ) {
+            redistributePartitions( table, redistribution.left, redistribution.right );
+        }
+    }
+
+
+    /**
+     * Decides which partitions should be moved from COLD to HOT and from HOT to COLD. The most frequently accessed partitions
+     * are placed in HOT, partitions which are already in HOT may remain there as long as they are within the tolerance.
+     *
+     * @param accessScores Access frequency of every partition of the table
+     * @param currentHotPartitions Partitions which are currently in HOT
+     * @param numberOfPartitionsInHot Number of partitions which should be placed in HOT
+     * @param allowedPartitionsInHot Number of partitions which can remain in HOT
+     * @return Partitions to move from COLD to HOT (left) and from HOT to COLD (right), or null if no partition has been accessed
+     */
+    static Pair<List<Long>, List<Long>> decideRedistribution( Map<Long, Double> accessScores, List<Long> currentHotPartitions, long numberOfPartitionsInHot, long allowedPartitionsInHot ) {
         List<Long> partitionsFromColdToHot = new ArrayList<>();
         List<Long> partitionsFromHotToCold = new ArrayList<>();
 
         List<Long> partitionsAllowedInHot = new ArrayList<>();
 
-        HashMap<Long, Long> descSortedMap = accessCounter
+        HashMap<Long, Double> descSortedMap = accessScores
                 .entrySet()
                 .stream()
-                .sorted( (Map.Entry.<Long, Long>comparingByValue().reversed()) )
+                .sorted( (Map.Entry.<Long, Double>comparingByValue().reversed()) )
                 .collect( Collectors.toMap( Map.Entry::getKey, Map.Entry::getValue, ( e1, e2 ) -> e1, LinkedHashMap::new ) );
 
         //Start gathering the partitions beginning with the most frequently accessed
         int hotCounter = 0;
         int toleranceCounter = 0;
-        boolean skip = false;
         boolean firstRound = true;
-        for ( Entry<Long, Long> currentEntry : descSortedMap.entrySet() ) {
-            if ( currentEntry.getValue() == 0 ) {
+        for ( Entry<Long, Double> currentEntry : descSortedMap.entrySet() ) {
+            if ( currentEntry.getValue() < MIN_ACCESS_SCORE ) {
                 if ( firstRound ) {
-                    skip = true;
+                    return null;
                 }
                 break;
             }
@@ -203,7 +259,7 @@ private void determinePartitionDistribution( CatalogTable table ) {
 
             }
 
-            if ( toleranceCounter >= allowedTablesInHot ) {
+            if ( toleranceCounter >= allowedPartitionsInHot ) {
                 break;
             } else {
                 // Tables that can remain in HOT if they happen to be in that threshold
@@ -212,33 +268,18 @@ private void determinePartitionDistribution( CatalogTable table ) {
             }
         }
 
-        if ( !skip ) {
-            // Which partitions are in top X % (to be placed in HOT)
-
-            // Which of those are currently in cold --> action needed
-
-            List<CatalogPartition> currentHotPartitions = Catalog.INSTANCE.getPartitions( ((TemperaturePartitionProperty) table.partitionProperty).getHotPartitionGroupId() );
-            for ( CatalogPartition catalogPartition : currentHotPartitions ) {
-
-                // Remove partitions from List if they are already in HOT (not necessary to send to DataMigrator)
-                if ( partitionsFromColdToHot.contains( catalogPartition.id ) ) {
-                    partitionsFromColdToHot.remove( catalogPartition.id );
-
-                } else { // If they are currently in hot but should not be placed in HOT anymore. This means that they should possibly be thrown out and placed in cold
-
-                    if ( partitionsAllowedInHot.contains( catalogPartition.id ) ) {
-                        continue;
-                    } else { // place from HOT to cold
-                        partitionsFromHotToCold.add( catalogPartition.id );
-                    }
-                }
-
-            }
-
-            if ( (!partitionsFromColdToHot.isEmpty() || !partitionsFromHotToCold.isEmpty()) ) {
-                redistributePartitions( table, partitionsFromColdToHot, partitionsFromHotToCold );
+        // Which partitions are in top X % (to be placed in HOT)
+        // Which of those are currently in cold --> action needed
+        for ( Long partitionId : currentHotPartitions ) {
+            // Remove partitions from List if they are already in HOT (not necessary to send to DataMigrator)
+            if ( partitionsFromColdToHot.contains( partitionId ) ) {
+                partitionsFromColdToHot.remove( partitionId );
+            } else if ( !partitionsAllowedInHot.contains( partitionId ) ) {
+                // If they are currently in hot but should not be placed in HOT anymore, place them from HOT to cold
+                partitionsFromHotToCold.add( partitionId );
             }
         }
+        return Pair.of( partitionsFromColdToHot, partitionsFromHotToCold );
     }
 
 
@@ -257,6 +298,11 @@ private void redistributePartitions( CatalogTable table, List<Long> partitionsFr
             log.debug( "Partitions to move from COLD to HOT: {}", partitionsFromColdToHot );
         }
 
+        if ( RuntimeConfig.TEMPERATURE_ONLINE_REDISTRIBUTION.getBoolean() ) {
+            onlineMigrator.submit( table, partitionsFromColdToHot, partitionsFromHotToCold );
+            return;
+        }
+
         Map<DataStore, List<Long>> partitionsToRemoveFromStore = new HashMap<>();
 
         Transaction transaction = null;
@@ -418,49 +464,121 @@ private List<Long> filterList( int adapterId, long tableId, List<Long> partition
 
 
     /**
-     * Determines the partition frequency for each partition of a temperature partitioned table based on the chosen Cost Indication (ALL, WRITE,READ)
-     * in a desired time interval.
+     * Determines the partition frequency for each partition of a temperature partitioned table based on the chosen Cost Indication (ALL, WRITE,READ).
+     * The accesses since the last invocation are added to the exponentially decayed frequency of the partition. The time constant of the
+     * decay is the frequency interval of the table, hence accesses older than the interval have only little influence.
      *
      * @param table Temperature partitioned table
-     * @param invocationTimestamp Timestamp do determine the interval for which monitoring metrics should be collected.
+     * @param invocationTimestamp Timestamp used to determine the decay since the last invocation
      */
     @Override
     public void determinePartitionFrequency( CatalogTable table, long invocationTimestamp ) {
-        Timestamp queryStart = new Timestamp( invocationTimestamp - ((TemperaturePartitionProperty) table.partitionProperty).getFrequencyInterval() * 1000 );
+        TemperaturePartitionProperty property = (TemperaturePartitionProperty) table.partitionProperty;
+
+        // Align counters with the current partitions of the table
+        Map<Long, PartitionAccessCounter> counters = accessCounters.compute(
+                table.id,
+                ( id, current ) -> current == null || current == NO_COUNTERS ? createCounters( table ) : current );
+        counters.keySet().retainAll( table.partitionProperty.partitionIds );
+        table.partitionProperty.partitionIds.forEach( p -> counters.computeIfAbsent( p, k -> new PartitionAccessCounter() ) );
+
+        Long last = lastDecay.put( table.id, invocationTimestamp );
+        long elapsed = last == null ? 0 : Math.max( invocationTimestamp - last, 0 );
+        double decayFactor = Math.exp( -elapsed / (property.getFrequencyInterval() * 1000.0) );
+
+        Map<Long, Double> accessScores = new HashMap<>();
+        for ( Entry<Long, PartitionAccessCounter> entry : counters.entrySet() ) {
+            accessScores.put( entry.getKey(), entry.getValue().decay( decayFactor, property.getPartitionCostIndication() ) );
+        }
 
-        accessCounter = new HashMap<>();
-        List<Long> tempPartitionIds = new ArrayList<>( table.partitionProperty.partitionIds );
+        determinePartitionDistribution( table, accessScores );
+    }
 
-        tempPartitionIds.forEach( p -> accessCounter.put( p, (long) 0 ) );
 
-        switch ( ((TemperaturePartitionProperty) table.partitionProperty).getPartitionCostIndication() ) {
-            case ALL:
-                for ( QueryDataPointImpl queryDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( QueryDataPointImpl.class, queryStart ) ) {
-                    queryDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
-                for ( DmlDataPoint dmlDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( DmlDataPoint.class, queryStart ) ) {
-                    dmlDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
+    private Map<Long, PartitionAccessCounter> getCountersOfTable( long tableId ) {
+        CatalogTable table;
+        try {
+            table = catalog.getTable( tableId );
+        } catch ( RuntimeException e ) {
+            // The table has been dropped in the meantime
+            return NO_COUNTERS;
+        }
+        if ( table.partitionProperty.partitionType != PartitionType.TEMPERATURE ) {
+            return NO_COUNTERS;
+        }
+        return createCounters( table );
+    }
 
-                break;
 
-            case READ:
-                List<QueryDataPointImpl> readAccesses = MonitoringServiceProvider.getInstance().getDataPointsAfter( QueryDataPointImpl.class, queryStart );
-                for ( QueryDataPointImpl queryDataPoint : readAccesses ) {
-                    queryDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
-                break;
+    /**
+     * Creates the counters of the partitions of a TEMPERATURE partitioned table. They are initialized with the accesses
+     * of the last frequency interval which have been persisted by the monitoring.
+     */
+    private Map<Long, PartitionAccessCounter> createCounters( CatalogTable table ) {
+        Map<Long, PartitionAccessCounter> counters = new ConcurrentHashMap<>();
+        table.partitionProperty.partitionIds.forEach( p -> counters.put( p, new PartitionAccessCounter() ) );
 
-            case WRITE:
-                List<DmlDataPoint> writeAccesses = MonitoringServiceProvider.getInstance().getDataPointsAfter( DmlDataPoint.class, queryStart );
-                for ( DmlDataPoint dmlDataPoint : writeAccesses ) {
-                    dmlDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
+        Timestamp queryStart = new Timestamp( System.currentTimeMillis() - ((TemperaturePartitionProperty) table.partitionProperty).getFrequencyInterval() * 1000L );
+        try {
+            for ( QueryDataPointImpl queryDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( QueryDataPointImpl.class, queryStart ) ) {
+                queryDataPoint.getAccessedPartitions().forEach( p -> increment( counters, p, false ) );
+            }
+            for ( DmlDataPoint dmlDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( DmlDataPoint.class, queryStart ) ) {
+                dmlDataPoint.getAccessedPartitions().forEach( p -> increment( counters, p, true ) );
+            }
+        } catch ( RuntimeException e ) {
+            log.warn( "Unable to restore the access frequency of the partitions of table {}", table.name, e );
+        }
+        return counters;
+    }
+
+
+    private static void increment( Map<Long, PartitionAccessCounter> counters, long partitionId, boolean isWrite ) {
+        PartitionAccessCounter counter = counters.get( partitionId );
+        if ( counter != null ) {
+            counter.increment( isWrite );
+        }
+    }
+
+
+    /**
+     * Access counter of a single partition. Accesses are counted using striped counters, the decayed score is only
+     * updated by the periodic processing.
+     */
+    private static class PartitionAccessCounter {
+
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private double score = 0;
+
+
+        void increment( boolean isWrite ) {
+            if ( isWrite ) {
+                writes.increment();
+            } else {
+                reads.increment();
+            }
+        }
+
+
+        synchronized double decay( double decayFactor, PartitionCostIndication costIndication ) {
+            long readAccesses = reads.sumThenReset();
+            long writeAccesses = writes.sumThenReset();
+            long accesses;
+            switch ( costIndication ) {
+                case READ:
+                    accesses = readAccesses;
+                    break;
+                case WRITE:
+                    accesses = writeAccesses;
+                    break;
+                default:
+                    accesses = readAccesses + writeAccesses;
+            }
+            score = score * decayFactor + accesses;
+            return score;
         }
 
-        // To gain observability
-        // Update infoPage here
-        determinePartitionDistribution( table );
     }
 
 }
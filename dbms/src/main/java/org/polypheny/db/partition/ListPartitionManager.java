@@ -17,6 +17,7 @@
 package org.polypheny.db.partition;
 
 import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -75,6 +76,41 @@ public long getTargetPartitionId( CatalogTable catalogTable, String columnValue
     }
 
 
+    /**
+     * For single values the partitions are determined using the partition function. For ranges of values
+     * all partitions with a qualifier within the ranges are accessed. Since the values of the unbound partition
+     * are not known, the unbound partition is always accessed in this case.
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List<Long> getTargetPartitionIds( CatalogTable catalogTable, PartitionValueSet values ) {
+        if ( values.isAll() || values.getPoints() != null ) {
+            return super.getTargetPartitionIds( catalogTable, values );
+        }
+
+        boolean numeric = Catalog.getInstance().getColumn( catalogTable.partitionProperty.partitionColumnId ).type.getFamily() == PolyTypeFamily.NUMERIC;
+        List<Long> partitionIds = new ArrayList<>();
+        try {
+            for ( CatalogPartition catalogPartition : Catalog.getInstance().getPartitionsByTable( catalogTable.id ) ) {
+                if ( catalogPartition.isUnbound ) {
+                    partitionIds.add( catalogPartition.id );
+                    continue;
+                }
+                for ( String qualifier : catalogPartition.partitionQualifiers ) {
+                    Comparable value = numeric ? PartitionValueSet.normalize( new BigDecimal( qualifier ) ) : qualifier;
+                    if ( values.contains( value ) ) {
+                        partitionIds.add( catalogPartition.id );
+                        break;
+                    }
+                }
+            }
+        } catch ( ClassCastException | NumberFormatException e ) {
+            return catalogTable.partitionProperty.partitionIds;
+        }
+        return partitionIds;
+    }
+
+
     @Override
     public boolean validatePartitionGroupSetup( List<List<String>> partitionGroupQualifiers, long numPartitionGroups, List<String> partitionGroupNames, CatalogColumn partitionColumn ) {
         super.validatePartitionGroupSetup( partitionGroupQualifiers, numPartitionGroups, partitionGroupNames, partitionColumn );
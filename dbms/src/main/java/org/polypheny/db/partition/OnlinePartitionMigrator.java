@@ -0,0 +1,616 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.MetaImpl;
+import org.polypheny.db.PolyResult;
+import org.polypheny.db.adapter.Adapter;
+import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.adapter.DataStore;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.operators.OperatorName;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeFactory;
+import org.polypheny.db.algebra.type.AlgDataTypeField;
+import org.polypheny.db.algebra.type.AlgDataTypeSystem;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.DataPlacementRole;
+import org.polypheny.db.catalog.Catalog.PlacementType;
+import org.polypheny.db.catalog.entity.CatalogAdapter;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
+import org.polypheny.db.catalog.entity.CatalogPrimaryKey;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.languages.OperatorRegistry;
+import org.polypheny.db.partition.properties.TemperaturePartitionProperty;
+import org.polypheny.db.processing.DataMigrator;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.LockManager;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionImpl;
+import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.type.PolyTypeFactoryImpl;
+import org.polypheny.db.util.DeadlockException;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Redistributes the partitions of TEMPERATURE partitioned tables without blocking the table for the whole migration.
+ *
+ * A migration consists of three phases:
+ * <ol>
+ *     <li>The physical tables are created on the target stores and registered as {@link DataPlacementRole#REFRESHABLE}
+ *     partition placements. From now on, DMLs are routed to the old and to the new placements, while queries are still
+ *     answered by the old placements.</li>
+ *     <li>The data is copied in chunks ordered by the primary key. Every chunk is copied in its own transaction which holds
+ *     an exclusive lock on the partition. Rows which have already been written to the new placement by concurrent
+ *     DMLs are replaced by the copied version, hence the new placement is consistent after the last chunk.
+ *     The copying is throttled according to {@link RuntimeConfig#TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND}.</li>
+ *     <li>In a single transaction holding the global schema lock, the partitions are assigned to their new partition
+ *     group, the new placements become {@link DataPlacementRole#UPTODATE} and the old placements are dropped.</li>
+ * </ol>
+ *
+ * Migrations are executed one after another on a background thread. Their progress is reported on an information page.
+ */
+@Slf4j
+public class OnlinePartitionMigrator {
+
+    private final Catalog catalog;
+    private final TransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "partition-redistribution" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    // Latest migration per table
+    private final Map<Long, Migration> migrations = new ConcurrentHashMap<>();
+
+
+    public OnlinePartitionMigrator( Catalog catalog, TransactionManager transactionManager ) {
+        this.catalog = catalog;
+        this.transactionManager = transactionManager;
+        registerInformationPage();
+    }
+
+
+    /**
+     * Checks whether a migration for this table is scheduled or running.
+     */
+    public boolean isMigrating( long tableId ) {
+        Migration migration = migrations.get( tableId );
+        return migration != null && !migration.isFinished();
+    }
+
+
+    /**
+     * Schedules the redistribution of the given partitions. The request is ignored if there is already a pending migration for the table.
+     *
+     * @param table Temperature partitioned table
+     * @param partitionsFromColdToHot Partitions which should be moved from COLD to HOT PartitionGroup
+     * @param partitionsFromHotToCold Partitions which should be moved from HOT to COLD PartitionGroup
+     */
+    public void submit( CatalogTable table, List<Long> partitionsFromColdToHot, List<Long> partitionsFromHotToCold ) {
+        Migration migration = new Migration( table, partitionsFromColdToHot, partitionsFromHotToCold );
+        Migration current = migrations.compute( table.id, ( id, old ) -> old != null && !old.isFinished() ? old : migration );
+        if ( current == migration ) {
+            executor.submit( () -> run( migration ) );
+        } else if ( log.isDebugEnabled() ) {
+            log.debug( "Skip redistribution of table {}, a redistribution is already in progress", table.name );
+        }
+    }
+
+
+    private void run( Migration migration ) {
+        try {
+            migration.state = State.PREPARING;
+            prepare( migration );
+            migration.state = State.COPYING;
+            for ( Entry<Long, List<Integer>> entry : migration.targetAdapters.entrySet() ) {
+                copyPartition( migration, entry.getKey(), entry.getValue() );
+            }
+            migration.state = State.CUTOVER;
+            cutover( migration );
+            migration.endTime = System.currentTimeMillis();
+            migration.state = State.FINISHED;
+        } catch ( Throwable t ) {
+            log.error( "Error while redistributing the partitions of table {}", migration.table.name, t );
+            abort( migration );
+            migration.endTime = System.currentTimeMillis();
+            migration.state = State.FAILED;
+        }
+    }
+
+
+    /**
+     * Creates the new placements on the target stores. From now on, concurrent changes are captured by these placements.
+     */
+    private void prepare( Migration migration ) throws Exception {
+        CatalogTable table = migration.table;
+        TemperaturePartitionProperty property = (TemperaturePartitionProperty) table.partitionProperty;
+        List<CatalogAdapter> adaptersWithHot = catalog.getAdaptersByPartitionGroup( table.id, property.getHotPartitionGroupId() );
+        List<CatalogAdapter> adaptersWithCold = catalog.getAdaptersByPartitionGroup( table.id, property.getColdPartitionGroupId() );
+
+        // Placements on stores which hold HOT and COLD are not affected
+        List<CatalogAdapter> hotOnly = new ArrayList<>( adaptersWithHot );
+        hotOnly.removeAll( adaptersWithCold );
+        List<CatalogAdapter> coldOnly = new ArrayList<>( adaptersWithCold );
+        coldOnly.removeAll( adaptersWithHot );
+
+        for ( long partitionId : migration.partitionsFromColdToHot ) {
+            migration.targetGroups.put( partitionId, property.getHotPartitionGroupId() );
+            migration.targetAdapters.put( partitionId, filterAdapters( hotOnly, table.id, partitionId, false ) );
+            migration.sourceAdapters.put( partitionId, filterAdapters( coldOnly, table.id, partitionId, true ) );
+        }
+        for ( long partitionId : migration.partitionsFromHotToCold ) {
+            migration.targetGroups.put( partitionId, property.getColdPartitionGroupId() );
+            migration.targetAdapters.put( partitionId, filterAdapters( coldOnly, table.id, partitionId, false ) );
+            migration.sourceAdapters.put( partitionId, filterAdapters( hotOnly, table.id, partitionId, true ) );
+        }
+
+        Transaction transaction = startTransaction( table );
+        try {
+            Statement statement = transaction.createStatement();
+            lock( transaction, table, migration.targetGroups.keySet(), false );
+
+            for ( Entry<Integer, List<Long>> entry : invert( migration.targetAdapters ).entrySet() ) {
+                DataStore store = getStore( entry.getKey() );
+                for ( long partitionId : entry.getValue() ) {
+                    catalog.addPartitionPlacement(
+                            store.getAdapterId(),
+                            table.id,
+                            partitionId,
+                            PlacementType.AUTOMATIC,
+                            null,
+                            null,
+                            DataPlacementRole.REFRESHABLE );
+                }
+                store.createTable( statement.getPrepareContext(), table, entry.getValue() );
+            }
+            transaction.commit();
+            statement.getQueryProcessor().resetCachesOfPartitions( migration.targetGroups.keySet() );
+        } catch ( Exception e ) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Copies the data of a partition chunk by chunk, every chunk in its own transaction.
+     */
+    private void copyPartition( Migration migration, long partitionId, List<Integer> targetAdapterIds ) throws Exception {
+        if ( targetAdapterIds.isEmpty() ) {
+            return;
+        }
+        CatalogTable table = catalog.getTable( migration.table.id );
+        CatalogPrimaryKey primaryKey = catalog.getPrimaryKey( table.primaryKey );
+        List<CatalogColumn> primaryKeyColumns = primaryKey.columnIds.stream().map( catalog::getColumn ).collect( Collectors.toList() );
+        PartitionManager partitionManager = PartitionManagerFactory.getInstance().getPartitionManager( table.partitionProperty.partitionType );
+        Map<Long, List<CatalogColumnPlacement>> placementDistribution = partitionManager.getRelevantPlacements(
+                table,
+                Collections.singletonList( partitionId ),
+                targetAdapterIds );
+
+        int chunkSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
+        int rowsPerSecond = RuntimeConfig.TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND.getInteger();
+        RateLimiter rateLimiter = rowsPerSecond > 0 ? RateLimiter.create( rowsPerSecond ) : null;
+
+        migration.currentPartitionId = partitionId;
+        migration.totalRows.addAndGet( countRows( table, placementDistribution ) );
+
+        List<Object> lastKey = null;
+        int copied;
+        do {
+            Transaction transaction = startTransaction( table );
+            try {
+                lock( transaction, table, Collections.singletonList( partitionId ), false );
+
+                Statement sourceStatement = transaction.createStatement();
+                AlgRoot sourceAlg = buildChunkQuery( sourceStatement, placementDistribution, primaryKeyColumns, lastKey, chunkSize );
+                PolyResult result = sourceStatement.getQueryProcessor().prepareQuery(
+                        sourceAlg,
+                        sourceAlg.alg.getCluster().getTypeFactory().builder().build(),
+                        true,
+                        false,
+                        false );
+                Iterator<Object> iterator = result.enumerable( sourceStatement.getDataContext() ).iterator();
+                List<List<Object>> rows = MetaImpl.collect( result.getCursorFactory(), iterator, new ArrayList<>() );
+
+                Map<Long, Integer> columnIndexes = getColumnIndexes( table, result.getRowType() );
+                for ( int adapterId : targetAdapterIds ) {
+                    writeChunk( transaction, table, primaryKey, adapterId, partitionId, rows, columnIndexes, result.getRowType() );
+                }
+                transaction.commit();
+
+                copied = rows.size();
+                if ( copied > 0 ) {
+                    List<Object> lastRow = rows.get( copied - 1 );
+                    lastKey = primaryKey.columnIds.stream().map( id -> lastRow.get( columnIndexes.get( id ) ) ).collect( Collectors.toList() );
+                }
+            } catch ( Exception e ) {
+                transaction.rollback();
+                throw e;
+            }
+
+            migration.copiedRows.addAndGet( copied );
+            if ( rateLimiter != null && copied > 0 ) {
+                rateLimiter.acquire( copied );
+            }
+        } while ( copied == chunkSize );
+    }
+
+
+    /**
+     * Builds a query returning the next chunk of rows ordered by primary key, starting after the given key.
+     */
+    private AlgRoot buildChunkQuery( Statement statement, Map<Long, List<CatalogColumnPlacement>> placementDistribution, List<CatalogColumn> primaryKeyColumns, List<Object> lastKey, int chunkSize ) {
+        DataMigrator dataMigrator = statement.getTransaction().getDataMigrator();
+        AlgRoot scan = dataMigrator.getSourceIterator( statement, placementDistribution );
+        AlgBuilder builder = AlgBuilder.create( statement, scan.alg.getCluster() );
+        builder.push( scan.alg );
+
+        List<RexNode> keyFields = primaryKeyColumns.stream().map( c -> builder.field( c.name ) ).collect( Collectors.toList() );
+        if ( lastKey != null ) {
+            // Lexicographic comparison: (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...
+            AlgDataTypeFactory typeFactory = new PolyTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
+            List<RexNode> params = new ArrayList<>();
+            for ( CatalogColumn column : primaryKeyColumns ) {
+                AlgDataType type = column.getAlgDataType( typeFactory );
+                params.add( new RexDynamicParam( type, (int) column.id ) );
+                statement.getDataContext().addParameterValues( column.id, type, Collections.singletonList( lastKey.get( params.size() - 1 ) ) );
+            }
+            List<RexNode> disjunction = new ArrayList<>();
+            for ( int i = 0; i < keyFields.size(); i++ ) {
+                List<RexNode> conjunction = new ArrayList<>();
+                for ( int j = 0; j < i; j++ ) {
+                    conjunction.add( builder.equals( keyFields.get( j ), params.get( j ) ) );
+                }
+                conjunction.add( builder.call( OperatorRegistry.get( OperatorName.GREATER_THAN ), keyFields.get( i ), params.get( i ) ) );
+                disjunction.add( builder.and( conjunction ) );
+            }
+            builder.filter( builder.or( disjunction ) );
+        }
+        builder.sortLimit( -1, chunkSize, keyFields );
+        return AlgRoot.of( builder.build(), Kind.SELECT );
+    }
+
+
+    /**
+     * Writes a chunk to the new placement on an adapter. Rows which have already been inserted by concurrent statements are replaced.
+     */
+    private void writeChunk( Transaction transaction, CatalogTable table, CatalogPrimaryKey primaryKey, int adapterId, long partitionId, List<List<Object>> rows, Map<Long, Integer> columnIndexes, AlgDataType rowType ) {
+        if ( rows.isEmpty() ) {
+            return;
+        }
+        DataMigrator dataMigrator = transaction.getDataMigrator();
+        List<CatalogColumnPlacement> placements = catalog.getColumnPlacementsOnAdapterPerTable( adapterId, table.id );
+        List<CatalogColumnPlacement> primaryKeyPlacements = primaryKey.columnIds.stream()
+                .map( id -> catalog.getColumnPlacement( adapterId, id ) )
+                .collect( Collectors.toList() );
+
+        Statement deleteStatement = transaction.createStatement();
+        execute( deleteStatement, dataMigrator.buildDeleteByKeyStatement( deleteStatement, primaryKeyPlacements, partitionId ), primaryKeyPlacements, rows, columnIndexes, rowType );
+
+        Statement insertStatement = transaction.createStatement();
+        execute( insertStatement, dataMigrator.buildInsertStatement( insertStatement, placements, partitionId ), placements, rows, columnIndexes, rowType );
+    }
+
+
+    private void execute( Statement statement, AlgRoot targetAlg, List<CatalogColumnPlacement> placements, List<List<Object>> rows, Map<Long, Integer> columnIndexes, AlgDataType rowType ) {
+        List<AlgDataTypeField> fields = rowType.getFieldList();
+        for ( CatalogColumnPlacement placement : placements ) {
+            int index = columnIndexes.get( placement.columnId );
+            List<Object> values = new ArrayList<>( rows.size() );
+            rows.forEach( row -> values.add( row.get( index ) ) );
+            statement.getDataContext().addParameterValues( placement.columnId, fields.get( index ).getType(), values );
+        }
+        Iterator<?> iterator = statement.getQueryProcessor()
+                .prepareQuery( targetAlg, rowType, true, false, false )
+                .enumerable( statement.getDataContext() )
+                .iterator();
+        //noinspection WhileLoopReplaceableByForEach
+        while ( iterator.hasNext() ) {
+            iterator.next();
+        }
+        statement.getDataContext().resetParameterValues();
+    }
+
+
+    /**
+     * Counts the rows of a partition; used to estimate the progress of the migration.
+     */
+    private long countRows( CatalogTable table, Map<Long, List<CatalogColumnPlacement>> placementDistribution ) throws Exception {
+        Transaction transaction = startTransaction( table );
+        try {
+            Statement statement = transaction.createStatement();
+            AlgRoot scan = statement.getTransaction().getDataMigrator().getSourceIterator( statement, placementDistribution );
+            AlgBuilder builder = AlgBuilder.create( statement, scan.alg.getCluster() );
+            builder.push( scan.alg );
+            builder.aggregate( builder.groupKey(), builder.countStar( "count" ) );
+            AlgRoot countAlg = AlgRoot.of( builder.build(), Kind.SELECT );
+
+            PolyResult result = statement.getQueryProcessor().prepareQuery(
+                    countAlg,
+                    countAlg.alg.getCluster().getTypeFactory().builder().build(),
+                    true,
+                    false,
+                    false );
+            Iterator<Object> iterator = result.enumerable( statement.getDataContext() ).iterator();
+            List<List<Object>> rows = MetaImpl.collect( result.getCursorFactory(), iterator, new ArrayList<>() );
+            transaction.commit();
+            return rows.isEmpty() ? 0 : ((Number) rows.get( 0 ).get( 0 )).longValue();
+        } catch ( Exception e ) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Atomically switches the partitions to their new partition groups and removes the old placements.
+     */
+    private void cutover( Migration migration ) throws Exception {
+        CatalogTable table = migration.table;
+        Transaction transaction = startTransaction( table );
+        try {
+            Statement statement = transaction.createStatement();
+            lock( transaction, table, Collections.emptyList(), true );
+
+            for ( Entry<Long, Long> entry : migration.targetGroups.entrySet() ) {
+                for ( int adapterId : migration.targetAdapters.get( entry.getKey() ) ) {
+                    catalog.updatePartitionPlacementRole( adapterId, entry.getKey(), DataPlacementRole.UPTODATE );
+                }
+                catalog.updatePartition( entry.getKey(), entry.getValue() );
+            }
+            for ( Entry<Integer, List<Long>> entry : invert( migration.sourceAdapters ).entrySet() ) {
+                getStore( entry.getKey() ).dropTable( statement.getPrepareContext(), table, entry.getValue() );
+            }
+            transaction.commit();
+            statement.getQueryProcessor().resetCachesOfPartitions( migration.targetGroups.keySet() );
+        } catch ( Exception e ) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Removes the placements created for a failed migration. The partitions remain in their old partition groups.
+     */
+    private void abort( Migration migration ) {
+        Transaction transaction = null;
+        try {
+            transaction = startTransaction( migration.table );
+            Statement statement = transaction.createStatement();
+            lock( transaction, migration.table, migration.targetGroups.keySet(), false );
+            for ( Entry<Integer, List<Long>> entry : invert( migration.targetAdapters ).entrySet() ) {
+                List<Long> partitionIds = entry.getValue().stream()
+                        .filter( id -> catalog.checkIfExistsPartitionPlacement( entry.getKey(), id ) )
+                        .filter( id -> catalog.getPartitionPlacement( entry.getKey(), id ).role == DataPlacementRole.REFRESHABLE )
+                        .collect( Collectors.toList() );
+                if ( !partitionIds.isEmpty() ) {
+                    getStore( entry.getKey() ).dropTable( statement.getPrepareContext(), migration.table, partitionIds );
+                }
+            }
+            transaction.commit();
+            statement.getQueryProcessor().resetCachesOfPartitions( migration.targetGroups.keySet() );
+        } catch ( Exception e ) {
+            log.error( "Error while removing the placements of a failed redistribution of table {}", migration.table.name, e );
+            if ( transaction != null ) {
+                try {
+                    transaction.rollback();
+                } catch ( Exception ex ) {
+                    log.error( "Error while rolling back the transaction", ex );
+                }
+            }
+        }
+    }
+
+
+    private Transaction startTransaction( CatalogTable table ) throws Exception {
+        return transactionManager.startTransaction( "pa", table.getDatabaseName(), false, "FrequencyMap" );
+    }
+
+
+    private void lock( Transaction transaction, CatalogTable table, Collection<Long> partitionIds, boolean global ) throws DeadlockException {
+        List<Entry<EntityIdentifier, LockMode>> locks = new ArrayList<>();
+        locks.add( Pair.of( LockManager.GLOBAL_LOCK, global ? LockMode.EXCLUSIVE : LockMode.SHARED ) );
+        partitionIds.forEach( id -> locks.add( Pair.of( new EntityIdentifier( table.id, id ), LockMode.EXCLUSIVE ) ) );
+        LockManager.INSTANCE.lock( locks, (TransactionImpl) transaction );
+    }
+
+
+    /**
+     * Returns the adapters which do ({@code placed = true}) or do not yet hold a placement of the partition.
+     */
+    private List<Integer> filterAdapters( List<CatalogAdapter> adapters, long tableId, long partitionId, boolean placed ) {
+        return adapters.stream()
+                .filter( a -> AdapterManager.getInstance().getAdapter( a.id ) instanceof DataStore )
+                .filter( a -> catalog.getPartitionsOnDataPlacement( a.id, tableId ).contains( partitionId ) == placed )
+                .map( a -> a.id )
+                .collect( Collectors.toList() );
+    }
+
+
+    private Map<Long, Integer> getColumnIndexes( CatalogTable table, AlgDataType rowType ) {
+        Map<Long, Integer> columnIndexes = new HashMap<>();
+        for ( long columnId : table.columnIds ) {
+            CatalogColumn column = catalog.getColumn( columnId );
+            for ( AlgDataTypeField field : rowType.getFieldList() ) {
+                if ( field.getName().equalsIgnoreCase( column.name ) ) {
+                    columnIndexes.put( columnId, field.getIndex() );
+                }
+            }
+        }
+        return columnIndexes;
+    }
+
+
+    private DataStore getStore( int adapterId ) {
+        Adapter adapter = AdapterManager.getInstance().getAdapter( adapterId );
+        if ( !(adapter instanceof DataStore) ) {
+            throw new RuntimeException( "Adapter " + adapterId + " is not a data store" );
+        }
+        return (DataStore) adapter;
+    }
+
+
+    private static Map<Integer, List<Long>> invert( Map<Long, List<Integer>> adaptersPerPartition ) {
+        Map<Integer, List<Long>> partitionsPerAdapter = new LinkedHashMap<>();
+        adaptersPerPartition.forEach( ( partitionId, adapterIds ) -> adapterIds.forEach(
+                adapterId -> partitionsPerAdapter.computeIfAbsent( adapterId, k -> new ArrayList<>() ).add( partitionId ) ) );
+        return partitionsPerAdapter;
+    }
+
+
+    private void registerInformationPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Partition Redistribution" );
+        page.fullWidth();
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Online Redistribution", RuntimeConfig.TEMPERATURE_ONLINE_REDISTRIBUTION.getBoolean() ? "Active" : "Disabled" );
+            int rowsPerSecond = RuntimeConfig.TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND.getInteger();
+            generalKv.putPair( "Throttling", rowsPerSecond > 0 ? rowsPerSecond + " rows/s" : "Disabled" );
+        } );
+
+        InformationGroup migrationGroup = new InformationGroup( page, "Migrations" ).setOrder( 2 );
+        im.addGroup( migrationGroup );
+
+        InformationTable migrationTable = new InformationTable(
+                migrationGroup,
+                Arrays.asList( "Table", "COLD to HOT", "HOT to COLD", "State", "Partition", "Copied Rows", "Progress", "Rows/s", "ETA" ) );
+        im.registerInformation( migrationTable );
+
+        migrationGroup.setRefreshFunction( () -> {
+            migrationTable.reset();
+            for ( Migration migration : migrations.values() ) {
+                long copied = migration.copiedRows.get();
+                long total = Math.max( migration.totalRows.get(), copied );
+                long end = migration.isFinished() ? migration.endTime : System.currentTimeMillis();
+                double seconds = Math.max( end - migration.startTime, 1 ) / 1000.0;
+                double rate = copied / seconds;
+                String eta;
+                if ( migration.isFinished() ) {
+                    eta = "-";
+                } else if ( migration.state == State.COPYING && rate > 0 ) {
+                    eta = formatDuration( (long) ((total - copied) / rate) );
+                } else {
+                    eta = "unknown";
+                }
+                migrationTable.addRow(
+                        migration.table.name,
+                        migration.partitionsFromColdToHot.toString(),
+                        migration.partitionsFromHotToCold.toString(),
+                        migration.state.name(),
+                        migration.currentPartitionId == null ? "-" : migration.currentPartitionId,
+                        copied,
+                        total == 0 ? "-" : String.format( "%.1f %%", copied * 100.0 / total ),
+                        String.format( "%.0f", rate ),
+                        eta );
+            }
+        } );
+    }
+
+
+    private static String formatDuration( long seconds ) {
+        return String.format( "%d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60 );
+    }
+
+
+    private enum State {
+        SCHEDULED, PREPARING, COPYING, CUTOVER, FINISHED, FAILED
+    }
+
+
+    /**
+     * State and progress of the redistribution of a table.
+     */
+    private static class Migration {
+
+        final CatalogTable table;
+        final List<Long> partitionsFromColdToHot;
+        final List<Long> partitionsFromHotToCold;
+
+        // partitionId -> new partition group
+        final Map<Long, Long> targetGroups = new LinkedHashMap<>();
+        // partitionId -> adapters receiving a new placement
+        final Map<Long, List<Integer>> targetAdapters = new LinkedHashMap<>();
+        // partitionId -> adapters whose placement is removed
+        final Map<Long, List<Integer>> sourceAdapters = new LinkedHashMap<>();
+
+        final AtomicLong copiedRows = new AtomicLong();
+        final AtomicLong totalRows = new AtomicLong();
+        final long startTime = System.currentTimeMillis();
+        volatile long endTime;
+        volatile Long currentPartitionId;
+        volatile State state = State.SCHEDULED;
+
+
+        Migration( CatalogTable table, List<Long> partitionsFromColdToHot, List<Long> partitionsFromHotToCold ) {
+            this.table = table;
+            this.partitionsFromColdToHot = new ArrayList<>( partitionsFromColdToHot );
+            this.partitionsFromHotToCold = new ArrayList<>( partitionsFromHotToCold );
+        }
+
+
+        boolean isFinished() {
+            return state == State.FINISHED || state == State.FAILED;
+        }
+
+    }
+
+}
@@ -17,6 +17,10 @@
 package org.polypheny.db.partition;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -75,6 +79,44 @@ public long getTargetPartitionId( CatalogTable catalogTable, String columnValue
     }
 
 
+    /**
+     * Returns all partitions whose range overlaps with the given values. The unbound partition is only
+     * accessed if some of the values are not covered by any of the ranges or if NULL values are accessed.
+     */
+    @Override
+    public List<Long> getTargetPartitionIds( CatalogTable catalogTable, PartitionValueSet values ) {
+        if ( values.isAll() ) {
+            return catalogTable.partitionProperty.partitionIds;
+        }
+
+        List<Long> partitionIds = new ArrayList<>();
+        long unboundPartitionId = -1;
+        RangeSet<BigDecimal> coveredValues = TreeRangeSet.create();
+        try {
+            for ( CatalogPartition catalogPartition : Catalog.getInstance().getPartitionsByTable( catalogTable.id ) ) {
+                if ( catalogPartition.isUnbound ) {
+                    unboundPartitionId = catalogPartition.id;
+                    continue;
+                }
+                BigDecimal lowerBound = new BigDecimal( catalogPartition.partitionQualifiers.get( 0 ) );
+                BigDecimal upperBound = new BigDecimal( catalogPartition.partitionQualifiers.get( 1 ) );
+                if ( values.intersects( Range.closed( lowerBound, upperBound ) ) ) {
+                    partitionIds.add( catalogPartition.id );
+                }
+                // Only integer types are supported, there are therefore no values between the upper bound and the next integer
+                coveredValues.add( Range.closedOpen( lowerBound, upperBound.add( BigDecimal.ONE ) ) );
+            }
+            if ( unboundPartitionId != -1 && (values.isNullIncluded() || values.hasValuesOutside( coveredValues )) ) {
+                partitionIds.add( unboundPartitionId );
+            }
+        } catch ( ClassCastException e ) {
+            // The values are not numeric
+            return catalogTable.partitionProperty.partitionIds;
+        }
+        return partitionIds;
+    }
+
+
     @Override
     public boolean validatePartitionGroupSetup( List<List<String>> partitionGroupQualifiers, long numPartitionGroups, List<String> partitionGroupNames, CatalogColumn partitionColumn ) {
         super.validatePartitionGroupSetup( partitionGroupQualifiers, numPartitionGroups, partitionGroupNames, partitionColumn );
@@ -49,6 +49,18 @@ public long getTargetPartitionId( CatalogTable catalogTable, String columnValue
     }
 
 
+    @Override
+    public List<Long> getTargetPartitionIds( CatalogTable catalogTable, PartitionValueSet values ) {
+        // Get partition manager
+        PartitionManagerFactory partitionManagerFactory = PartitionManagerFactory.getInstance();
+        PartitionManager partitionManager = partitionManagerFactory.getPartitionManager(
+                ((TemperaturePartitionProperty) catalogTable.partitionProperty).getInternalPartitionFunction()
+        );
+
+        return partitionManager.getTargetPartitionIds( catalogTable, values );
+    }
+
+
     @Override
     public Map<Long, List<CatalogColumnPlacement>> getRelevantPlacements( CatalogTable catalogTable, List<Long> partitionIds, List<Integer> excludedAdapters ) {
         // Get partition manager
@@ -32,11 +32,13 @@
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.commons.lang3.time.StopWatch;
@@ -70,6 +72,10 @@
 import org.polypheny.db.algebra.logical.LogicalTableModify;
 import org.polypheny.db.algebra.logical.LogicalTableScan;
 import org.polypheny.db.algebra.logical.LogicalValues;
+import org.polypheny.db.algebra.metadata.DefaultAlgMetadataProvider;
+import org.polypheny.db.algebra.rules.JoinAssociateRule;
+import org.polypheny.db.algebra.rules.JoinCommuteRule;
+import org.polypheny.db.algebra.rules.JoinPushThroughJoinRule;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
 import org.polypheny.db.catalog.Catalog;
@@ -82,6 +88,7 @@
 import org.polypheny.db.catalog.exceptions.UnknownTableException;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.information.InformationCode;
+import org.polypheny.db.information.InformationDuration.Duration;
 import org.polypheny.db.information.InformationGroup;
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
@@ -91,16 +98,25 @@
 import org.polypheny.db.monitoring.events.DmlEvent;
 import org.polypheny.db.monitoring.events.QueryEvent;
 import org.polypheny.db.monitoring.events.StatementEvent;
+import org.polypheny.db.partition.FrequencyMap;
 import org.polypheny.db.partition.PartitionManagerFactory;
+import org.polypheny.db.partition.PartitionValueSet;
 import org.polypheny.db.plan.AlgOptCost;
+import org.polypheny.db.plan.AlgOptPlanner;
+import org.polypheny.db.plan.AlgOptRule;
 import org.polypheny.db.plan.AlgOptUtil;
 import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.Context;
 import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.volcano.VolcanoPlanner;
+import org.polypheny.db.plan.volcano.VolcanoPlannerPhase;
 import org.polypheny.db.prepare.AlgOptTableImpl;
 import org.polypheny.db.prepare.Prepare.CatalogReader;
 import org.polypheny.db.prepare.Prepare.PreparedResult;
 import org.polypheny.db.prepare.Prepare.PreparedResultImpl;
 import org.polypheny.db.processing.caching.ImplementationCache;
+import org.polypheny.db.processing.caching.PlanFeedback;
+import org.polypheny.db.processing.caching.PlanVariants;
 import org.polypheny.db.processing.caching.QueryPlanCache;
 import org.polypheny.db.processing.caching.RoutingPlanCache;
 import org.polypheny.db.processing.shuttles.LogicalQueryInformationImpl;
@@ -112,18 +128,21 @@
 import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.routing.AdapterLoadTracker;
 import org.polypheny.db.routing.DmlRouter;
 import org.polypheny.db.routing.ExecutionTimeMonitor;
 import org.polypheny.db.routing.ExecutionTimeMonitor.ExecutionTimeObserver;
 import org.polypheny.db.routing.LogicalQueryInformation;
 import org.polypheny.db.routing.ProposedRoutingPlan;
 import org.polypheny.db.routing.Router;
+import org.polypheny.db.routing.RouterPlanSelectionStrategy;
 import org.polypheny.db.routing.RoutingManager;
 import org.polypheny.db.routing.RoutingPlan;
 import org.polypheny.db.routing.UiRoutingPageUtil;
 import org.polypheny.db.routing.dto.CachedProposedRoutingPlan;
 import org.polypheny.db.routing.dto.ProposedRoutingPlanImpl;
 import org.polypheny.db.runtime.Bindable;
+import org.polypheny.db.runtime.ExecutionPool;
 import org.polypheny.db.runtime.Typed;
 import org.polypheny.db.schema.LogicalTable;
 import org.polypheny.db.schema.document.DataModelShuttle;
@@ -155,12 +174,32 @@ public abstract class AbstractQueryProcessor implements QueryProcessor, Executio
     protected static final boolean ENABLE_ENUMERABLE = true;
     protected static final boolean CONSTANT_REDUCTION = false;
     protected static final boolean ENABLE_STREAM = true;
+
+    // Rules that explore the join orders exhaustively; not needed once the joins have been ordered heuristically
+    private static final List<AlgOptRule> JOIN_REORDERING_RULES = ImmutableList.of(
+            JoinCommuteRule.INSTANCE,
+            JoinAssociateRule.INSTANCE,
+            JoinPushThroughJoinRule.LEFT,
+            JoinPushThroughJoinRule.RIGHT );
+
     private final Statement statement;
 
     // This map is required to allow plans with multiple physical placements of the same logical table.
     // scanId -> tableId
     private final Map<Integer, Long> scanPerTable = new HashMap<>();
 
+    // Estimates of the planner for the selected plan, compared with the observed execution
+    private PlanFeedback.Expectation expectation;
+
+    // Selected routing plan whose execution time is reported to the placement bandit
+    private RoutingPlan banditPlan;
+
+    // Registration of the statement on the adapters of the selected plan, used for load-aware routing
+    private AdapterLoadTracker.Lease loadLease;
+
+    // Data context of the statement as seen by the planner, see ParameterValueContext
+    protected final ParameterValueContext parameterValueContext = new ParameterValueContext();
+
 
     protected AbstractQueryProcessor( Statement statement ) {
         this.statement = statement;
@@ -176,12 +215,73 @@ public void executionTime( String reference, long nanoTime ) {
     }
 
 
+    @Override
+    public void executionStarted( String reference ) {
+        if ( loadLease != null ) {
+            loadLease.started();
+        }
+    }
+
+
+    @Override
+    public void executionTime( String reference, long nanoTime, long rowCount, boolean complete ) {
+        if ( statement.getMonitoringEvent() != null ) {
+            executionTime( reference, nanoTime );
+        }
+        if ( expectation != null && reference.equals( expectation.getQueryClass() ) ) {
+            PlanFeedback.INSTANCE.observe( expectation, nanoTime, rowCount, complete );
+        }
+        if ( banditPlan != null && reference.equals( banditPlan.getQueryClass() ) ) {
+            RoutingManager.getInstance().getPlacementBandit().observe( banditPlan, nanoTime );
+        }
+        if ( loadLease != null ) {
+            loadLease.completed( nanoTime );
+        }
+    }
+
+
     @Override
     public void resetCaches() {
         ImplementationCache.INSTANCE.reset();
         QueryPlanCache.INSTANCE.reset();
         RoutingPlanCache.INSTANCE.reset();
         RoutingManager.getInstance().getRouters().forEach( Router::resetCaches );
+        RoutingManager.getInstance().getPlacementBandit().reset();
+        RoutingManager.getInstance().getAdapterLoadTracker().reset();
+    }
+
+
+    @Override
+    public void resetCachesOfTable( long tableId ) {
+        resetPhysicalCaches();
+        RoutingPlanCache.INSTANCE.invalidateTable( tableId );
+    }
+
+
+    @Override
+    public void resetCachesOfPartitions( Collection<Long> partitionIds ) {
+        resetPhysicalCaches();
+        RoutingPlanCache.INSTANCE.invalidatePartitions( partitionIds );
+    }
+
+
+    @Override
+    public void resetCachesOfAdapter( int adapterId ) {
+        resetPhysicalCaches();
+        RoutingPlanCache.INSTANCE.invalidateAdapter( adapterId );
+    }
+
+
+    /**
+     * Resets the caches of optimized plans and their implementations. Their keys are the compare strings of the routed
+     * plans, which contain physical names but not the ids of the catalog entities, and which do not change if, e.g.,
+     * the type of a column is changed. Hence, these caches are not invalidated selectively but reset on every change of
+     * a table, partition or adapter, including the generated code which depends on the column types.
+     */
+    private void resetPhysicalCaches() {
+        QueryPlanCache.INSTANCE.reset();
+        ImplementationCache.INSTANCE.reset();
+        RoutingManager.getInstance().getRouters().forEach( Router::resetCaches );
     }
 
 
@@ -225,10 +325,18 @@ public PolyResult prepareQuery( AlgRoot logicalRoot, AlgDataType parameterRowTyp
 
         final Pair<PolyResult, ProposedRoutingPlan> selectedPlan = selectPlan( proposedImplementations );
 
+        // Clusters are retained by cached plans, their shared metadata must not outlive the statement
+        logicalRoot.alg.getCluster().resetSharedMetadata();
+        proposedImplementations.getOptimizedPlans().stream().filter( Objects::nonNull ).forEach( alg -> alg.getCluster().resetSharedMetadata() );
+
         if ( statement.getTransaction().isAnalyze() ) {
             statement.getOverviewDuration().stop( "Plan Selection" );
         }
 
+        if ( !isSubquery && logicalRoot.kind.belongsTo( Kind.QUERY ) && RoutingManager.LOAD_AWARE_ROUTING.getBoolean() ) {
+            acquireLoadLease( selectedPlan.right );
+        }
+
         if ( withMonitoring ) {
             this.monitorResult( selectedPlan.right );
         }
@@ -261,6 +369,11 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
 
         logicalRoot.alg.accept( new DataModelShuttle() );
 
+        // Answer the query from materialized views if possible
+        if ( !isRouted && !isSubQuery && logicalRoot.kind.belongsTo( Kind.QUERY ) && RuntimeConfig.MATERIALIZED_VIEW_QUERY_REWRITING.getBoolean() ) {
+            logicalRoot = MaterializedViewManager.getInstance().rewriteWithMaterializedViews( statement, logicalRoot );
+        }
+
         // Analyze step
         if ( isAnalyze ) {
             statement.getProcessingDuration().start( "Analyze" );
@@ -274,8 +387,11 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
         }
 
         ExecutionTimeMonitor executionTimeMonitor = new ExecutionTimeMonitor();
-        if ( RoutingManager.POST_COST_AGGREGATION_ACTIVE.getBoolean() ) {
-            // Subscribe only when aggregation is active
+        if ( RoutingManager.POST_COST_AGGREGATION_ACTIVE.getBoolean()
+                || RuntimeConfig.ADAPTIVE_REOPTIMIZATION.getBoolean()
+                || RoutingManager.PLAN_SELECTION_STRATEGY.getEnum() == RouterPlanSelectionStrategy.BANDIT
+                || RoutingManager.LOAD_AWARE_ROUTING.getBoolean() ) {
+            // Subscribe only when aggregation, adaptive re-optimization, learned plan selection or load-aware routing is active
             executionTimeMonitor.subscribe( this, logicalQueryInformation.getQueryClass() );
         }
 
@@ -293,6 +409,7 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
         TableUpdateVisitor visitor = new TableUpdateVisitor();
         logicalRoot.alg.accept( visitor );
         MaterializedViewManager.getInstance().addTables( statement.getTransaction(), visitor.getNames() );
+        MaterializedViewManager.getInstance().addDeltas( statement, visitor.getModifies() );
 
         SchemaTypeVisitor schemaTypeVisitor = new SchemaTypeVisitor();
         logicalRoot.alg.accept( schemaTypeVisitor );
@@ -423,6 +540,9 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
             parameterizedRootList.add( parameterizedRoot );
         }
 
+        // Keys of the plan and implementation cache, which distinguish parameter-sensitive variants of a parameterized plan
+        List<String> cacheKeys = cacheKeys( parameterizedRootList );
+
         if ( isAnalyze ) {
             statement.getProcessingDuration().stop( "Parameterize" );
         }
@@ -437,8 +557,8 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
             AlgRoot routedRoot = proposedRoutingPlans.get( i ).getRoutedRoot();
             if ( this.isImplementationCachingActive( statement, routedRoot ) ) {
                 AlgRoot parameterizedRoot = parameterizedRootList.get( i );
-                PreparedResult preparedResult = ImplementationCache.INSTANCE.getIfPresent( parameterizedRoot.alg );
-                AlgNode optimalNode = QueryPlanCache.INSTANCE.getIfPresent( parameterizedRootList.get( i ).alg );
+                PreparedResult preparedResult = ImplementationCache.INSTANCE.getIfPresent( cacheKeys.get( i ) );
+                AlgNode optimalNode = QueryPlanCache.INSTANCE.getIfPresent( cacheKeys.get( i ) );
                 if ( preparedResult != null ) {
                     PolyResult result = createPolyResult(
                             preparedResult,
@@ -453,7 +573,7 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
                 } else {
                     results.add( null );
                     generatedCodes.add( null );
-                    optimalNodeList.add( null );
+                    optimalNodeList.add( isQueryPlanCachingActive( statement, routedRoot ) ? optimalNode : null );
                 }
             } else {
                 results.add( null );
@@ -466,27 +586,34 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
             statement.getProcessingDuration().stop( "Implementation Caching" );
         }
 
-        // Can we return earlier?
-        if ( results.stream().allMatch( Objects::nonNull ) && optimalNodeList.stream().allMatch( Objects::nonNull ) ) {
-            return new ProposedImplementations(
-                    proposedRoutingPlans,
-                    optimalNodeList.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                    results.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                    generatedCodes.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                    logicalQueryInformation );
+        // Can we return earlier? If the implementation is lazy, only the result of the selected proposal is required.
+        Integer selectedIndex = null;
+        if ( optimalNodeList.stream().allMatch( Objects::nonNull ) ) {
+            if ( results.stream().allMatch( Objects::nonNull ) || RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.getBoolean() ) {
+                selectedIndex = selectProposal( proposedRoutingPlans, optimalNodeList, logicalQueryInformation );
+            }
+            if ( selectedIndex != null && results.get( selectedIndex ) != null ) {
+                return new ProposedImplementations(
+                        proposedRoutingPlans,
+                        optimalNodeList,
+                        results,
+                        generatedCodes,
+                        parameterizedRootList,
+                        cacheKeys,
+                        logicalQueryInformation,
+                        selectedIndex );
+            }
         }
 
-        optimalNodeList = new ArrayList<>( Collections.nCopies( optimalNodeList.size(), null ) );
-
         //
         // Plan Caching
         if ( isAnalyze ) {
             statement.getProcessingDuration().start( "Plan Caching" );
         }
         for ( int i = 0; i < proposedRoutingPlans.size(); i++ ) {
-            if ( this.isQueryPlanCachingActive( statement, proposedRoutingPlans.get( i ).getRoutedRoot() ) ) {
+            if ( optimalNodeList.get( i ) == null && this.isQueryPlanCachingActive( statement, proposedRoutingPlans.get( i ).getRoutedRoot() ) ) {
                 // Should always be the case
-                AlgNode cachedElem = QueryPlanCache.INSTANCE.getIfPresent( parameterizedRootList.get( i ).alg );
+                AlgNode cachedElem = QueryPlanCache.INSTANCE.getIfPresent( cacheKeys.get( i ) );
                 if ( cachedElem != null ) {
                     optimalNodeList.set( i, cachedElem );
                 }
@@ -507,39 +634,91 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
             }
             AlgRoot parameterizedRoot = parameterizedRootList.get( i );
             AlgRoot routedRoot = proposedRoutingPlans.get( i ).getRoutedRoot();
-            optimalNodeList.set( i, optimize( parameterizedRoot, resultConvention ) );
+            // Only a parameter-sensitive variant is optimized for the bound values, the generic plan is used for all values
+            final boolean variant = !cacheKeys.get( i ).equals( parameterizedRoot.alg.algCompareString() );
+            parameterValueContext.setDataContext( variant ? statement.getDataContext() : null );
+            try {
+                optimalNodeList.set( i, optimize( parameterizedRoot, resultConvention, isAnalyze ? statement.getProcessingDuration().get( "Planning & Optimization" ) : null ) );
+            } finally {
+                parameterValueContext.setDataContext( null );
+            }
 
             if ( this.isQueryPlanCachingActive( statement, routedRoot ) ) {
-                QueryPlanCache.INSTANCE.put( parameterizedRoot.alg, optimalNodeList.get( i ) );
+                QueryPlanCache.INSTANCE.put( cacheKeys.get( i ), optimalNodeList.get( i ) );
             }
         }
 
         //
-        // Implementation
+        // Pruning
+        // The proposal has already been selected if all plans were cached, the indexes must not change in this case
+        if ( selectedIndex == null && !isRouted && proposedRoutingPlans.size() > 1 && RuntimeConfig.PROPOSAL_PRUNING_FACTOR.getDouble() > 0 ) {
+            final List<Integer> kept = selectPromisingProposals( optimalNodeList, RuntimeConfig.PROPOSAL_PRUNING_FACTOR.getDouble() );
+            if ( kept.size() < proposedRoutingPlans.size() ) {
+                if ( log.isDebugEnabled() ) {
+                    log.debug( "Discarding {} of {} routing proposals before the implementation.", proposedRoutingPlans.size() - kept.size(), proposedRoutingPlans.size() );
+                }
+                proposedRoutingPlans = select( proposedRoutingPlans, kept );
+                parameterizedRootList = select( parameterizedRootList, kept );
+                cacheKeys = select( cacheKeys, kept );
+                optimalNodeList = select( optimalNodeList, kept );
+                results = select( results, kept );
+                generatedCodes = select( generatedCodes, kept );
+            }
+        }
+
+        //
+        // Plan Selection
         if ( isAnalyze ) {
             statement.getProcessingDuration().stop( "Planning & Optimization" );
-            statement.getProcessingDuration().start( "Implementation" );
+            statement.getProcessingDuration().start( "Plan Selection" );
         }
 
-        for ( int i = 0; i < optimalNodeList.size(); i++ ) {
-            if ( results.get( i ) != null ) {
-                continue;
-            }
+        // The proposals are compared on their optimized plans. If the implementation is lazy, only the selected proposal and
+        // as many others as can be implemented concurrently are implemented, the rest are kept in the plan cache and are
+        // implemented once they are selected from the routing plan cache.
+        if ( selectedIndex == null ) {
+            selectedIndex = selectProposal( proposedRoutingPlans, optimalNodeList, logicalQueryInformation );
+        }
 
-            AlgNode optimalNode = optimalNodeList.get( i );
-            AlgRoot parameterizedRoot = parameterizedRootList.get( i );
-            AlgRoot routedRoot = proposedRoutingPlans.get( i ).getRoutedRoot();
+        //
+        // Implementation
+        if ( isAnalyze ) {
+            statement.getProcessingDuration().stop( "Plan Selection" );
+            statement.getProcessingDuration().start( "Implementation" );
+        }
 
+        // The proposals are implemented concurrently, but the results are processed in their original order
+        final List<Integer> pending = proposalsToImplement( results, optimalNodeList, selectedIndex );
+        final List<AlgRoot> optimalRoots = new ArrayList<>();
+        final List<Map<String, Object>> internalParameters = new ArrayList<>();
+        for ( int i : pending ) {
+            AlgRoot parameterizedRoot = parameterizedRootList.get( i );
             final AlgDataType rowType = parameterizedRoot.alg.getRowType();
             final List<Pair<Integer, String>> fields = Pair.zip( ImmutableIntList.identity( rowType.getFieldCount() ), rowType.getFieldNames() );
-            AlgRoot optimalRoot = new AlgRoot( optimalNode, rowType, parameterizedRoot.kind, fields, algCollation( parameterizedRoot.alg ) );
+            optimalRoots.add( new AlgRoot( optimalNodeList.get( i ), rowType, parameterizedRoot.kind, fields, algCollation( parameterizedRoot.alg ) ) );
+            internalParameters.add( new LinkedHashMap<>() );
+        }
+
+        final List<Callable<PreparedResult>> tasks = new ArrayList<>();
+        for ( int j = 0; j < pending.size(); j++ ) {
+            final AlgRoot optimalRoot = optimalRoots.get( j );
+            final Map<String, Object> parameters = internalParameters.get( j );
+            tasks.add( () -> implement( optimalRoot, parameterRowType, parameters ) );
+        }
+        final List<PreparedResult> preparedResults = ExecutionPool.invokeAll( tasks, RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.getInteger() );
 
-            PreparedResult preparedResult = implement( optimalRoot, parameterRowType );
+        for ( int j = 0; j < pending.size(); j++ ) {
+            final int i = pending.get( j );
+            AlgRoot optimalRoot = optimalRoots.get( j );
+            AlgRoot parameterizedRoot = parameterizedRootList.get( i );
+            AlgRoot routedRoot = proposedRoutingPlans.get( i ).getRoutedRoot();
+            PreparedResult preparedResult = preparedResults.get( j );
+            statement.getDataContext().addAll( internalParameters.get( j ) );
 
             // Cache implementation
             if ( this.isImplementationCachingActive( statement, routedRoot ) ) {
                 if ( optimalRoot.alg.isImplementationCacheable() ) {
-                    ImplementationCache.INSTANCE.put( parameterizedRoot.alg, preparedResult );
+                    ImplementationCache.INSTANCE.put( cacheKeys.get( i ), preparedResult );
                 } else {
                     ImplementationCache.INSTANCE.countUncacheable();
                 }
@@ -563,13 +742,37 @@ private ProposedImplementations prepareQueryList( AlgRoot logicalRoot, AlgDataTy
             log.debug( "Preparing statement ... done. [{}]", stopWatch );
         }
 
-        // Finally, all optionals should be of certain values.
+        // The lists are aligned with the proposals, only the result of the selected proposal is certain to be present
         return new ProposedImplementations(
                 proposedRoutingPlans,
-                optimalNodeList.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                results.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                generatedCodes.stream().filter( Objects::nonNull ).collect( Collectors.toList() ),
-                logicalQueryInformation );
+                optimalNodeList,
+                results,
+                generatedCodes,
+                parameterizedRootList,
+                cacheKeys,
+                logicalQueryInformation,
+                selectedIndex );
+    }
+
+
+    /**
+     * Context through which the planner sees the data context of the statement. From it, the metadata handlers estimate
+     * the selectivity of predicates on the bound parameter values, see
+     * {@link org.polypheny.db.algebra.metadata.AlgMdSelectivity}. It is only visible while a parameter-sensitive variant
+     * of a plan is optimized. The generic plan is cached for all parameter values and is therefore optimized without them.
+     */
+    protected static class ParameterValueContext implements Context {
+
+        @Setter
+        private volatile DataContext dataContext;
+
+
+        @Override
+        public <C> C unwrap( Class<C> aClass ) {
+            final DataContext dataContext = this.dataContext;
+            return aClass.isInstance( dataContext ) ? aClass.cast( dataContext ) : null;
+        }
+
     }
 
 
@@ -581,7 +784,10 @@ private static class ProposedImplementations {
         private final List<AlgNode> optimizedPlans;
         private final List<PolyResult> results;
         private final List<String> generatedCodes;
+        private final List<AlgRoot> parameterizedRoots;
+        private final List<String> cacheKeys;
         private final LogicalQueryInformation logicalQueryInformation;
+        private final int selectedIndex;
 
     }
 
@@ -1104,26 +1310,74 @@ public int size() {
     }
 
 
-    private AlgNode optimize( AlgRoot logicalRoot, Convention resultConvention ) {
+    /**
+     * Optimizes the plan in up to two stages. If the plan contains at least
+     * {@link RuntimeConfig#HEURISTIC_JOIN_ORDER_THRESHOLD} joins, the joins are first ordered heuristically and the
+     * exhaustive join reordering rules are disabled for the cost-based stage. The effort of the cost-based stage is
+     * limited by {@link RuntimeConfig#PLANNING_TIME_BUDGET} and {@link RuntimeConfig#PLANNING_RULE_FIRING_BUDGET}.
+     *
+     * @param duration Duration to which the time spent in each stage is added, or null
+     */
+    private AlgNode optimize( AlgRoot logicalRoot, Convention resultConvention, Duration duration ) {
         AlgNode logicalPlan = logicalRoot.alg;
+        final AlgOptPlanner planner = getPlanner();
 
         final AlgTraitSet desiredTraits = logicalPlan.getTraitSet()
                 .replace( resultConvention )
                 .replace( algCollation( logicalPlan ) )
                 .simplify();
 
-        final Program program = Programs.standard();
-        final AlgNode rootAlg4 = program.run( getPlanner(), logicalPlan, desiredTraits );
+        final List<AlgOptRule> removedRules = new ArrayList<>();
+        final int joinThreshold = RuntimeConfig.HEURISTIC_JOIN_ORDER_THRESHOLD.getInteger();
+        if ( joinThreshold > 0 && AlgOptUtil.countJoins( logicalPlan ) >= joinThreshold ) {
+            final long start = System.nanoTime();
+            logicalPlan = Programs.heuristicJoinOrder( false, DefaultAlgMetadataProvider.INSTANCE ).run( planner, logicalPlan, desiredTraits );
+            for ( AlgOptRule rule : JOIN_REORDERING_RULES ) {
+                if ( planner.removeRule( rule ) ) {
+                    removedRules.add( rule );
+                }
+            }
+            if ( duration != null ) {
+                duration.addNanoDuration( "Heuristic Join Ordering", System.nanoTime() - start );
+            }
+        }
+
+        final long start = System.nanoTime();
+        final AlgNode rootAlg4;
+        try {
+            final Program program = Programs.standard();
+            rootAlg4 = program.run( planner, logicalPlan, desiredTraits );
+        } finally {
+            removedRules.forEach( planner::addRule );
+        }
 
         //final {@link AlgNode} algNode = getPlanner().changeTraits( root.alg, desiredTraits );
         //getPlanner().setRoot(algNode);
         //final {@link AlgNode} rootAlg4 = getPlanner().findBestExp();
 
+        if ( planner instanceof VolcanoPlanner && ((VolcanoPlanner) planner).isBudgetExhausted() ) {
+            log.debug( "Planning budget exhausted, using the cheapest plan found so far." );
+        }
+
+        if ( duration != null ) {
+            final Duration costBased = duration.addNanoDuration( "Cost-based Optimization", System.nanoTime() - start );
+            if ( planner instanceof VolcanoPlanner ) {
+                final VolcanoPlanner volcanoPlanner = (VolcanoPlanner) planner;
+                for ( Entry<VolcanoPlannerPhase, Long> phase : volcanoPlanner.getPhaseNanos().entrySet() ) {
+                    costBased.addNanoDuration( phase.getKey().name(), phase.getValue() );
+                }
+            }
+        }
+
         return rootAlg4;
     }
 
 
-    private PreparedResult implement( AlgRoot root, AlgDataType parameterRowType ) {
+    /**
+     * Implements the physical plan. The internal parameters of the generated code are collected in the given map and have
+     * to be added to the data context by the caller, which allows to implement several plans concurrently.
+     */
+    private PreparedResult implement( AlgRoot root, AlgDataType parameterRowType, Map<String, Object> internalParameters ) {
         if ( log.isTraceEnabled() ) {
             log.trace( "Physical query plan: [{}]", AlgOptUtil.dumpPlan( "-- Physical Plan", root.alg, ExplainFormat.TEXT, ExplainLevel.DIGEST_ATTRIBUTES ) );
         }
@@ -1158,7 +1412,6 @@ private PreparedResult implement( AlgRoot root, AlgDataType parameterRowType ) {
                 CatalogReader.THREAD_LOCAL.set( statement.getTransaction().getCatalogReader() );
                 final Conformance conformance = statement.getPrepareContext().config().conformance();
 
-                final Map<String, Object> internalParameters = new LinkedHashMap<>();
                 internalParameters.put( "_conformance", conformance );
 
                 Pair<Bindable<Object[]>, String> implementationPair = EnumerableInterpretable.toBindable(
@@ -1168,7 +1421,6 @@ private PreparedResult implement( AlgRoot root, AlgDataType parameterRowType ) {
                         statement );
                 bindable = implementationPair.left;
                 generatedCode = implementationPair.right;
-                statement.getDataContext().addAll( internalParameters );
             } finally {
                 CatalogReader.THREAD_LOCAL.remove();
             }
@@ -1248,8 +1500,8 @@ private LogicalQueryInformation analyzeQueryAndPrepareMonitoring( Statement stat
         logicalRoot.alg.accept( analyzeRelShuttle );
 
         // Get partitions of logical information
-        Map<Integer, Set<String>> partitionValueFilterPerScan = analyzeRelShuttle.getPartitionValueFilterPerScan();
-        Map<Integer, List<Long>> accessedPartitionMap = this.getAccessedPartitionsPerTableScan( logicalRoot.alg, partitionValueFilterPerScan );
+        Map<Integer, PartitionValueSet> partitionValuesPerScan = analyzeRelShuttle.getPartitionValuesPerScan();
+        Map<Integer, List<Long>> accessedPartitionMap = this.getAccessedPartitionsPerTableScan( logicalRoot.alg, partitionValuesPerScan );
 
         // Build queryClass from query-name and partitions.
         String queryClass = analyzeRelShuttle.getQueryName();// + accessedPartitionMap;
@@ -1270,20 +1522,20 @@ private LogicalQueryInformation analyzeQueryAndPrepareMonitoring( Statement stat
 
     /**
      * Traverses all TablesScans used during execution and identifies for the corresponding table all
-     * associated partitions that needs to be accessed, on the basis of the provided partitionValues identified in a LogicalFilter
+     * associated partitions that needs to be accessed, on the basis of the values of the partition column identified in a LogicalFilter
      *
      * It is necessary to associate the partitionIds again with the TableScanId and not with the table itself. Because a table could be present
      * multiple times within one query. The aggregation per table would lead to data loss
      *
      * @param alg AlgNode to be processed
-     * @param aggregatedPartitionValues Mapping of TableScan Ids to identified partition Values
+     * @param partitionValuesPerScan Mapping of TableScan Ids to the values of the partition column satisfying the filter
      * @return Mapping of TableScan Ids to identified partition Ids
      */
-    private Map<Integer, List<Long>> getAccessedPartitionsPerTableScan( AlgNode alg, Map<Integer, Set<String>> aggregatedPartitionValues ) {
+    private Map<Integer, List<Long>> getAccessedPartitionsPerTableScan( AlgNode alg, Map<Integer, PartitionValueSet> partitionValuesPerScan ) {
         Map<Integer, List<Long>> accessedPartitionList = new HashMap<>(); // tableId  -> partitionIds
         if ( !(alg instanceof LogicalTableScan) ) {
             for ( int i = 0; i < alg.getInputs().size(); i++ ) {
-                Map<Integer, List<Long>> result = getAccessedPartitionsPerTableScan( alg.getInput( i ), aggregatedPartitionValues );
+                Map<Integer, List<Long>> result = getAccessedPartitionsPerTableScan( alg.getInput( i ), partitionValuesPerScan );
                 if ( !result.isEmpty() ) {
                     for ( Map.Entry<Integer, List<Long>> elem : result.entrySet() ) {
                         accessedPartitionList.merge( elem.getKey(), elem.getValue(), ( l1, l2 ) -> Stream.concat( l1.stream(), l2.stream() ).collect( Collectors.toList() ) );
@@ -1291,7 +1543,6 @@ private Map<Integer, List<Long>> getAccessedPartitionsPerTableScan( AlgNode alg,
                 }
             }
         } else {
-            boolean fallback = false;
             if ( alg.getTable() != null ) {
                 AlgOptTableImpl table = (AlgOptTableImpl) alg.getTable();
                 if ( table.getTable() instanceof LogicalTable ) {
@@ -1301,56 +1552,35 @@ private Map<Integer, List<Long>> getAccessedPartitionsPerTableScan( AlgNode alg,
                     // Get placements of this table
                     CatalogTable catalogTable = Catalog.getInstance().getTable( logicalTable.getTableId() );
 
-                    if ( aggregatedPartitionValues.containsKey( scanId ) ) {
-                        if ( aggregatedPartitionValues.get( scanId ) != null ) {
-                            if ( !aggregatedPartitionValues.get( scanId ).isEmpty() ) {
-                                List<String> partitionValues = new ArrayList<>( aggregatedPartitionValues.get( scanId ) );
-
-                                if ( log.isDebugEnabled() ) {
-                                    log.debug(
-                                            "TableID: {} is partitioned on column: {} - {}",
-                                            logicalTable.getTableId(),
-                                            catalogTable.partitionProperty.partitionColumnId,
-                                            Catalog.getInstance().getColumn( catalogTable.partitionProperty.partitionColumnId ).name );
-                                }
-                                List<Long> identifiedPartitions = new ArrayList<>();
-                                for ( String partitionValue : partitionValues ) {
-                                    if ( log.isDebugEnabled() ) {
-                                        log.debug( "Extracted PartitionValue: {}", partitionValue );
-                                    }
-                                    long identifiedPartition = PartitionManagerFactory.getInstance()
-                                            .getPartitionManager( catalogTable.partitionProperty.partitionType )
-                                            .getTargetPartitionId( catalogTable, partitionValue );
-
-                                    identifiedPartitions.add( identifiedPartition );
-                                    if ( log.isDebugEnabled() ) {
-                                        log.debug( "Identified PartitionId: {} for value: {}", identifiedPartition, partitionValue );
-                                    }
-                                }
+                    List<Long> identifiedPartitions = catalogTable.partitionProperty.partitionIds;
+                    PartitionValueSet partitionValues = partitionValuesPerScan.get( scanId );
+                    if ( partitionValues != null && !partitionValues.isAll() ) {
+                        if ( log.isDebugEnabled() ) {
+                            log.debug(
+                                    "TableID: {} is partitioned on column: {} - {}",
+                                    logicalTable.getTableId(),
+                                    catalogTable.partitionProperty.partitionColumnId,
+                                    Catalog.getInstance().getColumn( catalogTable.partitionProperty.partitionColumnId ).name );
+                            log.debug( "Extracted partition values: {}", partitionValues );
+                        }
+                        identifiedPartitions = PartitionManagerFactory.getInstance()
+                                .getPartitionManager( catalogTable.partitionProperty.partitionType )
+                                .getTargetPartitionIds( catalogTable, partitionValues );
 
-                                accessedPartitionList.merge(
-                                        scanId,
-                                        identifiedPartitions,
-                                        ( l1, l2 ) -> Stream.concat( l1.stream(), l2.stream() ).collect( Collectors.toList() ) );
-                                scanPerTable.putIfAbsent( scanId, catalogTable.id );
-                                // Fallback all partitionIds are needed
-                            } else {
-                                fallback = true;
-                            }
-                        } else {
-                            fallback = true;
+                        if ( identifiedPartitions.isEmpty() ) {
+                            // No row can satisfy the filter, a single partition is sufficient to produce the empty result
+                            identifiedPartitions = ImmutableList.of( catalogTable.partitionProperty.partitionIds.get( 0 ) );
+                        }
+                        if ( log.isDebugEnabled() ) {
+                            log.debug( "Identified PartitionIds: {} for values: {}", identifiedPartitions, partitionValues );
                         }
-                    } else {
-                        fallback = true;
                     }
 
-                    if ( fallback ) {
-                        accessedPartitionList.merge(
-                                scanId,
-                                catalogTable.partitionProperty.partitionIds,
-                                ( l1, l2 ) -> Stream.concat( l1.stream(), l2.stream() ).collect( Collectors.toList() ) );
-                        scanPerTable.putIfAbsent( scanId, catalogTable.id );
-                    }
+                    accessedPartitionList.merge(
+                            scanId,
+                            identifiedPartitions,
+                            ( l1, l2 ) -> Stream.concat( l1.stream(), l2.stream() ).collect( Collectors.toList() ) );
+                    scanPerTable.putIfAbsent( scanId, catalogTable.id );
                 }
             }
         }
@@ -1396,6 +1626,10 @@ private void monitorResult( ProposedRoutingPlan selectedPlan ) {
                 }
             }
             finalizeAccessedPartitions( eventData );
+
+            if ( FrequencyMap.INSTANCE != null ) {
+                FrequencyMap.INSTANCE.recordPartitionAccess( eventData.getAccessedPartitions(), eventData instanceof DmlEvent );
+            }
         }
     }
 
@@ -1432,7 +1666,7 @@ private void finalizeAccessedPartitions( StatementEvent eventData ) {
     }
 
 
-    private void cacheRouterPlans( List<ProposedRoutingPlan> proposedRoutingPlans, List<AlgOptCost> approximatedCosts, String queryId, Set<Long> partitionIds ) {
+    private void cacheRouterPlans( List<ProposedRoutingPlan> proposedRoutingPlans, List<AlgOptCost> approximatedCosts, String queryId, Set<Long> partitionIds, Set<Long> tableIds ) {
         List<CachedProposedRoutingPlan> cachedPlans = new ArrayList<>();
         for ( int i = 0; i < proposedRoutingPlans.size(); i++ ) {
             if ( proposedRoutingPlans.get( i ).isCacheable() && !RoutingPlanCache.INSTANCE.isKeyPresent( queryId, partitionIds ) ) {
@@ -1441,60 +1675,200 @@ private void cacheRouterPlans( List<ProposedRoutingPlan> proposedRoutingPlans, L
         }
 
         if ( !cachedPlans.isEmpty() ) {
-            RoutingPlanCache.INSTANCE.put( queryId, partitionIds, cachedPlans );
+            RoutingPlanCache.INSTANCE.put( queryId, partitionIds, tableIds, cachedPlans );
         }
     }
 
 
-    private Pair<PolyResult, ProposedRoutingPlan> selectPlan( ProposedImplementations proposedImplementations ) {
-        // Lists should all be same size
-        List<ProposedRoutingPlan> proposedRoutingPlans = proposedImplementations.getProposedRoutingPlans();
-        List<AlgNode> optimalAlgs = proposedImplementations.getOptimizedPlans();
-        List<PolyResult> results = proposedImplementations.getResults();
-        List<String> generatedCodes = proposedImplementations.getGeneratedCodes();
-        LogicalQueryInformation queryInformation = proposedImplementations.getLogicalQueryInformation();
-
-        List<AlgOptCost> approximatedCosts;
-        if ( RuntimeConfig.ROUTING_PLAN_CACHING.getBoolean() ) {
-            // Get approximated costs and cache routing plans
-            approximatedCosts = optimalAlgs.stream()
-                    .map( alg -> alg.computeSelfCost( getPlanner(), alg.getCluster().getMetadataQuery() ) )
-                    .collect( Collectors.toList() );
-            this.cacheRouterPlans(
-                    proposedRoutingPlans,
-                    approximatedCosts,
-                    queryInformation.getQueryClass(),
-                    queryInformation.getAccessedPartitions().values().stream().flatMap( List::stream ).collect( Collectors.toSet() ) );
+    /**
+     * Returns the keys of the plan and implementation cache for the parameterized plans. For queries, the key is
+     * extended by the selectivity of the bound parameter values if parameter-sensitive plans are active.
+     */
+    private List<String> cacheKeys( List<AlgRoot> parameterizedRoots ) {
+        final List<String> cacheKeys = new ArrayList<>( parameterizedRoots.size() );
+        for ( AlgRoot parameterizedRoot : parameterizedRoots ) {
+            if ( parameterizedRoot.kind.belongsTo( Kind.QUERY ) ) {
+                cacheKeys.add( PlanVariants.INSTANCE.getCacheKey( parameterizedRoot.alg, statement.getDataContext() ) );
+            } else {
+                cacheKeys.add( parameterizedRoot.alg.algCompareString() );
+            }
         }
+        return cacheKeys;
+    }
 
-        if ( results.size() == 1 ) {
-            // If only one plan proposed, return this without further selection
-            if ( statement.getTransaction().isAnalyze() ) {
+
+    /**
+     * Returns the ids of the tables accessed by the query. The accessed partitions are keyed by the id of the scan,
+     * not of the table, hence the tables of the scans are taken from {@link #scanPerTable}.
+     */
+    private Set<Long> accessedTables( LogicalQueryInformation queryInformation ) {
+        final Set<Long> tableIds = new HashSet<>( queryInformation.getAvailableColumnsWithTable().values() );
+        tableIds.addAll( scanPerTable.values() );
+        return tableIds;
+    }
+
+
+    /**
+     * Returns the indexes of the optimized plans whose estimated cumulative cost does not exceed the cost of the cheapest
+     * plan by more than the given factor. The remaining plans are so clearly more expensive that they are not implemented.
+     */
+    private List<Integer> selectPromisingProposals( List<AlgNode> optimalNodes, double factor ) {
+        final List<AlgOptCost> costs = cumulativeCosts( optimalNodes );
+        AlgOptCost cheapest = costs.get( 0 );
+        for ( AlgOptCost cost : costs ) {
+            if ( cost.isLt( cheapest ) ) {
+                cheapest = cost;
+            }
+        }
+        final AlgOptCost limit = cheapest.multiplyBy( factor );
+        final List<Integer> kept = new ArrayList<>();
+        for ( int i = 0; i < costs.size(); i++ ) {
+            if ( !limit.isLt( costs.get( i ) ) ) {
+                kept.add( i );
+            }
+        }
+        return kept;
+    }
+
+
+    /**
+     * Returns the indexes of the proposals which are implemented. If the implementation is lazy, these are the selected
+     * proposal and, as they are implemented concurrently with it, the cheapest of the other proposals up to
+     * {@link RuntimeConfig#PROPOSAL_IMPLEMENTATION_PARALLELISM}. Their implementations are cached for later statements.
+     */
+    private List<Integer> proposalsToImplement( List<PolyResult> results, List<AlgNode> optimalNodes, int selectedIndex ) {
+        final List<Integer> missing = new ArrayList<>();
+        for ( int i = 0; i < results.size(); i++ ) {
+            if ( results.get( i ) == null ) {
+                missing.add( i );
+            }
+        }
+        if ( !RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.getBoolean() ) {
+            return missing;
+        }
+        if ( results.get( selectedIndex ) != null ) {
+            // Implementing the other proposals would delay the statement
+            return Collections.emptyList();
+        }
+        final List<Integer> others = missing.stream().filter( i -> i != selectedIndex ).collect( Collectors.toList() );
+        final int parallelism = RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.getInteger();
+        final List<Integer> pending = new ArrayList<>();
+        pending.add( selectedIndex );
+        if ( parallelism > 1 && !others.isEmpty() ) {
+            final List<AlgOptCost> costs = cumulativeCosts( optimalNodes );
+            others.sort( ( a, b ) -> costs.get( a ).isLt( costs.get( b ) ) ? -1 : costs.get( b ).isLt( costs.get( a ) ) ? 1 : 0 );
+            pending.addAll( others.subList( 0, Math.min( others.size(), parallelism - 1 ) ) );
+            pending.sort( Integer::compare );
+        }
+        return pending;
+    }
+
+
+    private static List<AlgOptCost> cumulativeCosts( List<AlgNode> optimalNodes ) {
+        return optimalNodes.stream()
+                .map( alg -> alg.getCluster().getMetadataQuery().getCumulativeCost( alg ) )
+                .collect( Collectors.toList() );
+    }
+
+
+    private static <T> List<T> select( List<T> list, List<Integer> indexes ) {
+        return indexes.stream().map( list::get ).collect( Collectors.toCollection( ArrayList::new ) );
+    }
+
+
+    /**
+     * Registers the statement on the adapters of the selected plan. The registration ends when the execution time is
+     * reported, a previous registration of this processor is released.
+     */
+    private void acquireLoadLease( ProposedRoutingPlan routingPlan ) {
+        if ( loadLease != null ) {
+            loadLease.release();
+        }
+        loadLease = routingPlan == null ? null : RoutingManager.getInstance().getAdapterLoadTracker().acquire( routingPlan );
+    }
+
+
+    private Pair<PolyResult, ProposedRoutingPlan> selectPlan( ProposedImplementations proposedImplementations ) {
+        final int index = proposedImplementations.getSelectedIndex();
+        final List<ProposedRoutingPlan> proposedRoutingPlans = proposedImplementations.getProposedRoutingPlans();
+        final AlgNode optimalNode = proposedImplementations.getOptimizedPlans().get( index );
+
+        if ( statement.getTransaction().isAnalyze() ) {
+            if ( proposedRoutingPlans.size() == 1 ) {
                 UiRoutingPageUtil.outputSingleResult(
                         proposedRoutingPlans.get( 0 ),
-                        optimalAlgs.get( 0 ),
+                        optimalNode,
                         statement.getTransaction().getQueryAnalyzer() );
-                addGeneratedCodeToQueryAnalyzer( generatedCodes.get( 0 ) );
+            } else {
+                UiRoutingPageUtil.addPhysicalPlanPage( optimalNode, statement.getTransaction().getQueryAnalyzer() );
             }
-            return new Pair<>( results.get( 0 ), proposedRoutingPlans.get( 0 ) );
-        } else {
-            // Calculate costs and get selected plan from plan selector
-            approximatedCosts = optimalAlgs.stream()
-                    .map( alg -> alg.computeSelfCost( getPlanner(), alg.getCluster().getMetadataQuery() ) )
-                    .collect( Collectors.toList() );
-            RoutingPlan routingPlan = RoutingManager.getInstance().getRoutingPlanSelector().selectPlanBasedOnCosts(
+            addGeneratedCodeToQueryAnalyzer( proposedImplementations.getGeneratedCodes().get( index ) );
+        }
+        recordExpectation( proposedImplementations, index );
+        banditPlan = RoutingManager.PLAN_SELECTION_STRATEGY.getEnum() == RouterPlanSelectionStrategy.BANDIT && proposedRoutingPlans.get( index ).getPhysicalQueryClass() != null
+                ? proposedRoutingPlans.get( index )
+                : null;
+        return new Pair<>( proposedImplementations.getResults().get( index ), proposedRoutingPlans.get( index ) );
+    }
+
+
+    /**
+     * Caches the proposals in the routing plan cache and selects one of them based on the costs of their optimized plans.
+     *
+     * @return Index of the selected proposal
+     */
+    private int selectProposal( List<ProposedRoutingPlan> proposedRoutingPlans, List<AlgNode> optimalAlgs, LogicalQueryInformation queryInformation ) {
+        final boolean caching = RuntimeConfig.ROUTING_PLAN_CACHING.getBoolean();
+        if ( !caching && proposedRoutingPlans.size() == 1 ) {
+            return 0;
+        }
+
+        // Get approximated costs
+        final List<AlgOptCost> approximatedCosts = optimalAlgs.stream()
+                .map( alg -> alg.computeSelfCost( getPlanner(), alg.getCluster().getMetadataQuery() ) )
+                .collect( Collectors.toList() );
+        if ( caching ) {
+            this.cacheRouterPlans(
                     proposedRoutingPlans,
                     approximatedCosts,
-                    statement );
+                    queryInformation.getQueryClass(),
+                    queryInformation.getAccessedPartitions().values().stream().flatMap( List::stream ).collect( Collectors.toSet() ),
+                    accessedTables( queryInformation ) );
+        }
 
-            int index = proposedRoutingPlans.indexOf( (ProposedRoutingPlan) routingPlan );
-            if ( statement.getTransaction().isAnalyze() ) {
-                AlgNode optimalNode = optimalAlgs.get( index );
-                UiRoutingPageUtil.addPhysicalPlanPage( optimalNode, statement.getTransaction().getQueryAnalyzer() );
-                addGeneratedCodeToQueryAnalyzer( generatedCodes.get( index ) );
-            }
-            return new Pair<>( proposedImplementations.getResults().get( index ), (ProposedRoutingPlan) routingPlan );
+        if ( proposedRoutingPlans.size() == 1 ) {
+            // If only one plan proposed, return this without further selection
+            return 0;
+        }
+        RoutingPlan routingPlan = RoutingManager.getInstance().getRoutingPlanSelector().selectPlanBasedOnCosts(
+                proposedRoutingPlans,
+                approximatedCosts,
+                statement );
+        return proposedRoutingPlans.indexOf( (ProposedRoutingPlan) routingPlan );
+    }
+
+
+    /**
+     * Remembers the estimates of the planner for the selected plan, which are compared with the observed execution
+     * if adaptive re-optimization is active.
+     */
+    private void recordExpectation( ProposedImplementations proposedImplementations, int index ) {
+        expectation = null;
+        final AlgRoot parameterizedRoot = proposedImplementations.getParameterizedRoots().get( index );
+        if ( !RuntimeConfig.ADAPTIVE_REOPTIMIZATION.getBoolean() || !parameterizedRoot.kind.belongsTo( Kind.QUERY ) ) {
+            return;
+        }
+        final AlgNode optimalNode = proposedImplementations.getOptimizedPlans().get( index );
+        final Double estimatedRowCount = optimalNode.getCluster().getMetadataQuery().getRowCount( optimalNode );
+        if ( estimatedRowCount == null ) {
+            return;
         }
+        final LogicalQueryInformation queryInformation = proposedImplementations.getLogicalQueryInformation();
+        expectation = new PlanFeedback.Expectation(
+                proposedImplementations.getCacheKeys().get( index ),
+                queryInformation.getQueryClass(),
+                estimatedRowCount,
+                new HashSet<>( queryInformation.getAvailableColumnsWithTable().values() ) );
     }
 
 
@@ -19,12 +19,12 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.Getter;
-import lombok.Setter;
 import org.apache.calcite.avatica.AvaticaSite;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.polypheny.db.adapter.DataContext;
@@ -52,12 +52,10 @@ public class DataContextImpl implements DataContext {
     @Getter
     private final Statement statement;
 
-    @Getter
-    @Setter
-    private Map<Long, AlgDataType> parameterTypes; // ParameterIndex -> Data Type
-    @Getter
-    @Setter
-    private List<Map<Long, Object>> parameterValues; // List of ( ParameterIndex -> Value )
+    private Parameters parameters;
+    // Parameters which are only visible to the thread executing a task, see withParameterSnapshot
+    private final ThreadLocal<Parameters> threadParameters = new ThreadLocal<>();
+    private final Map<Long, List<Map<Long, Object>>> parameterGroups = new ConcurrentHashMap<>(); // GroupId -> List of ( ParameterIndex -> Value )
 
 
     public DataContextImpl( QueryProvider queryProvider, Map<String, Object> parameters, PolyphenyDbSchema rootSchema, JavaTypeFactory typeFactory, Statement statement ) {
@@ -95,8 +93,37 @@ public DataContextImpl( QueryProvider queryProvider, Map<String, Object> paramet
             map.put( entry.getKey(), e );
         }
 
-        parameterTypes = new HashMap<>();
-        parameterValues = new LinkedList<>();
+        parameters = new Parameters( new HashMap<>(), new ArrayList<>() );
+    }
+
+
+    private Parameters parameters() {
+        Parameters forked = threadParameters.get();
+        return forked != null ? forked : parameters;
+    }
+
+
+    @Override
+    public Map<Long, AlgDataType> getParameterTypes() {
+        return parameters().types;
+    }
+
+
+    @Override
+    public void setParameterTypes( Map<Long, AlgDataType> types ) {
+        parameters().types = types;
+    }
+
+
+    @Override
+    public List<Map<Long, Object>> getParameterValues() {
+        return parameters().values;
+    }
+
+
+    @Override
+    public void setParameterValues( List<Map<Long, Object>> values ) {
+        parameters().values = values;
     }
 
 
@@ -121,6 +148,8 @@ public void addAll( Map<String, Object> map ) {
 
     @Override
     public void addParameterValues( long index, AlgDataType type, List<Object> data ) {
+        Map<Long, AlgDataType> parameterTypes = getParameterTypes();
+        List<Map<Long, Object>> parameterValues = getParameterValues();
         if ( parameterTypes.containsKey( index ) ) {
             throw new RuntimeException( "There are already values assigned to this index" );
         }
@@ -142,6 +171,8 @@ public void addParameterValues( long index, AlgDataType type, List<Object> data
 
     @Override
     public void addSingleValue( long index, AlgDataType type, Object data ) {
+        Map<Long, AlgDataType> parameterTypes = getParameterTypes();
+        List<Map<Long, Object>> parameterValues = getParameterValues();
         if ( parameterTypes.containsKey( index ) ) {
             throw new RuntimeException( "There are already values assigned to this index" );
         }
@@ -158,20 +189,57 @@ public void addSingleValue( long index, AlgDataType type, Object data ) {
 
     @Override
     public long getMaxParameterIndex() {
-        return Collections.max( parameterTypes.keySet() );
+        return Collections.max( getParameterTypes().keySet() );
     }
 
 
     @Override
     public AlgDataType getParameterType( long index ) {
-        return parameterTypes.get( index );
+        return getParameterTypes().get( index );
     }
 
 
     @Override
     public void resetParameterValues() {
-        parameterTypes = new HashMap<>();
-        parameterValues = new ArrayList<>();
+        Parameters parameters = parameters();
+        parameters.types = new HashMap<>();
+        parameters.values = new ArrayList<>();
+    }
+
+
+    @Override
+    public void setParameterGroup( long groupId, List<Map<Long, Object>> values ) {
+        parameterGroups.put( groupId, values );
+    }
+
+
+    @Override
+    public List<Map<Long, Object>> getParameterGroup( long groupId ) {
+        List<Map<Long, Object>> values = parameterGroups.get( groupId );
+        if ( values == null ) {
+            throw new RuntimeException( "There are no parameter values assigned to the group " + groupId );
+        }
+        return values;
+    }
+
+
+    @Override
+    public <T> Callable<T> withParameterSnapshot( Callable<T> task ) {
+        // Taken on the calling thread, the task might be executed by any thread
+        final Parameters snapshot = new Parameters( new HashMap<>( getParameterTypes() ), new ArrayList<>( getParameterValues() ) );
+        return () -> {
+            Parameters previous = threadParameters.get();
+            threadParameters.set( snapshot );
+            try {
+                return task.call();
+            } finally {
+                if ( previous == null ) {
+                    threadParameters.remove();
+                } else {
+                    threadParameters.set( previous );
+                }
+            }
+        };
     }
 
 
@@ -181,4 +249,18 @@ public SchemaPlus getRootSchema() {
     }
 
 
+    private static class Parameters {
+
+        private Map<Long, AlgDataType> types; // ParameterIndex -> Data Type
+        private List<Map<Long, Object>> values; // List of ( ParameterIndex -> Value )
+
+
+        private Parameters( Map<Long, AlgDataType> types, List<Map<Long, Object>> values ) {
+            this.types = types;
+            this.values = values;
+        }
+
+    }
+
+
 }
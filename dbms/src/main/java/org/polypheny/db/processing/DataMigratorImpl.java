@@ -22,14 +22,23 @@
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.calcite.avatica.MetaImpl;
 import org.apache.calcite.linq4j.Enumerable;
 import org.polypheny.db.PolyResult;
@@ -39,6 +48,7 @@
 import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.algebra.core.TableModify.Operation;
 import org.polypheny.db.algebra.logical.LogicalValues;
+import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeFactory;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
 import org.polypheny.db.algebra.type.AlgDataTypeSystem;
@@ -57,6 +67,7 @@
 import org.polypheny.db.rex.RexDynamicParam;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.routing.RoutingManager;
+import org.polypheny.db.runtime.ExecutionPool;
 import org.polypheny.db.schema.ModifiableTable;
 import org.polypheny.db.schema.PolySchemaBuilder;
 import org.polypheny.db.tools.AlgBuilder;
@@ -103,6 +114,12 @@ public void copyData( Transaction transaction, CatalogAdapter store, List<Catalo
                     selectSourcePlacements( table, selectColumnList, targetColumnPlacements.get( 0 ).adapterId ) );
         }
 
+        // Sources on other stores than the target can be read ahead. In this case, all partitions are read ahead.
+        Map<Long, List<CatalogColumnPlacement>> sourceDistribution = new HashMap<>( placementDistribution );
+        sourceDistribution.keySet().retainAll( partitionIds );
+        boolean pipelined = isPipelined( sourceDistribution, store.id );
+
+        List<Copy> copies = new ArrayList<>( partitionIds.size() );
         for ( long partitionId : partitionIds ) {
             Statement sourceStatement = transaction.createStatement();
             Statement targetStatement = transaction.createStatement();
@@ -119,14 +136,23 @@ public void copyData( Transaction transaction, CatalogAdapter store, List<Catalo
                 targetAlg = buildUpdateStatement( targetStatement, targetColumnPlacements, partitionId );
             }
 
-            // Execute Query
-            executeQuery( selectColumnList, sourceAlg, sourceStatement, targetStatement, targetAlg, false, false );
+            Set<Integer> sourceAdapters = subDistribution.values().stream().flatMap( List::stream ).map( p -> p.adapterId ).collect( Collectors.toSet() );
+            copies.add( prepareCopy( selectColumnList, sourceAlg, sourceStatement, targetStatement, targetAlg, sourceAdapters, false, false ) );
         }
+
+        // Execute Query
+        copy( copies, pipelined );
     }
 
 
     @Override
     public void executeQuery( List<CatalogColumn> selectColumnList, AlgRoot sourceAlg, Statement sourceStatement, Statement targetStatement, AlgRoot targetAlg, boolean isMaterializedView, boolean doesSubstituteOrderBy ) {
+        Copy copy = prepareCopy( selectColumnList, sourceAlg, sourceStatement, targetStatement, targetAlg, Collections.emptySet(), isMaterializedView, doesSubstituteOrderBy );
+        copy( Collections.singletonList( copy ), false );
+    }
+
+
+    private Copy prepareCopy( List<CatalogColumn> selectColumnList, AlgRoot sourceAlg, Statement sourceStatement, Statement targetStatement, AlgRoot targetAlg, Set<Integer> sourceAdapters, boolean isMaterializedView, boolean doesSubstituteOrderBy ) {
         try {
             PolyResult result;
             if ( isMaterializedView ) {
@@ -145,8 +171,6 @@ public void executeQuery( List<CatalogColumn> selectColumnList, AlgRoot sourceAl
                         false );
             }
             final Enumerable<Object> enumerable = result.enumerable( sourceStatement.getDataContext() );
-            //noinspection unchecked
-            Iterator<Object> sourceIterator = enumerable.iterator();
 
             Map<Long, Integer> resultColMapping = new HashMap<>();
             for ( CatalogColumn catalogColumn : selectColumnList ) {
@@ -167,57 +191,162 @@ public void executeQuery( List<CatalogColumn> selectColumnList, AlgRoot sourceAl
                 }
             }
 
-            int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
+            List<AlgDataTypeField> fields;
+            if ( isMaterializedView ) {
+                fields = targetAlg.alg.getTable().getRowType().getFieldList();
+            } else {
+                fields = sourceAlg.validatedRowType.getFieldList();
+            }
+            Map<Long, AlgDataType> types = new HashMap<>();
+            for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
+                types.put( entry.getKey(), fields.get( entry.getValue() ).getType() );
+            }
+
+            BatchReader reader = new BatchReader( enumerable, result.getCursorFactory() );
+            return new Copy( reader, sourceAdapters, resultColMapping, types, sourceAlg.validatedRowType, targetStatement, targetAlg, isMaterializedView );
+        } catch ( Throwable t ) {
+            throw new RuntimeException( t );
+        }
+    }
+
+
+    /**
+     * Executes the copies one after another, as their targets are on the same store and hence share its connection.
+     * If pipelined, the sources are read ahead on the execution pool while the targets are written. Sources on different
+     * adapters are read concurrently, while sources which share an adapter are read one after another, in the order
+     * of the copies.
+     */
+    private void copy( List<Copy> copies, boolean pipelined ) {
+        List<BatchReader> readers = copies.stream().map( c -> c.reader ).collect( Collectors.toList() );
+        try {
+            if ( pipelined ) {
+                List<Set<Integer>> sourceAdapters = copies.stream().map( c -> c.sourceAdapters ).collect( Collectors.toList() );
+                for ( List<Integer> group : groupBySourceAdapters( sourceAdapters ) ) {
+                    BatchReader.start( group.stream().map( readers::get ).collect( Collectors.toList() ) );
+                }
+            }
+            for ( Copy copy : copies ) {
+                copy.execute();
+            }
+        } catch ( Throwable t ) {
+            throw new RuntimeException( t );
+        } finally {
+            readers.forEach( BatchReader::close );
+        }
+    }
+
+
+    /**
+     * Groups the sources which share an adapter. The indexes of the sources of a group are in ascending order.
+     *
+     * @param sourceAdapters The adapters of every source
+     * @return The indexes of the sources per group
+     */
+    static List<List<Integer>> groupBySourceAdapters( List<Set<Integer>> sourceAdapters ) {
+        List<Set<Integer>> groupAdapters = new ArrayList<>();
+        List<List<Integer>> groups = new ArrayList<>();
+        for ( int i = 0; i < sourceAdapters.size(); i++ ) {
+            Set<Integer> adapters = new HashSet<>( sourceAdapters.get( i ) );
+            List<Integer> members = new ArrayList<>();
+            members.add( i );
+            // Merge all groups which share an adapter with this source
+            for ( int g = groups.size() - 1; g >= 0; g-- ) {
+                if ( !Collections.disjoint( groupAdapters.get( g ), adapters ) ) {
+                    adapters.addAll( groupAdapters.remove( g ) );
+                    members.addAll( groups.remove( g ) );
+                }
+            }
+            Collections.sort( members );
+            groupAdapters.add( adapters );
+            groups.add( members );
+        }
+        return groups;
+    }
+
+
+    /**
+     * Copy of the result of a source query into a target.
+     */
+    private class Copy {
+
+        private final BatchReader reader;
+        private final Set<Integer> sourceAdapters;
+        private final Map<Long, Integer> resultColMapping;
+        private final Map<Long, AlgDataType> types;
+        private final AlgDataType parameterRowType;
+        private final Statement targetStatement;
+        private final AlgRoot targetAlg;
+        private final boolean isMaterializedView;
+
+
+        private Copy( BatchReader reader, Set<Integer> sourceAdapters, Map<Long, Integer> resultColMapping, Map<Long, AlgDataType> types, AlgDataType parameterRowType, Statement targetStatement, AlgRoot targetAlg, boolean isMaterializedView ) {
+            this.reader = reader;
+            this.sourceAdapters = sourceAdapters;
+            this.resultColMapping = resultColMapping;
+            this.types = types;
+            this.parameterRowType = parameterRowType;
+            this.targetStatement = targetStatement;
+            this.targetAlg = targetAlg;
+            this.isMaterializedView = isMaterializedView;
+        }
+
+
+        private void execute() {
             int i = 0;
-            while ( sourceIterator.hasNext() ) {
-                List<List<Object>> rows = MetaImpl.collect( result.getCursorFactory(), LimitIterator.of( sourceIterator, batchSize ), new ArrayList<>() );
-                Map<Long, List<Object>> values = new HashMap<>();
+            while ( reader.hasNext() ) {
+                List<List<Object>> rows = reader.next();
+                List<Map<Long, Object>> parameterRows = new ArrayList<>( rows.size() );
 
                 for ( List<Object> list : rows ) {
+                    Map<Long, Object> parameterRow = new HashMap<>( resultColMapping.size() * 2 );
                     for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
-                        if ( !values.containsKey( entry.getKey() ) ) {
-                            values.put( entry.getKey(), new LinkedList<>() );
-                        }
-                        if ( isMaterializedView ) {
-                            if ( entry.getValue() > list.size() - 1 ) {
-                                values.get( entry.getKey() ).add( i );
-                                i++;
-                            } else {
-                                values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
-                            }
+                        if ( isMaterializedView && entry.getValue() > list.size() - 1 ) {
+                            parameterRow.put( entry.getKey(), i );
+                            i++;
                         } else {
-                            values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
+                            parameterRow.put( entry.getKey(), list.get( entry.getValue() ) );
                         }
                     }
-                }
-                List<AlgDataTypeField> fields;
-                if ( isMaterializedView ) {
-                    fields = targetAlg.alg.getTable().getRowType().getFieldList();
-                } else {
-                    fields = sourceAlg.validatedRowType.getFieldList();
-                }
-                int pos = 0;
-                for ( Map.Entry<Long, List<Object>> v : values.entrySet() ) {
-                    targetStatement.getDataContext().addParameterValues(
-                            v.getKey(),
-                            fields.get( resultColMapping.get( v.getKey() ) ).getType(),
-                            v.getValue() );
-                    pos++;
+                    parameterRows.add( parameterRow );
                 }
 
-                Iterator<?> iterator = targetStatement.getQueryProcessor()
-                        .prepareQuery( targetAlg, sourceAlg.validatedRowType, true, false, false )
-                        .enumerable( targetStatement.getDataContext() )
-                        .iterator();
-                //noinspection WhileLoopReplaceableByForEach
-                while ( iterator.hasNext() ) {
-                    iterator.next();
-                }
-                targetStatement.getDataContext().resetParameterValues();
+                executeBatch( targetStatement, targetAlg, parameterRowType, types, parameterRows, false );
             }
-        } catch ( Throwable t ) {
-            throw new RuntimeException( t );
         }
+
+    }
+
+
+    /**
+     * Executes a target statement for a batch of rows. The values are passed row-wise, because the parameter values of a
+     * data context are rows and the batch execution, including the routing of the rows to their partitions, consumes
+     * them row by row. A columnar batch would have to be transposed back into rows for every target statement.
+     */
+    private void executeBatch( Statement targetStatement, AlgRoot targetAlg, AlgDataType parameterRowType, Map<Long, AlgDataType> types, List<Map<Long, Object>> parameterRows, boolean withMonitoring ) {
+        targetStatement.getDataContext().setParameterTypes( new HashMap<>( types ) );
+        targetStatement.getDataContext().setParameterValues( parameterRows );
+
+        Iterator<?> iterator = targetStatement.getQueryProcessor()
+                .prepareQuery( targetAlg, parameterRowType, true, false, withMonitoring )
+                .enumerable( targetStatement.getDataContext() )
+                .iterator();
+        //noinspection WhileLoopReplaceableByForEach
+        while ( iterator.hasNext() ) {
+            iterator.next();
+        }
+        targetStatement.getDataContext().resetParameterValues();
+    }
+
+
+    /**
+     * Checks whether the source can be read concurrently to writing the target. Within a transaction, all statements
+     * on an adapter use the same connection (see the modifications collected per adapter in
+     * {@link org.polypheny.db.adapter.enumerable.EnumerableModifyCollect}). Hence, this is only the case if the target
+     * store does not hold any of the source placements.
+     */
+    private boolean isPipelined( Map<Long, List<CatalogColumnPlacement>> placementDistribution, int targetAdapterId ) {
+        return RuntimeConfig.DATA_MIGRATOR_PIPELINING.getBoolean()
+                && placementDistribution.values().stream().flatMap( List::stream ).noneMatch( p -> p.adapterId == targetAdapterId );
     }
 
 
@@ -263,6 +392,49 @@ public AlgRoot buildDeleteStatement( Statement statement, List<CatalogColumnPlac
     }
 
 
+    @Override
+    public AlgRoot buildDeleteByKeyStatement( Statement statement, List<CatalogColumnPlacement> keys, long partitionId ) {
+        List<String> qualifiedTableName = ImmutableList.of(
+                PolySchemaBuilder.buildAdapterSchemaName(
+                        keys.get( 0 ).adapterUniqueName,
+                        keys.get( 0 ).getLogicalSchemaName(),
+                        keys.get( 0 ).physicalSchemaName ),
+                keys.get( 0 ).getLogicalTableName() + "_" + partitionId );
+        AlgOptTable physical = statement.getTransaction().getCatalogReader().getTableForMember( qualifiedTableName );
+        ModifiableTable modifiableTable = physical.unwrap( ModifiableTable.class );
+
+        AlgOptCluster cluster = AlgOptCluster.create(
+                statement.getQueryProcessor().getPlanner(),
+                new RexBuilder( statement.getTransaction().getTypeFactory() ) );
+        AlgDataTypeFactory typeFactory = new PolyTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
+
+        AlgBuilder builder = AlgBuilder.create( statement, cluster );
+        builder.scan( qualifiedTableName );
+
+        List<RexNode> conditions = new ArrayList<>();
+        for ( CatalogColumnPlacement ccp : keys ) {
+            CatalogColumn catalogColumn = Catalog.getInstance().getColumn( ccp.columnId );
+            conditions.add( builder.equals(
+                    builder.field( ccp.getLogicalColumnName() ),
+                    new RexDynamicParam( catalogColumn.getAlgDataType( typeFactory ), (int) catalogColumn.id ) ) );
+        }
+        builder.filter( conditions );
+
+        AlgNode node = modifiableTable.toModificationAlg(
+                cluster,
+                physical,
+                statement.getTransaction().getCatalogReader(),
+                builder.build(),
+                Operation.DELETE,
+                null,
+                null,
+                true
+        );
+
+        return AlgRoot.of( node, Kind.DELETE );
+    }
+
+
     @Override
     public AlgRoot buildInsertStatement( Statement statement, List<CatalogColumnPlacement> to, long partitionId ) {
         List<String> qualifiedTableName = ImmutableList.of(
@@ -475,8 +647,6 @@ public void copySelectiveData( Transaction transaction, CatalogAdapter store, Ca
         try {
             PolyResult result = sourceStatement.getQueryProcessor().prepareQuery( sourceAlg, sourceAlg.alg.getCluster().getTypeFactory().builder().build(), true, false, false );
             final Enumerable<Object> enumerable = result.enumerable( sourceStatement.getDataContext() );
-            //noinspection unchecked
-            Iterator<Object> sourceIterator = enumerable.iterator();
 
             Map<Long, Integer> resultColMapping = new HashMap<>();
             for ( CatalogColumn catalogColumn : selectColumnList ) {
@@ -489,34 +659,22 @@ public void copySelectiveData( Transaction transaction, CatalogAdapter store, Ca
                 }
             }
 
-            int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
-            while ( sourceIterator.hasNext() ) {
-                List<List<Object>> rows = MetaImpl.collect(
-                        result.getCursorFactory(),
-                        LimitIterator.of( sourceIterator, batchSize ),
-                        new ArrayList<>() );
-                Map<Long, List<Object>> values = new HashMap<>();
-                for ( List<Object> list : rows ) {
-                    for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
-                        if ( !values.containsKey( entry.getKey() ) ) {
-                            values.put( entry.getKey(), new LinkedList<>() );
+            Map<Long, AlgDataType> types = new HashMap<>();
+            resultColMapping.keySet().forEach( id -> types.put( id, null ) );
+
+            try ( BatchReader batches = new BatchReader( enumerable, result.getCursorFactory(), isPipelined( placementDistribution, store.id ) ) ) {
+                while ( batches.hasNext() ) {
+                    List<List<Object>> rows = batches.next();
+                    List<Map<Long, Object>> parameterRows = new ArrayList<>( rows.size() );
+                    for ( List<Object> list : rows ) {
+                        Map<Long, Object> parameterRow = new HashMap<>( resultColMapping.size() * 2 );
+                        for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
+                            parameterRow.put( entry.getKey(), list.get( entry.getValue() ) );
                         }
-                        values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
+                        parameterRows.add( parameterRow );
                     }
+                    executeBatch( targetStatement, targetAlg, sourceAlg.validatedRowType, types, parameterRows, true );
                 }
-                for ( Map.Entry<Long, List<Object>> v : values.entrySet() ) {
-                    targetStatement.getDataContext().addParameterValues( v.getKey(), null, v.getValue() );
-                }
-                Iterator<?> iterator = targetStatement.getQueryProcessor()
-                        .prepareQuery( targetAlg, sourceAlg.validatedRowType, true, false, true )
-                        .enumerable( targetStatement.getDataContext() )
-                        .iterator();
-
-                //noinspection WhileLoopReplaceableByForEach
-                while ( iterator.hasNext() ) {
-                    iterator.next();
-                }
-                targetStatement.getDataContext().resetParameterValues();
             }
         } catch ( Throwable t ) {
             throw new RuntimeException( t );
@@ -597,9 +755,7 @@ public void copyPartitionData( Transaction transaction, CatalogAdapter store, Ca
         // Execute Query
         try {
             PolyResult result = sourceStatement.getQueryProcessor().prepareQuery( sourceAlg, sourceAlg.alg.getCluster().getTypeFactory().builder().build(), true, false, false );
-            final Enumerable<?> enumerable = result.enumerable( sourceStatement.getDataContext() );
-            //noinspection unchecked
-            Iterator<Object> sourceIterator = (Iterator<Object>) enumerable.iterator();
+            final Enumerable<Object> enumerable = result.enumerable( sourceStatement.getDataContext() );
 
             Map<Long, Integer> resultColMapping = new HashMap<>();
             for ( CatalogColumn catalogColumn : selectColumnList ) {
@@ -623,62 +779,226 @@ public void copyPartitionData( Transaction transaction, CatalogAdapter store, Ca
                 }
             }
 
-            int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
-            while ( sourceIterator.hasNext() ) {
-                List<List<Object>> rows = MetaImpl.collect( result.getCursorFactory(), LimitIterator.of( sourceIterator, batchSize ), new ArrayList<>() );
+            // Skip the partition column if it is not placed on the target store
+            Map<Long, Integer> targetColMapping = new HashMap<>( resultColMapping );
+            if ( !columns.contains( partitionColumn ) ) {
+                targetColMapping.remove( partitionColumn.id );
+            }
+            Map<Long, AlgDataType> types = new HashMap<>();
+            targetColMapping.keySet().forEach( id -> types.put( id, null ) );
+
+            try ( BatchReader batches = new BatchReader( enumerable, result.getCursorFactory(), isPipelined( placementDistribution, store.id ) ) ) {
+                while ( batches.hasNext() ) {
+                    List<List<Object>> rows = batches.next();
+                    Map<Long, List<Map<Long, Object>>> partitionValues = new HashMap<>();
+
+                    for ( List<Object> row : rows ) {
+                        if ( partitionColumnIndex >= 0 ) {
+                            parsedValue = nullifiedPartitionValue;
+                            if ( row.get( partitionColumnIndex ) != null ) {
+                                parsedValue = row.get( partitionColumnIndex ).toString();
+                            }
+                        }
 
-                Map<Long, Map<Long, List<Object>>> partitionValues = new HashMap<>();
+                        long currentPartitionId = partitionManager.getTargetPartitionId( targetTable, parsedValue );
 
-                for ( List<Object> row : rows ) {
-                    long currentPartitionId = -1;
-                    if ( partitionColumnIndex >= 0 ) {
-                        parsedValue = nullifiedPartitionValue;
-                        if ( row.get( partitionColumnIndex ) != null ) {
-                            parsedValue = row.get( partitionColumnIndex ).toString();
+                        Map<Long, Object> parameterRow = new HashMap<>( targetColMapping.size() * 2 );
+                        for ( Map.Entry<Long, Integer> entry : targetColMapping.entrySet() ) {
+                            parameterRow.put( entry.getKey(), row.get( entry.getValue() ) );
                         }
+                        partitionValues.computeIfAbsent( currentPartitionId, k -> new ArrayList<>() ).add( parameterRow );
                     }
 
-                    currentPartitionId = partitionManager.getTargetPartitionId( targetTable, parsedValue );
+                    // Iterate over partitionValues in that way we don't even execute a statement which has no rows
+                    for ( Map.Entry<Long, List<Map<Long, Object>>> dataOnPartition : partitionValues.entrySet() ) {
+                        long partitionId = dataOnPartition.getKey();
+                        executeBatch( targetStatements.get( partitionId ), targetAlgs.get( partitionId ), sourceAlg.validatedRowType, types, dataOnPartition.getValue(), false );
+                    }
+                }
+            }
+        } catch ( Throwable t ) {
+            throw new RuntimeException( t );
+        }
+    }
 
-                    for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
-                        if ( entry.getKey() == partitionColumn.id && !columns.contains( partitionColumn ) ) {
-                            continue;
-                        }
-                        if ( !partitionValues.containsKey( currentPartitionId ) ) {
-                            partitionValues.put( currentPartitionId, new HashMap<>() );
-                        }
-                        if ( !partitionValues.get( currentPartitionId ).containsKey( entry.getKey() ) ) {
-                            partitionValues.get( currentPartitionId ).put( entry.getKey(), new LinkedList<>() );
-                        }
-                        partitionValues.get( currentPartitionId ).get( entry.getKey() ).add( row.get( entry.getValue() ) );
+
+    /**
+     * Reads the result of the source query in batches of {@link RuntimeConfig#DATA_MIGRATOR_BATCH_SIZE} rows.
+     * If pipelined, the batches are fetched on a separate thread, hence the next batch is read while the current one
+     * is written to the target store. The source query is executed when the first batch is read.
+     */
+    static class BatchReader implements Iterator<List<List<Object>>>, AutoCloseable {
+
+        // Number of batches which are read ahead
+        private static final int PREFETCH = 2;
+        private static final long POLL_INTERVAL_MILLIS = 100;
+        private static final List<List<Object>> END = Collections.emptyList();
+
+        private final Enumerable<Object> source;
+        private final CursorFactory cursorFactory;
+        private final int batchSize;
+
+        private final BlockingQueue<List<List<Object>>> queue = new ArrayBlockingQueue<>( PREFETCH );
+        // Released as soon as the producer does no longer read this source
+        private final CountDownLatch produced = new CountDownLatch( 1 );
+        private volatile boolean closed = false;
+        private volatile Future<?> producer;
+
+        private Iterator<Object> sourceIterator;
+        private List<List<Object>> next;
+
+
+        BatchReader( Enumerable<Object> source, CursorFactory cursorFactory ) {
+            this( source, cursorFactory, RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger() );
+        }
+
+
+        BatchReader( Enumerable<Object> source, CursorFactory cursorFactory, int batchSize ) {
+            this.source = source;
+            this.cursorFactory = cursorFactory;
+            this.batchSize = batchSize;
+        }
+
+
+        BatchReader( Enumerable<Object> source, CursorFactory cursorFactory, boolean pipelined ) {
+            this( source, cursorFactory, pipelined, RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger() );
+        }
+
+
+        BatchReader( Enumerable<Object> source, CursorFactory cursorFactory, boolean pipelined, int batchSize ) {
+            this( source, cursorFactory, batchSize );
+            if ( pipelined ) {
+                start( Collections.singletonList( this ) );
+            }
+        }
+
+
+        /**
+         * Reads the sources of the given readers one after another on a thread of the execution pool.
+         *
+         * @param readers Readers which have not been read yet
+         */
+        static void start( List<BatchReader> readers ) {
+            Future<?> producer = ExecutionPool.getExecutor().submit( () -> {
+                try {
+                    for ( BatchReader reader : readers ) {
+                        reader.produce();
                     }
+                } finally {
+                    // Release the readers which have not been reached because of a failure
+                    readers.forEach( r -> r.produced.countDown() );
                 }
+                return null;
+            } );
+            readers.forEach( r -> r.producer = producer );
+        }
 
-                // Iterate over partitionValues in that way we don't even execute a statement which has no rows
-                for ( Map.Entry<Long, Map<Long, List<Object>>> dataOnPartition : partitionValues.entrySet() ) {
-                    long partitionId = dataOnPartition.getKey();
-                    Map<Long, List<Object>> values = dataOnPartition.getValue();
-                    Statement currentTargetStatement = targetStatements.get( partitionId );
 
-                    for ( Map.Entry<Long, List<Object>> columnDataOnPartition : values.entrySet() ) {
-                        // Check partitionValue
-                        currentTargetStatement.getDataContext().addParameterValues( columnDataOnPartition.getKey(), null, columnDataOnPartition.getValue() );
+        private void produce() throws InterruptedException {
+            try {
+                while ( !closed && hasNextRow() ) {
+                    if ( !put( readBatch() ) ) {
+                        return;
                     }
+                }
+                put( END );
+            } finally {
+                produced.countDown();
+            }
+        }
+
+
+        /**
+         * Waits until the batch has been queued.
+         *
+         * @return false if the reader has been closed in the meantime
+         */
+        private boolean put( List<List<Object>> batch ) throws InterruptedException {
+            while ( !queue.offer( batch, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+                if ( closed ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        private boolean hasNextRow() {
+            if ( sourceIterator == null ) {
+                sourceIterator = source.iterator();
+            }
+            return sourceIterator.hasNext();
+        }
+
 
-                    Iterator iterator = currentTargetStatement.getQueryProcessor()
-                            .prepareQuery( targetAlgs.get( partitionId ), sourceAlg.validatedRowType, true, false, false )
-                            .enumerable( currentTargetStatement.getDataContext() )
-                            .iterator();
-                    //noinspection WhileLoopReplaceableByForEach
-                    while ( iterator.hasNext() ) {
-                        iterator.next();
+        private List<List<Object>> readBatch() {
+            return MetaImpl.collect( cursorFactory, LimitIterator.of( sourceIterator, batchSize ), new ArrayList<>( batchSize ) );
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            if ( next == null ) {
+                next = fetch();
+            }
+            return next != END;
+        }
+
+
+        @Override
+        public List<List<Object>> next() {
+            if ( !hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            List<List<Object>> batch = next;
+            next = null;
+            return batch;
+        }
+
+
+        private List<List<Object>> fetch() {
+            if ( producer == null ) {
+                return hasNextRow() ? readBatch() : END;
+            }
+            try {
+                while ( true ) {
+                    List<List<Object>> batch = queue.poll( POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+                    if ( batch != null ) {
+                        return batch;
+                    }
+                    if ( producer.isDone() && queue.isEmpty() ) {
+                        // The producer failed; get() rethrows its exception
+                        producer.get();
+                        return END;
                     }
-                    currentTargetStatement.getDataContext().resetParameterValues();
                 }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            } catch ( ExecutionException e ) {
+                throw new RuntimeException( "Error while reading the source data", e.getCause() );
+            }
+        }
+
+
+        /**
+         * Stops reading ahead and waits until the producer does no longer access the source, as the source must not be
+         * read after its statement has been finished.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            if ( producer == null ) {
+                return;
+            }
+            try {
+                produced.await();
+            } catch ( InterruptedException e ) {
+                producer.cancel( true );
+                Thread.currentThread().interrupt();
             }
-        } catch ( Throwable t ) {
-            throw new RuntimeException( t );
         }
+
     }
 
 }
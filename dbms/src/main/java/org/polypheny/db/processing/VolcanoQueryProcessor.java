@@ -135,7 +135,8 @@ public class VolcanoQueryProcessor extends AbstractQueryProcessor {
 
     public VolcanoQueryProcessor( Statement statement ) {
         super( statement );
-        planner = new VolcanoPlanner( VolcanoCost.FACTORY, Contexts.of( statement.getPrepareContext().config() ) );
+        // The parameter value context lets the metadata handlers estimate the selectivity of predicates on the bound parameter values
+        planner = new VolcanoPlanner( VolcanoCost.FACTORY, Contexts.chain( Contexts.of( statement.getPrepareContext().config() ), parameterValueContext ) );
         planner.addAlgTraitDef( ConventionTraitDef.INSTANCE );
         if ( ENABLE_COLLATION_TRAIT ) {
             planner.addAlgTraitDef( AlgCollationTraitDef.INSTANCE );
@@ -180,6 +181,7 @@ public VolcanoQueryProcessor( Statement statement ) {
 
         final DataContext dataContext = statement.getPrepareContext().getDataContext();
         planner.setExecutor( new RexExecutorImpl( dataContext ) );
+        planner.setBudget( RuntimeConfig.PLANNING_TIME_BUDGET.getInteger(), RuntimeConfig.PLANNING_RULE_FIRING_BUDGET.getInteger() );
     }
 
 }
@@ -57,7 +57,16 @@ public ImplementationCache() {
 
 
     public PreparedResult getIfPresent( AlgNode parameterizedNode ) {
-        PreparedResult preparedResult = implementationCache.getIfPresent( parameterizedNode.algCompareString() );
+        return getIfPresent( parameterizedNode.algCompareString() );
+    }
+
+
+    /**
+     * Returns the implementation for the given key, i.e., the compare string of the parameterized plan, possibly
+     * extended by the parameter-sensitive variant (see {@link PlanVariants}).
+     */
+    public PreparedResult getIfPresent( String cacheKey ) {
+        PreparedResult preparedResult = implementationCache.getIfPresent( cacheKey );
         if ( preparedResult == null ) {
             missesCounter.incrementAndGet();
         } else {
@@ -68,7 +77,28 @@ public PreparedResult getIfPresent( AlgNode parameterizedNode ) {
 
 
     public void put( AlgNode parameterizedNode, PreparedResult preparedResult ) {
-        implementationCache.put( parameterizedNode.algCompareString(), preparedResult );
+        put( parameterizedNode.algCompareString(), preparedResult );
+    }
+
+
+    public void put( String cacheKey, PreparedResult preparedResult ) {
+        implementationCache.put( cacheKey, preparedResult );
+    }
+
+
+    /**
+     * Removes the implementation with the given key.
+     */
+    public void invalidate( String algCompareString ) {
+        implementationCache.invalidate( algCompareString );
+    }
+
+
+    /**
+     * Returns the number of cached implementations.
+     */
+    public long getSize() {
+        return implementationCache.size();
     }
 
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.StatisticsManager;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+
+
+/**
+ * Compares the observed executions of cached plans with the estimates of the planner and invalidates the cached
+ * plans if they diverge.
+ *
+ * Two kinds of divergence are detected:
+ * <ul>
+ * <li>The number of result rows differs from the row count estimated by the planner by more than
+ * {@link RuntimeConfig#ADAPTIVE_REOPTIMIZATION_FACTOR}. The statistics of the accessed tables are re-evaluated, and the
+ * query plan, implementation and routing plans are removed from the caches, so that the query is planned again with
+ * the corrected statistics.</li>
+ * <li>The execution time differs from the average execution time of the plan by more than the same factor. The
+ * routing plans are removed from the cache, so that the routing proposals are selected again based on the
+ * current post costs.</li>
+ * </ul>
+ */
+@Slf4j
+public class PlanFeedback {
+
+    public static final PlanFeedback INSTANCE = new PlanFeedback();
+
+    /**
+     * Number of executions of a plan before its execution time is compared with the average.
+     */
+    private static final int MIN_SAMPLES = 5;
+
+    /**
+     * Weight of a new execution time in the moving average.
+     */
+    private static final double ALPHA = 0.2;
+
+    private final Cache<String, PlanStatistics> statistics;
+
+    private final AtomicLong observedCounter = new AtomicLong();
+    private final AtomicLong rowCountInvalidationCounter = new AtomicLong();
+    private final AtomicLong executionTimeInvalidationCounter = new AtomicLong();
+
+
+    public PlanFeedback() {
+        statistics = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.QUERY_PLAN_CACHING_SIZE.getInteger() )
+                .build();
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Records the execution of a plan.
+     *
+     * @param expectation Estimates of the planner for the executed plan
+     * @param nanoTime Execution time
+     * @param rowCount Number of result rows, or -1 if unknown
+     */
+    public void observe( Expectation expectation, long nanoTime, long rowCount ) {
+        observe( expectation, nanoTime, rowCount, true );
+    }
+
+
+    /**
+     * Records the execution of a plan.
+     *
+     * @param expectation Estimates of the planner for the executed plan
+     * @param nanoTime Execution time
+     * @param rowCount Number of fetched result rows, or -1 if unknown
+     * @param complete Whether all result rows have been fetched; otherwise, the row count is a lower bound and only
+     * an underestimation of the planner can be detected
+     */
+    public void observe( Expectation expectation, long nanoTime, long rowCount, boolean complete ) {
+        if ( !RuntimeConfig.ADAPTIVE_REOPTIMIZATION.getBoolean() ) {
+            return;
+        }
+        observedCounter.incrementAndGet();
+        final double factor = RuntimeConfig.ADAPTIVE_REOPTIMIZATION_FACTOR.getDouble();
+        final PlanStatistics planStatistics;
+        try {
+            planStatistics = statistics.get( expectation.cacheKey, PlanStatistics::new );
+        } catch ( Exception e ) {
+            throw new RuntimeException( e );
+        }
+
+        final boolean underestimated = rowCount > expectation.estimatedRowCount;
+        if ( rowCount >= 0 && (complete || underestimated) && divergence( expectation.estimatedRowCount, rowCount ) > factor ) {
+            // Re-planning only helps if the estimate has changed since the last invalidation
+            if ( planStatistics.markInvalidated( expectation.estimatedRowCount ) ) {
+                log.debug( "Estimated {} rows but observed {}, planning again: {}", expectation.estimatedRowCount, rowCount, expectation.cacheKey );
+                rowCountInvalidationCounter.incrementAndGet();
+                for ( long tableId : expectation.tableIds ) {
+                    StatisticsManager.getInstance().tablesToUpdate( tableId );
+                }
+                invalidate( expectation );
+                return;
+            }
+        }
+
+        if ( planStatistics.addExecutionTime( nanoTime, factor ) ) {
+            log.debug( "Execution time {} ns diverges from the average, routing again: {}", nanoTime, expectation.queryClass );
+            executionTimeInvalidationCounter.incrementAndGet();
+            RoutingPlanCache.INSTANCE.invalidate( expectation.queryClass );
+        }
+    }
+
+
+    private void invalidate( Expectation expectation ) {
+        QueryPlanCache.INSTANCE.invalidate( expectation.cacheKey );
+        ImplementationCache.INSTANCE.invalidate( expectation.cacheKey );
+        RoutingPlanCache.INSTANCE.invalidate( expectation.queryClass );
+    }
+
+
+    /**
+     * Ratio between the larger and the smaller of the two values. One is added to both values, so that empty results
+     * do not cause a division by zero.
+     */
+    static double divergence( double estimated, double actual ) {
+        final double a = estimated + 1;
+        final double b = actual + 1;
+        return Math.max( a / b, b / a );
+    }
+
+
+    public void reset() {
+        statistics.invalidateAll();
+        observedCounter.set( 0 );
+        rowCountInvalidationCounter.set( 0 );
+        executionTimeInvalidationCounter.set( 0 );
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Adaptive Re-Optimization" );
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Status", RuntimeConfig.ADAPTIVE_REOPTIMIZATION.getBoolean() ? "Active" : "Disabled" );
+            generalKv.putPair( "Observed Executions", observedCounter.get() + "" );
+            generalKv.putPair( "Invalidations (Row Count)", rowCountInvalidationCounter.get() + "" );
+            generalKv.putPair( "Invalidations (Execution Time)", executionTimeInvalidationCounter.get() + "" );
+        } );
+
+        InformationAction resetAction = new InformationAction( generalGroup, "Reset", parameters -> {
+            reset();
+            generalGroup.refresh();
+            return "Successfully reset the observed executions!";
+        } );
+        resetAction.setOrder( 2 );
+        im.registerInformation( resetAction );
+    }
+
+
+    /**
+     * Estimates of the planner for a selected plan.
+     */
+    @Getter
+    public static class Expectation {
+
+        private final String cacheKey;
+        private final String queryClass;
+        private final double estimatedRowCount;
+        private final Set<Long> tableIds;
+
+
+        /**
+         * @param cacheKey Key of the query plan and implementation cache
+         * @param queryClass Query class, which is the key of the routing plan cache
+         * @param estimatedRowCount Row count of the optimized plan estimated by the planner
+         * @param tableIds Tables accessed by the plan
+         */
+        public Expectation( String cacheKey, String queryClass, double estimatedRowCount, Set<Long> tableIds ) {
+            this.cacheKey = cacheKey;
+            this.queryClass = queryClass;
+            this.estimatedRowCount = estimatedRowCount;
+            this.tableIds = tableIds;
+        }
+
+    }
+
+
+    /**
+     * Observed executions of a plan.
+     */
+    static class PlanStatistics {
+
+        private double averageNanos;
+        private int samples;
+        private double invalidatedEstimate = Double.NaN;
+
+
+        /**
+         * Adds an execution time to the moving average. Returns true if it diverges from the average by more than
+         * the given factor; the average is reset in this case.
+         */
+        synchronized boolean addExecutionTime( long nanoTime, double factor ) {
+            if ( samples >= MIN_SAMPLES && divergence( averageNanos, nanoTime ) > factor ) {
+                samples = 0;
+                averageNanos = 0;
+                return true;
+            }
+            averageNanos = samples == 0 ? nanoTime : (1 - ALPHA) * averageNanos + ALPHA * nanoTime;
+            samples++;
+            return false;
+        }
+
+
+        /**
+         * Records that the plan has been invalidated because of the given estimate. Returns false if it has already
+         * been invalidated because of the same estimate.
+         */
+        synchronized boolean markInvalidated( double estimate ) {
+            if ( estimate == invalidatedEstimate ) {
+                return false;
+            }
+            invalidatedEstimate = estimate;
+            samples = 0;
+            averageNanos = 0;
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.StatisticsManager;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.core.Filter;
+import org.polypheny.db.algebra.metadata.AlgColumnOrigin;
+import org.polypheny.db.algebra.metadata.AlgMdUtil;
+import org.polypheny.db.algebra.metadata.AlgMdUtil.ParameterComparison;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.exceptions.UnknownColumnException;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.schema.Table;
+
+
+/**
+ * Parameter-sensitive plan caching. The query plan and implementation caches are keyed on the parameterized plan, so the
+ * plan optimized for the first parameter values would be reused for all later values. For a plan with predicates
+ * comparing a column with a parameter, the key is extended with the selectivity of these predicates for the bound
+ * values, bucketed on a logarithmic scale. The accessed partitions need no dimension of their own, they are part of
+ * the routed plan and hence of the parameterized plan.
+ *
+ * The predicates of a parameterized plan are determined once. At bind time, only their selectivities are estimated from
+ * the column statistics. The optimizer estimates the same selectivities for the bound values, see
+ * {@link org.polypheny.db.algebra.metadata.AlgMdSelectivity}, so the variants of a plan are optimized for their
+ * buckets. Per parameterized plan, at most {@link RuntimeConfig#PARAMETER_SENSITIVE_PLAN_VARIANTS}
+ * variants are created, further combinations use the generic plan.
+ */
+@Slf4j
+public class PlanVariants {
+
+    public static final PlanVariants INSTANCE = new PlanVariants();
+
+    /**
+     * Upper bounds of the selectivity buckets, a selectivity of at least the last bound falls into the last bucket.
+     */
+    private static final double[] BUCKET_BOUNDS = { 0.001, 0.01, 0.1, 0.5 };
+
+    private static final char UNKNOWN_BUCKET = '?';
+
+    // Compare string of the parameterized plan -> predicates comparing a column with a parameter
+    private final Cache<String, List<ParameterPredicate>> predicates;
+    // Compare string of the parameterized plan -> variants which have been created
+    private final Cache<String, Set<String>> variants;
+
+
+    public PlanVariants() {
+        predicates = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.QUERY_PLAN_CACHING_SIZE.getInteger() )
+                .build();
+        variants = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.QUERY_PLAN_CACHING_SIZE.getInteger() )
+                .build();
+    }
+
+
+    /**
+     * Returns the key of the query plan and implementation cache for the given parameterized plan and the parameter
+     * values bound in the data context.
+     *
+     * @param parameterizedNode The parameterized plan
+     * @param dataContext Data context holding the parameter values
+     */
+    public String getCacheKey( AlgNode parameterizedNode, DataContext dataContext ) {
+        final String compareString = parameterizedNode.algCompareString();
+        if ( !RuntimeConfig.PARAMETER_SENSITIVE_PLANS.getBoolean() ) {
+            return compareString;
+        }
+        final List<ParameterPredicate> parameterPredicates;
+        final Set<String> knownVariants;
+        try {
+            parameterPredicates = predicates.get( compareString, () -> collectPredicates( parameterizedNode ) );
+            if ( parameterPredicates.isEmpty() ) {
+                return compareString;
+            }
+            knownVariants = variants.get( compareString, ConcurrentHashMap::newKeySet );
+        } catch ( ExecutionException e ) {
+            throw new RuntimeException( e );
+        }
+
+        final String variant = variant( parameterPredicates, dataContext );
+        if ( variant == null ) {
+            return compareString;
+        }
+        if ( !knownVariants.contains( variant ) ) {
+            synchronized ( knownVariants ) {
+                if ( !knownVariants.contains( variant ) ) {
+                    if ( knownVariants.size() >= RuntimeConfig.PARAMETER_SENSITIVE_PLAN_VARIANTS.getInteger() ) {
+                        return compareString;
+                    }
+                    knownVariants.add( variant );
+                }
+            }
+        }
+        return compareString + "#" + variant;
+    }
+
+
+    public void reset() {
+        predicates.invalidateAll();
+        variants.invalidateAll();
+    }
+
+
+    /**
+     * Builds the variant from the selectivity buckets of the predicates. Returns null if none of the selectivities can
+     * be estimated.
+     */
+    private String variant( List<ParameterPredicate> parameterPredicates, DataContext dataContext ) {
+        final List<Map<Long, Object>> parameterValues = dataContext.getParameterValues();
+        if ( parameterValues.size() != 1 ) {
+            // Batch of parameter values, there is no single selectivity
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        boolean known = false;
+        for ( ParameterPredicate predicate : parameterPredicates ) {
+            final Object value = parameterValues.get( 0 ).get( predicate.parameterIndex );
+            final Double selectivity = value == null
+                    ? null
+                    : StatisticsManager.getInstance().getSelectivity( predicate.schemaId, predicate.tableId, predicate.columnId, predicate.kind, value );
+            final char bucket = bucket( selectivity );
+            known |= bucket != UNKNOWN_BUCKET;
+            sb.append( bucket );
+        }
+        return known ? sb.toString() : null;
+    }
+
+
+    static char bucket( Double selectivity ) {
+        if ( selectivity == null ) {
+            return UNKNOWN_BUCKET;
+        }
+        int bucket = 0;
+        while ( bucket < BUCKET_BOUNDS.length && selectivity >= BUCKET_BOUNDS[bucket] ) {
+            bucket++;
+        }
+        return (char) ('0' + bucket);
+    }
+
+
+    /**
+     * Collects the predicates of the filters of the plan which compare a column of a table with a parameter.
+     */
+    private static List<ParameterPredicate> collectPredicates( AlgNode node ) {
+        final List<ParameterPredicate> result = new ArrayList<>();
+        collectPredicates( node, result );
+        return result;
+    }
+
+
+    private static void collectPredicates( AlgNode node, List<ParameterPredicate> result ) {
+        if ( node instanceof Filter ) {
+            final Filter filter = (Filter) node;
+            for ( RexNode conjunction : AlgOptUtil.conjunctions( filter.getCondition() ) ) {
+                final ParameterPredicate predicate = toPredicate( filter, conjunction );
+                if ( predicate != null ) {
+                    result.add( predicate );
+                }
+            }
+        }
+        for ( AlgNode input : node.getInputs() ) {
+            collectPredicates( input, result );
+        }
+    }
+
+
+    private static ParameterPredicate toPredicate( Filter filter, RexNode condition ) {
+        final ParameterComparison comparison = AlgMdUtil.parameterComparison( condition );
+        if ( comparison == null ) {
+            return null;
+        }
+
+        final AlgColumnOrigin origin = filter.getCluster().getMetadataQuery().getColumnOrigin( filter.getInput(), comparison.inputIndex );
+        if ( origin == null || origin.isDerived() ) {
+            return null;
+        }
+        final Table table = origin.getOriginTable().unwrap( Table.class );
+        if ( table == null || table.getTableId() == null ) {
+            return null;
+        }
+        final String columnName = origin.getOriginTable().getRowType().getFieldNames().get( origin.getOriginColumnOrdinal() );
+        try {
+            final CatalogColumn column = Catalog.getInstance().getColumn( table.getTableId(), columnName );
+            return new ParameterPredicate( comparison.parameterIndex, comparison.kind, column.schemaId, column.tableId, column.id );
+        } catch ( UnknownColumnException e ) {
+            log.debug( "No catalog column for field {} of the table {}", columnName, table.getTableId() );
+            return null;
+        }
+    }
+
+
+    /**
+     * Predicate {@code column <kind> ?parameterIndex}.
+     */
+    @AllArgsConstructor
+    private static class ParameterPredicate {
+
+        private final long parameterIndex;
+        private final Kind kind;
+        private final long schemaId;
+        private final long tableId;
+        private final long columnId;
+
+    }
+
+}
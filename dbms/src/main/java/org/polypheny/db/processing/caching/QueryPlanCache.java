@@ -56,7 +56,16 @@ public QueryPlanCache() {
 
 
     public AlgNode getIfPresent( AlgNode parameterizedNode ) {
-        AlgNode node = planCache.getIfPresent( parameterizedNode.algCompareString() );
+        return getIfPresent( parameterizedNode.algCompareString() );
+    }
+
+
+    /**
+     * Returns the plan for the given key, i.e., the compare string of the parameterized plan, possibly extended by the
+     * parameter-sensitive variant (see {@link PlanVariants}).
+     */
+    public AlgNode getIfPresent( String cacheKey ) {
+        AlgNode node = planCache.getIfPresent( cacheKey );
         if ( node == null ) {
             missesCounter.incrementAndGet();
         } else {
@@ -67,12 +76,26 @@ public AlgNode getIfPresent( AlgNode parameterizedNode ) {
 
 
     public void put( AlgNode parameterizedNode, AlgNode optimalNode ) {
-        planCache.put( parameterizedNode.algCompareString(), optimalNode );
+        put( parameterizedNode.algCompareString(), optimalNode );
+    }
+
+
+    public void put( String cacheKey, AlgNode optimalNode ) {
+        planCache.put( cacheKey, optimalNode );
+    }
+
+
+    /**
+     * Removes the plan with the given key.
+     */
+    public void invalidate( String algCompareString ) {
+        planCache.invalidate( algCompareString );
     }
 
 
     public void reset() {
         ImplementationCache.INSTANCE.reset();
+        PlanVariants.INSTANCE.reset();
         planCache.invalidateAll();
         hitsCounter.set( 0 );
         missesCounter.set( 0 );
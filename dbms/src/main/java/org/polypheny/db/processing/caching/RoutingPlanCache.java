@@ -18,12 +18,18 @@
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.config.RuntimeConfig;
@@ -39,17 +45,31 @@
 import org.polypheny.db.information.InformationText;
 import org.polypheny.db.monitoring.core.MonitoringServiceProvider;
 import org.polypheny.db.routing.dto.CachedProposedRoutingPlan;
+import org.polypheny.db.util.ImmutableBitSet;
 import org.polypheny.db.util.Pair;
 
 
 /**
- * Routing plan cache.
+ * Routing plan cache. The plans are cached per query class and set of accessed partitions, which is stored as a
+ * compact bitmap signature.
+ *
+ * For every cached entry, the catalog entities it depends on are recorded: the accessed tables, the partitions and
+ * the adapters of the placements used by its plans. This allows to invalidate only the plans affected by a change of
+ * the catalog instead of the whole cache.
  */
 @Slf4j
 public class RoutingPlanCache {
 
     public static final RoutingPlanCache INSTANCE = new RoutingPlanCache();
-    private final Cache<Pair<String, Set<Long>>, List<CachedProposedRoutingPlan>> planCache;
+    private final Cache<Pair<String, ImmutableBitSet>, Entry> planCache;
+
+    // Catalog entity -> keys of the entries which depend on it
+    private final Map<Long, Set<Pair<String, ImmutableBitSet>>> tableDependencies = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Pair<String, ImmutableBitSet>>> partitionDependencies = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Pair<String, ImmutableBitSet>>> adapterDependencies = new ConcurrentHashMap<>();
+
+    // Incremented before every invalidation of dependent entries, see put
+    private final AtomicLong invalidations = new AtomicLong();
 
     private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained the value
     private final AtomicLong missesCounter = new AtomicLong(); // Number of requests when the cache didn't contain the value
@@ -59,29 +79,44 @@ public RoutingPlanCache() {
         RuntimeConfig.ROUTING_PLAN_CACHING_SIZE.setRequiresRestart( true );
         planCache = CacheBuilder.newBuilder()
                 .maximumSize( RuntimeConfig.ROUTING_PLAN_CACHING_SIZE.getInteger() )
+                .removalListener( (RemovalListener<Pair<String, ImmutableBitSet>, Entry>) notification -> {
+                    // A replacing entry has registered the same key, which must not be removed
+                    if ( notification.getCause() != RemovalCause.REPLACED ) {
+                        unregister( notification.getKey(), notification.getValue() );
+                    }
+                } )
                 .build();
         registerMonitoringPage();
     }
 
 
     public boolean isKeyPresent( String queryId, Set<Long> partitionIds ) {
-        return planCache.getIfPresent( new Pair( queryId, partitionIds ) ) != null;
+        final ImmutableBitSet signature = signature( partitionIds );
+        return signature != null && planCache.getIfPresent( new Pair<>( queryId, signature ) ) != null;
     }
 
 
     public List<CachedProposedRoutingPlan> getIfPresent( String queryId, Set<Long> partitionIds ) {
-        List<CachedProposedRoutingPlan> routingPlans = planCache.getIfPresent( new Pair( queryId, partitionIds ) );
-        if ( routingPlans == null ) {
+        final ImmutableBitSet signature = signature( partitionIds );
+        final Entry entry = signature == null ? null : planCache.getIfPresent( new Pair<>( queryId, signature ) );
+        if ( entry == null ) {
             missesCounter.incrementAndGet();
         } else {
             hitsCounter.incrementAndGet();
         }
 
-        return routingPlans != null ? routingPlans : Collections.emptyList();
+        return entry != null ? entry.routingPlans : Collections.emptyList();
     }
 
 
-    public void put( String queryId, Set<Long> partitionIds, List<CachedProposedRoutingPlan> routingPlans ) {
+    /**
+     * @param tableIds The ids of the tables accessed by the query
+     */
+    public void put( String queryId, Set<Long> partitionIds, Collection<Long> tableIds, List<CachedProposedRoutingPlan> routingPlans ) {
+        final ImmutableBitSet signature = signature( partitionIds );
+        if ( signature == null ) {
+            return;
+        }
         // this seems to be a bug, which occurs when Unions are used. As the cached execution later on needs
         // all physicalPlacementsOfPartitions or else it will fail later on.
         // We check here and don't cache if the plan is not complete
@@ -93,19 +128,143 @@ public void put( String queryId, Set<Long> partitionIds, List<CachedProposedRout
             }
             return true;
         } ) ) {
-            planCache.put( new Pair<>( queryId, partitionIds ), routingPlans );
+            final Pair<String, ImmutableBitSet> key = new Pair<>( queryId, signature );
+            final Entry entry = new Entry( routingPlans, tableIds, partitionIds );
+            // Register before the entry becomes visible. An invalidation which has already removed the dependencies
+            // but not found the entry yet has incremented the counter before, the entry is then removed again.
+            final long epoch = invalidations.get();
+            register( key, entry );
+            planCache.put( key, entry );
+            if ( invalidations.get() != epoch ) {
+                planCache.invalidate( key );
+            }
         }
 
     }
 
 
+    /**
+     * Removes the routing plans of the given query class for all sets of accessed partitions.
+     */
+    public void invalidate( String queryId ) {
+        planCache.asMap().keySet().removeIf( key -> key.left.equals( queryId ) );
+    }
+
+
+    /**
+     * Removes the routing plans of all queries which access the given table.
+     */
+    public void invalidateTable( long tableId ) {
+        invalidations.incrementAndGet();
+        invalidate( tableDependencies.remove( tableId ) );
+    }
+
+
+    /**
+     * Removes the routing plans of all queries which access one of the given partitions.
+     */
+    public void invalidatePartitions( Collection<Long> partitionIds ) {
+        invalidations.incrementAndGet();
+        partitionIds.forEach( partitionId -> invalidate( partitionDependencies.remove( partitionId ) ) );
+    }
+
+
+    /**
+     * Removes the routing plans which use a placement on the given adapter.
+     */
+    public void invalidateAdapter( int adapterId ) {
+        invalidations.incrementAndGet();
+        invalidate( adapterDependencies.remove( adapterId ) );
+    }
+
+
     public void reset() {
         planCache.invalidateAll();
+        tableDependencies.clear();
+        partitionDependencies.clear();
+        adapterDependencies.clear();
         hitsCounter.set( 0 );
         missesCounter.set( 0 );
     }
 
 
+    /**
+     * Normalizes a set of partition ids into a bitmap. Returns null if an id exceeds the range of a bitmap, such sets
+     * are not cached.
+     */
+    static ImmutableBitSet signature( Collection<Long> partitionIds ) {
+        final ImmutableBitSet.Builder builder = ImmutableBitSet.builder();
+        for ( long partitionId : partitionIds ) {
+            if ( partitionId < 0 || partitionId > Integer.MAX_VALUE ) {
+                return null;
+            }
+            builder.set( (int) partitionId );
+        }
+        return builder.build();
+    }
+
+
+    private void invalidate( Set<Pair<String, ImmutableBitSet>> keys ) {
+        if ( keys != null ) {
+            planCache.invalidateAll( keys );
+        }
+    }
+
+
+    private void register( Pair<String, ImmutableBitSet> key, Entry entry ) {
+        entry.tableIds.forEach( id -> dependents( tableDependencies, id ).add( key ) );
+        entry.partitionIds.forEach( id -> dependents( partitionDependencies, id ).add( key ) );
+        entry.adapterIds.forEach( id -> dependents( adapterDependencies, id ).add( key ) );
+    }
+
+
+    private void unregister( Pair<String, ImmutableBitSet> key, Entry entry ) {
+        if ( key == null || entry == null ) {
+            return;
+        }
+        entry.tableIds.forEach( id -> removeDependent( tableDependencies, id, key ) );
+        entry.partitionIds.forEach( id -> removeDependent( partitionDependencies, id, key ) );
+        entry.adapterIds.forEach( id -> removeDependent( adapterDependencies, id, key ) );
+    }
+
+
+    private static <K> Set<Pair<String, ImmutableBitSet>> dependents( Map<K, Set<Pair<String, ImmutableBitSet>>> dependencies, K id ) {
+        return dependencies.computeIfAbsent( id, k -> ConcurrentHashMap.newKeySet() );
+    }
+
+
+    private static <K> void removeDependent( Map<K, Set<Pair<String, ImmutableBitSet>>> dependencies, K id, Pair<String, ImmutableBitSet> key ) {
+        dependencies.computeIfPresent( id, ( k, keys ) -> {
+            keys.remove( key );
+            return keys.isEmpty() ? null : keys;
+        } );
+    }
+
+
+    /**
+     * Cached routing plans together with the catalog entities they depend on.
+     */
+    private static class Entry {
+
+        private final List<CachedProposedRoutingPlan> routingPlans;
+        private final Set<Long> tableIds;
+        private final Set<Long> partitionIds;
+        private final Set<Integer> adapterIds = new HashSet<>();
+
+
+        private Entry( List<CachedProposedRoutingPlan> routingPlans, Collection<Long> tableIds, Collection<Long> partitionIds ) {
+            this.routingPlans = routingPlans;
+            this.tableIds = new HashSet<>( tableIds );
+            this.partitionIds = new HashSet<>( partitionIds );
+            for ( CachedProposedRoutingPlan routingPlan : routingPlans ) {
+                this.partitionIds.addAll( routingPlan.physicalPlacementsOfPartitions.keySet() );
+                routingPlan.physicalPlacementsOfPartitions.values().forEach( placements -> placements.forEach( p -> adapterIds.add( p.left ) ) );
+            }
+        }
+
+    }
+
+
     private void registerMonitoringPage() {
         InformationManager im = InformationManager.getInstance();
 
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.routing;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Keeps track of the current load of the adapters, to spread read queries across the replicas of a table. For every
+ * adapter, the number of statements which have been routed to it but have not started yet (queue depth), the number of
+ * statements which are executing on it (in-flight) and exponential moving averages of the median and the 95th percentile
+ * of the execution times are collected.
+ *
+ * A statement registers itself by acquiring a {@link Lease} for the adapters of its selected plan. Leases which are never
+ * completed, e.g. because the result has not been consumed, expire after {@link #LEASE_TIMEOUT_NANOS}. Expired leases are
+ * removed at most every {@link #SWEEP_INTERVAL_NANOS} whenever the tracker is used.
+ */
+public class AdapterLoadTracker {
+
+    /**
+     * Weight of a new observation in the moving averages.
+     */
+    private static final double ALPHA = 0.1;
+
+    private static final long LEASE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos( 60 );
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final Map<Integer, AdapterLoad> adapters = new ConcurrentHashMap<>();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastSweep;
+    private final LongSupplier clock;
+
+
+    public AdapterLoadTracker() {
+        this( System::nanoTime );
+    }
+
+
+    AdapterLoadTracker( LongSupplier clock ) {
+        this.clock = clock;
+        this.lastSweep = new AtomicLong( clock.getAsLong() );
+    }
+
+
+    /**
+     * Registers a statement which has been routed to the adapters of the given routing plan.
+     *
+     * @return The lease, or null if the plan does not specify any placements
+     */
+    public Lease acquire( RoutingPlan routingPlan ) {
+        final Set<Integer> adapterIds = adapterIds( routingPlan );
+        if ( adapterIds.isEmpty() ) {
+            return null;
+        }
+        sweepIfDue();
+        final Lease lease = new Lease( adapterIds, clock.getAsLong() );
+        adapterIds.forEach( id -> adapter( id ).queued.incrementAndGet() );
+        leases.add( lease );
+        return lease;
+    }
+
+
+    public AdapterLoad getLoad( int adapterId ) {
+        sweepIfDue();
+        return adapter( adapterId );
+    }
+
+
+    /**
+     * Power of two choices: the first candidate is compared with another candidate drawn at random and the one with the
+     * lower load is returned. If the loads are equal, the first candidate is preferred. Candidates are typically ordered
+     * by costs, hence the cheapest candidate is selected unless the drawn one is less loaded.
+     *
+     * @param candidates The candidates, each with the ids of the adapters it uses
+     * @return Index of the selected candidate
+     */
+    public int choose( List<? extends Collection<Integer>> candidates ) {
+        if ( candidates.size() < 2 ) {
+            return 0;
+        }
+        sweepIfDue();
+        final int other = 1 + ThreadLocalRandom.current().nextInt( candidates.size() - 1 );
+        return compare( candidates.get( 0 ), candidates.get( other ) ) <= 0 ? 0 : other;
+    }
+
+
+    /**
+     * Compares the load of two sets of adapters. The load of a set is the load of its busiest adapter.
+     */
+    int compare( Collection<Integer> left, Collection<Integer> right ) {
+        final AdapterLoad leftLoad = busiest( left );
+        final AdapterLoad rightLoad = busiest( right );
+        int result = Double.compare( leftLoad.getScore(), rightLoad.getScore() );
+        if ( result == 0 ) {
+            result = Integer.compare( leftLoad.getOutstanding(), rightLoad.getOutstanding() );
+        }
+        return result;
+    }
+
+
+    public void reset() {
+        leases.forEach( Lease::release );
+        adapters.clear();
+    }
+
+
+    public static Set<Integer> adapterIds( RoutingPlan routingPlan ) {
+        final Set<Integer> adapterIds = new TreeSet<>();
+        final Map<Long, List<Pair<Integer, Long>>> placements = routingPlan.getPhysicalPlacementsOfPartitions();
+        if ( placements != null ) {
+            placements.values().forEach( list -> list.forEach( p -> adapterIds.add( p.left ) ) );
+        }
+        return adapterIds;
+    }
+
+
+    private AdapterLoad busiest( Collection<Integer> adapterIds ) {
+        AdapterLoad busiest = null;
+        for ( int adapterId : adapterIds ) {
+            final AdapterLoad load = adapter( adapterId );
+            if ( busiest == null || load.getScore() > busiest.getScore() ) {
+                busiest = load;
+            }
+        }
+        return busiest == null ? new AdapterLoad() : busiest;
+    }
+
+
+    private AdapterLoad adapter( int adapterId ) {
+        return adapters.computeIfAbsent( adapterId, id -> new AdapterLoad() );
+    }
+
+
+    private void sweepIfDue() {
+        final long now = clock.getAsLong();
+        final long last = lastSweep.get();
+        if ( now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet( last, now ) ) {
+            return;
+        }
+        for ( Lease lease : leases ) {
+            if ( now - lease.acquired > LEASE_TIMEOUT_NANOS ) {
+                lease.release();
+            }
+        }
+    }
+
+
+    /**
+     * Load of a single adapter.
+     */
+    public static class AdapterLoad {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong observations = new AtomicLong();
+        @Getter
+        private volatile double medianLatency;
+        @Getter
+        private volatile double tailLatency;
+
+
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+
+        public int getOutstanding() {
+            return queued.get() + inFlight.get();
+        }
+
+
+        public long getObservations() {
+            return observations.get();
+        }
+
+
+        /**
+         * Expected time until a new statement on this adapter is completed: every outstanding statement and the new
+         * one are assumed to take as long as the 95th percentile. Adapters without observations have a score of 0 and
+         * are therefore tried first.
+         */
+        public double getScore() {
+            return (getOutstanding() + 1) * tailLatency;
+        }
+
+
+        /**
+         * Updates the moving quantile estimates. The step size is proportional to the current median, which makes
+         * them independent of the magnitude of the execution times.
+         */
+        private synchronized void observe( long nanoTime ) {
+            if ( observations.getAndIncrement() == 0 ) {
+                medianLatency = nanoTime;
+                tailLatency = nanoTime;
+                return;
+            }
+            medianLatency = updateQuantile( medianLatency, nanoTime, 0.5, ALPHA * medianLatency );
+            tailLatency = Math.max( medianLatency, updateQuantile( tailLatency, nanoTime, 0.95, ALPHA * medianLatency ) );
+        }
+
+
+        private static double updateQuantile( double estimate, long value, double quantile, double step ) {
+            // Moves up by quantile * step if the value is above, down by (1 - quantile) * step otherwise. At equilibrium,
+            // a share of (1 - quantile) of the values are above the estimate.
+            return value > estimate
+                    ? Math.min( value, estimate + 2 * quantile * step )
+                    : Math.max( value, estimate - 2 * (1 - quantile) * step );
+        }
+
+    }
+
+
+    /**
+     * Registration of a statement on the adapters of its selected plan. The methods are idempotent, only the first
+     * call has an effect.
+     */
+    public class Lease {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+
+        private final Set<Integer> adapterIds;
+        private final long acquired;
+        private final AtomicInteger state = new AtomicInteger( QUEUED );
+
+
+        private Lease( Set<Integer> adapterIds, long acquired ) {
+            this.adapterIds = adapterIds;
+            this.acquired = acquired;
+        }
+
+
+        /**
+         * The execution of the statement has started.
+         */
+        public void started() {
+            if ( state.compareAndSet( QUEUED, RUNNING ) ) {
+                adapterIds.forEach( id -> {
+                    final AdapterLoad load = adapter( id );
+                    load.queued.decrementAndGet();
+                    load.inFlight.incrementAndGet();
+                } );
+            }
+        }
+
+
+        /**
+         * The execution of the statement has finished after the given time.
+         */
+        public void completed( long nanoTime ) {
+            finish( nanoTime );
+        }
+
+
+        /**
+         * The statement is not going to be executed (anymore), no execution time is recorded.
+         */
+        public void release() {
+            finish( -1 );
+        }
+
+
+        private void finish( long nanoTime ) {
+            final int previous = state.getAndSet( DONE );
+            if ( previous == DONE ) {
+                return;
+            }
+            leases.remove( this );
+            adapterIds.forEach( id -> {
+                final AdapterLoad load = adapter( id );
+                if ( previous == QUEUED ) {
+                    load.queued.decrementAndGet();
+                } else {
+                    load.inFlight.decrementAndGet();
+                }
+                if ( nanoTime >= 0 ) {
+                    load.observe( nanoTime );
+                }
+            } );
+        }
+
+    }
+
+}
@@ -18,5 +18,9 @@
 
 public enum RouterPlanSelectionStrategy {
     PROBABILITY,
-    BEST
+    BEST,
+    /**
+     * Learns the fastest plan from the observed execution times, see {@link org.polypheny.db.routing.strategies.PlacementBandit}.
+     */
+    BANDIT
 }
@@ -39,6 +39,7 @@
 import org.polypheny.db.routing.routers.SimpleRouter.SimpleRouterFactory;
 import org.polypheny.db.routing.strategies.CreatePlacementStrategy;
 import org.polypheny.db.routing.strategies.CreateSinglePlacementStrategy;
+import org.polypheny.db.routing.strategies.PlacementBandit;
 import org.polypheny.db.routing.strategies.RoutingPlanSelector;
 
 
@@ -61,6 +62,21 @@ public class RoutingManager {
             RouterPlanSelectionStrategy.class,
             RouterPlanSelectionStrategy.BEST );
 
+    public static final ConfigDouble BANDIT_EXPLORATION_BUDGET = new ConfigDouble(
+            "routing/banditExplorationBudget",
+            "Share of the executions of a query class which may explore other plans than the fastest known one, if the plan selection strategy is BANDIT. Value must be between 0 and 1.",
+            0.1 );
+
+    public static final ConfigBoolean LOAD_AWARE_ROUTING = new ConfigBoolean(
+            "routing/loadAwareRouting",
+            "Spread read queries across the replicas of a table based on the current load of the adapters (power of two choices).",
+            false );
+
+    public static final ConfigDouble LOAD_AWARE_COST_TOLERANCE = new ConfigDouble(
+            "routing/loadAwareCostTolerance",
+            "Plans whose effective costs exceed the costs of the best plan by at most this share are considered equivalent and are selected based on the load of the adapters.",
+            0.1 );
+
 
     private static final RoutingManager INSTANCE = new RoutingManager();
 
@@ -73,6 +89,10 @@ public class RoutingManager {
     @Getter
     private final RoutingPlanSelector routingPlanSelector = new RoutingPlanSelector();
     @Getter
+    private final PlacementBandit placementBandit = new PlacementBandit();
+    @Getter
+    private final AdapterLoadTracker adapterLoadTracker = new AdapterLoadTracker();
+    @Getter
     private CreatePlacementStrategy createPlacementStrategy = new CreateSinglePlacementStrategy();
     private List<RouterFactory> routerFactories;
 
@@ -153,6 +173,15 @@ public void restart( Config c ) {
             }
         } );
         POST_COST_AGGREGATION_ACTIVE.withUi( routingGroup.getId(), 3 );
+
+        configManager.registerConfig( BANDIT_EXPLORATION_BUDGET );
+        BANDIT_EXPLORATION_BUDGET.withUi( routingGroup.getId(), 4 );
+
+        configManager.registerConfig( LOAD_AWARE_ROUTING );
+        LOAD_AWARE_ROUTING.withUi( routingGroup.getId(), 5 );
+
+        configManager.registerConfig( LOAD_AWARE_COST_TOLERANCE );
+        LOAD_AWARE_COST_TOLERANCE.withUi( routingGroup.getId(), 6 );
     }
 
 
@@ -23,6 +23,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +44,7 @@
 import org.polypheny.db.algebra.logical.LogicalDocuments;
 import org.polypheny.db.algebra.logical.LogicalFilter;
 import org.polypheny.db.algebra.logical.LogicalModifyCollect;
+import org.polypheny.db.algebra.logical.LogicalParameterGroup;
 import org.polypheny.db.algebra.logical.LogicalProject;
 import org.polypheny.db.algebra.logical.LogicalTableModify;
 import org.polypheny.db.algebra.logical.LogicalTableScan;
@@ -134,7 +136,6 @@ public AlgNode routeDml( AlgNode node, Statement statement ) {
                 boolean operationWasRewritten = false;
                 List<Map<Long, Object>> tempParamValues = null;
 
-                Map<Long, Object> newParameterValues = new HashMap<>();
                 for ( CatalogColumnPlacement pkPlacement : pkPlacements ) {
 
                     CatalogReader catalogReader = statement.getTransaction().getCatalogReader();
@@ -425,50 +426,48 @@ else if ( identifiedPartitionForSetValue != -1 ) {
                                         continue;
                                     }
 
-                                    for ( ImmutableList<RexLiteral> row : partitionMapping.getValue() ) {
-                                        LogicalValues newLogicalValues = new LogicalValues(
-                                                cluster,
-                                                cluster.traitSet(),
-                                                (((LogicalTableModify) node).getInput()).getRowType(),
-                                                ImmutableList.copyOf( ImmutableList.of( row ) ) );
-
-                                        AlgNode input = buildDml(
-                                                newLogicalValues,
-                                                RoutedAlgBuilder.create( statement, cluster ),
-                                                catalogTable,
-                                                placementsOnAdapter,
-                                                catalog.getPartitionPlacement( pkPlacement.adapterId, currentPartitionId ),
-                                                statement,
-                                                cluster,
-                                                true,
-                                                statement.getDataContext().getParameterValues() ).build();
-
-                                        List<String> qualifiedTableName = ImmutableList.of(
-                                                PolySchemaBuilder.buildAdapterSchemaName(
-                                                        pkPlacement.adapterUniqueName,
-                                                        catalogTable.getSchemaName(),
-                                                        pkPlacement.physicalSchemaName
-                                                ),
-                                                t.getLogicalTableName() + "_" + currentPartitionId );
-                                        AlgOptTable physical = catalogReader.getTableForMember( qualifiedTableName );
-                                        ModifiableTable modifiableTable = physical.unwrap( ModifiableTable.class );
-
-                                        // Build DML
-                                        TableModify modify;
-
-                                        modify = modifiableTable.toModificationAlg(
-                                                cluster,
-                                                physical,
-                                                catalogReader,
-                                                input,
-                                                ((LogicalTableModify) node).getOperation(),
-                                                updateColumnList,
-                                                sourceExpressionList,
-                                                ((LogicalTableModify) node).isFlattened() );
-
-                                        modifies.add( modify );
-
-                                    }
+                                    // All rows targeting this partition are inserted jointly with a single modify
+                                    LogicalValues newLogicalValues = new LogicalValues(
+                                            cluster,
+                                            cluster.traitSet(),
+                                            (((LogicalTableModify) node).getInput()).getRowType(),
+                                            ImmutableList.copyOf( partitionMapping.getValue() ) );
+
+                                    AlgNode input = buildDml(
+                                            newLogicalValues,
+                                            RoutedAlgBuilder.create( statement, cluster ),
+                                            catalogTable,
+                                            placementsOnAdapter,
+                                            catalog.getPartitionPlacement( pkPlacement.adapterId, currentPartitionId ),
+                                            statement,
+                                            cluster,
+                                            true,
+                                            statement.getDataContext().getParameterValues() ).build();
+
+                                    List<String> qualifiedTableName = ImmutableList.of(
+                                            PolySchemaBuilder.buildAdapterSchemaName(
+                                                    pkPlacement.adapterUniqueName,
+                                                    catalogTable.getSchemaName(),
+                                                    pkPlacement.physicalSchemaName
+                                            ),
+                                            t.getLogicalTableName() + "_" + currentPartitionId );
+                                    AlgOptTable physical = catalogReader.getTableForMember( qualifiedTableName );
+                                    ModifiableTable modifiableTable = physical.unwrap( ModifiableTable.class );
+
+                                    // Build DML
+                                    TableModify modify;
+
+                                    modify = modifiableTable.toModificationAlg(
+                                            cluster,
+                                            physical,
+                                            catalogReader,
+                                            input,
+                                            ((LogicalTableModify) node).getOperation(),
+                                            updateColumnList,
+                                            sourceExpressionList,
+                                            ((LogicalTableModify) node).isFlattened() );
+
+                                    modifies.add( modify );
                                 }
                                 operationWasRewritten = true;
 
@@ -493,21 +492,27 @@ else if ( identifiedPartitionForSetValue != -1 ) {
                                             // Needed to identify the column which contains the partition value
                                             long partitionValueIndex = ((RexDynamicParam) fieldValues.get( i )).getIndex();
 
-                                            long tempPartitionId = 0;
-                                            // Get partitionValue per row/tuple to be inserted
-                                            // Create as many independent TableModifies as there are entries in getParameterValues
-
+                                            // Get partitionValue per row/tuple to be inserted and group the rows by their target partition
+                                            Map<Long, List<Map<Long, Object>>> rowsOnPartition = new LinkedHashMap<>();
+                                            List<Long> partitionsOnPlacement = catalog.getPartitionsOnDataPlacement( pkPlacement.adapterId, catalogTable.id );
                                             for ( Map<Long, Object> currentRow : statement.getDataContext().getParameterValues() ) {
+                                                Object value = currentRow.get( partitionValueIndex );
+                                                long tempPartitionId = partitionManager.getTargetPartitionId(
+                                                        catalogTable,
+                                                        value == null ? partitionManager.getUnifiedNullValue() : value.toString() );
+                                                accessedPartitionList.add( tempPartitionId );
 
-                                                tempPartitionId = partitionManager.getTargetPartitionId( catalogTable, currentRow.get( partitionValueIndex ).toString() );
-
-                                                if ( !catalog.getPartitionsOnDataPlacement( pkPlacement.adapterId, catalogTable.id ).contains( tempPartitionId ) ) {
+                                                if ( !partitionsOnPlacement.contains( tempPartitionId ) ) {
                                                     continue;
                                                 }
+                                                rowsOnPartition.computeIfAbsent( tempPartitionId, k -> new ArrayList<>() ).add( currentRow );
+                                            }
 
-                                                List<Map<Long, Object>> parameterValues = new ArrayList<>();
-                                                parameterValues.add( new HashMap<>( newParameterValues ) );
-                                                parameterValues.get( 0 ).putAll( currentRow );
+                                            // Create one TableModify per partition, which inserts all rows of this partition. The rows
+                                            // remain bound parameter values, the modify only gets the rows of its partition assigned.
+                                            for ( Map.Entry<Long, List<Map<Long, Object>>> partitionMapping : rowsOnPartition.entrySet() ) {
+                                                long tempPartitionId = partitionMapping.getKey();
+                                                statement.getDataContext().setParameterGroup( tempPartitionId, partitionMapping.getValue() );
 
                                                 AlgNode input = buildDml(
                                                         super.recursiveCopy( node.getInput( 0 ) ),
@@ -517,10 +522,8 @@ else if ( identifiedPartitionForSetValue != -1 ) {
                                                         catalog.getPartitionPlacement( pkPlacement.adapterId, tempPartitionId ),
                                                         statement,
                                                         cluster,
-                                                        true,
-                                                        parameterValues ).build();
-
-                                                newParameterValues.putAll( parameterValues.get( 0 ) );
+                                                        false,
+                                                        partitionMapping.getValue() ).build();
 
                                                 List<String> qualifiedTableName = ImmutableList.of(
                                                         PolySchemaBuilder.buildAdapterSchemaName(
@@ -545,7 +548,7 @@ else if ( identifiedPartitionForSetValue != -1 ) {
                                                         sourceExpressionList,
                                                         ((LogicalTableModify) node).isFlattened() );
 
-                                                modifies.add( modify );
+                                                modifies.add( LogicalParameterGroup.create( modify, tempPartitionId ) );
                                             }
 
                                             operationWasRewritten = true;
@@ -665,18 +668,6 @@ else if ( identifiedPartitionForSetValue != -1 ) {
                     }
                 }
 
-                // Update parameter values (horizontal partitioning)
-                if ( !newParameterValues.isEmpty() ) {
-                    statement.getDataContext().resetParameterValues();
-                    int idx = 0;
-                    for ( Map.Entry<Long, Object> entry : newParameterValues.entrySet() ) {
-                        statement.getDataContext().addParameterValues(
-                                entry.getKey(),
-                                statement.getDataContext().getParameterType( idx++ ),
-                                ImmutableList.of( entry.getValue() ) );
-                    }
-                }
-
                 if ( modifies.size() == 1 ) {
                     return modifies.get( 0 );
                 } else {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.routing.strategies;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.routing.RoutingPlan;
+
+
+/**
+ * Learns which of the proposed routing plans of a query class, i.e. which placements, executes fastest. For every
+ * context, which consists of the query class, the accessed partitions and the current load level of the system, the
+ * execution times of the plans are collected. A plan is selected by Thompson sampling: for every plan, a mean execution
+ * time is drawn from the distribution of its observations and the plan with the smallest draw wins. Plans that have
+ * rarely been executed have a wide distribution and are therefore explored from time to time.
+ *
+ * Exploration is limited by a budget, the share of selections of a context which may choose another plan than the one
+ * with the best observed mean.
+ */
+@Slf4j
+public class PlacementBandit {
+
+    /**
+     * Standard deviation of the logarithm of the execution time, as long as less than two observations are available.
+     */
+    private static final double PRIOR_DEVIATION = 1.0;
+
+    /**
+     * Lower bound for the standard deviation, which prevents that a plan with a few very similar observations is never explored again.
+     */
+    private static final double MIN_DEVIATION = 0.05;
+
+    private static final int MAX_CONTEXTS = 10_000;
+
+    private static final OperatingSystemMXBean OPERATING_SYSTEM = ManagementFactory.getOperatingSystemMXBean();
+
+    private final Cache<String, Context> contexts = CacheBuilder.newBuilder().maximumSize( MAX_CONTEXTS ).build();
+
+    /**
+     * Context keys of the selected plans whose execution time has not been observed yet. The load level may have changed
+     * until the execution time is observed, hence the key is determined once at the selection. Plans are compared by
+     * identity and are not retained by this cache.
+     */
+    private final Cache<RoutingPlan, String> selectedContextKeys = CacheBuilder.newBuilder().weakKeys().maximumSize( MAX_CONTEXTS ).build();
+
+    private final IntSupplier loadLevel;
+
+
+    public PlacementBandit() {
+        this( PlacementBandit::loadLevel );
+    }
+
+
+    PlacementBandit( IntSupplier loadLevel ) {
+        this.loadLevel = loadLevel;
+    }
+
+
+    /**
+     * Selects one of the routing plans, all of which have to belong to the same query class.
+     *
+     * @param routingPlans The proposed plans
+     * @param effectiveCosts The costs of the plans, used to decide which unknown plan is tried first
+     * @param explorationBudget Maximum share of the selections which may explore, between 0 and 1
+     * @return The selected plan
+     */
+    public RoutingPlan select( List<? extends RoutingPlan> routingPlans, List<Double> effectiveCosts, double explorationBudget ) {
+        final String contextKey = contextKey( routingPlans.get( 0 ) );
+        final RoutingPlan selected = select( contexts.asMap().computeIfAbsent( contextKey, k -> new Context() ), routingPlans, effectiveCosts, explorationBudget );
+        selectedContextKeys.put( selected, contextKey );
+        return selected;
+    }
+
+
+    private RoutingPlan select( Context context, List<? extends RoutingPlan> routingPlans, List<Double> effectiveCosts, double explorationBudget ) {
+        final Random random = ThreadLocalRandom.current();
+        synchronized ( context ) {
+            int best = -1;
+            int sampled = -1;
+            int unknown = -1;
+            double bestMean = Double.MAX_VALUE;
+            double sampledMean = Double.MAX_VALUE;
+            for ( int i = 0; i < routingPlans.size(); i++ ) {
+                final Arm arm = context.arms.get( routingPlans.get( i ).getPhysicalQueryClass() );
+                if ( arm == null ) {
+                    if ( unknown == -1 || effectiveCosts.get( i ) < effectiveCosts.get( unknown ) ) {
+                        unknown = i;
+                    }
+                    continue;
+                }
+                if ( arm.mean < bestMean ) {
+                    best = i;
+                    bestMean = arm.mean;
+                }
+                final double mean = arm.sample( random );
+                if ( mean < sampledMean ) {
+                    sampled = i;
+                    sampledMean = mean;
+                }
+            }
+
+            context.selections++;
+            if ( best == -1 ) {
+                // Nothing is known about this context yet, start with the cheapest plan
+                return routingPlans.get( unknown );
+            }
+            // Unknown plans have an infinitely wide distribution and are tried first
+            final int candidate = unknown != -1 ? unknown : sampled;
+            if ( candidate != best && context.explorations < explorationBudget * context.selections ) {
+                context.explorations++;
+                return routingPlans.get( candidate );
+            }
+            return routingPlans.get( best );
+        }
+    }
+
+
+    /**
+     * Adds the execution time of a selected plan to the context of its selection. For a plan which has not been
+     * selected by this bandit, the current load level is used.
+     */
+    public void observe( RoutingPlan routingPlan, long nanoTime ) {
+        String contextKey = selectedContextKeys.asMap().remove( routingPlan );
+        if ( contextKey == null ) {
+            contextKey = contextKey( routingPlan );
+        }
+        final Context context = contexts.asMap().computeIfAbsent( contextKey, k -> new Context() );
+        synchronized ( context ) {
+            context.arms.computeIfAbsent( routingPlan.getPhysicalQueryClass(), k -> new Arm() ).add( Math.log( Math.max( 1, nanoTime ) ) );
+        }
+        if ( log.isDebugEnabled() ) {
+            log.debug( "Observed execution time of {} ms for {}", nanoTime / 1_000_000.0, routingPlan.getPhysicalQueryClass() );
+        }
+    }
+
+
+    public void reset() {
+        contexts.invalidateAll();
+        selectedContextKeys.invalidateAll();
+    }
+
+
+    private String contextKey( RoutingPlan routingPlan ) {
+        final Map<Long, ?> placements = routingPlan.getPhysicalPlacementsOfPartitions();
+        return routingPlan.getQueryClass() + (placements == null ? "" : new TreeSet<>( placements.keySet() )) + "#" + loadLevel.getAsInt();
+    }
+
+
+    /**
+     * Returns 0 if the system is idle, 1 if it is busy and 2 if it is overloaded, according to the load average per processor.
+     */
+    static int loadLevel() {
+        final double load = OPERATING_SYSTEM.getSystemLoadAverage();
+        if ( load < 0 ) {
+            // Not available on this platform
+            return 0;
+        }
+        final double loadPerProcessor = load / OPERATING_SYSTEM.getAvailableProcessors();
+        return loadPerProcessor < 0.5 ? 0 : loadPerProcessor < 1.0 ? 1 : 2;
+    }
+
+
+    private static class Context {
+
+        private final Map<String, Arm> arms = new HashMap<>();
+        private long selections;
+        private long explorations;
+
+    }
+
+
+    /**
+     * Observations of one plan, as running mean and variance of the logarithm of the execution times.
+     */
+    private static class Arm {
+
+        private long count;
+        private double mean;
+        private double m2;
+
+
+        void add( double value ) {
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+
+        /**
+         * Draws a mean from the posterior distribution of the mean of this plan.
+         */
+        double sample( Random random ) {
+            final double deviation = count < 2 ? PRIOR_DEVIATION : Math.max( Math.sqrt( m2 / (count - 1) ), MIN_DEVIATION );
+            return mean + random.nextGaussian() * deviation / Math.sqrt( count );
+        }
+
+    }
+
+}
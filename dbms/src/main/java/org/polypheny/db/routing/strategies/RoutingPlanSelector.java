@@ -17,13 +17,16 @@
 package org.polypheny.db.routing.strategies;
 
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.monitoring.core.MonitoringServiceProvider;
 import org.polypheny.db.plan.AlgOptCost;
 import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.routing.AdapterLoadTracker;
 import org.polypheny.db.routing.RouterPlanSelectionStrategy;
 import org.polypheny.db.routing.RoutingManager;
 import org.polypheny.db.routing.RoutingPlan;
@@ -82,6 +85,11 @@ public RoutingPlan selectPlanBasedOnCosts(
             Pair<RoutingPlan, List<Double>> percentageResult = this.selectPlanFromProbability( routingPlans, effectiveCosts );
             result = percentageResult.left;
             percentageCosts = percentageResult.right;
+        } else if ( RoutingManager.PLAN_SELECTION_STRATEGY.getEnum() == RouterPlanSelectionStrategy.BANDIT ) {
+            result = RoutingManager.getInstance().getPlacementBandit().select(
+                    routingPlans,
+                    effectiveCosts,
+                    RoutingManager.BANDIT_EXPLORATION_BUDGET.getDouble() );
         }
 
         if ( result == null ) {
@@ -151,10 +159,39 @@ private RoutingPlan selectBestPlan(
             }
         }
 
+        if ( RoutingManager.LOAD_AWARE_ROUTING.getBoolean() && routingPlans.size() > 1 ) {
+            return selectLeastLoadedPlan( routingPlans, effectiveCosts, currentPlan, currentCost );
+        }
         return currentPlan;
     }
 
 
+    /**
+     * Plans which are about as cheap as the best plan, typically the same query on different replicas, are considered
+     * equivalent. One of them is selected based on the current load of the adapters they use.
+     */
+    private RoutingPlan selectLeastLoadedPlan(
+            List<? extends RoutingPlan> routingPlans,
+            List<Double> effectiveCosts,
+            RoutingPlan bestPlan,
+            double bestCost ) {
+        final double limit = bestCost * (1 + RoutingManager.LOAD_AWARE_COST_TOLERANCE.getDouble()) + AlgOptUtil.EPSILON;
+        final List<Integer> candidates = IntStream.range( 0, routingPlans.size() )
+                .filter( i -> effectiveCosts.get( i ) <= limit )
+                .boxed()
+                .sorted( Comparator.comparing( effectiveCosts::get ) )
+                .collect( Collectors.toList() );
+        if ( candidates.size() < 2 ) {
+            return bestPlan;
+        }
+        final List<Set<Integer>> adapterIds = candidates.stream()
+                .map( i -> AdapterLoadTracker.adapterIds( routingPlans.get( i ) ) )
+                .collect( Collectors.toList() );
+        final int selected = RoutingManager.getInstance().getAdapterLoadTracker().choose( adapterIds );
+        return routingPlans.get( candidates.get( selected ) );
+    }
+
+
     private Pair<List<Double>, List<Double>> calculateIcarusPostCosts( List<? extends RoutingPlan> proposedRoutingPlans ) {
         final List<Long> postCosts = proposedRoutingPlans.stream()
                 .map( plan -> MonitoringServiceProvider.getInstance().getQueryPostCosts( plan.getPhysicalQueryClass() ).getExecutionTime() )
@@ -106,7 +106,7 @@ public class TransactionImpl implements Transaction, Comparable<Object> {
     private final Set<CatalogTable> catalogTables = new TreeSet<>();
 
     @Getter
-    private final List<Adapter> involvedAdapters = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Adapter> involvedAdapters = new CopyOnWriteArrayList<>();
 
     private final Set<Lock> lockList = new HashSet<>();
     private boolean useCache = true;
@@ -154,9 +154,8 @@ public InformationManager getQueryAnalyzer() {
 
     @Override
     public void registerInvolvedAdapter( Adapter adapter ) {
-        if ( !involvedAdapters.contains( adapter ) ) {
-            involvedAdapters.add( adapter );
-        }
+        // Adapters are registered by the threads which read the inputs of a query concurrently
+        involvedAdapters.addIfAbsent( adapter );
     }
 
 
@@ -205,6 +204,9 @@ public void commit() throws TransactionException {
             } );
 
             IndexManager.getInstance().commit( this.xid );
+
+            // Hand over the changes to materialized views while the locks are still held
+            MaterializedViewManager.getInstance().publishDeltas( xid );
         } else {
             log.error( "Unable to prepare all involved entities for commit. Rollback changes!" );
             rollback();
@@ -236,6 +238,7 @@ public void rollback() throws TransactionException {
             }
             IndexManager.getInstance().rollback( this.xid );
             Catalog.getInstance().rollback();
+            MaterializedViewManager.getInstance().rollbackXid( xid );
             // Free resources hold by statements
             statements.forEach( statement -> {
                 if ( statement.getMonitoringEvent() != null ) {
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.view;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.calcite.avatica.MetaImpl;
+import org.polypheny.db.PolyResult;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.core.Aggregate.Group;
+import org.polypheny.db.algebra.core.JoinAlgType;
+import org.polypheny.db.algebra.logical.LogicalAggregate;
+import org.polypheny.db.algebra.logical.LogicalFilter;
+import org.polypheny.db.algebra.logical.LogicalJoin;
+import org.polypheny.db.algebra.logical.LogicalProject;
+import org.polypheny.db.algebra.logical.LogicalTableScan;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeFactory;
+import org.polypheny.db.algebra.type.AlgDataTypeSystem;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.processing.DataMigrator;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexOver;
+import org.polypheny.db.rex.RexUtil.SubQueryFinder;
+import org.polypheny.db.schema.LogicalTable;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.type.PolyTypeFactoryImpl;
+
+
+/**
+ * Refreshes a materialized view by applying the rows inserted into its underlying tables instead of recomputing the
+ * whole view. Supported are views consisting of selections, projections and inner joins, optionally followed by a
+ * grouped aggregation.
+ *
+ * The rows derived from the inserted rows are computed by evaluating the view definition with the scans of the
+ * changed tables restricted to the inserted rows. For several changed tables T1, ..., Tn, the delta of a join is
+ * the sum of the terms in which Ti is restricted to the inserted rows, the tables Tj with j < i are restricted to
+ * their rows before the inserts and all other tables are read completely. For aggregations, the groups affected by
+ * the inserted rows are deleted from the view and recomputed.
+ */
+class IncrementalViewRefresh {
+
+    private final Catalog catalog = Catalog.getInstance();
+    private final MaterializedViewManagerImpl manager;
+    private final Transaction transaction;
+    private final CatalogMaterializedView view;
+    private final Map<Long, List<List<Object>>> insertedKeys;
+
+    private final AlgDataTypeFactory typeFactory = new PolyTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
+
+
+    IncrementalViewRefresh( MaterializedViewManagerImpl manager, Transaction transaction, CatalogMaterializedView view, MaterializedViewDelta delta ) {
+        this.manager = manager;
+        this.transaction = transaction;
+        this.view = view;
+        this.insertedKeys = delta.getInsertedKeys();
+    }
+
+
+    /**
+     * Applies the inserted rows to the materialized view.
+     *
+     * @return {@code false} if the view cannot be refreshed incrementally; the view has not been modified in this case
+     */
+    boolean refresh() {
+        if ( view.isOrdered() ) {
+            // The generated ids of the rows reflect the order of the view
+            return false;
+        }
+        AlgNode definition = view.getDefinition();
+
+        // Split the definition into the aggregation (if any), the nodes above and the join tree below it
+        List<AlgNode> above = new ArrayList<>();
+        LogicalAggregate aggregate = null;
+        AlgNode joinTree = definition;
+        if ( !isSelectProjectJoin( definition ) ) {
+            AlgNode node = definition;
+            while ( isSelectProject( node ) ) {
+                above.add( node );
+                node = node.getInput( 0 );
+            }
+            if ( !(node instanceof LogicalAggregate) ) {
+                return false;
+            }
+            aggregate = (LogicalAggregate) node;
+            if ( aggregate.getGroupType() != Group.SIMPLE || aggregate.getGroupCount() == 0 || !isSelectProjectJoin( aggregate.getInput() ) ) {
+                return false;
+            }
+            joinTree = aggregate.getInput();
+        }
+
+        // Every changed table has to be scanned at most once
+        Map<Long, Integer> scans = new HashMap<>();
+        countScans( joinTree, scans );
+        List<Long> changedTables = new ArrayList<>();
+        for ( Map.Entry<Long, List<List<Object>>> entry : insertedKeys.entrySet() ) {
+            Integer count = scans.get( entry.getKey() );
+            if ( count != null && !entry.getValue().isEmpty() ) {
+                if ( count > 1 ) {
+                    return false;
+                }
+                changedTables.add( entry.getKey() );
+            }
+        }
+
+        List<CatalogColumn> viewColumns = view.columnIds.stream().map( catalog::getColumn ).collect( Collectors.toList() );
+        int[] keyPositions = null;
+        if ( aggregate != null ) {
+            keyPositions = getGroupKeyPositions( above, aggregate.getGroupCount(), definition.getRowType().getFieldCount() );
+            if ( keyPositions == null ) {
+                return false;
+            }
+        }
+        if ( changedTables.isEmpty() ) {
+            return true;
+        }
+
+        if ( aggregate == null ) {
+            List<List<Object>> rows = new ArrayList<>();
+            for ( int i = 0; i < changedTables.size(); i++ ) {
+                rows.addAll( collect( definition, changedTables, i, null ) );
+            }
+            insert( viewColumns, rows );
+        } else {
+            Set<List<Object>> groups = new LinkedHashSet<>();
+            for ( int i = 0; i < changedTables.size(); i++ ) {
+                groups.addAll( collect( aggregate.getInput(), changedTables, i, aggregate ) );
+            }
+            if ( groups.stream().anyMatch( group -> group.contains( null ) ) ) {
+                // NULL groups cannot be deleted by key
+                return false;
+            }
+            if ( groups.isEmpty() ) {
+                return true;
+            }
+            List<List<Object>> rows = recompute( definition, aggregate, new ArrayList<>( groups ) );
+            delete( viewColumns, keyPositions, groups );
+            insert( viewColumns, rows );
+        }
+        return true;
+    }
+
+
+    private boolean isSelectProject( AlgNode node ) {
+        if ( node instanceof LogicalFilter ) {
+            return SubQueryFinder.find( ((LogicalFilter) node).getCondition() ) == null;
+        } else if ( node instanceof LogicalProject ) {
+            List<RexNode> projects = ((LogicalProject) node).getProjects();
+            return SubQueryFinder.find( projects ) == null && projects.stream().noneMatch( RexOver::containsOver );
+        }
+        return false;
+    }
+
+
+    private boolean isSelectProjectJoin( AlgNode node ) {
+        if ( node instanceof LogicalTableScan ) {
+            return node.getTable().getTable() instanceof LogicalTable;
+        } else if ( node instanceof LogicalJoin ) {
+            LogicalJoin join = (LogicalJoin) node;
+            return join.getJoinType() == JoinAlgType.INNER
+                    && SubQueryFinder.find( join.getCondition() ) == null
+                    && isSelectProjectJoin( join.getLeft() )
+                    && isSelectProjectJoin( join.getRight() );
+        }
+        return isSelectProject( node ) && isSelectProjectJoin( node.getInput( 0 ) );
+    }
+
+
+    private void countScans( AlgNode node, Map<Long, Integer> scans ) {
+        if ( node instanceof LogicalTableScan ) {
+            scans.merge( ((LogicalTable) node.getTable().getTable()).getTableId(), 1, Integer::sum );
+        }
+        node.getInputs().forEach( input -> countScans( input, scans ) );
+    }
+
+
+    /**
+     * Maps the group keys of the aggregation to the columns of the view.
+     *
+     * @return The position of the view column for every group key, or {@code null} if a group key is not part of the view
+     */
+    private int[] getGroupKeyPositions( List<AlgNode> above, int groupCount, int fieldCount ) {
+        int[] positions = new int[groupCount];
+        int found = 0;
+        for ( int position = 0; position < fieldCount; position++ ) {
+            int index = position;
+            for ( AlgNode node : above ) {
+                if ( node instanceof LogicalProject ) {
+                    RexNode project = ((LogicalProject) node).getProjects().get( index );
+                    if ( !(project instanceof RexInputRef) ) {
+                        index = -1;
+                        break;
+                    }
+                    index = ((RexInputRef) project).getIndex();
+                }
+            }
+            if ( index >= 0 && index < groupCount && positions[index] == 0 ) {
+                // Stored with an offset to distinguish unmapped keys
+                positions[index] = position + 1;
+                found++;
+            }
+        }
+        if ( found < groupCount ) {
+            return null;
+        }
+        for ( int i = 0; i < groupCount; i++ ) {
+            positions[i]--;
+        }
+        return positions;
+    }
+
+
+    /**
+     * Evaluates the i-th term of the delta of the given node. If an aggregation is provided, the distinct values
+     * of its group keys are returned instead of the rows.
+     */
+    private List<List<Object>> collect( AlgNode node, List<Long> changedTables, int term, LogicalAggregate aggregate ) {
+        Statement statement = transaction.createStatement();
+        manager.prepareSourceRel( statement, view.getAlgCollation(), view.getDefinition() );
+        Parameters parameters = new Parameters();
+
+        Map<Long, Boolean> restrictions = new HashMap<>();
+        for ( int i = 0; i <= term; i++ ) {
+            // The changed table of this term is restricted to the inserted rows, the ones before to the other rows
+            restrictions.put( changedTables.get( i ), i == term );
+        }
+        AlgBuilder builder = AlgBuilder.create( statement, node.getCluster() );
+        builder.push( restrict( builder, node, restrictions, parameters ) );
+        if ( aggregate != null ) {
+            builder.aggregate( builder.groupKey( aggregate.getGroupSet() ) );
+        }
+        return execute( statement, builder.build(), parameters );
+    }
+
+
+    private AlgNode restrict( AlgBuilder builder, AlgNode node, Map<Long, Boolean> restrictions, Parameters parameters ) {
+        if ( node instanceof LogicalTableScan ) {
+            long tableId = ((LogicalTable) node.getTable().getTable()).getTableId();
+            Boolean inserted = restrictions.get( tableId );
+            if ( inserted == null ) {
+                return node;
+            }
+            CatalogTable table = catalog.getTable( tableId );
+            List<CatalogColumn> keyColumns = catalog.getPrimaryKey( table.primaryKey ).columnIds.stream()
+                    .map( catalog::getColumn )
+                    .collect( Collectors.toList() );
+            builder.push( node );
+            List<RexNode> fields = keyColumns.stream().map( c -> builder.field( c.name ) ).collect( Collectors.toList() );
+            RexNode condition = parameters.matchAny( builder, fields, insertedKeys.get( tableId ) );
+            builder.filter( inserted ? condition : builder.not( condition ) );
+            return builder.build();
+        }
+        List<AlgNode> inputs = new ArrayList<>();
+        for ( AlgNode input : node.getInputs() ) {
+            inputs.add( restrict( builder, input, restrictions, parameters ) );
+        }
+        return node.copy( node.getTraitSet(), inputs );
+    }
+
+
+    /**
+     * Recomputes the rows of the view for the given groups.
+     */
+    private List<List<Object>> recompute( AlgNode definition, LogicalAggregate aggregate, List<List<Object>> groups ) {
+        Statement statement = transaction.createStatement();
+        manager.prepareSourceRel( statement, view.getAlgCollation(), definition );
+        Parameters parameters = new Parameters();
+
+        AlgBuilder builder = AlgBuilder.create( statement, definition.getCluster() );
+        builder.push( aggregate.getInput() );
+        List<RexNode> fields = aggregate.getGroupSet().asList().stream().map( i -> builder.field( i ) ).collect( Collectors.toList() );
+        builder.filter( parameters.matchAny( builder, fields, groups ) );
+        AlgNode filtered = aggregate.copy( aggregate.getTraitSet(), Collections.singletonList( builder.build() ) );
+        return execute( statement, replace( definition, aggregate, filtered ), parameters );
+    }
+
+
+    private AlgNode replace( AlgNode node, AlgNode target, AlgNode replacement ) {
+        if ( node == target ) {
+            return replacement;
+        }
+        return node.copy( node.getTraitSet(), Collections.singletonList( replace( node.getInput( 0 ), target, replacement ) ) );
+    }
+
+
+    private List<List<Object>> execute( Statement statement, AlgNode node, Parameters parameters ) {
+        parameters.bind( statement );
+        AlgRoot root = AlgRoot.of( node, Kind.SELECT );
+        PolyResult result = statement.getQueryProcessor().prepareQuery(
+                root,
+                root.alg.getCluster().getTypeFactory().builder().build(),
+                false,
+                false,
+                false );
+        Iterator<Object> iterator = result.enumerable( statement.getDataContext() ).iterator();
+        return MetaImpl.collect( result.getCursorFactory(), iterator, new ArrayList<>() );
+    }
+
+
+    /**
+     * Deletes the rows of the given groups from all placements of the view.
+     */
+    private void delete( List<CatalogColumn> viewColumns, int[] keyPositions, Set<List<Object>> groups ) {
+        DataMigrator dataMigrator = transaction.getDataMigrator();
+        Map<Long, AlgDataType> types = new HashMap<>();
+        List<Map<Long, Object>> parameterRows = new ArrayList<>( groups.size() );
+        for ( int position : keyPositions ) {
+            CatalogColumn column = viewColumns.get( position );
+            types.put( column.id, column.getAlgDataType( typeFactory ) );
+        }
+        for ( List<Object> group : groups ) {
+            Map<Long, Object> parameterRow = new HashMap<>();
+            for ( int i = 0; i < keyPositions.length; i++ ) {
+                parameterRow.put( viewColumns.get( keyPositions[i] ).id, group.get( i ) );
+            }
+            parameterRows.add( parameterRow );
+        }
+
+        for ( int adapterId : view.dataPlacements ) {
+            List<CatalogColumnPlacement> keyPlacements = new ArrayList<>();
+            for ( int position : keyPositions ) {
+                keyPlacements.add( catalog.getColumnPlacement( adapterId, viewColumns.get( position ).id ) );
+            }
+            Statement statement = transaction.createStatement();
+            AlgRoot deleteAlg = dataMigrator.buildDeleteByKeyStatement( statement, keyPlacements, getPartitionId( adapterId ) );
+            executeModify( statement, deleteAlg, types, parameterRows );
+        }
+    }
+
+
+    /**
+     * Inserts rows into all placements of the view. The generated ids of the rows continue after the highest id
+     * currently in use.
+     */
+    private void insert( List<CatalogColumn> viewColumns, List<List<Object>> rows ) {
+        if ( rows.isEmpty() ) {
+            return;
+        }
+        DataMigrator dataMigrator = transaction.getDataMigrator();
+        CatalogColumn idColumn = viewColumns.stream().filter( c -> c.name.startsWith( "_matid_" ) ).findFirst().orElseThrow( IllegalStateException::new );
+        int firstId = getNextId( idColumn );
+
+        Map<Long, AlgDataType> types = new HashMap<>();
+        viewColumns.forEach( c -> types.put( c.id, c.getAlgDataType( typeFactory ) ) );
+        List<Map<Long, Object>> parameterRows = new ArrayList<>( rows.size() );
+        int id = firstId;
+        for ( List<Object> row : rows ) {
+            Map<Long, Object> parameterRow = new HashMap<>();
+            for ( int i = 0; i < viewColumns.size(); i++ ) {
+                CatalogColumn column = viewColumns.get( i );
+                parameterRow.put( column.id, column.id == idColumn.id ? id++ : row.get( i ) );
+            }
+            parameterRows.add( parameterRow );
+        }
+
+        for ( int adapterId : view.dataPlacements ) {
+            List<CatalogColumnPlacement> placements = catalog.getDataPlacement( adapterId, view.id ).columnPlacementsOnAdapter.stream()
+                    .map( columnId -> catalog.getColumnPlacement( adapterId, columnId ) )
+                    .collect( Collectors.toList() );
+            Statement statement = transaction.createStatement();
+            AlgRoot insertAlg = dataMigrator.buildInsertStatement( statement, placements, getPartitionId( adapterId ) );
+            executeModify( statement, insertAlg, types, parameterRows );
+        }
+    }
+
+
+    private int getNextId( CatalogColumn idColumn ) {
+        Statement statement = transaction.createStatement();
+        AlgBuilder builder = AlgBuilder.create( statement );
+        builder.scan( view.name );
+        builder.aggregate( builder.groupKey(), builder.max( "maxId", builder.field( idColumn.name ) ) );
+        List<List<Object>> rows = execute( statement, builder.build(), new Parameters() );
+        if ( rows.isEmpty() || rows.get( 0 ).get( 0 ) == null ) {
+            return 0;
+        }
+        return ((Number) rows.get( 0 ).get( 0 )).intValue() + 1;
+    }
+
+
+    private long getPartitionId( int adapterId ) {
+        // Materialized views are not partitioned
+        return catalog.getPartitionsOnDataPlacement( adapterId, view.id ).get( 0 );
+    }
+
+
+    private void executeModify( Statement statement, AlgRoot targetAlg, Map<Long, AlgDataType> types, List<Map<Long, Object>> parameterRows ) {
+        statement.getDataContext().setParameterTypes( types );
+        statement.getDataContext().setParameterValues( parameterRows );
+        Iterator<?> iterator = statement.getQueryProcessor()
+                .prepareQuery( targetAlg, targetAlg.alg.getCluster().getTypeFactory().builder().build(), true, false, false )
+                .enumerable( statement.getDataContext() )
+                .iterator();
+        //noinspection WhileLoopReplaceableByForEach
+        while ( iterator.hasNext() ) {
+            iterator.next();
+        }
+        statement.getDataContext().resetParameterValues();
+    }
+
+
+    /**
+     * Dynamic parameters of a query restricting columns to a set of values.
+     */
+    private static class Parameters {
+
+        private final Map<Long, AlgDataType> types = new HashMap<>();
+        private final Map<Long, Object> values = new HashMap<>();
+
+
+        /**
+         * Builds a condition which is true if the fields are equal to one of the given rows of values:
+         * (f1 = v11 AND f2 = v12) OR (f1 = v21 AND f2 = v22) OR ...
+         */
+        RexNode matchAny( AlgBuilder builder, List<RexNode> fields, List<List<Object>> rows ) {
+            List<RexNode> disjunction = new ArrayList<>( rows.size() );
+            for ( List<Object> row : rows ) {
+                List<RexNode> conjunction = new ArrayList<>( fields.size() );
+                for ( int i = 0; i < fields.size(); i++ ) {
+                    conjunction.add( builder.equals( fields.get( i ), add( fields.get( i ).getType(), row.get( i ) ) ) );
+                }
+                disjunction.add( builder.and( conjunction ) );
+            }
+            return builder.or( disjunction );
+        }
+
+
+        private RexDynamicParam add( AlgDataType type, Object value ) {
+            long index = types.size();
+            types.put( index, type );
+            values.put( index, value );
+            return new RexDynamicParam( type, index );
+        }
+
+
+        void bind( Statement statement ) {
+            if ( !types.isEmpty() ) {
+                statement.getDataContext().setParameterTypes( types );
+                statement.getDataContext().setParameterValues( Collections.singletonList( values ) );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.view;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Changes of the underlying tables of a materialized view since its last refresh, or changes of a transaction
+ * which have not been committed yet. Inserted rows are identified by the values of their primary key. For all
+ * other changes (updates, deletes, truncates and inserts of which the keys are not known) only the table is recorded.
+ */
+class MaterializedViewDelta {
+
+    private final Map<Long, List<List<Object>>> insertedKeys = new HashMap<>();
+    private final Set<Long> untrackedTables = new HashSet<>();
+    private int insertedRows = 0;
+    private boolean overflow = false;
+
+
+    synchronized void addInserted( long tableId, List<List<Object>> keys, int maxRows ) {
+        if ( overflow ) {
+            return;
+        }
+        insertedRows += keys.size();
+        if ( insertedRows > maxRows ) {
+            // Too many rows for an incremental refresh; free the memory
+            overflow = true;
+            insertedKeys.clear();
+            return;
+        }
+        insertedKeys.computeIfAbsent( tableId, id -> new ArrayList<>() ).addAll( keys );
+    }
+
+
+    synchronized void addUntracked( long tableId ) {
+        untrackedTables.add( tableId );
+    }
+
+
+    /**
+     * Adds the changes of the given tables from another delta.
+     */
+    synchronized void addAll( MaterializedViewDelta other, Set<Long> tableIds, int maxRows ) {
+        for ( long tableId : tableIds ) {
+            if ( other.untrackedTables.contains( tableId ) ) {
+                addUntracked( tableId );
+            }
+            List<List<Object>> keys = other.insertedKeys.get( tableId );
+            if ( keys != null ) {
+                addInserted( tableId, keys, maxRows );
+            }
+        }
+        if ( other.overflow ) {
+            overflow = true;
+            insertedKeys.clear();
+        }
+    }
+
+
+    synchronized Set<Long> getTableIds() {
+        Set<Long> tableIds = new HashSet<>( insertedKeys.keySet() );
+        tableIds.addAll( untrackedTables );
+        return tableIds;
+    }
+
+
+    /**
+     * Whether all changes are known and can be applied incrementally.
+     */
+    synchronized boolean isIncremental() {
+        return !overflow && untrackedTables.isEmpty();
+    }
+
+
+    synchronized Map<Long, List<List<Object>>> getInsertedKeys() {
+        return Collections.unmodifiableMap( new HashMap<>( insertedKeys ) );
+    }
+
+}
@@ -18,6 +18,7 @@
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,6 +28,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +41,10 @@
 import org.polypheny.db.algebra.BiAlg;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.core.TableModify.Operation;
+import org.polypheny.db.algebra.logical.LogicalProject;
+import org.polypheny.db.algebra.logical.LogicalTableModify;
+import org.polypheny.db.algebra.logical.LogicalValues;
 import org.polypheny.db.algebra.logical.LogicalViewScan;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.Catalog.TableType;
@@ -59,6 +65,12 @@
 import org.polypheny.db.plan.Convention;
 import org.polypheny.db.processing.DataMigrator;
 import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.schema.LogicalTable;
 import org.polypheny.db.tools.AlgBuilder;
 import org.polypheny.db.transaction.EntityAccessMap;
 import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
@@ -70,7 +82,9 @@
 import org.polypheny.db.transaction.TransactionException;
 import org.polypheny.db.transaction.TransactionImpl;
 import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.type.PolyType;
 import org.polypheny.db.util.DeadlockException;
+import org.polypheny.db.util.NlsString;
 import org.polypheny.db.util.Pair;
 import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
@@ -91,11 +105,27 @@ public class MaterializedViewManagerImpl extends MaterializedViewManager {
 
     final Map<PolyXid, Long> updateCandidates;
 
+    /**
+     * Changes of the underlying tables per materialized view since its last refresh. Views without an entry
+     * have not been refreshed since the start of Polypheny-DB and are recomputed on the next refresh.
+     */
+    private final Map<Long, MaterializedViewDelta> viewDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * Changes of transactions which have not been committed yet
+     */
+    private final Map<PolyXid, MaterializedViewDelta> transactionDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * Materialized views refreshed by a transaction; they are recomputed on the next refresh if the transaction is rolled back
+     */
+    private final Map<PolyXid, Set<Long>> refreshedViews = new ConcurrentHashMap<>();
+
 
     public MaterializedViewManagerImpl( TransactionManager transactionManager ) {
         this.transactionManager = transactionManager;
         this.materializedInfo = new ConcurrentHashMap<>();
-        this.updateCandidates = new HashMap<>();
+        this.updateCandidates = new ConcurrentHashMap<>();
         this.intervalToUpdate = Collections.synchronizedList( new ArrayList<>() );
         registerFreshnessLoop();
     }
@@ -126,6 +156,7 @@ public synchronized Map<Long, MaterializedCriteria> updateMaterializedViewInfo()
     @Override
     public synchronized void deleteMaterializedViewFromInfo( Long materializedId ) {
         materializedInfo.remove( materializedId );
+        viewDeltas.remove( materializedId );
     }
 
 
@@ -204,6 +235,211 @@ public void updateCommittedXid( PolyXid xid ) {
     }
 
 
+    @Override
+    public void addDeltas( Statement statement, List<LogicalTableModify> modifies ) {
+        Catalog catalog = Catalog.getInstance();
+        for ( LogicalTableModify modify : modifies ) {
+            CatalogTable catalogTable = catalog.getTable( ((LogicalTable) modify.getTable().getTable()).getTableId() );
+            if ( catalogTable.getConnectedViews().isEmpty() ) {
+                continue;
+            }
+            MaterializedViewDelta delta = transactionDeltas.computeIfAbsent( statement.getTransaction().getXid(), xid -> new MaterializedViewDelta() );
+            List<List<Object>> keys = null;
+            if ( modify.getOperation() == Operation.INSERT ) {
+                keys = getInsertedKeys( statement, modify, catalogTable );
+            }
+            if ( keys == null ) {
+                delta.addUntracked( catalogTable.id );
+            } else {
+                delta.addInserted( catalogTable.id, keys, RuntimeConfig.MATERIALIZED_VIEW_MAX_DELTA_ROWS.getInteger() );
+            }
+        }
+    }
+
+
+    @Override
+    public void addUntrackedChange( Transaction transaction, long tableId ) {
+        if ( !Catalog.getInstance().getTable( tableId ).getConnectedViews().isEmpty() ) {
+            transactionDeltas.computeIfAbsent( transaction.getXid(), xid -> new MaterializedViewDelta() ).addUntracked( tableId );
+        }
+    }
+
+
+    @Override
+    public void publishDeltas( PolyXid xid ) {
+        refreshedViews.remove( xid );
+        MaterializedViewDelta delta = transactionDeltas.remove( xid );
+        if ( delta == null ) {
+            return;
+        }
+        Catalog catalog = Catalog.getInstance();
+        int maxRows = RuntimeConfig.MATERIALIZED_VIEW_MAX_DELTA_ROWS.getInteger();
+        for ( long tableId : delta.getTableIds() ) {
+            if ( !catalog.checkIfExistsTable( tableId ) ) {
+                continue;
+            }
+            for ( long viewId : catalog.getTable( tableId ).getConnectedViews() ) {
+                viewDeltas.computeIfPresent( viewId, ( id, viewDelta ) -> {
+                    viewDelta.addAll( delta, Collections.singleton( tableId ), maxRows );
+                    return viewDelta;
+                } );
+            }
+        }
+    }
+
+
+    @Override
+    public void rollbackXid( PolyXid xid ) {
+        updateCandidates.remove( xid );
+        transactionDeltas.remove( xid );
+        Set<Long> views = refreshedViews.remove( xid );
+        if ( views != null ) {
+            views.forEach( viewDeltas::remove );
+        }
+    }
+
+
+    @Override
+    public AlgRoot rewriteWithMaterializedViews( Statement statement, AlgRoot root ) {
+        if ( materializedInfo.isEmpty() || isCreatingMaterialized || isUpdatingMaterialized || isDroppingMaterialized ) {
+            return root;
+        }
+        return new MaterializedViewRewriter( this, statement ).rewrite( root );
+    }
+
+
+    /**
+     * Checks whether a materialized view can be used to answer queries of a transaction. This is the case if no changes
+     * of the underlying tables are pending, or if the view has been refreshed recently enough. Views refreshed by the
+     * transaction itself and views on tables modified by the transaction are never used.
+     */
+    boolean isFresh( CatalogMaterializedView materializedView, Transaction transaction ) {
+        MaterializedCriteria criteria = materializedInfo.get( materializedView.id );
+        if ( criteria == null ) {
+            return false;
+        }
+        Set<Long> refreshed = refreshedViews.get( transaction.getXid() );
+        if ( refreshed != null && refreshed.contains( materializedView.id ) ) {
+            return false;
+        }
+        MaterializedViewDelta uncommitted = transactionDeltas.get( transaction.getXid() );
+        if ( uncommitted != null && uncommitted.getTableIds().stream().anyMatch( materializedView.getUnderlyingTables()::containsKey ) ) {
+            return false;
+        }
+        MaterializedViewDelta delta = viewDeltas.get( materializedView.id );
+        if ( delta != null && delta.getTableIds().isEmpty() ) {
+            return true;
+        }
+        long maxStaleness = RuntimeConfig.MATERIALIZED_VIEW_REWRITING_MAX_STALENESS.getInteger();
+        return maxStaleness > 0 && criteria.getLastUpdate().getTime() + maxStaleness >= System.currentTimeMillis();
+    }
+
+
+    /**
+     * Determines the primary keys of the rows inserted by a modification. This is possible if the inserted values
+     * are literals or parameters of a prepared statement.
+     *
+     * @return The values of the primary key per inserted row or {@code null} if they cannot be determined
+     */
+    private List<List<Object>> getInsertedKeys( Statement statement, LogicalTableModify modify, CatalogTable catalogTable ) {
+        AlgNode input = modify.getInput();
+        List<RexNode> projects = null;
+        if ( input instanceof LogicalProject ) {
+            projects = ((LogicalProject) input).getProjects();
+            input = ((LogicalProject) input).getInput();
+        }
+        if ( !(input instanceof LogicalValues) || modify.getInput().getRowType().getFieldCount() != catalogTable.columnIds.size() ) {
+            return null;
+        }
+
+        Catalog catalog = Catalog.getInstance();
+        List<CatalogColumn> keyColumns = new ArrayList<>();
+        catalog.getPrimaryKey( catalogTable.primaryKey ).columnIds.forEach( id -> keyColumns.add( catalog.getColumn( id ) ) );
+        List<Map<Long, Object>> parameterRows = statement.getDataContext().getParameterValues();
+        if ( parameterRows.isEmpty() ) {
+            parameterRows = Collections.singletonList( Collections.emptyMap() );
+        }
+
+        List<List<Object>> keys = new ArrayList<>();
+        for ( List<RexLiteral> tuple : ((LogicalValues) input).getTuples() ) {
+            boolean parameterized = false;
+            for ( Map<Long, Object> parameterRow : parameterRows ) {
+                List<Object> key = new ArrayList<>( keyColumns.size() );
+                for ( CatalogColumn column : keyColumns ) {
+                    int index = catalogTable.columnIds.indexOf( column.id );
+                    RexNode expression = projects == null ? tuple.get( index ) : projects.get( index );
+                    parameterized |= isParameter( expression );
+                    Object value = normalizeKey( evaluate( expression, tuple, parameterRow ), column.type );
+                    if ( value == null ) {
+                        return null;
+                    }
+                    key.add( value );
+                }
+                keys.add( key );
+                if ( !parameterized ) {
+                    // The same values for every parameter row
+                    break;
+                }
+            }
+        }
+        return keys;
+    }
+
+
+    private boolean isParameter( RexNode node ) {
+        if ( node.isA( Kind.CAST ) ) {
+            return isParameter( ((RexCall) node).operands.get( 0 ) );
+        }
+        return node instanceof RexDynamicParam;
+    }
+
+
+    private Object evaluate( RexNode node, List<RexLiteral> tuple, Map<Long, Object> parameterRow ) {
+        if ( node.isA( Kind.CAST ) ) {
+            return evaluate( ((RexCall) node).operands.get( 0 ), tuple, parameterRow );
+        } else if ( node instanceof RexLiteral ) {
+            return ((RexLiteral) node).getValueForQueryParameterizer();
+        } else if ( node instanceof RexInputRef ) {
+            return evaluate( tuple.get( ((RexInputRef) node).getIndex() ), tuple, parameterRow );
+        } else if ( node instanceof RexDynamicParam ) {
+            return parameterRow.get( ((RexDynamicParam) node).getIndex() );
+        }
+        return null;
+    }
+
+
+    /**
+     * Converts a key value into the representation used for parameters of the given type.
+     *
+     * @return The converted value or {@code null} if keys of this type are not supported
+     */
+    private Object normalizeKey( Object value, PolyType type ) {
+        if ( value instanceof Number ) {
+            switch ( type ) {
+                case TINYINT:
+                    return ((Number) value).byteValue();
+                case SMALLINT:
+                    return ((Number) value).shortValue();
+                case INTEGER:
+                    return ((Number) value).intValue();
+                case BIGINT:
+                    return ((Number) value).longValue();
+                case DECIMAL:
+                    return new BigDecimal( value.toString() );
+                default:
+                    return null;
+            }
+        } else if ( type == PolyType.VARCHAR ) {
+            if ( value instanceof NlsString ) {
+                return ((NlsString) value).getValue();
+            } else if ( value instanceof String ) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+
     /**
      * Checks if materialized view  with freshness update needs to be updated after a change on the underlying table
      *
@@ -289,6 +525,8 @@ public void prepareToUpdate( Long materializedId ) {
                 // Get locks for individual tables
                 EntityAccessMap accessMap = new EntityAccessMap( ((CatalogMaterializedView) catalogTable).getDefinition(), new HashMap<>() );
                 idAccessMap.addAll( accessMap.getAccessedEntityPair() );
+                // Queries rewritten to the materialized view must not read it while it is refreshed
+                idAccessMap.add( Pair.of( new EntityIdentifier( materializedId, catalogTable.partitionProperty.partitionIds.get( 0 ) ), LockMode.EXCLUSIVE ) );
                 LockManager.INSTANCE.lock( idAccessMap, (TransactionImpl) statement.getTransaction() );
 
             } catch ( DeadlockException e ) {
@@ -309,6 +547,7 @@ public void prepareToUpdate( Long materializedId ) {
     @Override
     public void addData( Transaction transaction, List<DataStore> stores, Map<Integer, List<CatalogColumn>> columns, AlgRoot algRoot, CatalogMaterializedView materializedView ) {
         addMaterializedInfo( materializedView.id, materializedView.getMaterializedCriteria() );
+        resetDelta( transaction, materializedView.id );
 
         List<CatalogColumnPlacement> columnPlacements = new LinkedList<>();
         DataMigrator dataMigrator = transaction.getDataMigrator();
@@ -329,7 +568,9 @@ public void addData( Transaction transaction, List<DataStore> stores, Map<Intege
 
 
     /**
-     * Deletes all the data from a materialized view and adds the newest data to the materialized view
+     * Refreshes a materialized view. If only rows have been inserted into the underlying tables since the last
+     * refresh, they are applied incrementally. Otherwise, all the data is deleted from the materialized view and
+     * the newest data is added to the materialized view.
      *
      * @param transaction that is used
      * @param materializedId id from materialized view
@@ -346,6 +587,19 @@ public void updateData( Transaction transaction, Long materializedId ) {
         List<Integer> ids = new ArrayList<>();
         if ( catalog.checkIfExistsTable( materializedId ) && materializedInfo.containsKey( materializedId ) ) {
             CatalogMaterializedView catalogMaterializedView = (CatalogMaterializedView) catalog.getTable( materializedId );
+            MaterializedViewDelta delta = resetDelta( transaction, materializedId );
+            if ( delta != null && delta.isIncremental() && RuntimeConfig.MATERIALIZED_VIEW_INCREMENTAL_REFRESH.getBoolean() ) {
+                try {
+                    if ( new IncrementalViewRefresh( this, transaction, catalogMaterializedView, delta ).refresh() ) {
+                        return;
+                    }
+                } catch ( RuntimeException e ) {
+                    // The state of the view is unknown, recompute it on the next refresh
+                    viewDeltas.remove( materializedId );
+                    throw e;
+                }
+            }
+
             for ( int id : catalogMaterializedView.dataPlacements ) {
                 ids.add( id );
                 List<CatalogColumn> catalogColumns = new ArrayList<>();
@@ -413,6 +667,17 @@ public void updateData( Transaction transaction, Long materializedId ) {
     }
 
 
+    /**
+     * Starts recording the changes of the underlying tables of a materialized view which is (re)computed by the given transaction.
+     *
+     * @return The changes since the last refresh or {@code null} if they are not known
+     */
+    private MaterializedViewDelta resetDelta( Transaction transaction, long materializedId ) {
+        refreshedViews.computeIfAbsent( transaction.getXid(), xid -> ConcurrentHashMap.newKeySet() ).add( materializedId );
+        return viewDeltas.put( materializedId, new MaterializedViewDelta() );
+    }
+
+
     public void commitTransaction( Transaction transaction ) {
         try {
             // Locks are released within commit
@@ -431,7 +696,7 @@ public void commitTransaction( Transaction transaction ) {
     }
 
 
-    private void prepareSourceRel( Statement sourceStatement, AlgCollation algCollation, AlgNode sourceRel ) {
+    void prepareSourceRel( Statement sourceStatement, AlgCollation algCollation, AlgNode sourceRel ) {
         AlgOptCluster cluster = AlgOptCluster.create(
                 sourceStatement.getQueryProcessor().getPlanner(),
                 new RexBuilder( sourceStatement.getTransaction().getTypeFactory() ) );
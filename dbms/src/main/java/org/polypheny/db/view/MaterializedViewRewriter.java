@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.view;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.algebra.AbstractAlgNode;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.logical.LogicalTableScan;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.TableType;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.plan.AlgOptCluster;
+import org.polypheny.db.plan.SubstitutionVisitor;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.schema.LogicalTable;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.LockManager;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.TransactionImpl;
+import org.polypheny.db.util.DeadlockException;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Rewrites queries to read from materialized views instead of computing (parts of) their result from the underlying
+ * tables. The definitions of the materialized views are matched against the query using the {@link SubstitutionVisitor},
+ * which also detects views which compute a superset of a filter or a finer grouping of an aggregation.
+ */
+@Slf4j
+class MaterializedViewRewriter {
+
+    private final Catalog catalog = Catalog.getInstance();
+    private final MaterializedViewManagerImpl manager;
+    private final Statement statement;
+
+
+    MaterializedViewRewriter( MaterializedViewManagerImpl manager, Statement statement ) {
+        this.manager = manager;
+        this.statement = statement;
+    }
+
+
+    AlgRoot rewrite( AlgRoot root ) {
+        Map<Long, AlgNode> scans = new LinkedHashMap<>();
+        collectScans( root.alg, scans );
+        List<CatalogMaterializedView> candidates = getCandidates( scans );
+        AlgNode alg = root.alg;
+        for ( CatalogMaterializedView view : candidates ) {
+            try {
+                AlgNode definition = copyDefinition( view.getDefinition(), scans, alg.getCluster() );
+                List<AlgNode> substitutions = new SubstitutionVisitor( definition, alg ).go( buildReplacement( view, definition, alg.getCluster() ) );
+                if ( !substitutions.isEmpty() ) {
+                    // The first alternative has all occurrences replaced
+                    alg = substitutions.get( 0 );
+                    log.debug( "Using materialized view {} to answer query", view.name );
+                }
+            } catch ( Exception | AssertionError e ) {
+                log.debug( "Unable to match materialized view {}", view.name, e );
+            }
+        }
+        return alg == root.alg ? root : root.withAlg( alg );
+    }
+
+
+    /**
+     * Returns the fresh materialized views whose underlying tables are all read by the query. Views with more underlying
+     * tables are tried first, as they replace larger parts of the query.
+     */
+    private List<CatalogMaterializedView> getCandidates( Map<Long, AlgNode> scans ) {
+        Set<Long> viewIds = new LinkedHashSet<>();
+        for ( long tableId : scans.keySet() ) {
+            viewIds.addAll( catalog.getTable( tableId ).getConnectedViews() );
+        }
+        List<CatalogMaterializedView> candidates = new ArrayList<>();
+        for ( long viewId : viewIds ) {
+            if ( !catalog.checkIfExistsTable( viewId ) ) {
+                continue;
+            }
+            CatalogTable table = catalog.getTable( viewId );
+            if ( table.tableType != TableType.MATERIALIZED_VIEW ) {
+                continue;
+            }
+            CatalogMaterializedView view = (CatalogMaterializedView) table;
+            if ( !scans.keySet().containsAll( view.getUnderlyingTables().keySet() ) ) {
+                continue;
+            }
+            // The view must not be refreshed between checking its freshness and reading it
+            lock( view );
+            if ( manager.isFresh( view, statement.getTransaction() ) ) {
+                candidates.add( view );
+            }
+        }
+        candidates.sort( Comparator.comparingInt( ( CatalogMaterializedView v ) -> v.getUnderlyingTables().size() ).reversed() );
+        return candidates;
+    }
+
+
+    /**
+     * Acquires shared locks on the view and its underlying tables. The scans of the underlying tables are replaced by the
+     * view, hence they are not locked with the entities of the rewritten query.
+     */
+    private void lock( CatalogMaterializedView view ) {
+        Collection<Entry<EntityIdentifier, LockMode>> idAccessMap = new ArrayList<>();
+        // Get a shared global schema lock (only DDLs acquire an exclusive global schema lock)
+        idAccessMap.add( Pair.of( LockManager.GLOBAL_LOCK, LockMode.SHARED ) );
+        idAccessMap.add( Pair.of( new EntityIdentifier( view.id, view.partitionProperty.partitionIds.get( 0 ) ), LockMode.SHARED ) );
+        for ( long tableId : view.getUnderlyingTables().keySet() ) {
+            for ( long partitionId : catalog.getTable( tableId ).partitionProperty.partitionIds ) {
+                idAccessMap.add( Pair.of( new EntityIdentifier( tableId, partitionId ), LockMode.SHARED ) );
+            }
+        }
+        try {
+            LockManager.INSTANCE.lock( idAccessMap, (TransactionImpl) statement.getTransaction() );
+        } catch ( DeadlockException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    private void collectScans( AlgNode alg, Map<Long, AlgNode> scans ) {
+        if ( alg instanceof LogicalTableScan && alg.getTable().getTable() instanceof LogicalTable ) {
+            scans.putIfAbsent( ((LogicalTable) alg.getTable().getTable()).getTableId(), alg );
+        }
+        alg.getInputs().forEach( input -> collectScans( input, scans ) );
+    }
+
+
+    /**
+     * Copies the definition of a view into the cluster of the query. The definition is shared by all queries and
+     * hence must not be modified. Its scans are replaced by the scans of the query, so that the
+     * {@link SubstitutionVisitor} recognizes them as equal.
+     */
+    private AlgNode copyDefinition( AlgNode node, Map<Long, AlgNode> scans, AlgOptCluster cluster ) {
+        if ( node instanceof LogicalTableScan && node.getTable().getTable() instanceof LogicalTable ) {
+            AlgNode scan = scans.get( ((LogicalTable) node.getTable().getTable()).getTableId() );
+            if ( scan == null ) {
+                throw new IllegalStateException( "The query does not read " + node.getTable().getQualifiedName() );
+            }
+            return scan;
+        } else if ( node.getInputs().isEmpty() || !(node instanceof AbstractAlgNode) ) {
+            throw new UnsupportedOperationException( "Unsupported node in view definition: " + node.getAlgTypeName() );
+        }
+        List<AlgNode> inputs = new ArrayList<>( node.getInputs().size() );
+        for ( AlgNode input : node.getInputs() ) {
+            inputs.add( copyDefinition( input, scans, cluster ) );
+        }
+        AlgNode copy = node.copy( node.getTraitSet(), inputs );
+        if ( copy == node ) {
+            throw new UnsupportedOperationException( "Unable to copy " + node.getAlgTypeName() );
+        }
+        ((AbstractAlgNode) copy).setCluster( cluster );
+        return copy;
+    }
+
+
+    /**
+     * Builds a scan of the materialized view with the row type of its definition, i.e., without the generated id column.
+     */
+    private AlgNode buildReplacement( CatalogMaterializedView view, AlgNode definition, AlgOptCluster cluster ) {
+        AlgBuilder builder = AlgBuilder.create( statement, cluster );
+        builder.scan( view.getSchemaName(), view.name );
+        List<RexNode> fields = new ArrayList<>();
+        for ( int i = 0; i < definition.getRowType().getFieldCount(); i++ ) {
+            fields.add( builder.field( i ) );
+        }
+        builder.project( fields );
+        builder.convert( definition.getRowType(), true );
+        return builder.build();
+    }
+
+}
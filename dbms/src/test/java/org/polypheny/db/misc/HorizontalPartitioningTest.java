@@ -22,9 +22,12 @@
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.calcite.avatica.AvaticaSqlException;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -34,17 +37,23 @@
 import org.polypheny.db.TestHelper;
 import org.polypheny.db.TestHelper.JdbcConnection;
 import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.DataPlacementRole;
 import org.polypheny.db.catalog.Catalog.PartitionType;
+import org.polypheny.db.catalog.Catalog.PlacementType;
 import org.polypheny.db.catalog.Catalog.Pattern;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
 import org.polypheny.db.catalog.entity.CatalogDataPlacement;
 import org.polypheny.db.catalog.entity.CatalogPartition;
 import org.polypheny.db.catalog.entity.CatalogPartitionPlacement;
 import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.catalog.exceptions.UnknownAdapterException;
 import org.polypheny.db.config.Config;
 import org.polypheny.db.config.ConfigManager;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.excluded.CassandraExcluded;
 import org.polypheny.db.excluded.FileExcluded;
 import org.polypheny.db.monitoring.core.MonitoringServiceProvider;
+import org.polypheny.db.partition.OnlinePartitionMigrator;
 import org.polypheny.db.partition.PartitionManager;
 import org.polypheny.db.partition.PartitionManagerFactory;
 import org.polypheny.db.partition.properties.TemperaturePartitionProperty;
@@ -625,6 +634,43 @@ public void partitionFilterTest() throws SQLException {
     }
 
 
+    @Test
+    public void approximatePartitionColumnFilterTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE approximatePartitionFilter( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tdouble DOUBLE NULL, "
+                        + "PRIMARY KEY (tprimary) )"
+                        + "PARTITION BY HASH (tdouble) "
+                        + "PARTITIONS 4" );
+
+                try {
+                    statement.executeUpdate( "INSERT INTO approximatePartitionFilter VALUES (1, 1e10)" );
+                    statement.executeUpdate( "INSERT INTO approximatePartitionFilter VALUES (2, 2.5)" );
+
+                    // The literal in the filter has a different string representation than the inserted double
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT tprimary FROM approximatePartitionFilter WHERE tdouble = 10000000000.0" ),
+                            ImmutableList.of( new Object[]{ 1 } ) );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT tprimary FROM approximatePartitionFilter WHERE tdouble = 1e10" ),
+                            ImmutableList.of( new Object[]{ 1 } ) );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT tprimary FROM approximatePartitionFilter WHERE tdouble = 2.5 OR tdouble = 1e10 ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1 },
+                                    new Object[]{ 2 } ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE IF EXISTS approximatePartitionFilter" );
+                }
+            }
+        }
+    }
+
+
     @Test
     public void partitionPlacementTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
@@ -783,6 +829,128 @@ public void temperaturePartitionTest() throws SQLException {
     }
 
 
+    @Test
+    public void onlineTemperatureRedistributionTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                // The periodic processing must not move the partitions while the test is running
+                ConfigManager cm = ConfigManager.getInstance();
+                Config processingInterval = cm.getConfig( "runtime/partitionFrequencyProcessingInterval" );
+                Enum<?> previousInterval = processingInterval.getEnum();
+                processingInterval.setEnum( TaskSchedulingType.EVERY_THIRTY_MINUTES );
+                int previousBatchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
+                int previousRowsPerSecond = RuntimeConfig.TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND.getInteger();
+
+                statement.executeUpdate( "CREATE TABLE onlinetemperaturetest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )"
+                        + "PARTITION BY TEMPERATURE(tvarchar)"
+                        + "(PARTITION hot VALUES(12%),"
+                        + "PARTITION cold VALUES(14%))"
+                        + " USING FREQUENCY write  INTERVAL 10 minutes WITH  20 HASH PARTITIONS" );
+
+                try {
+                    // HOT is only placed on the new store and COLD only on the default store
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"onlinehot\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",path:., trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    statement.executeUpdate( "ALTER TABLE onlinetemperaturetest ADD PLACEMENT ON STORE \"onlinehot\"" );
+                    statement.executeUpdate( "ALTER TABLE onlinetemperaturetest MODIFY PARTITIONS (hot) ON STORE \"onlinehot\"" );
+                    statement.executeUpdate( "ALTER TABLE onlinetemperaturetest MODIFY PARTITIONS (cold) ON STORE hsqldb" );
+
+                    CatalogTable table = Catalog.getInstance().getTables( null, null, new Pattern( "onlinetemperaturetest" ) ).get( 0 );
+                    TemperaturePartitionProperty property = (TemperaturePartitionProperty) table.partitionProperty;
+                    PartitionManager partitionManager = PartitionManagerFactory.getInstance().getPartitionManager( table.partitionProperty.partitionType );
+                    List<CatalogPartition> coldPartitions = Catalog.getInstance().getPartitions( property.getColdPartitionGroupId() );
+
+                    // Find a value of a COLD partition
+                    String partitionValue = null;
+                    long partitionId = -1;
+                    for ( int i = 0; partitionValue == null; i++ ) {
+                        long targetId = partitionManager.getTargetPartitionId( table, "value" + i );
+                        if ( coldPartitions.contains( Catalog.getInstance().getPartition( targetId ) ) ) {
+                            partitionValue = "value" + i;
+                            partitionId = targetId;
+                        }
+                    }
+
+                    // While a placement is being filled, reads are still routed to the up-to-date placement
+                    int hotAdapterId = Catalog.getInstance().getAdapter( "onlinehot" ).id;
+                    int coldAdapterId = Catalog.getInstance().getAdapter( "hsqldb" ).id;
+                    Catalog.getInstance().addPartitionPlacement(
+                            hotAdapterId,
+                            table.id,
+                            partitionId,
+                            PlacementType.AUTOMATIC,
+                            null,
+                            null,
+                            DataPlacementRole.REFRESHABLE );
+                    try {
+                        assertReadAdapters( partitionManager, table, partitionId, coldAdapterId );
+                    } finally {
+                        Catalog.getInstance().deletePartitionPlacement( hotAdapterId, partitionId );
+                    }
+
+                    int rowCount = 5;
+                    for ( int i = 1; i <= rowCount; i++ ) {
+                        statement.executeUpdate( "INSERT INTO onlinetemperaturetest VALUES (" + i + ", " + i + ", '" + partitionValue + "')" );
+                    }
+
+                    // Copy the partition in chunks of two rows, i.e. in three chunks
+                    RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.setInteger( 2 );
+                    RuntimeConfig.TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND.setInteger( 0 );
+                    OnlinePartitionMigrator migrator = new OnlinePartitionMigrator( Catalog.getInstance(), TestHelper.getInstance().getTransactionManager() );
+                    migrator.submit( table, Collections.singletonList( partitionId ), Collections.emptyList() );
+                    for ( int i = 0; migrator.isMigrating( table.id ); i++ ) {
+                        Assert.assertTrue( "The redistribution did not finish in time", i < 600 );
+                        TimeUnit.MILLISECONDS.sleep( 100 );
+                    }
+
+                    // The partition is now HOT and all rows have been copied
+                    List<CatalogPartition> hotPartitions = Catalog.getInstance().getPartitions( property.getHotPartitionGroupId() );
+                    Assert.assertTrue( hotPartitions.contains( Catalog.getInstance().getPartition( partitionId ) ) );
+                    assertReadAdapters( partitionManager, table, partitionId, hotAdapterId );
+                    List<Object[]> expected = new ArrayList<>();
+                    for ( int i = 1; i <= rowCount; i++ ) {
+                        expected.add( new Object[]{ i, i, partitionValue } );
+                    }
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM onlinetemperaturetest WHERE tvarchar = '" + partitionValue + "' ORDER BY tprimary" ),
+                            expected );
+                } catch ( InterruptedException | UnknownAdapterException e ) {
+                    throw new RuntimeException( e );
+                } finally {
+                    RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.setInteger( previousBatchSize );
+                    RuntimeConfig.TEMPERATURE_REDISTRIBUTION_ROWS_PER_SECOND.setInteger( previousRowsPerSecond );
+                    processingInterval.setEnum( previousInterval );
+                    statement.executeUpdate( "DROP TABLE IF EXISTS onlinetemperaturetest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP onlinehot" );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Asserts that the partition is only read from the given adapter.
+     */
+    private static void assertReadAdapters( PartitionManager partitionManager, CatalogTable table, long partitionId, int adapterId ) {
+        CatalogTable current = Catalog.getInstance().getTable( table.id );
+        List<CatalogColumnPlacement> relevantPlacements = partitionManager
+                .getRelevantPlacements( current, Collections.singletonList( partitionId ), Collections.emptyList() )
+                .get( partitionId );
+        Assert.assertEquals( current.columnIds.size(), relevantPlacements.size() );
+        for ( CatalogColumnPlacement placement : relevantPlacements ) {
+            Assert.assertEquals( adapterId, placement.adapterId );
+        }
+        Assert.assertEquals(
+                Collections.singleton( adapterId ),
+                partitionManager.getAllPlacements( current, Collections.singletonList( partitionId ) ).keySet() );
+    }
+
+
     @Test
     public void multiInsertTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
@@ -936,6 +1104,131 @@ public void batchPartitionTest() throws SQLException {
     }
 
 
+    @Test
+    @Category(FileExcluded.class)
+    public void batchInsertOnSeveralStoresTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE batchinserttest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "tbigint BIGINT NULL, "
+                        + "PRIMARY KEY (tprimary) )"
+                        + "PARTITION BY HASH (tvarchar) "
+                        + "PARTITIONS 4" );
+
+                try {
+                    // A full placement on a second store, so that the modifications of every partition are executed on two adapters
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"anotherstore\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",path:., trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    statement.executeUpdate( "ALTER TABLE \"batchinserttest\" ADD PLACEMENT ON STORE \"anotherstore\"" );
+
+                    // All rows of a partition are inserted with one modify per placement
+                    PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO batchinserttest(tprimary,tvarchar,tbigint) VALUES (?, ?, ?)" );
+                    List<Object[]> expected = new ArrayList<>();
+                    for ( int i = 0; i < 50; i++ ) {
+                        preparedInsert.setInt( 1, i );
+                        preparedInsert.setString( 2, "Foo" + (i % 7) );
+                        if ( i % 10 == 0 ) {
+                            preparedInsert.setNull( 3, Types.BIGINT );
+                            expected.add( new Object[]{ i, "Foo" + (i % 7), null } );
+                        } else {
+                            preparedInsert.setLong( 3, 10000000000L + i );
+                            expected.add( new Object[]{ i, "Foo" + (i % 7), 10000000000L + i } );
+                        }
+                        preparedInsert.addBatch();
+                    }
+                    preparedInsert.executeBatch();
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM batchinserttest ORDER BY tprimary" ),
+                            expected );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM batchinserttest WHERE tvarchar = 'Foo3'" ),
+                            ImmutableList.of( new Object[]{ 7L } ) );
+
+                    // A batch of another size, whose rows target the same partitions, reuses the plan with the new rows
+                    for ( int i = 50; i < 71; i++ ) {
+                        preparedInsert.setInt( 1, i );
+                        preparedInsert.setString( 2, "Foo" + (i % 7) );
+                        preparedInsert.setLong( 3, 10000000000L + i );
+                        expected.add( new Object[]{ i, "Foo" + (i % 7), 10000000000L + i } );
+                        preparedInsert.addBatch();
+                    }
+                    preparedInsert.executeBatch();
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM batchinserttest ORDER BY tprimary" ),
+                            expected );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM batchinserttest WHERE tvarchar = 'Foo3'" ),
+                            ImmutableList.of( new Object[]{ 10L } ) );
+                } finally {
+                    // Drop tables and stores
+                    statement.executeUpdate( "DROP TABLE IF EXISTS batchinserttest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP anotherstore" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    @Category(FileExcluded.class)
+    public void scatterGatherUnionTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE scattergathertest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )"
+                        + "PARTITION BY HASH (tvarchar) "
+                        + "PARTITIONS 4" );
+
+                boolean previousScatterGather = RuntimeConfig.SCATTER_GATHER_UNION.getBoolean();
+                try {
+                    // Half of the partitions on each store, so that a scan of the table is a union of the two stores
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"unionstore\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",path:., trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    statement.executeUpdate( "ALTER TABLE \"scattergathertest\" ADD PLACEMENT ON STORE \"unionstore\"" );
+                    statement.executeUpdate( "ALTER TABLE \"scattergathertest\" MODIFY PARTITIONS (2,3) ON STORE \"unionstore\"" );
+                    statement.executeUpdate( "ALTER TABLE \"scattergathertest\" MODIFY PARTITIONS (0,1) ON STORE \"hsqldb\"" );
+
+                    List<Object[]> expected = new ArrayList<>();
+                    for ( int i = 0; i < 200; i++ ) {
+                        statement.executeUpdate( "INSERT INTO scattergathertest VALUES (" + i + ", 'Foo" + (i % 13) + "')" );
+                        expected.add( new Object[]{ i, "Foo" + (i % 13) } );
+                    }
+                    connection.commit();
+
+                    // The inputs on both stores are read concurrently, repeatedly within the same transaction
+                    RuntimeConfig.SCATTER_GATHER_UNION.setBoolean( true );
+                    PreparedStatement preparedSelect = connection.prepareStatement( "SELECT * FROM scattergathertest WHERE tprimary >= ?" );
+                    for ( int i = 0; i < 20; i++ ) {
+                        TestHelper.checkResultSet(
+                                statement.executeQuery( "SELECT * FROM scattergathertest" ),
+                                expected,
+                                true );
+                        preparedSelect.setInt( 1, 100 );
+                        TestHelper.checkResultSet(
+                                preparedSelect.executeQuery(),
+                                expected.subList( 100, expected.size() ),
+                                true );
+                    }
+                    connection.commit();
+                } finally {
+                    RuntimeConfig.SCATTER_GATHER_UNION.setBoolean( previousScatterGather );
+                    // Drop tables and stores
+                    statement.executeUpdate( "DROP TABLE IF EXISTS scattergathertest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP unionstore" );
+                }
+            }
+        }
+    }
+
+
     @Test
     public void hybridPartitioningTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.polypheny.db.partition;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import org.junit.Test;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Tests the decision which partitions of a TEMPERATURE partitioned table are moved between HOT and COLD.
+ */
+public class FrequencyMapImplTest {
+
+    @Test
+    public void testColdToHot() {
+        // Partition 3 is accessed most frequently but is in COLD
+        Pair<List<Long>, List<Long>> redistribution = FrequencyMapImpl.decideRedistribution(
+                ImmutableMap.of( 1L, 5.0, 2L, 1.0, 3L, 20.0, 4L, 0.0 ),
+                ImmutableList.of( 1L ),
+                1,
+                2 );
+        assertEquals( ImmutableList.of( 3L ), redistribution.left );
+        // Partition 1 is the second most frequently accessed partition and may therefore remain in HOT
+        assertEquals( ImmutableList.of(), redistribution.right );
+    }
+
+
+    @Test
+    public void testHotToCold() {
+        // Partition 1 is not within the tolerance anymore
+        Pair<List<Long>, List<Long>> redistribution = FrequencyMapImpl.decideRedistribution(
+                ImmutableMap.of( 1L, 1.0, 2L, 5.0, 3L, 20.0, 4L, 0.0 ),
+                ImmutableList.of( 1L ),
+                1,
+                2 );
+        assertEquals( ImmutableList.of( 3L ), redistribution.left );
+        assertEquals( ImmutableList.of( 1L ), redistribution.right );
+    }
+
+
+    @Test
+    public void testAlreadyHot() {
+        Pair<List<Long>, List<Long>> redistribution = FrequencyMapImpl.decideRedistribution(
+                ImmutableMap.of( 1L, 0.2, 2L, 5.0, 3L, 20.0 ),
+                ImmutableList.of( 2L, 3L ),
+                2,
+                2 );
+        assertEquals( ImmutableList.of(), redistribution.left );
+        assertEquals( ImmutableList.of(), redistribution.right );
+    }
+
+
+    @Test
+    public void testNotAccessed() {
+        // Scores below the threshold are not considered as accesses, hence the distribution is kept
+        assertNull( FrequencyMapImpl.decideRedistribution(
+                ImmutableMap.of( 1L, 0.2, 2L, 0.0 ),
+                ImmutableList.of( 1L ),
+                1,
+                1 ) );
+    }
+
+}
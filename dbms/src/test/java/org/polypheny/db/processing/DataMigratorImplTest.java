@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.calcite.avatica.Meta.CursorFactory;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Test;
+import org.polypheny.db.processing.DataMigratorImpl.BatchReader;
+
+
+public class DataMigratorImplTest {
+
+    private static Enumerable<Object> rows( int count ) {
+        List<Object> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{ i } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static List<Integer> read( BatchReader reader ) {
+        List<Integer> values = new ArrayList<>();
+        while ( reader.hasNext() ) {
+            for ( List<Object> row : reader.next() ) {
+                values.add( (Integer) row.get( 0 ) );
+            }
+        }
+        return values;
+    }
+
+
+    private static List<Integer> batchSizes( int rows, int batchSize, boolean pipelined ) {
+        List<Integer> sizes = new ArrayList<>();
+        int expected = 0;
+        try ( BatchReader reader = new BatchReader( rows( rows ), CursorFactory.ARRAY, pipelined, batchSize ) ) {
+            while ( reader.hasNext() ) {
+                List<List<Object>> batch = reader.next();
+                for ( List<Object> row : batch ) {
+                    // Rows have to arrive in order and exactly once
+                    assertEquals( expected++, row.get( 0 ) );
+                }
+                sizes.add( batch.size() );
+            }
+            assertFalse( reader.hasNext() );
+        }
+        assertEquals( rows, expected );
+        return sizes;
+    }
+
+
+    @Test
+    public void testEmptyInput() {
+        assertEquals( Arrays.asList(), batchSizes( 0, 3, false ) );
+        assertEquals( Arrays.asList(), batchSizes( 0, 3, true ) );
+    }
+
+
+    @Test
+    public void testPartialLastBatch() {
+        assertEquals( Arrays.asList( 3, 3, 1 ), batchSizes( 7, 3, false ) );
+        assertEquals( Arrays.asList( 3, 3, 1 ), batchSizes( 7, 3, true ) );
+    }
+
+
+    @Test
+    public void testExactMultipleOfBatchSize() {
+        assertEquals( Arrays.asList( 3, 3 ), batchSizes( 6, 3, false ) );
+        assertEquals( Arrays.asList( 3, 3 ), batchSizes( 6, 3, true ) );
+    }
+
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextAfterEnd() {
+        try ( BatchReader reader = new BatchReader( rows( 1 ), CursorFactory.ARRAY, false, 3 ) ) {
+            reader.next();
+            reader.next();
+        }
+    }
+
+
+
+    @Test
+    public void testReadersOfGroupAreReadInOrder() {
+        List<BatchReader> readers = Arrays.asList(
+                new BatchReader( rows( 5 ), CursorFactory.ARRAY, 2 ),
+                new BatchReader( rows( 0 ), CursorFactory.ARRAY, 2 ),
+                new BatchReader( rows( 3 ), CursorFactory.ARRAY, 2 ) );
+        try {
+            BatchReader.start( readers );
+            assertEquals( Arrays.asList( 0, 1, 2, 3, 4 ), read( readers.get( 0 ) ) );
+            assertEquals( Collections.emptyList(), read( readers.get( 1 ) ) );
+            assertEquals( Arrays.asList( 0, 1, 2 ), read( readers.get( 2 ) ) );
+        } finally {
+            readers.forEach( BatchReader::close );
+        }
+    }
+
+
+    @Test
+    public void testCloseWaitsForProducer() {
+        AtomicBoolean reading = new AtomicBoolean();
+        AtomicInteger rowsRead = new AtomicInteger();
+        // Endless source which is slow to read
+        Enumerable<Object> source = new AbstractEnumerable<Object>() {
+            @Override
+            public Enumerator<Object> enumerator() {
+                return Linq4j.iterableEnumerator( () -> new Iterator<Object>() {
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+
+                    @Override
+                    public Object next() {
+                        reading.set( true );
+                        try {
+                            Thread.sleep( 1 );
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                        }
+                        rowsRead.incrementAndGet();
+                        reading.set( false );
+                        return new Object[]{ 0 };
+                    }
+                } );
+            }
+        };
+        BatchReader reader = new BatchReader( source, CursorFactory.ARRAY, true, 2 );
+        assertTrue( reader.hasNext() );
+        reader.close();
+
+        // After closing, the source is no longer read
+        int read = rowsRead.get();
+        assertFalse( reading.get() );
+        try {
+            Thread.sleep( 50 );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        assertEquals( read, rowsRead.get() );
+    }
+
+
+    @Test
+    public void testGroupBySourceAdapters() {
+        List<List<Integer>> groups = DataMigratorImpl.groupBySourceAdapters( Arrays.asList(
+                ImmutableSet.of( 1 ),
+                ImmutableSet.of( 2 ),
+                ImmutableSet.of( 3 ),
+                ImmutableSet.of( 2, 4 ),
+                ImmutableSet.of( 4, 1 ) ) );
+        // The last source shares an adapter with the first and the fourth source, and the fourth with the second
+        assertEquals( Arrays.asList( Collections.singletonList( 2 ), Arrays.asList( 0, 1, 3, 4 ) ), groups );
+    }
+
+}
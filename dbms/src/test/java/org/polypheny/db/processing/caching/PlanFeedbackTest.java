@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.caching.PlanFeedback.Expectation;
+import org.polypheny.db.processing.caching.PlanFeedback.PlanStatistics;
+
+
+public class PlanFeedbackTest {
+
+    private boolean previousAdaptiveReoptimization;
+
+
+    @Before
+    public void enable() {
+        previousAdaptiveReoptimization = RuntimeConfig.ADAPTIVE_REOPTIMIZATION.getBoolean();
+        RuntimeConfig.ADAPTIVE_REOPTIMIZATION.setBoolean( true );
+    }
+
+
+    @After
+    public void restore() {
+        RuntimeConfig.ADAPTIVE_REOPTIMIZATION.setBoolean( previousAdaptiveReoptimization );
+    }
+
+
+    private static Expectation expect( String queryClass, double estimatedRowCount ) {
+        // Without accessed tables, the statistics are not involved
+        return new Expectation( queryClass + "-plan", queryClass, estimatedRowCount, Collections.emptySet() );
+    }
+
+
+    private static void cacheRoutingPlans( String queryClass ) {
+        RoutingPlanCache.INSTANCE.put( queryClass, ImmutableSet.of( 1L ), Collections.emptyList(), Collections.emptyList() );
+        assertTrue( RoutingPlanCache.INSTANCE.isKeyPresent( queryClass, ImmutableSet.of( 1L ) ) );
+    }
+
+
+    private static boolean isCached( String queryClass ) {
+        return RoutingPlanCache.INSTANCE.isKeyPresent( queryClass, ImmutableSet.of( 1L ) );
+    }
+
+    @Test
+    public void testDivergence() {
+        assertEquals( 1.0, PlanFeedback.divergence( 99, 99 ), 0.0 );
+        assertEquals( 10.0, PlanFeedback.divergence( 9, 99 ), 0.0 );
+        assertEquals( 10.0, PlanFeedback.divergence( 99, 9 ), 0.0 );
+        assertEquals( 101.0, PlanFeedback.divergence( 100, 0 ), 0.0 );
+    }
+
+
+    @Test
+    public void testExecutionTime() {
+        final PlanStatistics statistics = new PlanStatistics();
+        // Outliers are ignored until there are enough samples
+        assertFalse( statistics.addExecutionTime( 1000, 10 ) );
+        for ( int i = 0; i < 10; i++ ) {
+            assertFalse( statistics.addExecutionTime( 1000 + i, 10 ) );
+        }
+        assertFalse( statistics.addExecutionTime( 5000, 10 ) );
+        assertTrue( statistics.addExecutionTime( 1_000_000, 10 ) );
+        // The average has been reset
+        assertFalse( statistics.addExecutionTime( 1_000_000, 10 ) );
+    }
+
+
+    @Test
+    public void testInvalidatedOncePerEstimate() {
+        final PlanStatistics statistics = new PlanStatistics();
+        assertTrue( statistics.markInvalidated( 100 ) );
+        assertFalse( statistics.markInvalidated( 100 ) );
+        assertTrue( statistics.markInvalidated( 5000 ) );
+    }
+
+
+    @Test
+    public void testRowCountDivergence() {
+        final PlanFeedback feedback = new PlanFeedback();
+        final Expectation expectation = expect( "rowCountDivergence", 10 );
+        cacheRoutingPlans( "rowCountDivergence" );
+
+        feedback.observe( expectation, 1000, 20 );
+        assertTrue( isCached( "rowCountDivergence" ) );
+
+        feedback.observe( expectation, 1000, 10_000 );
+        assertFalse( isCached( "rowCountDivergence" ) );
+
+        // Planning again with the same estimate would not help
+        cacheRoutingPlans( "rowCountDivergence" );
+        feedback.observe( expectation, 1000, 10_000 );
+        assertTrue( isCached( "rowCountDivergence" ) );
+    }
+
+
+    @Test
+    public void testIncompleteRowCount() {
+        final PlanFeedback feedback = new PlanFeedback();
+        final Expectation expectation = expect( "incompleteRowCount", 10_000 );
+        cacheRoutingPlans( "incompleteRowCount" );
+
+        // The result might contain more rows, hence an overestimation cannot be detected
+        feedback.observe( expectation, 1000, 5, false );
+        assertTrue( isCached( "incompleteRowCount" ) );
+
+        // More rows than estimated have already been fetched
+        feedback.observe( expectation, 1000, 500_000, false );
+        assertFalse( isCached( "incompleteRowCount" ) );
+    }
+
+
+    @Test
+    public void testExecutionTimeDivergence() {
+        final PlanFeedback feedback = new PlanFeedback();
+        final Expectation expectation = expect( "executionTimeDivergence", 10 );
+        cacheRoutingPlans( "executionTimeDivergence" );
+
+        for ( int i = 0; i < 10; i++ ) {
+            feedback.observe( expectation, 1000, 10 );
+        }
+        assertTrue( isCached( "executionTimeDivergence" ) );
+
+        feedback.observe( expectation, 1_000_000, 10 );
+        assertFalse( isCached( "executionTimeDivergence" ) );
+    }
+
+
+    @Test
+    public void testDisabled() {
+        RuntimeConfig.ADAPTIVE_REOPTIMIZATION.setBoolean( false );
+        final PlanFeedback feedback = new PlanFeedback();
+        cacheRoutingPlans( "disabled" );
+
+        feedback.observe( expect( "disabled", 10 ), 1000, 10_000 );
+        assertTrue( isCached( "disabled" ) );
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+public class PlanVariantsTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals( '?', PlanVariants.bucket( null ) );
+        assertEquals( '0', PlanVariants.bucket( 0.0 ) );
+        assertEquals( '0', PlanVariants.bucket( 0.0005 ) );
+        assertEquals( '1', PlanVariants.bucket( 0.001 ) );
+        assertEquals( '2', PlanVariants.bucket( 0.05 ) );
+        assertEquals( '3', PlanVariants.bucket( 0.2 ) );
+        assertEquals( '4', PlanVariants.bucket( 0.5 ) );
+        assertEquals( '4', PlanVariants.bucket( 1.0 ) );
+    }
+
+}
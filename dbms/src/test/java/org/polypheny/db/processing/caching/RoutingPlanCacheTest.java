@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.routing.dto.CachedProposedRoutingPlan;
+import org.polypheny.db.routing.dto.ProposedRoutingPlanImpl;
+import org.polypheny.db.util.ImmutableBitSet;
+import org.polypheny.db.util.Pair;
+
+
+public class RoutingPlanCacheTest {
+
+    // Table 1 with partitions 10 and 11 on adapter 1, table 2 with partition 20 on adapter 2
+    private static final Set<Long> TABLE_1 = ImmutableSet.of( 10L, 11L );
+    private static final Set<Long> TABLE_2 = ImmutableSet.of( 20L );
+
+
+    @Test
+    public void testSignature() {
+        assertEquals( ImmutableBitSet.of( 3, 64, 1000 ), RoutingPlanCache.signature( ImmutableList.of( 1000L, 3L, 64L ) ) );
+        assertEquals( RoutingPlanCache.signature( ImmutableSet.of( 5L, 7L ) ), RoutingPlanCache.signature( ImmutableList.of( 7L, 5L ) ) );
+        assertNull( RoutingPlanCache.signature( ImmutableList.of( 1L, Long.MAX_VALUE ) ) );
+    }
+
+
+    @Test
+    public void testInvalidateTable() {
+        final RoutingPlanCache cache = fill();
+        cache.invalidateTable( 1 );
+        assertFalse( cache.isKeyPresent( "q1", TABLE_1 ) );
+        assertTrue( cache.isKeyPresent( "q2", TABLE_2 ) );
+        assertTrue( cache.isKeyPresent( "q3", TABLE_2 ) );
+    }
+
+
+    @Test
+    public void testInvalidatePartitions() {
+        final RoutingPlanCache cache = fill();
+        cache.invalidatePartitions( Collections.singletonList( 11L ) );
+        assertFalse( cache.isKeyPresent( "q1", TABLE_1 ) );
+        assertTrue( cache.isKeyPresent( "q2", TABLE_2 ) );
+
+        cache.invalidatePartitions( Collections.singletonList( 12L ) );
+        assertTrue( cache.isKeyPresent( "q2", TABLE_2 ) );
+    }
+
+
+    @Test
+    public void testInvalidateAdapter() {
+        final RoutingPlanCache cache = fill();
+        cache.invalidateAdapter( 3 );
+        assertTrue( cache.isKeyPresent( "q1", TABLE_1 ) );
+        assertTrue( cache.isKeyPresent( "q2", TABLE_2 ) );
+        assertFalse( cache.isKeyPresent( "q3", TABLE_2 ) );
+
+        // Dependencies of removed entries are forgotten
+        cache.put( "q3", TABLE_2, ImmutableList.of( 2L ), ImmutableList.of( plan( TABLE_2, 2 ) ) );
+        cache.invalidateAdapter( 3 );
+        assertTrue( cache.isKeyPresent( "q3", TABLE_2 ) );
+    }
+
+
+    private static RoutingPlanCache fill() {
+        final RoutingPlanCache cache = new RoutingPlanCache();
+        cache.put( "q1", TABLE_1, ImmutableList.of( 1L ), ImmutableList.of( plan( TABLE_1, 1 ) ) );
+        cache.put( "q2", TABLE_2, ImmutableList.of( 2L ), ImmutableList.of( plan( TABLE_2, 2 ) ) );
+        // A plan which uses a replica of table 2 on adapter 3
+        cache.put( "q3", TABLE_2, ImmutableList.of( 2L ), ImmutableList.of( plan( TABLE_2, 2 ), plan( TABLE_2, 3 ) ) );
+        assertTrue( cache.isKeyPresent( "q1", TABLE_1 ) );
+        assertTrue( cache.isKeyPresent( "q2", TABLE_2 ) );
+        assertTrue( cache.isKeyPresent( "q3", TABLE_2 ) );
+        return cache;
+    }
+
+
+    private static CachedProposedRoutingPlan plan( Set<Long> partitionIds, int adapterId ) {
+        final ImmutableMap.Builder<Long, List<Pair<Integer, Long>>> placements = ImmutableMap.builder();
+        for ( long partitionId : partitionIds ) {
+            placements.put( partitionId, ImmutableList.of( new Pair<>( adapterId, partitionId * 100 ) ) );
+        }
+        final ProposedRoutingPlanImpl routingPlan = new ProposedRoutingPlanImpl( (AlgRoot) null, "q" );
+        final Map<Long, List<Pair<Integer, Long>>> physicalPlacements = placements.build();
+        routingPlan.setPhysicalPlacementsOfPartitions( physicalPlacements );
+        return new CachedProposedRoutingPlan( routingPlan, null );
+    }
+
+}
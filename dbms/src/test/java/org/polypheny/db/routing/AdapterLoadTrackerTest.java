@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.Test;
+import org.polypheny.db.routing.AdapterLoadTracker.AdapterLoad;
+import org.polypheny.db.routing.AdapterLoadTracker.Lease;
+import org.polypheny.db.util.Pair;
+
+
+public class AdapterLoadTrackerTest {
+
+    private static final List<List<Integer>> REPLICAS = Arrays.asList( Collections.singletonList( 1 ), Collections.singletonList( 2 ) );
+
+
+    @Test
+    public void testLeaseLifecycle() {
+        final AdapterLoadTracker tracker = new AdapterLoadTracker();
+        final Lease lease = tracker.acquire( plan( 1, 2 ) );
+        assertEquals( 1, tracker.getLoad( 1 ).getQueueDepth() );
+        assertEquals( 1, tracker.getLoad( 2 ).getQueueDepth() );
+
+        lease.started();
+        assertEquals( 0, tracker.getLoad( 1 ).getQueueDepth() );
+        assertEquals( 1, tracker.getLoad( 1 ).getInFlight() );
+
+        lease.completed( 1_000_000 );
+        // Further calls have no effect
+        lease.completed( 1_000_000 );
+        lease.release();
+        final AdapterLoad load = tracker.getLoad( 1 );
+        assertEquals( 0, load.getOutstanding() );
+        assertEquals( 1, load.getObservations() );
+        assertEquals( 1_000_000, load.getMedianLatency(), 0.0 );
+    }
+
+
+    @Test
+    public void testLatencyQuantiles() {
+        final AdapterLoadTracker tracker = new AdapterLoadTracker();
+        for ( int i = 0; i < 2000; i++ ) {
+            // Every tenth execution is slow
+            tracker.acquire( plan( 1 ) ).completed( i % 10 == 0 ? 10_000_000 : 1_000_000 );
+        }
+        final AdapterLoad load = tracker.getLoad( 1 );
+        assertEquals( 1_000_000, load.getMedianLatency(), 200_000 );
+        assertTrue( "Tail latency too low: " + load.getTailLatency(), load.getTailLatency() > 2 * load.getMedianLatency() );
+    }
+
+
+    @Test
+    public void testPrefersLessLoadedReplica() {
+        final AdapterLoadTracker tracker = new AdapterLoadTracker();
+        tracker.acquire( plan( 1 ) ).completed( 1_000_000 );
+        tracker.acquire( plan( 2 ) ).completed( 1_000_000 );
+        // Without load, the first candidate is preferred
+        assertEquals( 0, tracker.choose( REPLICAS ) );
+
+        for ( int i = 0; i < 5; i++ ) {
+            tracker.acquire( plan( 1 ) ).started();
+        }
+        assertEquals( 1, tracker.choose( REPLICAS ) );
+        assertEquals( 5, tracker.getLoad( 1 ).getInFlight() );
+    }
+
+
+    @Test
+    public void testCheapestCandidateWinsWithoutLoad() {
+        final AdapterLoadTracker tracker = new AdapterLoadTracker();
+        final List<List<Integer>> candidates = Arrays.asList(
+                Collections.singletonList( 1 ),
+                Collections.singletonList( 2 ),
+                Collections.singletonList( 3 ),
+                Collections.singletonList( 4 ) );
+        for ( int i = 0; i < 100; i++ ) {
+            assertEquals( 0, tracker.choose( candidates ) );
+        }
+    }
+
+
+    @Test
+    public void testSlowReplicaIsAvoided() {
+        final AdapterLoadTracker tracker = new AdapterLoadTracker();
+        tracker.acquire( plan( 1 ) ).completed( 50_000_000 );
+        tracker.acquire( plan( 2 ) ).completed( 1_000_000 );
+        // Two outstanding statements on the fast replica are still cheaper than one on the slow replica
+        tracker.acquire( plan( 1 ) );
+        tracker.acquire( plan( 2 ) );
+        tracker.acquire( plan( 2 ) );
+        assertEquals( 1, tracker.choose( REPLICAS ) );
+    }
+
+
+    @Test
+    public void testExpiredLeasesAreReleased() {
+        final AtomicLong clock = new AtomicLong();
+        final AdapterLoadTracker tracker = new AdapterLoadTracker( clock::get );
+        tracker.acquire( plan( 1 ) );
+        clock.addAndGet( TimeUnit.MINUTES.toNanos( 5 ) );
+        for ( int i = 0; i < 300; i++ ) {
+            tracker.acquire( plan( 2 ) ).completed( 1_000 );
+        }
+        assertEquals( 0, tracker.getLoad( 1 ).getOutstanding() );
+        assertEquals( 0, tracker.getLoad( 2 ).getOutstanding() );
+    }
+
+
+    @Test
+    public void testExpiredLeasesAreReleasedUnderLightLoad() {
+        final AtomicLong clock = new AtomicLong();
+        final AdapterLoadTracker tracker = new AdapterLoadTracker( clock::get );
+        tracker.acquire( plan( 1 ) );
+        assertEquals( 1, tracker.getLoad( 1 ).getOutstanding() );
+        clock.addAndGet( TimeUnit.MINUTES.toNanos( 5 ) );
+        // No further statements are needed to release the lease
+        assertEquals( 0, tracker.getLoad( 1 ).getOutstanding() );
+    }
+
+
+    private static RoutingPlan plan( int... adapterIds ) {
+        final ImmutableList.Builder<Pair<Integer, Long>> placements = ImmutableList.builder();
+        for ( int adapterId : adapterIds ) {
+            placements.add( new Pair<>( adapterId, 10L * adapterId ) );
+        }
+        return new TestRoutingPlan( ImmutableMap.of( 0L, placements.build() ) );
+    }
+
+
+    @Getter
+    @AllArgsConstructor
+    private static class TestRoutingPlan implements RoutingPlan {
+
+        private final Map<Long, List<Pair<Integer, Long>>> physicalPlacementsOfPartitions;
+
+
+        @Override
+        public String getQueryClass() {
+            return "q1";
+        }
+
+
+        @Override
+        public String getPhysicalQueryClass() {
+            return "q1" + physicalPlacementsOfPartitions;
+        }
+
+
+        @Override
+        public Class<? extends Router> getRouter() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.polypheny.db.AdapterTestSuite;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.algebra.type.AlgDataTypeSystem;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.excluded.CassandraExcluded;
+import org.polypheny.db.prepare.JavaTypeFactoryImpl;
+import org.polypheny.db.processing.caching.ImplementationCache;
+import org.polypheny.db.processing.caching.QueryPlanCache;
+import org.polypheny.db.processing.caching.RoutingPlanCache;
+import org.polypheny.db.runtime.ExecutionPool;
+
+
+/**
+ * Tests the concurrent implementation of the routing proposals of a statement.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Category({ AdapterTestSuite.class, CassandraExcluded.class })
+public class ProposalImplementationTest {
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void testConcurrentSyntheticTypes() {
+        final JavaTypeFactoryImpl typeFactory = new JavaTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
+        final List<Callable<Type>> tasks = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ ) {
+            final List<Type> fields = new ArrayList<>();
+            for ( int j = 0; j <= i % 20; j++ ) {
+                fields.add( j % 2 == 0 ? int.class : String.class );
+            }
+            fields.add( i % 3 == 0 ? Long.class : Double.class );
+            tasks.add( () -> typeFactory.createSyntheticType( fields ) );
+        }
+        final Set<String> names = new HashSet<>();
+        final Set<Type> types = new HashSet<>( ExecutionPool.invokeAll( tasks, 8 ) );
+        types.forEach( type -> names.add( type.getTypeName() ) );
+        // Every distinct list of fields gets its own type with a unique name
+        assertEquals( 60, types.size() );
+        assertEquals( types.size(), names.size() );
+    }
+
+
+    @Test
+    public void testConcurrentImplementation() throws SQLException {
+        final int previousParallelism = RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.getInteger();
+        final boolean previousLazy = RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.getBoolean();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE proposalimplementation( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                try {
+                    // A full replica on a second store results in several routing proposals
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"store1\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    statement.executeUpdate( "ALTER TABLE \"proposalimplementation\" ADD PLACEMENT ON STORE \"store1\"" );
+
+                    statement.executeUpdate( "INSERT INTO proposalimplementation VALUES (1, 5, 'foo'), (2, 22, 'bar'), (3, 69, 'xyz')" );
+
+                    // All proposals are implemented, up to four of them concurrently
+                    RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.setInteger( 4 );
+                    RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.setBoolean( false );
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM proposalimplementation ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 5, "foo" },
+                                    new Object[]{ 2, 22, "bar" },
+                                    new Object[]{ 3, 69, "xyz" } ) );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT tvarchar, tinteger + tprimary FROM proposalimplementation WHERE tinteger > 10 ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ "bar", 24 },
+                                    new Object[]{ "xyz", 72 } ) );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*), MAX(tvarchar) FROM proposalimplementation" ),
+                            ImmutableList.of( new Object[]{ 3L, "xyz" } ) );
+                } finally {
+                    RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.setInteger( previousParallelism );
+                    RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.setBoolean( previousLazy );
+                    statement.executeUpdate( "DROP TABLE proposalimplementation" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"store1\"" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testLazyImplementation() throws SQLException {
+        final int previousParallelism = RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.getInteger();
+        final boolean previousLazy = RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.getBoolean();
+        final List<Object[]> expected = ImmutableList.of(
+                new Object[]{ 2, 22, "bar" },
+                new Object[]{ 3, 69, "xyz" } );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE lazyimplementation( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                try {
+                    // A full replica on a second store results in several routing proposals
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"store2\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    statement.executeUpdate( "ALTER TABLE \"lazyimplementation\" ADD PLACEMENT ON STORE \"store2\"" );
+
+                    statement.executeUpdate( "INSERT INTO lazyimplementation VALUES (1, 5, 'foo'), (2, 22, 'bar'), (3, 69, 'xyz')" );
+
+                    RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.setBoolean( true );
+
+                    // Only the selected proposal is implemented
+                    RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.setInteger( 1 );
+                    resetCaches();
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM lazyimplementation WHERE tinteger > 10 ORDER BY tprimary" ),
+                            expected );
+                    assertEquals( 1, ImplementationCache.INSTANCE.getSize() );
+
+                    // The selected proposal is taken from the caches, the other proposals are not implemented
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM lazyimplementation WHERE tinteger > 10 ORDER BY tprimary" ),
+                            expected );
+                    assertEquals( 1, ImplementationCache.INSTANCE.getSize() );
+
+                    // Other proposals are implemented concurrently with the selected one
+                    RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.setInteger( 4 );
+                    resetCaches();
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM lazyimplementation WHERE tinteger > 10 ORDER BY tprimary" ),
+                            expected );
+                    assertTrue( ImplementationCache.INSTANCE.getSize() > 1 );
+                } finally {
+                    RuntimeConfig.PROPOSAL_IMPLEMENTATION_PARALLELISM.setInteger( previousParallelism );
+                    RuntimeConfig.LAZY_PROPOSAL_IMPLEMENTATION.setBoolean( previousLazy );
+                    statement.executeUpdate( "DROP TABLE lazyimplementation" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"store2\"" );
+                }
+            }
+        }
+    }
+
+
+    private static void resetCaches() {
+        QueryPlanCache.INSTANCE.reset();
+        RoutingPlanCache.INSTANCE.reset();
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.routing.strategies;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.Test;
+import org.polypheny.db.routing.Router;
+import org.polypheny.db.routing.RoutingPlan;
+import org.polypheny.db.util.Pair;
+
+
+public class PlacementBanditTest {
+
+    private static final RoutingPlan STORE_A = plan( 1 );
+    private static final RoutingPlan STORE_B = plan( 2 );
+    private static final List<RoutingPlan> PLANS = Arrays.asList( STORE_A, STORE_B );
+
+
+    @Test
+    public void testExploresUnknownPlans() {
+        final PlacementBandit bandit = new PlacementBandit( () -> 0 );
+        // Without observations the plan with the lowest cost is used
+        assertSame( STORE_B, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 1.0 ) );
+        bandit.observe( STORE_B, 5_000_000 );
+        // The unknown plan is tried next
+        assertSame( STORE_A, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 1.0 ) );
+    }
+
+
+    @Test
+    public void testLearnsFastestPlan() {
+        final PlacementBandit bandit = new PlacementBandit( () -> 0 );
+        for ( int i = 0; i < 20; i++ ) {
+            bandit.observe( STORE_A, 1_000_000 + i * 1000 );
+            bandit.observe( STORE_B, 10_000_000 + i * 1000 );
+        }
+        // The costs favor the slower plan, but the observations win
+        for ( int i = 0; i < 50; i++ ) {
+            assertSame( STORE_A, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 0.0 ) );
+        }
+    }
+
+
+    @Test
+    public void testExplorationBudget() {
+        final PlacementBandit bandit = new PlacementBandit( () -> 0 );
+        // Equal execution times, so exploration is wanted for about half of the selections
+        for ( int i = 0; i < 3; i++ ) {
+            bandit.observe( STORE_A, 1_000_000 );
+            bandit.observe( STORE_B, 1_000_000 + 1000 * i );
+        }
+        int explored = 0;
+        for ( int i = 0; i < 1000; i++ ) {
+            if ( bandit.select( PLANS, Arrays.asList( 1.0, 1.0 ), 0.1 ) == STORE_B ) {
+                explored++;
+            }
+        }
+        assertTrue( "Too many explorations: " + explored, explored <= 100 );
+    }
+
+
+    @Test
+    public void testLoadLevelIsContext() {
+        final AtomicInteger load = new AtomicInteger( 0 );
+        final PlacementBandit bandit = new PlacementBandit( load::get );
+        for ( int i = 0; i < 10; i++ ) {
+            bandit.observe( STORE_A, 1_000_000 );
+            bandit.observe( STORE_B, 10_000_000 );
+        }
+        assertSame( STORE_A, bandit.select( PLANS, Arrays.asList( 1.0, 2.0 ), 0.0 ) );
+        // Under high load, nothing is known yet
+        load.set( 2 );
+        assertSame( STORE_B, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 0.0 ) );
+    }
+
+
+    @Test
+    public void testLoadLevelOfSelection() {
+        final AtomicInteger load = new AtomicInteger( 0 );
+        final PlacementBandit bandit = new PlacementBandit( load::get );
+        assertSame( STORE_B, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 1.0 ) );
+        // The load changes during the execution, the observation still belongs to the context of the selection
+        load.set( 2 );
+        bandit.observe( STORE_B, 5_000_000 );
+        load.set( 0 );
+        assertSame( STORE_A, bandit.select( PLANS, Arrays.asList( 2.0, 1.0 ), 1.0 ) );
+    }
+
+
+    private static RoutingPlan plan( int adapterId ) {
+        final Map<Long, List<Pair<Integer, Long>>> placements = ImmutableMap.of( 0L, ImmutableList.of( new Pair<>( adapterId, 10L * adapterId ) ) );
+        return new TestRoutingPlan( "q1", "q1" + placements, placements );
+    }
+
+
+    @Getter
+    @AllArgsConstructor
+    private static class TestRoutingPlan implements RoutingPlan {
+
+        private final String queryClass;
+        private final String physicalQueryClass;
+        private final Map<Long, List<Pair<Integer, Long>>> physicalPlacementsOfPartitions;
+
+
+        @Override
+        public Class<? extends Router> getRouter() {
+            return null;
+        }
+
+    }
+
+}
@@ -62,6 +62,13 @@ private static void addTestData() throws SQLException {
                 statement.executeUpdate( "INSERT INTO TestTableB VALUES (4, 2,  'dataA','dataA')" );
                 statement.executeUpdate( "INSERT INTO TestTableB VALUES (5, 11, 'dataB','dataD')" );
                 statement.executeUpdate( "INSERT INTO TestTableB VALUES (6, 7,  'dataC', 'dataE')" );
+
+                statement.executeUpdate( "CREATE TABLE TestTableLike( ID INTEGER NOT NULL, TextData VARCHAR(20), PRIMARY KEY (ID) )" );
+                statement.executeUpdate( "INSERT INTO TestTableLike VALUES (0, 'abc')" );
+                statement.executeUpdate( "INSERT INTO TestTableLike VALUES (1, 'xabcx')" );
+                statement.executeUpdate( "INSERT INTO TestTableLike VALUES (2, 'ab%c')" );
+                statement.executeUpdate( "INSERT INTO TestTableLike VALUES (3, NULL)" );
+                statement.executeUpdate( "INSERT INTO TestTableLike VALUES (4, 'a_c')" );
                 connection.commit();
             }
         }
@@ -75,6 +82,7 @@ public static void stop() throws SQLException {
             try ( Statement statement = connection.createStatement() ) {
                 statement.executeUpdate( "DROP TABLE TestTable" );
                 statement.executeUpdate( "DROP TABLE TestTableB" );
+                statement.executeUpdate( "DROP TABLE TestTableLike" );
             }
             connection.commit();
         }
@@ -240,6 +248,98 @@ public void comparisonOperatorsTest() throws SQLException {
     }
 
 
+    @Test
+    @Category(FileExcluded.class)
+    public void likeConstantPatternsTest() throws SQLException {
+        try ( TestHelper.JdbcConnection polyphenyDbConnection = new TestHelper.JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                // Patterns matched with startsWith, endsWith, indexOf, equals and without matching (%)
+                List<Object[]> expectedResult = ImmutableList.of(
+                        new Object[]{ 0, true, true, true, true, true },
+                        new Object[]{ 1, false, false, true, true, false },
+                        new Object[]{ 2, true, true, false, true, false },
+                        new Object[]{ 3, null, null, null, null, null },
+                        new Object[]{ 4, false, true, false, true, false }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID, TextData LIKE 'ab%', TextData LIKE '%c', TextData LIKE '%bc%', TextData LIKE '%', TextData LIKE 'abc' FROM TestTableLike" ),
+                        expectedResult,
+                        true
+                );
+
+                // The same patterns on values, which are evaluated by the enumerable implementation
+                expectedResult = ImmutableList.of(
+                        new Object[]{ "abc", true, true, true, true },
+                        new Object[]{ "xabcx", false, false, true, true },
+                        new Object[]{ null, null, null, null, null }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT v, v LIKE 'ab%', v LIKE '%c', v LIKE '%bc%', v LIKE '%' FROM (VALUES ('abc'), ('xabcx'), (CAST(NULL AS VARCHAR(20)))) AS t(v)" ),
+                        expectedResult,
+                        true
+                );
+
+                // NOT LIKE (NULL values match neither LIKE nor NOT LIKE)
+                expectedResult = ImmutableList.of(
+                        new Object[]{ 1 },
+                        new Object[]{ 4 }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData NOT LIKE 'ab%'" ),
+                        expectedResult,
+                        true
+                );
+
+                // NULL pattern
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData LIKE CAST(NULL AS VARCHAR(20))" ),
+                        ImmutableList.of()
+                );
+
+                // Escaped wildcards in patterns matched without a regular expression
+                expectedResult = ImmutableList.of(
+                        new Object[]{ 2 }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData LIKE '%!%%' ESCAPE '!'" ),
+                        expectedResult,
+                        true
+                );
+                expectedResult = ImmutableList.of(
+                        new Object[]{ 4 }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData LIKE 'a!_%' ESCAPE '!'" ),
+                        expectedResult,
+                        true
+                );
+
+                // Patterns matched with a regular expression
+                expectedResult = ImmutableList.of(
+                        new Object[]{ 0 },
+                        new Object[]{ 4 }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData LIKE 'a_c'" ),
+                        expectedResult,
+                        true
+                );
+                expectedResult = ImmutableList.of(
+                        new Object[]{ 0 },
+                        new Object[]{ 2 },
+                        new Object[]{ 4 }
+                );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ID FROM TestTableLike WHERE TextData LIKE 'a%c'" ),
+                        expectedResult,
+                        true
+                );
+            }
+        }
+    }
+
+
     @Test
     @Category(FileExcluded.class)
     public void logicalOperators() throws SQLException {
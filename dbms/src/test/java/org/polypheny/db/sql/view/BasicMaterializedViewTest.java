@@ -1249,4 +1249,166 @@ public void testMaterializedViewFromView() throws SQLException {
         }
     }
 
+
+
+    @Test
+    public void testIncrementalRefreshInsert() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_SQL );
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_DATA_SQL );
+                statement.executeUpdate( VIEW_TEST_DEP_TABLE_SQL );
+                statement.executeUpdate( VIEW_TEST_DEP_TABLE_DATA_SQL );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW viewTestEmp AS SELECT * FROM viewTestEmpTable FRESHNESS MANUAL" );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW viewTestEmpDep AS SELECT viewTestEmpTable.firstName, viewTestDepTable.depName FROM viewTestEmpTable INNER JOIN viewTestDepTable ON viewTestEmpTable.depId = viewTestDepTable.depId FRESHNESS MANUAL" );
+                connection.commit();
+
+                try {
+                    statement.executeUpdate( "INSERT INTO viewTestEmpTable VALUES ( 0, 'Anna', 'Berger', 2 )" );
+                    connection.commit();
+
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW viewTestEmp FRESHNESS MANUAL" );
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW viewTestEmpDep FRESHNESS MANUAL" );
+
+                    // The inserted row is appended with the next id, while a recomputation would have numbered it first
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM viewTestEmp" ),
+                            ImmutableList.of(
+                                    new Object[]{ 0, "Anna", "Berger", 2, 3 },
+                                    new Object[]{ 1, "Max", "Muster", 1, 0 },
+                                    new Object[]{ 2, "Ernst", "Walter", 2, 1 },
+                                    new Object[]{ 3, "Elsa", "Kuster", 3, 2 }
+                            ),
+                            true
+                    );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM viewTestEmpDep" ),
+                            ImmutableList.of(
+                                    new Object[]{ "Max", "IT", 0 },
+                                    new Object[]{ "Ernst", "Sales", 1 },
+                                    new Object[]{ "Elsa", "HR", 2 },
+                                    new Object[]{ "Anna", "Sales", 3 }
+                            ),
+                            true
+                    );
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW viewTestEmp" );
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW viewTestEmpDep" );
+                    dropTables( statement );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testIncrementalRefreshAggregate() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_SQL );
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_DATA_SQL );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW viewTestEmpMax AS SELECT depId, MAX(empId) AS maxEmpId FROM viewTestEmpTable GROUP BY depId FRESHNESS MANUAL" );
+                connection.commit();
+
+                try {
+                    statement.executeUpdate( "INSERT INTO viewTestEmpTable VALUES ( 4, 'Anna', 'Berger', 1 )" );
+                    connection.commit();
+
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW viewTestEmpMax FRESHNESS MANUAL" );
+
+                    // Only the affected group is recomputed
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM viewTestEmpMax" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 4, 3 },
+                                    new Object[]{ 2, 2, 1 },
+                                    new Object[]{ 3, 3, 2 }
+                            ),
+                            true
+                    );
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW viewTestEmpMax" );
+                    dropTables( statement );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testRefreshAfterUpdate() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_SQL );
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_DATA_SQL );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW viewTestEmp AS SELECT * FROM viewTestEmpTable FRESHNESS MANUAL" );
+                connection.commit();
+
+                try {
+                    statement.executeUpdate( "INSERT INTO viewTestEmpTable VALUES ( 4, 'Anna', 'Berger', 1 )" );
+                    statement.executeUpdate( "UPDATE viewTestEmpTable SET lastName = 'Meier' WHERE empId = 2" );
+                    connection.commit();
+
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW viewTestEmp FRESHNESS MANUAL" );
+
+                    // An update cannot be applied incrementally, hence the view is recomputed
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT empId, firstName, lastName, depId FROM viewTestEmp" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, "Max", "Muster", 1 },
+                                    new Object[]{ 2, "Ernst", "Meier", 2 },
+                                    new Object[]{ 3, "Elsa", "Kuster", 3 },
+                                    new Object[]{ 4, "Anna", "Berger", 1 }
+                            ),
+                            true
+                    );
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW viewTestEmp" );
+                    dropTables( statement );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testRefreshAfterDelete() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_SQL );
+                statement.executeUpdate( VIEW_TEST_EMP_TABLE_DATA_SQL );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW viewTestEmpMax AS SELECT depId, MAX(empId) AS maxEmpId FROM viewTestEmpTable GROUP BY depId FRESHNESS MANUAL" );
+                connection.commit();
+
+                try {
+                    statement.executeUpdate( "DELETE FROM viewTestEmpTable WHERE empId = 3" );
+                    connection.commit();
+
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW viewTestEmpMax FRESHNESS MANUAL" );
+
+                    // A delete cannot be applied incrementally, hence the view is recomputed
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT depId, maxEmpId FROM viewTestEmpMax" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 1 },
+                                    new Object[]{ 2, 2 }
+                            ),
+                            true
+                    );
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW viewTestEmpMax" );
+                    dropTables( statement );
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql.view;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.core.TableScan;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.catalog.Catalog.QueryLanguage;
+import org.polypheny.db.catalog.Catalog.SchemaType;
+import org.polypheny.db.languages.QueryParameters;
+import org.polypheny.db.nodes.Node;
+import org.polypheny.db.processing.Processor;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.Util;
+import org.polypheny.db.view.MaterializedViewManager;
+
+
+/**
+ * Tests that queries on tables are answered from matching materialized views, as long as the views are fresh.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class MaterializedViewRewritingTest {
+
+    private static final String QUERY = "SELECT id, name FROM rewritingTestTable WHERE id > 1";
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    private static AlgRoot rewrite( String sql ) throws TransactionException {
+        Transaction transaction = TestHelper.getInstance().getTransaction();
+        try {
+            org.polypheny.db.transaction.Statement statement = transaction.createStatement();
+            Processor sqlProcessor = transaction.getProcessor( QueryLanguage.SQL );
+            Node parsed = sqlProcessor.parse( sql );
+            Pair<Node, AlgDataType> validated = sqlProcessor.validate( transaction, parsed, false );
+            AlgRoot root = sqlProcessor.translate( statement, validated.left, new QueryParameters( sql, SchemaType.RELATIONAL ) );
+            return MaterializedViewManager.getInstance().rewriteWithMaterializedViews( statement, root );
+        } finally {
+            // Release the locks acquired while rewriting
+            transaction.commit();
+        }
+    }
+
+
+    private static boolean scans( AlgNode node, String tableName ) {
+        if ( node instanceof TableScan && Util.last( node.getTable().getQualifiedName() ).equalsIgnoreCase( tableName ) ) {
+            return true;
+        }
+        return node.getInputs().stream().anyMatch( input -> scans( input, tableName ) );
+    }
+
+
+    @Test
+    public void testRewriting() throws SQLException, TransactionException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE rewritingTestTable ( id INTEGER NOT NULL, name VARCHAR(20), PRIMARY KEY (id) )" );
+                statement.executeUpdate( "INSERT INTO rewritingTestTable VALUES ( 1, 'Max' ), ( 2, 'Ernst' ), ( 3, 'Elsa' )" );
+                statement.executeUpdate( "CREATE MATERIALIZED VIEW rewritingTestView AS SELECT id, name FROM rewritingTestTable WHERE id > 1 FRESHNESS MANUAL" );
+                connection.commit();
+
+                try {
+                    // The view has just been filled, hence the query is read from it
+                    AlgRoot rewritten = rewrite( QUERY );
+                    assertTrue( scans( rewritten.alg, "rewritingTestView" ) );
+                    assertFalse( scans( rewritten.alg, "rewritingTestTable" ) );
+
+                    // The view does not contain the inserted row until it is refreshed
+                    statement.executeUpdate( "INSERT INTO rewritingTestTable VALUES ( 4, 'Anna' )" );
+                    connection.commit();
+                    AlgRoot stale = rewrite( QUERY );
+                    assertFalse( scans( stale.alg, "rewritingTestView" ) );
+                    assertTrue( scans( stale.alg, "rewritingTestTable" ) );
+
+                    // After the refresh, the view is used again
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW rewritingTestView FRESHNESS MANUAL" );
+                    connection.commit();
+                    assertTrue( scans( rewrite( QUERY ).alg, "rewritingTestView" ) );
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW rewritingTestView" );
+                    statement.executeUpdate( "DROP TABLE rewritingTestTable" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+}
@@ -189,6 +189,17 @@ public Duration get( final String name ) {
         }
 
 
+        /**
+         * Adds a child with the given duration in nanoseconds. If there is already a child with this name, the duration
+         * is added to the duration of this child.
+         */
+        public Duration addNanoDuration( final String name, final long nanoDuration ) {
+            Duration d = this.children.computeIfAbsent( name, n -> new Duration( n, 0 ) );
+            d.duration += nanoDuration;
+            return d;
+        }
+
+
         /**
          * Set the limit in milliseconds. If the task too more time than the limit, it will be marked in the UI
          *
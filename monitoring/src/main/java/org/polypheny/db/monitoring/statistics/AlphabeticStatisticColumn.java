@@ -42,7 +42,7 @@ public AlphabeticStatisticColumn( QueryResult column ) {
 
 
     @Override
-    public void insert( T val ) {
+    public synchronized void insert( T val ) {
         if ( uniqueValues.size() < RuntimeConfig.STATISTIC_BUFFER.getInteger() ) {
             if ( !uniqueValues.contains( val ) ) {
                 uniqueValues.add( val );
@@ -59,7 +59,7 @@ public void insert( T val ) {
 
 
     @Override
-    public void insert( List<T> values ) {
+    public synchronized void insert( List<T> values ) {
         if ( values != null && !(values.get( 0 ) instanceof ArrayList) ) {
             for ( T val : values ) {
                 insert( val );
@@ -24,6 +24,7 @@
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.config.RuntimeConfig;
 
 
@@ -56,7 +57,7 @@ public NumericalStatisticColumn( QueryResult column ) {
 
 
     @Override
-    public void insert( List<T> values ) {
+    public synchronized void insert( List<T> values ) {
         if ( values != null && !(values.get( 0 ) instanceof ArrayList) ) {
             for ( T val : values ) {
                 insert( val );
@@ -66,7 +67,7 @@ public void insert( List<T> values ) {
 
 
     @Override
-    public void insert( T val ) {
+    public synchronized void insert( T val ) {
         if ( uniqueValues.size() < RuntimeConfig.STATISTIC_BUFFER.getInteger() ) {
             if ( !uniqueValues.contains( val ) ) {
                 if ( !uniqueValues.isEmpty() ) {
@@ -103,6 +104,41 @@ public void insert( T val ) {
     }
 
 
+    /**
+     * Range predicates are estimated by interpolating between the minimum and the maximum. Values outside of this range
+     * are known to select no rows.
+     */
+    @Override
+    public synchronized Double getSelectivity( Kind kind, Object value ) {
+        if ( !(min instanceof Number) || !(max instanceof Number) || !(value instanceof Number) ) {
+            return super.getSelectivity( kind, value );
+        }
+        final double lower = ((Number) min).doubleValue();
+        final double upper = ((Number) max).doubleValue();
+        final double v = ((Number) value).doubleValue();
+        switch ( kind ) {
+            case EQUALS:
+                if ( v < lower || v > upper ) {
+                    return 0.0;
+                }
+                return super.getSelectivity( kind, value );
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+                return upper == lower ? (v >= lower ? 1.0 : 0.0) : clamp( (v - lower) / (upper - lower) );
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                return upper == lower ? (v <= upper ? 1.0 : 0.0) : clamp( (upper - v) / (upper - lower) );
+            default:
+                return null;
+        }
+    }
+
+
+    private static double clamp( double selectivity ) {
+        return Math.max( 0.0, Math.min( 1.0, selectivity ) );
+    }
+
+
     @Override
     public String toString() {
         String statistics = "";
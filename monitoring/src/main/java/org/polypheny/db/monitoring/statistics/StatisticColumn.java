@@ -23,6 +23,7 @@
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.type.PolyType;
 
@@ -112,6 +113,48 @@ public String getQualifiedTableName() {
     public abstract String toString();
 
 
+    /**
+     * Estimates the share of the rows which satisfy the comparison {@code column <kind> value}. As long as the list of
+     * unique values is complete, equality is estimated from it, assuming uniformly distributed values. The values are
+     * inserted by the statistics thread while the planner estimates selectivities, hence both are synchronized.
+     *
+     * @return The selectivity, or null if it cannot be estimated
+     */
+    public synchronized Double getSelectivity( Kind kind, Object value ) {
+        if ( kind != Kind.EQUALS || full || uniqueValues.isEmpty() || value == null ) {
+            return null;
+        }
+        for ( T uniqueValue : uniqueValues ) {
+            final Integer comparison = compare( uniqueValue, value );
+            if ( comparison == null ) {
+                return null;
+            }
+            if ( comparison == 0 ) {
+                return 1.0 / uniqueValues.size();
+            }
+        }
+        return 0.0;
+    }
+
+
+    /**
+     * Compares a value of the statistics with a parameter value, which may be of another class, e.g. an Integer with a
+     * BigDecimal.
+     *
+     * @return The result of the comparison, or null if the values are not comparable
+     */
+    @SuppressWarnings("unchecked")
+    protected static Integer compare( Object statisticValue, Object value ) {
+        if ( statisticValue instanceof Number && value instanceof Number ) {
+            return Double.compare( ((Number) statisticValue).doubleValue(), ((Number) value).doubleValue() );
+        }
+        if ( statisticValue instanceof Comparable && statisticValue.getClass() == value.getClass() ) {
+            return ((Comparable<Object>) statisticValue).compareTo( value );
+        }
+        return null;
+    }
+
+
     public void updateColumnName( String columnName ) {
         this.column = columnName;
     }
@@ -43,6 +43,7 @@
 import org.polypheny.db.StatisticsManager;
 import org.polypheny.db.algebra.AlgCollations;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.algebra.core.AggregateCall;
 import org.polypheny.db.algebra.core.TableScan;
 import org.polypheny.db.algebra.fun.AggFunction;
@@ -1234,6 +1235,17 @@ public synchronized Integer rowCountPerTable( long tableId ) {
     }
 
 
+    @Override
+    public synchronized Double getSelectivity( long schemaId, long tableId, long columnId, Kind kind, Object value ) {
+        final Map<Long, Map<Long, StatisticColumn<T>>> tables = statisticSchemaMap.get( schemaId );
+        if ( tables == null || tables.get( tableId ) == null ) {
+            return null;
+        }
+        final StatisticColumn<T> column = tables.get( tableId ).get( columnId );
+        return column == null ? null : column.getSelectivity( kind, value );
+    }
+
+
     /**
      * This class reevaluates if background tracking should be stopped or restarted depending on the state of
      * the {@link org.polypheny.db.config.ConfigManager}.
@@ -62,7 +62,7 @@ public TemporalStatisticColumn( QueryResult column ) {
 
 
     @Override
-    public void insert( T val ) {
+    public synchronized void insert( T val ) {
         if ( uniqueValues.size() < RuntimeConfig.STATISTIC_BUFFER.getInteger() ) {
             if ( !uniqueValues.contains( val ) ) {
                 uniqueValues.add( val );
@@ -98,7 +98,7 @@ public void insert( T val ) {
 
 
     @Override
-    public void insert( List<T> values ) {
+    public synchronized void insert( List<T> values ) {
         if ( values != null && !(values.get( 0 ) instanceof ArrayList) ) {
             for ( T val : values ) {
                 insert( val );
@@ -565,11 +565,14 @@ String executeAndTransformPolyAlg( AlgRoot algRoot, final Statement statement, f
 
             final Iterable<Object> iterable = result.enumerable( statement.getDataContext() );
             Iterator<Object> iterator = iterable.iterator();
+            if ( !algRoot.kind.belongsTo( Kind.DML ) ) {
+                result.getExecutionTimeMonitor().setExecutionStarted();
+            }
             restResult = new RestResult( algRoot.kind, iterator, result.rowType, result.getColumns() );
             restResult.transform();
             long executionTime = restResult.getExecutionTime();
             if ( !algRoot.kind.belongsTo( Kind.DML ) ) {
-                result.getExecutionTimeMonitor().setExecutionTime( executionTime );
+                result.getExecutionTimeMonitor().setExecutionTime( executionTime, restResult.getRowCount() );
             }
 
             statement.getTransaction().commit();
@@ -162,6 +162,11 @@ private void transformNonDML() {
     }
 
 
+    public int getRowCount() {
+        return result.size();
+    }
+
+
     private String addZipEntry( final Object data ) {
         //see https://www.baeldung.com/java-compress-and-uncompress
         containsFiles = true;
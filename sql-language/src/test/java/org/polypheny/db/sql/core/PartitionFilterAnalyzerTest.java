@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.polypheny.db.sql.core;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import org.junit.Before;
+import org.junit.Test;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.operators.OperatorName;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeSystem;
+import org.polypheny.db.languages.OperatorRegistry;
+import org.polypheny.db.partition.PartitionValueSet;
+import org.polypheny.db.prepare.JavaTypeFactoryImpl;
+import org.polypheny.db.processing.PartitionFilterAnalyzer;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Unit tests for {@link PartitionFilterAnalyzer}.
+ */
+public class PartitionFilterAnalyzerTest extends SqlLanguagelDependant {
+
+    private RexBuilder rexBuilder;
+    private AlgDataType integerType;
+    private AlgDataType bigintType;
+    private AlgDataType decimalType;
+
+
+    @Before
+    public void setUp() {
+        JavaTypeFactory typeFactory = new JavaTypeFactoryImpl( AlgDataTypeSystem.DEFAULT );
+        integerType = typeFactory.createPolyType( PolyType.INTEGER );
+        bigintType = typeFactory.createPolyType( PolyType.BIGINT );
+        decimalType = typeFactory.createPolyType( PolyType.DECIMAL, 2, 1 );
+        rexBuilder = new RexBuilder( typeFactory );
+    }
+
+
+    private PartitionValueSet analyze( AlgDataType columnType, RexNode value ) {
+        RexNode condition = rexBuilder.makeCall(
+                OperatorRegistry.get( OperatorName.EQUALS ),
+                rexBuilder.makeInputRef( columnType, 0 ),
+                value );
+        // The statement is only required for dynamic parameters
+        return new PartitionFilterAnalyzer( null, 0 ).analyze( condition );
+    }
+
+
+    @Test
+    public void testLiteral() {
+        PartitionValueSet values = analyze( integerType, rexBuilder.makeExactLiteral( new BigDecimal( "2" ), integerType ) );
+        assertEquals( ImmutableList.of( new BigDecimal( "2" ) ), values.getPoints() );
+    }
+
+
+    @Test
+    public void testWideningCast() {
+        // INTEGER to BIGINT preserves the value
+        RexNode cast = rexBuilder.makeAbstractCast( bigintType, rexBuilder.makeExactLiteral( new BigDecimal( "2" ), integerType ) );
+        PartitionValueSet values = analyze( bigintType, cast );
+        assertEquals( ImmutableList.of( new BigDecimal( "2" ) ), values.getPoints() );
+    }
+
+
+    @Test
+    public void testNarrowingCast() {
+        // DECIMAL to INTEGER changes 2.5 into 2, hence the partition of 2.5 must not be selected
+        RexNode cast = rexBuilder.makeAbstractCast( integerType, rexBuilder.makeExactLiteral( new BigDecimal( "2.5" ), decimalType ) );
+        PartitionValueSet values = analyze( integerType, cast );
+        assertTrue( values.isAll() );
+    }
+
+}
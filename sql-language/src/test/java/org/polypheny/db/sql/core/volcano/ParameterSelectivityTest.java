@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql.core.volcano;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.StatisticsManager;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.DataContext.SlimDataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableConvention;
+import org.polypheny.db.adapter.enumerable.EnumerableRules;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.constant.ExplainFormat;
+import org.polypheny.db.algebra.constant.ExplainLevel;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.core.Filter;
+import org.polypheny.db.algebra.core.Join;
+import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.algebra.rules.FilterJoinRule;
+import org.polypheny.db.algebra.rules.JoinCommuteRule;
+import org.polypheny.db.algebra.rules.ProjectMergeRule;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeFactory;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.SchemaType;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.languages.Parser.ParserConfig;
+import org.polypheny.db.nodes.Node;
+import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.Contexts;
+import org.polypheny.db.prepare.ContextImpl;
+import org.polypheny.db.prepare.JavaTypeFactoryImpl;
+import org.polypheny.db.schema.PolyphenyDbSchema;
+import org.polypheny.db.schema.ScannableTable;
+import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
+import org.polypheny.db.schema.Table;
+import org.polypheny.db.schema.impl.AbstractSchema;
+import org.polypheny.db.schema.impl.AbstractTable;
+import org.polypheny.db.sql.core.SqlLanguagelDependant;
+import org.polypheny.db.tools.FrameworkConfig;
+import org.polypheny.db.tools.Frameworks;
+import org.polypheny.db.tools.Planner;
+import org.polypheny.db.tools.Programs;
+import org.polypheny.db.tools.RuleSet;
+import org.polypheny.db.tools.RuleSets;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.util.ImmutableBitSet;
+
+
+/**
+ * Tests that the {@link org.polypheny.db.plan.volcano.VolcanoPlanner} estimates the selectivity of predicates on
+ * parameters from the column statistics for the bound values, so that the plan depends on them.
+ */
+public class ParameterSelectivityTest extends SqlLanguagelDependant {
+
+    private static final RuleSet RULES = RuleSets.ofList(
+            FilterJoinRule.FILTER_ON_JOIN,
+            FilterJoinRule.JOIN,
+            ProjectMergeRule.INSTANCE,
+            JoinCommuteRule.INSTANCE,
+            EnumerableRules.ENUMERABLE_JOIN_RULE,
+            EnumerableRules.ENUMERABLE_PROJECT_RULE,
+            EnumerableRules.ENUMERABLE_FILTER_RULE,
+            EnumerableRules.ENUMERABLE_TABLE_SCAN_RULE );
+
+    private static final String SQL = "select *\n"
+            + "from \"test\".\"small\" s\n"
+            + "join \"test\".\"big\" b on s.\"s_key\" = b.\"b_key\"\n"
+            + "where b.\"b_value\" < ?";
+
+    private static final int BIG_ROWS = 10_000;
+
+    private static Catalog previousCatalog;
+    private static StatisticsManager previousStatisticsManager;
+
+
+    @BeforeClass
+    public static void init() throws Exception {
+        previousCatalog = Catalog.INSTANCE;
+        previousStatisticsManager = StatisticsManager.INSTANCE;
+
+        final Catalog catalog = mock( Catalog.class );
+        when( catalog.getColumn( anyLong(), anyString() ) ).thenAnswer( invocation -> new CatalogColumn(
+                1,
+                invocation.<String>getArgument( 1 ),
+                invocation.<Long>getArgument( 0 ),
+                1,
+                1,
+                1,
+                PolyType.INTEGER,
+                null,
+                null,
+                null,
+                null,
+                null,
+                false,
+                null,
+                null ) );
+        Catalog.INSTANCE = catalog;
+
+        // The values of the filtered column are uniformly distributed between 0 and the number of rows
+        final StatisticsManager statisticsManager = mock( StatisticsManager.class );
+        when( statisticsManager.getSelectivity( anyLong(), anyLong(), anyLong(), eq( Kind.LESS_THAN ), any() ) )
+                .thenAnswer( invocation -> invocation.<Number>getArgument( 4 ).doubleValue() / BIG_ROWS );
+        StatisticsManager.INSTANCE = statisticsManager;
+    }
+
+
+    @AfterClass
+    public static void restore() {
+        Catalog.INSTANCE = previousCatalog;
+        StatisticsManager.INSTANCE = previousStatisticsManager;
+    }
+
+
+    private static AlgNode plan( Integer parameterValue ) throws Exception {
+        final DataContext dataContext = new SlimDataContext() {
+            @Override
+            public JavaTypeFactory getTypeFactory() {
+                return new JavaTypeFactoryImpl();
+            }
+
+
+            @Override
+            public List<Map<Long, Object>> getParameterValues() {
+                return parameterValue == null ? null : ImmutableList.of( ImmutableMap.<Long, Object>of( 0L, parameterValue ) );
+            }
+        };
+        final SchemaPlus rootSchema = Frameworks.createRootSchema( true );
+        final SchemaPlus defSchema = rootSchema.add( "test", new TestSchema(), SchemaType.RELATIONAL );
+        final FrameworkConfig config = Frameworks.newConfigBuilder()
+                .parserConfig( ParserConfig.DEFAULT )
+                .defaultSchema( defSchema )
+                .traitDefs( ConventionTraitDef.INSTANCE )
+                .programs( Programs.of( RULES ) )
+                .context( Contexts.of( dataContext ) )
+                .prepareContext( new ContextImpl( PolyphenyDbSchema.from( rootSchema ), dataContext, "", 0, 0, null ) )
+                .build();
+        final Planner planner = Frameworks.getPlanner( config );
+        final Node validated = planner.validate( planner.parse( SQL ) );
+        final AlgRoot root = planner.alg( validated );
+        final AlgTraitSet desiredTraits = root.alg.getTraitSet().replace( EnumerableConvention.INSTANCE );
+        final AlgNode result = planner.transform( 0, desiredTraits, root.alg );
+        planner.close();
+        return result;
+    }
+
+
+    private static Join findJoin( AlgNode node ) {
+        if ( node instanceof Join ) {
+            return (Join) node;
+        }
+        for ( AlgNode input : node.getInputs() ) {
+            final Join join = findJoin( input );
+            if ( join != null ) {
+                return join;
+            }
+        }
+        return null;
+    }
+
+
+    private static String dump( AlgNode node ) {
+        return AlgOptUtil.dumpPlan( "", node, ExplainFormat.TEXT, ExplainLevel.EXPPLAN_ATTRIBUTES );
+    }
+
+
+    @Test
+    public void testSelectivityOfBoundValues() throws Exception {
+        final AlgNode selective = plan( 1 );
+        final AlgNode unselective = plan( 9_000 );
+        final Join selectiveJoin = findJoin( selective );
+        final Join unselectiveJoin = findJoin( unselective );
+        assertNotNull( selectiveJoin );
+        assertNotNull( unselectiveJoin );
+
+        // The filtered side of the join is estimated from the statistics, not guessed
+        final AlgMetadataQuery mq = AlgMetadataQuery.instance();
+        final AlgNode selectiveFilter = selectiveJoin.getLeft() instanceof Filter ? selectiveJoin.getLeft() : selectiveJoin.getRight();
+        final AlgNode unselectiveFilter = unselectiveJoin.getLeft() instanceof Filter ? unselectiveJoin.getLeft() : unselectiveJoin.getRight();
+        assertEquals( 1.0, mq.getRowCount( selectiveFilter ), 1e-6 );
+        assertEquals( 9_000.0, mq.getRowCount( unselectiveFilter ), 1e-6 );
+
+        // The smaller input is on the left, hence the two buckets of the bound value are optimized into different plans
+        assertTrue( selectiveJoin.getLeft() instanceof Filter );
+        assertTrue( unselectiveJoin.getRight() instanceof Filter );
+        assertNotEquals( dump( selective ), dump( unselective ) );
+    }
+
+
+    @Test
+    public void testWithoutBoundValues() throws Exception {
+        // Without bound values, the selectivity is guessed
+        final Join join = findJoin( plan( null ) );
+        assertNotNull( join );
+        final AlgNode filter = join.getLeft() instanceof Filter ? join.getLeft() : join.getRight();
+        assertEquals( BIG_ROWS * 0.5, AlgMetadataQuery.instance().getRowCount( filter ), 1e-6 );
+    }
+
+
+    private static class TestSchema extends AbstractSchema {
+
+        private final Map<String, Table> tables = ImmutableMap.<String, Table>builder()
+                .put( "small", new TestTable( 1L, 100, "s_key" ) )
+                .put( "big", new TestTable( 2L, BIG_ROWS, "b_key", "b_value" ) )
+                .build();
+
+
+        @Override
+        protected Map<String, Table> getTableMap() {
+            return tables;
+        }
+
+    }
+
+
+    /**
+     * Table of integer columns whose first column is the key.
+     */
+    private static class TestTable extends AbstractTable implements ScannableTable {
+
+        private final double rowCount;
+        private final String[] columns;
+
+
+        TestTable( long tableId, double rowCount, String... columns ) {
+            this.tableId = tableId;
+            this.rowCount = rowCount;
+            this.columns = columns;
+        }
+
+
+        @Override
+        public AlgDataType getRowType( AlgDataTypeFactory typeFactory ) {
+            final AlgDataTypeFactory.Builder builder = typeFactory.builder();
+            for ( String column : columns ) {
+                builder.add( column, null, typeFactory.createJavaType( int.class ) );
+            }
+            return builder.build();
+        }
+
+
+        @Override
+        public Statistic getStatistic() {
+            return Statistics.of( rowCount, ImmutableList.of( ImmutableBitSet.of( 0 ) ) );
+        }
+
+
+        @Override
+        public Enumerable<Object[]> scan( DataContext root ) {
+            return Linq4j.emptyEnumerable();
+        }
+
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2019-2022 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql.core.volcano;
+
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Test;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.DataContext.SlimDataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableConvention;
+import org.polypheny.db.adapter.enumerable.EnumerableRules;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.constant.ExplainFormat;
+import org.polypheny.db.algebra.constant.ExplainLevel;
+import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.algebra.rules.FilterJoinRule;
+import org.polypheny.db.algebra.rules.JoinAssociateRule;
+import org.polypheny.db.algebra.rules.JoinCommuteRule;
+import org.polypheny.db.algebra.rules.JoinPushThroughJoinRule;
+import org.polypheny.db.algebra.rules.ProjectMergeRule;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeFactory;
+import org.polypheny.db.catalog.Catalog.SchemaType;
+import org.polypheny.db.languages.Parser.ParserConfig;
+import org.polypheny.db.nodes.Node;
+import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.volcano.AlgSubset;
+import org.polypheny.db.plan.volcano.VolcanoPlanner;
+import org.polypheny.db.prepare.ContextImpl;
+import org.polypheny.db.prepare.JavaTypeFactoryImpl;
+import org.polypheny.db.schema.PolyphenyDbSchema;
+import org.polypheny.db.schema.ScannableTable;
+import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
+import org.polypheny.db.schema.Table;
+import org.polypheny.db.schema.impl.AbstractSchema;
+import org.polypheny.db.schema.impl.AbstractTable;
+import org.polypheny.db.sql.core.SqlLanguagelDependant;
+import org.polypheny.db.tools.FrameworkConfig;
+import org.polypheny.db.tools.Frameworks;
+import org.polypheny.db.tools.Planner;
+import org.polypheny.db.tools.Programs;
+import org.polypheny.db.tools.RuleSet;
+import org.polypheny.db.tools.RuleSets;
+import org.polypheny.db.util.Benchmark;
+import org.polypheny.db.util.ImmutableBitSet;
+
+
+/**
+ * Benchmarks of the {@link VolcanoPlanner} on join queries shaped like the TPC-H queries 3, 5 and 8.
+ *
+ * The performance test is enabled only if logging is enabled at debug level, see {@link Benchmark#enabled()}.
+ */
+@Slf4j
+public class VolcanoPlannerBenchmarkTest extends SqlLanguagelDependant {
+
+    /**
+     * Similar to the rules registered by the query processor, including the exhaustive join reordering rules.
+     */
+    private static final RuleSet RULES = RuleSets.ofList(
+            FilterJoinRule.FILTER_ON_JOIN,
+            FilterJoinRule.JOIN,
+            ProjectMergeRule.INSTANCE,
+            JoinCommuteRule.INSTANCE,
+            JoinAssociateRule.INSTANCE,
+            JoinPushThroughJoinRule.LEFT,
+            JoinPushThroughJoinRule.RIGHT,
+            EnumerableRules.ENUMERABLE_JOIN_RULE,
+            EnumerableRules.ENUMERABLE_PROJECT_RULE,
+            EnumerableRules.ENUMERABLE_FILTER_RULE,
+            EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
+            EnumerableRules.ENUMERABLE_SORT_RULE,
+            EnumerableRules.ENUMERABLE_TABLE_SCAN_RULE );
+
+    private static final String Q3 = "select o.\"o_orderkey\", sum(l.\"l_extendedprice\")\n"
+            + "from \"tpch\".\"customer\" c\n"
+            + "join \"tpch\".\"orders\" o on c.\"c_custkey\" = o.\"o_custkey\"\n"
+            + "join \"tpch\".\"lineitem\" l on l.\"l_orderkey\" = o.\"o_orderkey\"\n"
+            + "where c.\"c_mktsegment\" = 'BUILDING' and o.\"o_orderdate\" < 19950315\n"
+            + "group by o.\"o_orderkey\"";
+
+    private static final String Q5 = "select n.\"n_name\", sum(l.\"l_extendedprice\")\n"
+            + "from \"tpch\".\"customer\" c\n"
+            + "join \"tpch\".\"orders\" o on c.\"c_custkey\" = o.\"o_custkey\"\n"
+            + "join \"tpch\".\"lineitem\" l on l.\"l_orderkey\" = o.\"o_orderkey\"\n"
+            + "join \"tpch\".\"supplier\" s on l.\"l_suppkey\" = s.\"s_suppkey\"\n"
+            + "join \"tpch\".\"nation\" n on s.\"s_nationkey\" = n.\"n_nationkey\"\n"
+            + "join \"tpch\".\"region\" r on n.\"n_regionkey\" = r.\"r_regionkey\"\n"
+            + "where c.\"c_nationkey\" = s.\"s_nationkey\" and r.\"r_name\" = 'ASIA'\n"
+            + "group by n.\"n_name\"";
+
+    private static final String Q8 = "select o.\"o_orderdate\", sum(l.\"l_extendedprice\")\n"
+            + "from \"tpch\".\"part\" p\n"
+            + "join \"tpch\".\"lineitem\" l on p.\"p_partkey\" = l.\"l_partkey\"\n"
+            + "join \"tpch\".\"supplier\" s on s.\"s_suppkey\" = l.\"l_suppkey\"\n"
+            + "join \"tpch\".\"orders\" o on l.\"l_orderkey\" = o.\"o_orderkey\"\n"
+            + "join \"tpch\".\"customer\" c on o.\"o_custkey\" = c.\"c_custkey\"\n"
+            + "join \"tpch\".\"nation\" n1 on c.\"c_nationkey\" = n1.\"n_nationkey\"\n"
+            + "join \"tpch\".\"region\" r on n1.\"n_regionkey\" = r.\"r_regionkey\"\n"
+            + "join \"tpch\".\"nation\" n2 on s.\"s_nationkey\" = n2.\"n_nationkey\"\n"
+            + "where r.\"r_name\" = 'AMERICA' and p.\"p_type\" = 'ECONOMY ANODIZED STEEL'\n"
+            + "group by o.\"o_orderdate\"";
+
+
+    private static Planner newPlanner() {
+        final SchemaPlus rootSchema = Frameworks.createRootSchema( true );
+        final SchemaPlus defSchema = rootSchema.add( "tpch", new TpchSchema(), SchemaType.RELATIONAL );
+        final FrameworkConfig config = Frameworks.newConfigBuilder()
+                .parserConfig( ParserConfig.DEFAULT )
+                .defaultSchema( defSchema )
+                .traitDefs( ConventionTraitDef.INSTANCE )
+                .programs( Programs.of( RULES ) )
+                .prepareContext( new ContextImpl(
+                        PolyphenyDbSchema.from( rootSchema ),
+                        new SlimDataContext() {
+                            @Override
+                            public JavaTypeFactory getTypeFactory() {
+                                return new JavaTypeFactoryImpl();
+                            }
+                        },
+                        "",
+                        0,
+                        0,
+                        null ) )
+                .build();
+        return Frameworks.getPlanner( config );
+    }
+
+
+    /**
+     * Plans the query and returns the planner that has been used, together with the plan.
+     *
+     * @param ruleFiringBudget Maximum number of rule firings, or 0 if unlimited
+     */
+    private static VolcanoPlanner plan( String sql, int ruleFiringBudget, AlgNode[] result ) throws Exception {
+        final Planner planner = newPlanner();
+        final Node validated = planner.validate( planner.parse( sql ) );
+        final AlgRoot root = planner.alg( validated );
+        final VolcanoPlanner volcanoPlanner = (VolcanoPlanner) root.alg.getCluster().getPlanner();
+        volcanoPlanner.setBudget( 0, ruleFiringBudget );
+        final AlgTraitSet desiredTraits = root.alg.getTraitSet().replace( EnumerableConvention.INSTANCE );
+        result[0] = planner.transform( 0, desiredTraits, root.alg );
+        planner.close();
+        return volcanoPlanner;
+    }
+
+
+    @Test
+    public void testPlan() throws Exception {
+        final AlgNode[] result = new AlgNode[1];
+        final VolcanoPlanner planner = plan( Q3, 0, result );
+        assertThat( AlgOptUtil.dumpPlan( "", result[0], ExplainFormat.TEXT, ExplainLevel.EXPPLAN_ATTRIBUTES ), containsString( "EnumerableJoin" ) );
+        assertTrue( planner.getRuleFiringCount() > 0 );
+    }
+
+
+    @Test
+    public void testPlanWithinBudget() throws Exception {
+        final AlgNode[] result = new AlgNode[1];
+        final VolcanoPlanner planner = plan( Q5, 200, result );
+        assertThat( AlgOptUtil.dumpPlan( "", result[0], ExplainFormat.TEXT, ExplainLevel.EXPPLAN_ATTRIBUTES ), containsString( "EnumerableJoin" ) );
+        assertTrue( planner.isBudgetExhausted() );
+    }
+
+
+    @Test
+    public void testSharedMetadata() throws Exception {
+        final AlgNode[] result = new AlgNode[1];
+        plan( Q3, 0, result );
+        final AlgNode alg = result[0];
+        final Map<List, Object> sharedMetadata = new ConcurrentHashMap<>();
+        final Double rowCount = AlgMetadataQuery.instance( sharedMetadata ).getRowCount( alg );
+        final int size = sharedMetadata.size();
+        assertTrue( size > 0 );
+
+        // An equal expression is answered from the shared map by another metadata query
+        final AlgNode copy = alg.copy( alg.getTraitSet(), alg.getInputs() );
+        assertEquals( rowCount, AlgMetadataQuery.instance( sharedMetadata ).getRowCount( copy ) );
+        assertEquals( size, sharedMetadata.size() );
+    }
+
+
+    @Test
+    public void testSharedMetadataOfPlannerNodes() throws Exception {
+        final VolcanoPlanner planner = plan( Q3, 0, new AlgNode[1] );
+        final AlgNode root = planner.getRoot();
+        assertTrue( root instanceof AlgSubset );
+        final Map<List, Object> sharedMetadata = new ConcurrentHashMap<>();
+        final Double rowCount = AlgMetadataQuery.instance( sharedMetadata ).getRowCount( root );
+        assertEquals( AlgMetadataQuery.instance().getRowCount( root ), rowCount );
+
+        // Subsets and expressions with subsets as inputs are shared as well
+        final int size = sharedMetadata.size();
+        assertTrue( size > 0 );
+        assertEquals( rowCount, AlgMetadataQuery.instance( sharedMetadata ).getRowCount( root ) );
+        assertEquals( size, sharedMetadata.size() );
+    }
+
+
+    @Test
+    public void testPerformance() {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        benchmark( "TPC-H Q3 (3 tables)", Q3, 0 );
+        benchmark( "TPC-H Q5 (6 tables)", Q5, 0 );
+        benchmark( "TPC-H Q5 (6 tables), 1000 rule firings", Q5, 1000 );
+        benchmark( "TPC-H Q8 (8 tables), 5000 rule firings", Q8, 5000 );
+    }
+
+
+    private static void benchmark( String description, String sql, int ruleFiringBudget ) {
+        new Benchmark( "plan " + description, statistician -> {
+            final AlgNode[] result = new AlgNode[1];
+            final long start = System.nanoTime();
+            final VolcanoPlanner planner;
+            try {
+                planner = plan( sql, ruleFiringBudget, result );
+            } catch ( Exception e ) {
+                throw new RuntimeException( e );
+            }
+            statistician.record( start );
+            log.debug( "{}: {} rules fired, {} duplicate matches discarded, phases {}",
+                    description,
+                    planner.getRuleFiringCount(),
+                    planner.getDuplicateMatchCount(),
+                    planner.getPhaseNanos() );
+            return null;
+        }, 10 ).run();
+    }
+
+
+    /**
+     * The tables of TPC-H with the columns needed for the queries, and the row counts of scale factor 1.
+     */
+    private static class TpchSchema extends AbstractSchema {
+
+        private final Map<String, Table> tables = ImmutableMap.<String, Table>builder()
+                .put( "region", new TpchTable( 5, "r_regionkey", "r_name" ) )
+                .put( "nation", new TpchTable( 25, "n_nationkey", "n_name", "n_regionkey" ) )
+                .put( "supplier", new TpchTable( 10_000, "s_suppkey", "s_nationkey" ) )
+                .put( "customer", new TpchTable( 150_000, "c_custkey", "c_nationkey", "c_mktsegment" ) )
+                .put( "part", new TpchTable( 200_000, "p_partkey", "p_type" ) )
+                .put( "orders", new TpchTable( 1_500_000, "o_orderkey", "o_custkey", "o_orderdate" ) )
+                .put( "lineitem", new TpchTable( 6_000_000, "l_orderkey", "l_partkey", "l_suppkey", "l_extendedprice" ) )
+                .build();
+
+
+        @Override
+        protected Map<String, Table> getTableMap() {
+            return tables;
+        }
+
+    }
+
+
+    /**
+     * Table whose first column is the key. Columns ending with "key" or "date" are integers, the others are strings,
+     * except for prices.
+     */
+    private static class TpchTable extends AbstractTable implements ScannableTable {
+
+        private final double rowCount;
+        private final String[] columns;
+
+
+        TpchTable( double rowCount, String... columns ) {
+            this.rowCount = rowCount;
+            this.columns = columns;
+        }
+
+
+        @Override
+        public AlgDataType getRowType( AlgDataTypeFactory typeFactory ) {
+            final AlgDataTypeFactory.Builder builder = typeFactory.builder();
+            for ( String column : columns ) {
+                final Class<?> clazz;
+                if ( column.endsWith( "key" ) || column.endsWith( "date" ) ) {
+                    clazz = int.class;
+                } else if ( column.endsWith( "price" ) ) {
+                    clazz = double.class;
+                } else {
+                    clazz = String.class;
+                }
+                builder.add( column, null, typeFactory.createJavaType( clazz ) );
+            }
+            return builder.build();
+        }
+
+
+        @Override
+        public Statistic getStatistic() {
+            return Statistics.of( rowCount, ImmutableList.of( ImmutableBitSet.of( 0 ) ) );
+        }
+
+
+        @Override
+        public Enumerable<Object[]> scan( DataContext root ) {
+            return Linq4j.emptyEnumerable();
+        }
+
+    }
+
+}
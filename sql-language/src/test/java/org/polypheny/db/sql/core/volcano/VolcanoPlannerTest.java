@@ -114,6 +114,29 @@ public void testTransformSingleGood() {
     }
 
 
+    /**
+     * Tests that a planner whose budget is exhausted still returns an implementable plan.
+     */
+    @Test
+    public void testBudgetExhausted() {
+        VolcanoPlanner planner = new VolcanoPlanner();
+        planner.addAlgTraitDef( ConventionTraitDef.INSTANCE );
+        planner.setBudget( 0, 1 );
+
+        planner.addRule( new PhysLeafRule() );
+        planner.addRule( new GoodSingleRule() );
+
+        AlgOptCluster cluster = PlannerTests.newCluster( planner );
+        NoneLeafAlg leafRel = new NoneLeafAlg( cluster, "a" );
+        NoneSingleAlg singleRel = new NoneSingleAlg( cluster, leafRel );
+        AlgNode convertedRel = planner.changeTraits( singleRel, cluster.traitSetOf( PlannerTests.PHYS_CALLING_CONVENTION ) );
+        planner.setRoot( convertedRel );
+        AlgNode result = planner.chooseDelegate().findBestExp();
+        assertTrue( result instanceof PhysSingleAlg );
+        assertTrue( planner.isBudgetExhausted() );
+    }
+
+
     /**
      * Tests a rule that is fired once per subset (whereas most rules are fired once per alg in a set or alg in a subset)
      */